@@ -0,0 +1,109 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.factories.VariantDataService;
+import de.charite.compbio.exomiser.core.factories.VariantFactory;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Base for the benchmarks which work on chunks of annotated variants in the same way as the AnalysisRunner. A pool
+ * of up to {@link #MAX_CHUNKS} chunks is drawn from the sample and loaded into a {@link BenchmarkDatabase}, then each
+ * invocation of the benchmark gets the next chunk of freshly annotated VariantEvaluations. The variants need to be
+ * fresh as the filters and data providers change their state. The pool is much smaller than a genome so that the
+ * database will fit in memory, but has the same mix of coding, non-coding and known variants as the full sample.
+ *
+ * The benchmarks use {@code @OperationsPerInvocation(CHUNK_SIZE)} so the scores are per variant.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractVariantChunkBenchmark {
+
+    //same as the AnalysisRunner
+    public static final int CHUNK_SIZE = 5000;
+    public static final int MAX_CHUNKS = 20;
+
+    @Param({"EXOME", "GENOME"})
+    public InputSize inputSize;
+
+    protected SyntheticGenome syntheticGenome;
+    protected VariantFactory variantFactory;
+    protected BenchmarkDatabase database;
+    protected VariantDataService variantDataService;
+
+    private final List<List<VariantContext>> chunks = new ArrayList<>();
+    private int nextChunk = 0;
+
+    protected List<VariantEvaluation> variantEvaluations;
+
+    @Setup(Level.Trial)
+    public void setUpDatabase() {
+        syntheticGenome = new SyntheticGenome();
+        variantFactory = new VariantFactory(syntheticGenome.getJannovarData());
+
+        List<VariantContext> variantContexts = syntheticGenome.streamVariantContexts(inputSize, SyntheticGenome.DEFAULT_SEED)
+                .limit((long) CHUNK_SIZE * MAX_CHUNKS)
+                .collect(toList());
+        for (int start = 0; start + CHUNK_SIZE <= variantContexts.size(); start += CHUNK_SIZE) {
+            chunks.add(new ArrayList<>(variantContexts.subList(start, start + CHUNK_SIZE)));
+        }
+
+        List<VariantEvaluation> allVariantEvaluations = variantFactory.streamVariantEvaluations(variantContexts.stream()).collect(toList());
+        database = BenchmarkDatabase.create(allVariantEvaluations, inputSize.getKnownFraction(), SyntheticGenome.DEFAULT_SEED);
+        variantDataService = BenchmarkDataConfig.buildVariantDataService(database.getDataSource());
+        setUpBenchmark();
+    }
+
+    /**
+     * Called once the variantDataService is ready. Override this rather than adding another trial level
+     * {@code @Setup} method, as JMH doesn't guarantee the order in which these are run.
+     */
+    protected void setUpBenchmark() {
+    }
+
+    /**
+     * Annotating a chunk takes far longer than the timer resolution, so the usual warnings about Level.Invocation
+     * don't apply here.
+     */
+    @Setup(Level.Invocation)
+    public void setUpNextChunk() {
+        List<VariantContext> chunk = chunks.get(nextChunk);
+        nextChunk = (nextChunk + 1) % chunks.size();
+        variantEvaluations = variantFactory.streamVariantEvaluations(chunk.stream()).collect(toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownDatabase() {
+        database.shutdown();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.dao.CaddDao;
+import de.charite.compbio.exomiser.core.dao.DefaultFrequencyDao;
+import de.charite.compbio.exomiser.core.dao.DefaultPathogenicityDao;
+import de.charite.compbio.exomiser.core.dao.RegulatoryFeatureDao;
+import de.charite.compbio.exomiser.core.dao.RemmDao;
+import de.charite.compbio.exomiser.core.dao.TadDao;
+import de.charite.compbio.exomiser.core.factories.VariantDataService;
+import de.charite.compbio.exomiser.core.factories.VariantDataServiceImpl;
+import htsjdk.tribble.readers.TabixReader;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wires up a {@link VariantDataService} in the same way as the production config, but against a
+ * {@link BenchmarkDatabase}. There are no CADD or REMM tabix files, so the benchmarks must not ask for these sources.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@Configuration
+public class BenchmarkDataConfig {
+
+    /**
+     * @param dataSource
+     * @return a VariantDataService using the supplied dataSource.
+     */
+    public static VariantDataService buildVariantDataService(DataSource dataSource) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("dataSource", dataSource);
+        context.register(BenchmarkDataConfig.class);
+        context.refresh();
+        return context.getBean(VariantDataService.class);
+    }
+
+    @Bean
+    public VariantDataService variantDataService() {
+        return new VariantDataServiceImpl();
+    }
+
+    @Bean
+    public DefaultFrequencyDao defaultFrequencyDao() {
+        return new DefaultFrequencyDao();
+    }
+
+    @Bean
+    public DefaultPathogenicityDao defaultPathogenicityDao() {
+        return new DefaultPathogenicityDao();
+    }
+
+    @Bean
+    public CaddDao caddDao() {
+        return new CaddDao((TabixReader) null, (TabixReader) null);
+    }
+
+    @Bean
+    public RemmDao remmDao() {
+        return new RemmDao(null);
+    }
+
+    @Bean
+    public RegulatoryFeatureDao regulatoryFeatureDao() {
+        return new RegulatoryFeatureDao();
+    }
+
+    @Bean
+    public TadDao tadDao() {
+        return new TadDao();
+    }
+}
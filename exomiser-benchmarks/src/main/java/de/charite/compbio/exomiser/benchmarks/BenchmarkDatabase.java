@@ -0,0 +1,145 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database in PostgreSQL mode holding frequency and pathogenicity data for a set of synthetic variants.
+ * As with the real database, the data is bulk-loaded into the bare tables and the indexes are created afterwards.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class BenchmarkDatabase {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkDatabase.class);
+
+    private static final AtomicInteger databaseNumber = new AtomicInteger(1);
+    private static final int BATCH_SIZE = 10_000;
+
+    private final JdbcConnectionPool dataSource;
+
+    private BenchmarkDatabase() {
+        //each database gets a unique name so that there is no cross-talk between benchmarks run in the same JVM
+        String url = "jdbc:h2:mem:benchmark" + databaseNumber.getAndIncrement() + ";MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1;";
+        dataSource = JdbcConnectionPool.create(url, "sa", "sa");
+    }
+
+    /**
+     * Creates a new database containing frequency data for the given fraction of the variants and pathogenicity
+     * scores for the same known SNVs. Which variants are known is decided by the seed.
+     *
+     * @param variantEvaluations the annotated variants to create the data for.
+     * @param knownFraction fraction of the variants to create frequency data for.
+     * @param seed
+     * @return
+     */
+    public static BenchmarkDatabase create(List<VariantEvaluation> variantEvaluations, double knownFraction, long seed) {
+        BenchmarkDatabase database = new BenchmarkDatabase();
+        database.runScript("sql/create_tables.sql");
+        database.loadData(variantEvaluations, knownFraction, new Random(seed));
+        database.runScript("sql/create_indexes.sql");
+        return database;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public void shutdown() {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+        dataSource.dispose();
+    }
+
+    private void runScript(String scriptPath) {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(scriptPath));
+        populator.execute(dataSource);
+    }
+
+    private void loadData(List<VariantEvaluation> variantEvaluations, double knownFraction, Random random) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String frequencyInsert = "INSERT INTO frequency VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String pathogenicityInsert = "INSERT INTO variant VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> frequencyRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> pathogenicityRows = new ArrayList<>(BATCH_SIZE);
+        int numFrequencyRows = 0;
+        int numPathogenicityRows = 0;
+        for (VariantEvaluation variantEvaluation : variantEvaluations) {
+            if (random.nextDouble() >= knownFraction) {
+                continue;
+            }
+            frequencyRows.add(buildFrequencyRow(variantEvaluation, random));
+            numFrequencyRows++;
+            if (isSnv(variantEvaluation)) {
+                pathogenicityRows.add(buildPathogenicityRow(variantEvaluation, random));
+                numPathogenicityRows++;
+            }
+            if (frequencyRows.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(frequencyInsert, frequencyRows);
+                frequencyRows.clear();
+            }
+            if (pathogenicityRows.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(pathogenicityInsert, pathogenicityRows);
+                pathogenicityRows.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate(frequencyInsert, frequencyRows);
+        jdbcTemplate.batchUpdate(pathogenicityInsert, pathogenicityRows);
+        logger.info("Loaded {} frequency and {} pathogenicity rows for {} variants", numFrequencyRows, numPathogenicityRows, variantEvaluations.size());
+    }
+
+    private static boolean isSnv(VariantEvaluation variantEvaluation) {
+        return variantEvaluation.getRef().length() == 1 && variantEvaluation.getAlt().length() == 1
+                && !variantEvaluation.getRef().equals("-") && !variantEvaluation.getAlt().equals("-");
+    }
+
+    private static Object[] buildFrequencyRow(VariantEvaluation variantEvaluation, Random random) {
+        Object[] row = new Object[16];
+        row[0] = variantEvaluation.getChromosome();
+        row[1] = variantEvaluation.getPosition();
+        row[2] = variantEvaluation.getRef();
+        row[3] = variantEvaluation.getAlt();
+        //about half of the known variants have an rsId
+        row[4] = random.nextBoolean() ? 1 + random.nextInt(100_000_000) : 0;
+        for (int column = 5; column < row.length; column++) {
+            //sparse, mostly rare, percentage frequencies as per the real data
+            row[column] = random.nextInt(3) == 0 ? 0d : 100 * Math.pow(random.nextDouble(), 4);
+        }
+        return row;
+    }
+
+    private static Object[] buildPathogenicityRow(VariantEvaluation variantEvaluation, Random random) {
+        return new Object[]{variantEvaluation.getChromosome(), variantEvaluation.getPosition(), variantEvaluation.getRef(), variantEvaluation.getAlt(),
+            //sift, polyphen, mut_taster, cadd, cadd_raw
+            random.nextDouble(), random.nextDouble(), random.nextDouble(), 40 * random.nextDouble(), 10 * random.nextDouble() - 2};
+    }
+}
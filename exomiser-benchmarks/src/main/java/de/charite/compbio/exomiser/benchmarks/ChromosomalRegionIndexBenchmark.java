@@ -0,0 +1,170 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.analysis.util.ChromosomalRegionIndex;
+import de.charite.compbio.exomiser.core.model.ChromosomalRegion;
+import de.charite.compbio.exomiser.core.model.RegulatoryFeature;
+import de.charite.compbio.exomiser.core.model.TopologicalDomain;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Lookups of the regions overlapping variant positions using the {@link ChromosomalRegionIndex} interval trees and
+ * the {@link ChromosomalRegionIndex.SweepCursor}, for positions in VCF order and in random order. The TADs are large
+ * and tile the genome, whereas the regulatory features are small, numerous and overlap each other.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ChromosomalRegionIndexBenchmark {
+
+    private static final int NUM_QUERIES = 100_000;
+    private static final int NUM_REGULATORY_FEATURES = 300_000;
+    //the regions all lie within the first 45Mb of each chromosome, as do the variants
+    private static final int REGION_SPACE = 45_000_000;
+
+    public enum RegionType {
+        TAD, REGULATORY_FEATURE
+    }
+
+    @Param
+    public RegionType regionType;
+
+    private ChromosomalRegionIndex<? extends ChromosomalRegion> index;
+    private int[] sortedChromosomes;
+    private int[] sortedPositions;
+    private int[] shuffledChromosomes;
+    private int[] shuffledPositions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SyntheticGenome.DEFAULT_SEED);
+        if (regionType == RegionType.TAD) {
+            index = new ChromosomalRegionIndex<>(buildTads(random));
+        } else {
+            index = new ChromosomalRegionIndex<>(buildRegulatoryFeatures(random));
+        }
+
+        //take an even spread of positions from the whole genome rather than just the start of chromosome 1
+        List<VariantContext> variantContexts = new SyntheticGenome().streamVariantContexts(InputSize.GENOME, SyntheticGenome.DEFAULT_SEED)
+                .filter(variantContext -> random.nextInt(InputSize.GENOME.getNumVariants() / NUM_QUERIES) == 0)
+                .limit(NUM_QUERIES)
+                .collect(toList());
+        List<int[]> queries = variantContexts.stream()
+                .map(variantContext -> new int[]{Integer.parseInt(variantContext.getContig()), variantContext.getStart()})
+                .collect(toList());
+        sortedChromosomes = queries.stream().mapToInt(query -> query[0]).toArray();
+        sortedPositions = queries.stream().mapToInt(query -> query[1]).toArray();
+
+        List<int[]> shuffledQueries = new ArrayList<>(queries);
+        Collections.shuffle(shuffledQueries, random);
+        shuffledChromosomes = shuffledQueries.stream().mapToInt(query -> query[0]).toArray();
+        shuffledPositions = shuffledQueries.stream().mapToInt(query -> query[1]).toArray();
+    }
+
+    private static List<TopologicalDomain> buildTads(Random random) {
+        List<TopologicalDomain> tads = new ArrayList<>();
+        for (int chr = 1; chr <= SyntheticGenome.NUM_CHROMOSOMES; chr++) {
+            int start = 1;
+            while (start < REGION_SPACE) {
+                int end = start + 200_000 + random.nextInt(1_800_000);
+                tads.add(new TopologicalDomain(chr, start, end, Collections.emptyMap()));
+                start = end + 1;
+            }
+        }
+        return tads;
+    }
+
+    private static List<RegulatoryFeature> buildRegulatoryFeatures(Random random) {
+        RegulatoryFeature.FeatureType[] featureTypes = RegulatoryFeature.FeatureType.values();
+        List<RegulatoryFeature> regulatoryFeatures = new ArrayList<>(NUM_REGULATORY_FEATURES);
+        for (int i = 0; i < NUM_REGULATORY_FEATURES; i++) {
+            int chr = 1 + random.nextInt(SyntheticGenome.NUM_CHROMOSOMES);
+            int start = 1 + random.nextInt(REGION_SPACE);
+            int end = start + 200 + random.nextInt(1800);
+            regulatoryFeatures.add(new RegulatoryFeature(chr, start, end, featureTypes[random.nextInt(featureTypes.length)]));
+        }
+        return regulatoryFeatures;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUERIES)
+    public void indexSortedPositions(Blackhole blackhole) {
+        queryIndex(sortedChromosomes, sortedPositions, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUERIES)
+    public void indexShuffledPositions(Blackhole blackhole) {
+        queryIndex(shuffledChromosomes, shuffledPositions, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUERIES)
+    public void sweepCursorSortedPositions(Blackhole blackhole) {
+        querySweepCursor(sortedChromosomes, sortedPositions, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUERIES)
+    public void sweepCursorShuffledPositions(Blackhole blackhole) {
+        querySweepCursor(shuffledChromosomes, shuffledPositions, blackhole);
+    }
+
+    private void queryIndex(int[] chromosomes, int[] positions, Blackhole blackhole) {
+        for (int i = 0; i < chromosomes.length; i++) {
+            blackhole.consume(index.getRegionsOverlappingPosition(chromosomes[i], positions[i]));
+        }
+    }
+
+    private void querySweepCursor(int[] chromosomes, int[] positions, Blackhole blackhole) {
+        ChromosomalRegionIndex.SweepCursor<? extends ChromosomalRegion> cursor = index.newSweepCursor();
+        for (int i = 0; i < chromosomes.length; i++) {
+            blackhole.consume(cursor.getRegionsOverlappingPosition(chromosomes[i], positions[i]));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.analysis.util.GeneScorer;
+import de.charite.compbio.exomiser.core.analysis.util.RankBasedGeneScorer;
+import de.charite.compbio.exomiser.core.analysis.util.RawScoreGeneScorer;
+import de.charite.compbio.exomiser.core.factories.GeneFactory;
+import de.charite.compbio.exomiser.core.factories.VariantFactory;
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import de.charite.compbio.exomiser.core.prioritisers.PhenixPriorityResult;
+import de.charite.compbio.jannovar.pedigree.ModeOfInheritance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Time taken to score and rank the genes of a sample with each of the GeneScorers. The genes are rebuilt from the
+ * same annotated variants before each invocation as the scorers sort the list and overwrite the gene scores. Each gene
+ * is given a random PhenIX score to stand in for the output of a prioritiser.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class GeneScorerBenchmark {
+
+    private static final int MAX_VARIANTS = AbstractVariantChunkBenchmark.CHUNK_SIZE * AbstractVariantChunkBenchmark.MAX_CHUNKS;
+
+    public enum Scorer {
+        RAW_SCORE {
+            @Override
+            GeneScorer build() {
+                return new RawScoreGeneScorer();
+            }
+        },
+        RANK_BASED {
+            @Override
+            GeneScorer build() {
+                return new RankBasedGeneScorer();
+            }
+        };
+
+        abstract GeneScorer build();
+    }
+
+    @Param({"EXOME", "GENOME"})
+    public InputSize inputSize;
+
+    @Param({"RAW_SCORE", "RANK_BASED"})
+    public Scorer scorer;
+
+    @Param({"AUTOSOMAL_DOMINANT", "AUTOSOMAL_RECESSIVE"})
+    public ModeOfInheritance modeOfInheritance;
+
+    private GeneScorer geneScorer;
+    private final GeneFactory geneFactory = new GeneFactory();
+    private List<VariantEvaluation> variantEvaluations;
+    private final Map<Integer, Double> priorityScores = new HashMap<>();
+
+    private List<Gene> genes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        geneScorer = scorer.build();
+        SyntheticGenome syntheticGenome = new SyntheticGenome();
+        VariantFactory variantFactory = new VariantFactory(syntheticGenome.getJannovarData());
+        variantEvaluations = variantFactory.streamVariantEvaluations(syntheticGenome.streamVariantContexts(inputSize, SyntheticGenome.DEFAULT_SEED)
+                .limit(MAX_VARIANTS))
+                .collect(toList());
+
+        Random random = new Random(SyntheticGenome.DEFAULT_SEED);
+        for (int i = 0; i < syntheticGenome.getNumGenes(); i++) {
+            priorityScores.put(SyntheticGenome.getEntrezId(i), random.nextDouble());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpGenes() {
+        genes = geneFactory.createGenes(variantEvaluations);
+        for (Gene gene : genes) {
+            gene.addPriorityResult(new PhenixPriorityResult(priorityScores.getOrDefault(gene.getEntrezGeneID(), 0d)));
+        }
+    }
+
+    @Benchmark
+    public List<Gene> scoreGenes() {
+        geneScorer.scoreGenes(genes, modeOfInheritance);
+        return genes;
+    }
+}
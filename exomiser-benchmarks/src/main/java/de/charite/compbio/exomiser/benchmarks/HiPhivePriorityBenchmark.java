@@ -0,0 +1,100 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.prioritisers.HiPhiveOptions;
+import de.charite.compbio.exomiser.core.prioritisers.HiPhivePriority;
+import de.charite.compbio.exomiser.core.prioritisers.util.DataMatrix;
+import de.charite.compbio.exomiser.core.prioritisers.util.PriorityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time taken by the {@link HiPhivePriority} to score a list of genes against all three species and the PPI random
+ * walk matrix. The smaller gene list is typical of the genes left after filtering an exome, the larger is every gene.
+ * A new prioritiser is made for each invocation as they hold the state of the last run, but the PriorityService is
+ * shared as it is in an application, so its phenotype match indexes are only built during the warmup.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class HiPhivePriorityBenchmark {
+
+    private static final int NUM_QUERY_TERMS = 5;
+
+    @Param({"500", "20000"})
+    public int numGenes;
+
+    private List<String> queryHpoIds;
+    private PriorityService priorityService;
+    private DataMatrix randomWalkMatrix;
+    private SyntheticGenome syntheticGenome;
+
+    private List<Gene> genes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        syntheticGenome = new SyntheticGenome();
+        SyntheticPhenotypeData phenotypeData = new SyntheticPhenotypeData(syntheticGenome.getNumGenes(), SyntheticGenome.DEFAULT_SEED);
+        queryHpoIds = phenotypeData.getQueryHpoIds(NUM_QUERY_TERMS);
+        randomWalkMatrix = phenotypeData.buildRandomWalkMatrix();
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("ontologyService", phenotypeData.getOntologyService());
+        context.getBeanFactory().registerSingleton("modelService", phenotypeData.getModelService());
+        context.getBeanFactory().registerSingleton("diseaseDao", phenotypeData.getDiseaseDao());
+        context.register(PriorityService.class);
+        context.refresh();
+        priorityService = context.getBean(PriorityService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpGenes() {
+        genes = syntheticGenome.buildGenes(numGenes);
+    }
+
+    @Benchmark
+    public List<Gene> prioritizeGenes() {
+        HiPhivePriority hiPhivePriority = new HiPhivePriority(queryHpoIds, new HiPhiveOptions(), randomWalkMatrix);
+        hiPhivePriority.setPriorityService(priorityService);
+        hiPhivePriority.prioritizeGenes(genes);
+        return genes;
+    }
+}
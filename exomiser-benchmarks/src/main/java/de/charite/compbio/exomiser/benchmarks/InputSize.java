@@ -0,0 +1,64 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+/**
+ * The shape of the synthetic sample used by the benchmarks. An exome has tens of thousands of variants, most of them
+ * in or near coding exons and most of them already known in the population databases, whereas a genome has millions
+ * of mostly intergenic and intronic variants.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public enum InputSize {
+
+    EXOME(30_000, 0.85, 0.9),
+    GENOME(4_500_000, 0.02, 0.95);
+
+    private final int numVariants;
+    private final double codingFraction;
+    private final double knownFraction;
+
+    InputSize(int numVariants, double codingFraction, double knownFraction) {
+        this.numVariants = numVariants;
+        this.codingFraction = codingFraction;
+        this.knownFraction = knownFraction;
+    }
+
+    /**
+     * @return the number of variant records in a sample of this size.
+     */
+    public int getNumVariants() {
+        return numVariants;
+    }
+
+    /**
+     * @return the fraction of the variants which fall within the exons of the synthetic transcripts.
+     */
+    public double getCodingFraction() {
+        return codingFraction;
+    }
+
+    /**
+     * @return the fraction of the variants which have an entry in the frequency table.
+     */
+    public double getKnownFraction() {
+        return knownFraction;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.prioritisers.PhenixPriority;
+import de.charite.compbio.exomiser.core.prioritisers.util.PhenixContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time taken by the {@link PhenixPriority} to score a list of genes, using PhenIX data files written out to a
+ * temporary directory. As with the HiPhivePriorityBenchmark, a new prioritiser is made for each invocation and the
+ * PhenixContext is shared.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class PhenixPriorityBenchmark {
+
+    private static final int NUM_QUERY_TERMS = 5;
+
+    @Param({"500", "20000"})
+    public int numGenes;
+
+    @Param({"false", "true"})
+    public boolean symmetric;
+
+    private Path phenixDataDirectory;
+    private PhenixContext phenixContext;
+    private List<String> queryHpoIds;
+    private SyntheticGenome syntheticGenome;
+
+    private List<Gene> genes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        syntheticGenome = new SyntheticGenome();
+        SyntheticPhenotypeData phenotypeData = new SyntheticPhenotypeData(syntheticGenome.getNumGenes(), SyntheticGenome.DEFAULT_SEED);
+        queryHpoIds = phenotypeData.getQueryHpoIds(NUM_QUERY_TERMS);
+        phenixDataDirectory = Files.createTempDirectory("phenix-benchmark");
+        phenotypeData.writePhenixDataDirectory(phenixDataDirectory, NUM_QUERY_TERMS);
+        phenixContext = PhenixContext.forDataDirectory(phenixDataDirectory);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpGenes() {
+        genes = syntheticGenome.buildGenes(numGenes);
+    }
+
+    @TearDown(Level.Trial)
+    public void deletePhenixDataDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(phenixDataDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public List<Gene> prioritizeGenes() {
+        PhenixPriority phenixPriority = new PhenixPriority(phenixContext, queryHpoIds, symmetric);
+        phenixPriority.prioritizeGenes(genes);
+        return genes;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.analysis.util.RawScoreGeneScorer;
+import de.charite.compbio.exomiser.core.factories.GeneFactory;
+import de.charite.compbio.exomiser.core.factories.VariantFactory;
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.model.SampleData;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import de.charite.compbio.exomiser.core.prioritisers.PhenixPriorityResult;
+import de.charite.compbio.exomiser.core.writers.OutputFormat;
+import de.charite.compbio.exomiser.core.writers.OutputSettings;
+import de.charite.compbio.exomiser.core.writers.OutputSettingsImp;
+import de.charite.compbio.exomiser.core.writers.ResultsWriter;
+import de.charite.compbio.exomiser.core.writers.TsvGeneResultsWriter;
+import de.charite.compbio.exomiser.core.writers.TsvVariantResultsWriter;
+import de.charite.compbio.exomiser.core.writers.VcfResultsWriter;
+import de.charite.compbio.jannovar.pedigree.ModeOfInheritance;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Time taken to write the results of a scored sample to a String, or streamed to an OutputStream, in each of the TSV
+ * and VCF formats. The HTML output is left out as its cost is dominated by the template engine rather than the Exomiser.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ResultsWriterBenchmark {
+
+    private static final int MAX_VARIANTS = AbstractVariantChunkBenchmark.CHUNK_SIZE * AbstractVariantChunkBenchmark.MAX_CHUNKS;
+
+    public enum Format {
+        TSV_GENE(OutputFormat.TSV_GENE) {
+            @Override
+            ResultsWriter build() {
+                return new TsvGeneResultsWriter();
+            }
+        },
+        TSV_VARIANT(OutputFormat.TSV_VARIANT) {
+            @Override
+            ResultsWriter build() {
+                return new TsvVariantResultsWriter();
+            }
+        },
+        VCF(OutputFormat.VCF) {
+            @Override
+            ResultsWriter build() {
+                return new VcfResultsWriter();
+            }
+        };
+
+        private final OutputFormat outputFormat;
+
+        Format(OutputFormat outputFormat) {
+            this.outputFormat = outputFormat;
+        }
+
+        abstract ResultsWriter build();
+    }
+
+    @Param({"EXOME", "GENOME"})
+    public InputSize inputSize;
+
+    @Param({"TSV_GENE", "TSV_VARIANT", "VCF"})
+    public Format format;
+
+    @Param({"false", "true"})
+    public boolean outputPassVariantsOnly;
+
+    private ResultsWriter resultsWriter;
+    private OutputSettings outputSettings;
+    private Analysis analysis;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        resultsWriter = format.build();
+        outputSettings = new OutputSettingsImp.OutputSettingsBuilder()
+                .outputFormats(EnumSet.of(format.outputFormat))
+                .outputPassVariantsOnly(outputPassVariantsOnly)
+                .build();
+
+        SyntheticGenome syntheticGenome = new SyntheticGenome();
+        VariantFactory variantFactory = new VariantFactory(syntheticGenome.getJannovarData());
+        List<VariantEvaluation> variantEvaluations = variantFactory.streamVariantEvaluations(syntheticGenome.streamVariantContexts(inputSize, SyntheticGenome.DEFAULT_SEED)
+                .limit(MAX_VARIANTS))
+                .collect(toList());
+        List<Gene> genes = new GeneFactory().createGenes(variantEvaluations);
+        Random random = new Random(SyntheticGenome.DEFAULT_SEED);
+        for (Gene gene : genes) {
+            gene.addPriorityResult(new PhenixPriorityResult(random.nextDouble()));
+        }
+        new RawScoreGeneScorer().scoreGenes(genes, ModeOfInheritance.AUTOSOMAL_DOMINANT);
+
+        analysis = new Analysis();
+        SampleData sampleData = analysis.getSampleData();
+        sampleData.setVcfHeader(SyntheticGenome.getVcfHeader());
+        sampleData.setSampleNames(SyntheticGenome.getVcfHeader().getGenotypeSamples());
+        sampleData.setNumberOfSamples(1);
+        sampleData.setVariantEvaluations(variantEvaluations);
+        sampleData.setGenes(genes);
+    }
+
+    @Benchmark
+    public String writeString() {
+        return resultsWriter.writeString(analysis, outputSettings);
+    }
+
+    @Benchmark
+    public long writeOutputStream() throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        resultsWriter.write(analysis, outputSettings, outputStream);
+        return outputStream.getByteCount();
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import de.charite.compbio.jannovar.reference.PositionType;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFHeader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates a reproducible synthetic genome and samples of variants on it. The genome has {@code numGenes} identical
+ * looking single-transcript forward strand genes with random coding sequences, evenly spread over the 22 autosomes
+ * of the HG19 reference dictionary. Given the same seed the same variants are produced in the same order every time,
+ * so the benchmarks can be compared between builds.
+ *
+ * The variants are generated lazily in VCF order, one chromosome at a time, so that genome-sized samples can be
+ * streamed through the code under test without having to hold them all in memory.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class SyntheticGenome {
+
+    public static final String SAMPLE_NAME = "sample";
+    public static final int NUM_CHROMOSOMES = 22;
+    public static final int DEFAULT_NUM_GENES = 20_000;
+    public static final int FIRST_ENTREZ_ID = 100_000;
+    public static final long DEFAULT_SEED = 42;
+
+    private static final ReferenceDictionary REF_DICT = HG19RefDictBuilder.build();
+
+    //chr21 is the shortest autosome at ~48Mb, so keep everything well within that
+    private static final int CHROMOSOME_LENGTH = 45_000_000;
+    private static final int FIRST_GENE_START = 1_000_000;
+    private static final int GENE_SPACING = 40_000;
+    private static final int NUM_EXONS = 8;
+    private static final int EXON_LENGTH = 150;
+    private static final int INTRON_LENGTH = 1_500;
+    private static final int TRANSCRIPT_LENGTH = NUM_EXONS * EXON_LENGTH + (NUM_EXONS - 1) * INTRON_LENGTH;
+    //these give a CDS of 1101 bases - 367 codons including the start and stop codons
+    private static final int CDS_START_OFFSET = 49;
+    private static final int CDS_END_OFFSET_IN_LAST_EXON = 100;
+
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+    private static final String[] SENSE_CODONS = IntStream.range(0, 64)
+            .mapToObj(i -> "" + BASES[i / 16] + BASES[(i / 4) % 4] + BASES[i % 4])
+            .filter(codon -> !codon.equals("TAA") && !codon.equals("TAG") && !codon.equals("TGA"))
+            .toArray(String[]::new);
+
+    private final int numGenes;
+    private final JannovarData jannovarData;
+
+    public SyntheticGenome() {
+        this(DEFAULT_NUM_GENES);
+    }
+
+    public SyntheticGenome(int numGenes) {
+        if (numGenes < NUM_CHROMOSOMES || numGenes > NUM_CHROMOSOMES * ((CHROMOSOME_LENGTH - FIRST_GENE_START) / GENE_SPACING)) {
+            throw new IllegalArgumentException("Number of genes must be between " + NUM_CHROMOSOMES + " and the number which fit on the genome, not " + numGenes);
+        }
+        this.numGenes = numGenes;
+        Random random = new Random(numGenes);
+        ImmutableList.Builder<TranscriptModel> transcriptModels = ImmutableList.builder();
+        for (int gene = 0; gene < numGenes; gene++) {
+            transcriptModels.add(buildTranscriptModel(gene, random));
+        }
+        this.jannovarData = new JannovarData(REF_DICT, transcriptModels.build());
+    }
+
+    public int getNumGenes() {
+        return numGenes;
+    }
+
+    public JannovarData getJannovarData() {
+        return jannovarData;
+    }
+
+    public static String getGeneSymbol(int gene) {
+        return "GENE" + gene;
+    }
+
+    public static int getEntrezId(int gene) {
+        return FIRST_ENTREZ_ID + gene;
+    }
+
+    /**
+     * @param numGenesToBuild
+     * @return new, empty, Genes spread evenly across the genome.
+     */
+    public List<Gene> buildGenes(int numGenesToBuild) {
+        List<Gene> genes = new ArrayList<>(numGenesToBuild);
+        for (int i = 0; i < numGenesToBuild; i++) {
+            int gene = (int) ((long) i * numGenes / numGenesToBuild);
+            genes.add(new Gene(getGeneSymbol(gene), getEntrezId(gene)));
+        }
+        return genes;
+    }
+
+    /**
+     * @return a VCF header for a single sample, suitable for writing out the generated variants.
+     */
+    public static VCFHeader getVcfHeader() {
+        return new VCFHeader(new HashSet<>(), Collections.singletonList(SAMPLE_NAME));
+    }
+
+    private static int getChromosome(int gene) {
+        return gene % NUM_CHROMOSOMES + 1;
+    }
+
+    //zero-based
+    private static int getTranscriptStart(int gene) {
+        return FIRST_GENE_START + (gene / NUM_CHROMOSOMES) * GENE_SPACING;
+    }
+
+    //zero-based
+    private static int getExonStart(int gene, int exon) {
+        return getTranscriptStart(gene) + exon * (EXON_LENGTH + INTRON_LENGTH);
+    }
+
+    private TranscriptModel buildTranscriptModel(int gene, Random random) {
+        int chr = getChromosome(gene);
+        int txStart = getTranscriptStart(gene);
+        TranscriptModelBuilder builder = new TranscriptModelBuilder();
+        builder.setGeneSymbol(getGeneSymbol(gene));
+        builder.setGeneID("ENTREZ" + getEntrezId(gene));
+        builder.setAccession("uc" + gene + ".1");
+        builder.setStrand(Strand.FWD);
+        builder.setSequence(buildTranscriptSequence(random));
+        builder.setTXRegion(buildInterval(chr, txStart, txStart + TRANSCRIPT_LENGTH));
+        builder.setCDSRegion(buildInterval(chr, txStart + CDS_START_OFFSET, getExonStart(gene, NUM_EXONS - 1) + CDS_END_OFFSET_IN_LAST_EXON));
+        for (int exon = 0; exon < NUM_EXONS; exon++) {
+            int exonStart = getExonStart(gene, exon);
+            builder.addExonRegion(buildInterval(chr, exonStart, exonStart + EXON_LENGTH));
+        }
+        return builder.build();
+    }
+
+    private GenomeInterval buildInterval(int chr, int start, int end) {
+        return new GenomeInterval(REF_DICT, Strand.FWD, chr, start, end, PositionType.ZERO_BASED);
+    }
+
+    /**
+     * Builds the spliced mRNA sequence - a random 5' UTR, an open reading frame with no premature stop codons and a
+     * random 3' UTR.
+     */
+    private String buildTranscriptSequence(Random random) {
+        int splicedLength = NUM_EXONS * EXON_LENGTH;
+        int cdsEnd = splicedLength - EXON_LENGTH + CDS_END_OFFSET_IN_LAST_EXON;
+        StringBuilder sequence = new StringBuilder(splicedLength);
+        appendRandomBases(sequence, CDS_START_OFFSET, random);
+        sequence.append("ATG");
+        while (sequence.length() < cdsEnd - 3) {
+            sequence.append(SENSE_CODONS[random.nextInt(SENSE_CODONS.length)]);
+        }
+        sequence.append("TAA");
+        appendRandomBases(sequence, splicedLength - sequence.length(), random);
+        return sequence.toString();
+    }
+
+    private static void appendRandomBases(StringBuilder sequence, int numBases, Random random) {
+        for (int i = 0; i < numBases; i++) {
+            sequence.append(BASES[random.nextInt(BASES.length)]);
+        }
+    }
+
+    /**
+     * Lazily generates a sample of the given size, sorted by chromosome and position as they would be in a VCF file.
+     * The coding variants are placed in the exons of randomly chosen genes and the remainder are spread uniformly
+     * across each chromosome, so will mostly be intergenic or intronic.
+     *
+     * @param inputSize
+     * @param seed
+     * @return
+     */
+    public Stream<VariantContext> streamVariantContexts(InputSize inputSize, long seed) {
+        return IntStream.rangeClosed(1, NUM_CHROMOSOMES)
+                .boxed()
+                .flatMap(chr -> streamChromosomeVariantContexts(chr, inputSize, seed));
+    }
+
+    private Stream<VariantContext> streamChromosomeVariantContexts(int chr, InputSize inputSize, long seed) {
+        Random random = new Random(seed * 31 + chr);
+        int[] positions = buildSortedPositions(chr, inputSize, random);
+        return Arrays.stream(positions).mapToObj(position -> buildVariantContext(chr, position, random));
+    }
+
+    private int[] buildSortedPositions(int chr, InputSize inputSize, Random random) {
+        int numVariants = inputSize.getNumVariants() / NUM_CHROMOSOMES;
+        if (chr <= inputSize.getNumVariants() % NUM_CHROMOSOMES) {
+            numVariants++;
+        }
+        int numCodingVariants = (int) Math.round(numVariants * inputSize.getCodingFraction());
+        //genes are dealt out to the chromosomes in turn, so this is the number of genes on this chromosome
+        int numGenesOnChromosome = (numGenes - chr) / NUM_CHROMOSOMES + 1;
+        int[] positions = new int[numVariants];
+        for (int i = 0; i < numVariants; i++) {
+            if (i < numCodingVariants) {
+                int gene = random.nextInt(numGenesOnChromosome) * NUM_CHROMOSOMES + chr - 1;
+                int exon = random.nextInt(NUM_EXONS);
+                //one-based
+                positions[i] = getExonStart(gene, exon) + random.nextInt(EXON_LENGTH) + 1;
+            } else {
+                positions[i] = 1 + random.nextInt(CHROMOSOME_LENGTH);
+            }
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Roughly 85% SNVs, 10% deletions and 5% insertions. These are of random sequence, so the reference bases will not
+     * match those of the transcripts, but Jannovar doesn't check this.
+     */
+    private VariantContext buildVariantContext(int chr, int position, Random random) {
+        int variantType = random.nextInt(100);
+        String ref;
+        String alt;
+        if (variantType < 85) {
+            int refIndex = random.nextInt(BASES.length);
+            ref = String.valueOf(BASES[refIndex]);
+            alt = String.valueOf(BASES[(refIndex + 1 + random.nextInt(BASES.length - 1)) % BASES.length]);
+        } else if (variantType < 95) {
+            StringBuilder deletion = new StringBuilder();
+            appendRandomBases(deletion, 2 + random.nextInt(3), random);
+            ref = deletion.toString();
+            alt = ref.substring(0, 1);
+        } else {
+            StringBuilder insertion = new StringBuilder();
+            appendRandomBases(insertion, 2 + random.nextInt(3), random);
+            alt = insertion.toString();
+            ref = alt.substring(0, 1);
+        }
+        Allele refAllele = Allele.create(ref, true);
+        Allele altAllele = Allele.create(alt);
+        //two thirds of the calls are heterozygous
+        List<Allele> genotypeAlleles = random.nextInt(3) == 0 ? Arrays.asList(altAllele, altAllele) : Arrays.asList(refAllele, altAllele);
+
+        return new VariantContextBuilder()
+                .loc(String.valueOf(chr), position, position + ref.length() - 1L)
+                .alleles(Arrays.asList(refAllele, altAllele))
+                .genotypes(new GenotypeBuilder(SAMPLE_NAME, genotypeAlleles).make())
+                .log10PError(-(10 + random.nextInt(990)) / 10.0)
+                .make();
+    }
+}
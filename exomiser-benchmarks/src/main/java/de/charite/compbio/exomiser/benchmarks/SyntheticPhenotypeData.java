@@ -0,0 +1,360 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.dao.DiseaseDao;
+import de.charite.compbio.exomiser.core.model.DiseaseModel;
+import de.charite.compbio.exomiser.core.model.GeneModel;
+import de.charite.compbio.exomiser.core.model.Model;
+import de.charite.compbio.exomiser.core.model.Organism;
+import de.charite.compbio.exomiser.core.model.PhenotypeMatch;
+import de.charite.compbio.exomiser.core.model.PhenotypeTerm;
+import de.charite.compbio.exomiser.core.prioritisers.util.DataMatrix;
+import de.charite.compbio.exomiser.core.prioritisers.util.ModelService;
+import de.charite.compbio.exomiser.core.prioritisers.util.OntologyService;
+import org.jblas.FloatMatrix;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Reproducible synthetic phenotype data for the genes of a {@link SyntheticGenome} - ontologies, cross-species
+ * phenotype matches, disease and model organism annotations, a protein-protein interaction random walk matrix and
+ * the PhenIX data files. The volumes are similar to the real data apart from the random walk matrix which covers a
+ * quarter of the genes, as the full-size matrix needs over 1.5GB of heap.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class SyntheticPhenotypeData {
+
+    private static final int NUM_HPO_TERMS = 10_000;
+    private static final int NUM_MPO_TERMS = 10_000;
+    private static final int NUM_ZPO_TERMS = 5_000;
+    private static final int NUM_DISEASES = 8_000;
+    private static final int NUM_MOUSE_MODELS = 15_000;
+    private static final int NUM_FISH_MODELS = 5_000;
+    private static final int HPO_MATCHES_PER_TERM = 10;
+    private static final int MPO_MATCHES_PER_TERM = 10;
+    private static final int ZPO_MATCHES_PER_TERM = 5;
+    private static final int PPI_GENE_STRIDE = 4;
+
+    private static final String HPO_ROOT_ID = "HP:0000001";
+    private static final String HPO_PHENOTYPIC_ABNORMALITY_ID = "HP:0000118";
+
+    private final int numGenes;
+    private final Random random;
+
+    private final List<PhenotypeTerm> hpoTerms;
+    private final List<PhenotypeTerm> mpoTerms;
+    private final List<PhenotypeTerm> zpoTerms;
+    private final Map<String, PhenotypeTerm> hpoTermsById = new HashMap<>();
+    //parent of each hpo term in the tree under HP:0000118
+    private final Map<String, String> hpoParentIds = new HashMap<>();
+    private final Map<PhenotypeTerm, Set<PhenotypeMatch>> hpoMatches = new HashMap<>();
+    private final Map<PhenotypeTerm, Set<PhenotypeMatch>> mpoMatches = new HashMap<>();
+    private final Map<PhenotypeTerm, Set<PhenotypeMatch>> zpoMatches = new HashMap<>();
+    private final List<Model> diseaseModels = new ArrayList<>();
+    private final List<Model> mouseModels = new ArrayList<>();
+    private final List<Model> fishModels = new ArrayList<>();
+    private final Map<String, String> diseaseIdToTerms = new LinkedHashMap<>();
+    private final Map<String, Set<String>> diseaseIdToHpoIds = new HashMap<>();
+
+    public SyntheticPhenotypeData(int numGenes, long seed) {
+        this.numGenes = numGenes;
+        this.random = new Random(seed);
+        hpoTerms = buildTerms("HP", NUM_HPO_TERMS);
+        hpoTerms.forEach(term -> hpoTermsById.put(term.getId(), term));
+        buildHpoTree();
+        mpoTerms = buildTerms("MP", NUM_MPO_TERMS);
+        zpoTerms = buildTerms("ZP", NUM_ZPO_TERMS);
+        for (PhenotypeTerm hpoTerm : hpoTerms) {
+            hpoMatches.put(hpoTerm, buildMatches(hpoTerm, hpoTerms, HPO_MATCHES_PER_TERM));
+            mpoMatches.put(hpoTerm, buildMatches(hpoTerm, mpoTerms, MPO_MATCHES_PER_TERM));
+            zpoMatches.put(hpoTerm, buildMatches(hpoTerm, zpoTerms, ZPO_MATCHES_PER_TERM));
+        }
+        buildDiseaseModels();
+        buildGeneModels(Organism.MOUSE, "MGI", mpoTerms, NUM_MOUSE_MODELS, mouseModels);
+        buildGeneModels(Organism.FISH, "ZDB-GENE-", zpoTerms, NUM_FISH_MODELS, fishModels);
+    }
+
+    private List<PhenotypeTerm> buildTerms(String prefix, int numTerms) {
+        List<PhenotypeTerm> terms = new ArrayList<>(numTerms);
+        for (int i = 0; i < numTerms; i++) {
+            String id = String.format("%s:%07d", prefix, 10_000 + i);
+            terms.add(new PhenotypeTerm(id, prefix + " term " + i, 1 + 9 * random.nextDouble()));
+        }
+        return terms;
+    }
+
+    private void buildHpoTree() {
+        for (int i = 0; i < hpoTerms.size(); i++) {
+            //a tree with a branching factor of ~10 under the phenotypic abnormality term
+            String parentId = i < 10 ? HPO_PHENOTYPIC_ABNORMALITY_ID : hpoTerms.get(random.nextInt(i / 10 * 10)).getId();
+            hpoParentIds.put(hpoTerms.get(i).getId(), parentId);
+        }
+    }
+
+    private Set<PhenotypeMatch> buildMatches(PhenotypeTerm queryTerm, List<PhenotypeTerm> matchTerms, int numMatches) {
+        Set<PhenotypeMatch> matches = new LinkedHashSet<>();
+        for (int i = 0; i < numMatches; i++) {
+            PhenotypeTerm matchTerm = matchTerms.get(random.nextInt(matchTerms.size()));
+            double simJ = random.nextDouble();
+            matches.add(new PhenotypeMatch(queryTerm, matchTerm, simJ, Math.sqrt(simJ * queryTerm.getIc()), queryTerm));
+        }
+        return matches;
+    }
+
+    private List<String> randomTermIds(List<PhenotypeTerm> terms, int minTerms, int maxTerms) {
+        int numTerms = minTerms + random.nextInt(maxTerms - minTerms + 1);
+        Set<String> termIds = new LinkedHashSet<>();
+        while (termIds.size() < numTerms) {
+            termIds.add(terms.get(random.nextInt(terms.size())).getId());
+        }
+        return new ArrayList<>(termIds);
+    }
+
+    private void buildDiseaseModels() {
+        for (int i = 0; i < NUM_DISEASES; i++) {
+            int gene = random.nextInt(numGenes);
+            String diseaseId = "OMIM:" + (100_000 + i);
+            String diseaseTerm = "Synthetic disease " + i;
+            List<String> hpoIds = randomTermIds(hpoTerms, 5, 30);
+            diseaseModels.add(new DiseaseModel(diseaseId + "_" + gene, Organism.HUMAN, SyntheticGenome.getEntrezId(gene), SyntheticGenome.getGeneSymbol(gene), diseaseId, diseaseTerm, hpoIds));
+            diseaseIdToTerms.put(diseaseId, diseaseTerm);
+            diseaseIdToHpoIds.put(diseaseId, new LinkedHashSet<>(hpoIds));
+        }
+    }
+
+    private void buildGeneModels(Organism organism, String idPrefix, List<PhenotypeTerm> terms, int numModels, List<Model> models) {
+        for (int i = 0; i < numModels; i++) {
+            int gene = random.nextInt(numGenes);
+            String modelGeneId = idPrefix + gene;
+            models.add(new GeneModel(modelGeneId + "_" + i, organism, SyntheticGenome.getEntrezId(gene), SyntheticGenome.getGeneSymbol(gene), modelGeneId, "gene" + gene, randomTermIds(terms, 5, 40)));
+        }
+    }
+
+    /**
+     * @param numTerms
+     * @return the same set of HPO ids for a query each time this is called.
+     */
+    public List<String> getQueryHpoIds(int numTerms) {
+        List<String> queryHpoIds = new ArrayList<>(numTerms);
+        for (int i = 0; i < numTerms; i++) {
+            queryHpoIds.add(hpoTerms.get(i * (hpoTerms.size() / numTerms)).getId());
+        }
+        return queryHpoIds;
+    }
+
+    public OntologyService getOntologyService() {
+        return new SyntheticOntologyService();
+    }
+
+    public ModelService getModelService() {
+        return new SyntheticModelService();
+    }
+
+    public DiseaseDao getDiseaseDao() {
+        return new SyntheticDiseaseDao();
+    }
+
+    /**
+     * @return a random walk matrix containing every {@value #PPI_GENE_STRIDE}th gene.
+     */
+    public DataMatrix buildRandomWalkMatrix() {
+        Map<Integer, Integer> entrezIdToRowIndex = new HashMap<>();
+        for (int gene = 0; gene < numGenes; gene += PPI_GENE_STRIDE) {
+            entrezIdToRowIndex.put(SyntheticGenome.getEntrezId(gene), entrezIdToRowIndex.size());
+        }
+        int size = entrezIdToRowIndex.size();
+        Random matrixRandom = new Random(size);
+        FloatMatrix matrix = new FloatMatrix(size, size);
+        for (int i = 0; i < matrix.data.length; i++) {
+            //the random walk probabilities are tiny for most pairs of genes
+            matrix.data[i] = (float) Math.pow(matrixRandom.nextDouble(), 8);
+        }
+        return new DataMatrix(matrix, entrezIdToRowIndex);
+    }
+
+    /**
+     * Writes out the hp.obo, gene to phenotype annotation and score distribution files needed by the PhenixContext.
+     * Only the score distributions for queries of {@code numQueryTerms} terms are written.
+     *
+     * @param phenixDataDirectory an existing, empty directory
+     * @param numQueryTerms
+     */
+    public void writePhenixDataDirectory(Path phenixDataDirectory, int numQueryTerms) {
+        try {
+            writeHpoObo(phenixDataDirectory.resolve("hp.obo"));
+            List<Integer> annotatedGenes = writeGeneAnnotations(phenixDataDirectory.resolve("ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt"));
+            writeScoreDistributions(phenixDataDirectory.resolve(numQueryTerms + ".out"), annotatedGenes);
+            writeScoreDistributions(phenixDataDirectory.resolve(numQueryTerms + "_symmetric.out"), annotatedGenes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write PhenIX data to " + phenixDataDirectory, ex);
+        }
+    }
+
+    private void writeHpoObo(Path hpoObo) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(hpoObo, StandardCharsets.UTF_8)) {
+            writer.write("format-version: 1.2\n");
+            writer.write("date: 01:01:2016 00:00\n");
+            writer.write("ontology: hp\n\n");
+            writeOboTerm(writer, HPO_ROOT_ID, "All", null);
+            writeOboTerm(writer, HPO_PHENOTYPIC_ABNORMALITY_ID, "Phenotypic abnormality", HPO_ROOT_ID);
+            for (PhenotypeTerm hpoTerm : hpoTerms) {
+                writeOboTerm(writer, hpoTerm.getId(), hpoTerm.getTerm(), hpoParentIds.get(hpoTerm.getId()));
+            }
+        }
+    }
+
+    private static void writeOboTerm(BufferedWriter writer, String id, String name, String parentId) throws IOException {
+        writer.write("[Term]\n");
+        writer.write("id: " + id + "\n");
+        writer.write("name: " + name + "\n");
+        if (parentId != null) {
+            writer.write("is_a: " + parentId + "\n");
+        }
+        writer.write("\n");
+    }
+
+    private List<Integer> writeGeneAnnotations(Path annotationFile) throws IOException {
+        Random annotationRandom = new Random(numGenes);
+        List<Integer> annotatedGenes = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(annotationFile, StandardCharsets.UTF_8)) {
+            writer.write("#Format: entrez-gene-id<tab>entrez-gene-symbol<tab>HPO-Term-Name<tab>HPO-Term-ID\n");
+            for (int gene = 0; gene < numGenes; gene++) {
+                //about a fifth of the genes have phenotype annotations
+                if (annotationRandom.nextInt(5) != 0) {
+                    continue;
+                }
+                annotatedGenes.add(SyntheticGenome.getEntrezId(gene));
+                int numAnnotations = 5 + annotationRandom.nextInt(26);
+                Set<PhenotypeTerm> annotations = new HashSet<>();
+                while (annotations.size() < numAnnotations) {
+                    annotations.add(hpoTerms.get(annotationRandom.nextInt(hpoTerms.size())));
+                }
+                for (PhenotypeTerm hpoTerm : annotations) {
+                    writer.write(SyntheticGenome.getEntrezId(gene) + "\t" + SyntheticGenome.getGeneSymbol(gene) + "\t" + hpoTerm.getTerm() + "\t" + hpoTerm.getId() + "\n");
+                }
+            }
+        }
+        return annotatedGenes;
+    }
+
+    private static void writeScoreDistributions(Path scoreDistributionFile, List<Integer> entrezIds) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(scoreDistributionFile, StandardCharsets.UTF_8)) {
+            for (Integer entrezId : entrezIds) {
+                writer.write(">" + entrezId + "_100000\n");
+                //scores in increasing order with decreasing p-values
+                for (int step = 0; step <= 40; step++) {
+                    writer.write(String.format(Locale.ROOT, "%.2f-%.6f\n", step * 0.25, Math.pow(10, -step / 8.0)));
+                }
+            }
+        }
+    }
+
+    private class SyntheticOntologyService implements OntologyService {
+
+        @Override
+        public Set<PhenotypeTerm> getHpoTerms() {
+            return new HashSet<>(hpoTerms);
+        }
+
+        @Override
+        public Set<PhenotypeTerm> getMpoTerms() {
+            return new HashSet<>(mpoTerms);
+        }
+
+        @Override
+        public Set<PhenotypeTerm> getZpoTerms() {
+            return new HashSet<>(zpoTerms);
+        }
+
+        @Override
+        public List<String> getHpoIdsForDiseaseId(String diseaseId) {
+            return new ArrayList<>(diseaseIdToHpoIds.getOrDefault(diseaseId, Collections.emptySet()));
+        }
+
+        @Override
+        public Set<PhenotypeMatch> getHpoMatchesForHpoTerm(PhenotypeTerm hpoTerm) {
+            return hpoMatches.getOrDefault(hpoTerm, Collections.emptySet());
+        }
+
+        @Override
+        public Set<PhenotypeMatch> getMpoMatchesForHpoTerm(PhenotypeTerm hpoTerm) {
+            return mpoMatches.getOrDefault(hpoTerm, Collections.emptySet());
+        }
+
+        @Override
+        public Set<PhenotypeMatch> getZpoMatchesForHpoTerm(PhenotypeTerm hpoTerm) {
+            return zpoMatches.getOrDefault(hpoTerm, Collections.emptySet());
+        }
+
+        @Override
+        public PhenotypeTerm getPhenotypeTermForHpoId(String hpoId) {
+            return hpoTermsById.get(hpoId);
+        }
+    }
+
+    private class SyntheticModelService implements ModelService {
+
+        @Override
+        public List<Model> getHumanDiseaseModels() {
+            return diseaseModels;
+        }
+
+        @Override
+        public List<Model> getMouseGeneModels() {
+            return mouseModels;
+        }
+
+        @Override
+        public List<Model> getFishGeneModels() {
+            return fishModels;
+        }
+    }
+
+    private class SyntheticDiseaseDao implements DiseaseDao {
+
+        @Override
+        public Set<String> getHpoIdsForDiseaseId(String diseaseId) {
+            return diseaseIdToHpoIds.getOrDefault(diseaseId, Collections.emptySet());
+        }
+
+        @Override
+        public Map<String, String> getDiseaseIdToTerms() {
+            return diseaseIdToTerms;
+        }
+    }
+}
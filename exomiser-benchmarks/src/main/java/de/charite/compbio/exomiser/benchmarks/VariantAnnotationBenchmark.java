@@ -0,0 +1,76 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.factories.VariantFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time taken for the {@link VariantFactory} to turn a whole sample of VariantContexts into annotated
+ * VariantEvaluations. The generation of the VariantContexts is included, so subtract the score of
+ * {@link #generateVariantContexts} to get the cost of the annotation alone.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class VariantAnnotationBenchmark {
+
+    @Param({"EXOME", "GENOME"})
+    public InputSize inputSize;
+
+    private SyntheticGenome syntheticGenome;
+    private VariantFactory variantFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        syntheticGenome = new SyntheticGenome();
+        variantFactory = new VariantFactory(syntheticGenome.getJannovarData());
+    }
+
+    @Benchmark
+    public void generateVariantContexts(Blackhole blackhole) {
+        syntheticGenome.streamVariantContexts(inputSize, SyntheticGenome.DEFAULT_SEED).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void annotateVariants(Blackhole blackhole) {
+        variantFactory.streamVariantEvaluations(syntheticGenome.streamVariantContexts(inputSize, SyntheticGenome.DEFAULT_SEED))
+                .forEach(blackhole::consume);
+    }
+}
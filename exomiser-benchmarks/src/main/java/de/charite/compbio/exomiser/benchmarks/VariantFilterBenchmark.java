@@ -0,0 +1,152 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.factories.VariantDataService;
+import de.charite.compbio.exomiser.core.filters.BedFilter;
+import de.charite.compbio.exomiser.core.filters.EntrezGeneIdFilter;
+import de.charite.compbio.exomiser.core.filters.FrequencyDataProvider;
+import de.charite.compbio.exomiser.core.filters.FrequencyFilter;
+import de.charite.compbio.exomiser.core.filters.IntervalFilter;
+import de.charite.compbio.exomiser.core.filters.KnownVariantFilter;
+import de.charite.compbio.exomiser.core.filters.PathogenicityDataProvider;
+import de.charite.compbio.exomiser.core.filters.PathogenicityFilter;
+import de.charite.compbio.exomiser.core.filters.QualityFilter;
+import de.charite.compbio.exomiser.core.filters.RegulatoryFeatureFilter;
+import de.charite.compbio.exomiser.core.filters.SimpleVariantFilterRunner;
+import de.charite.compbio.exomiser.core.filters.VariantEffectFilter;
+import de.charite.compbio.exomiser.core.filters.VariantFilter;
+import de.charite.compbio.exomiser.core.filters.VariantFilterRunner;
+import de.charite.compbio.exomiser.core.model.GeneticInterval;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
+import de.charite.compbio.jannovar.annotation.VariantEffect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of each {@link VariantFilter}, run by the {@link SimpleVariantFilterRunner} as in an analysis. The
+ * filters which need frequency or pathogenicity data are wrapped in their data provider, so their scores include
+ * fetching the data from the database - see {@link VariantFilterDataProviderBenchmark} for the data providers alone.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class VariantFilterBenchmark extends AbstractVariantChunkBenchmark {
+
+    public enum Filter {
+        FREQUENCY {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new FrequencyDataProvider(variantDataService, EnumSet.allOf(FrequencySource.class), new FrequencyFilter(1.0f));
+            }
+        },
+        KNOWN_VARIANT {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new FrequencyDataProvider(variantDataService, EnumSet.allOf(FrequencySource.class), new KnownVariantFilter());
+            }
+        },
+        PATHOGENICITY {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new PathogenicityDataProvider(variantDataService, PATHOGENICITY_SOURCES, new PathogenicityFilter(false));
+            }
+        },
+        QUALITY {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new QualityFilter(30);
+            }
+        },
+        VARIANT_EFFECT {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new VariantEffectFilter(EnumSet.of(VariantEffect.INTERGENIC_VARIANT, VariantEffect.INTRON_VARIANT, VariantEffect.CODING_TRANSCRIPT_INTRON_VARIANT, VariantEffect.SYNONYMOUS_VARIANT,
+                        VariantEffect.UPSTREAM_GENE_VARIANT, VariantEffect.DOWNSTREAM_GENE_VARIANT, VariantEffect.FIVE_PRIME_UTR_VARIANT, VariantEffect.THREE_PRIME_UTR_VARIANT));
+            }
+        },
+        INTERVAL {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new IntervalFilter(new GeneticInterval(1, 5_000_000, 15_000_000));
+            }
+        },
+        ENTREZ_GENE_ID {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new EntrezGeneIdFilter(IntStream.range(0, GENE_PANEL_SIZE).map(SyntheticGenome::getEntrezId).boxed().collect(Collectors.toSet()));
+            }
+        },
+        BED {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new BedFilter(IntStream.range(0, GENE_PANEL_SIZE).mapToObj(SyntheticGenome::getGeneSymbol).collect(Collectors.toSet()));
+            }
+        },
+        REGULATORY_FEATURE {
+            @Override
+            VariantFilter build(VariantDataService variantDataService) {
+                return new RegulatoryFeatureFilter();
+            }
+        };
+
+        private static final int GENE_PANEL_SIZE = 500;
+        private static final Set<PathogenicitySource> PATHOGENICITY_SOURCES = EnumSet.of(PathogenicitySource.POLYPHEN, PathogenicitySource.MUTATION_TASTER, PathogenicitySource.SIFT);
+
+        abstract VariantFilter build(VariantDataService variantDataService);
+    }
+
+    @Param
+    public Filter filter;
+
+    private final VariantFilterRunner variantFilterRunner = new SimpleVariantFilterRunner();
+    private VariantFilter variantFilter;
+
+    @Override
+    protected void setUpBenchmark() {
+        variantFilter = filter.build(variantDataService);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public List<VariantEvaluation> runFilter() {
+        return variantFilterRunner.run(variantFilter, variantEvaluations);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.benchmarks;
+
+import de.charite.compbio.exomiser.core.factories.VariantDataService;
+import de.charite.compbio.exomiser.core.filters.FrequencyDataProvider;
+import de.charite.compbio.exomiser.core.filters.FrequencyFilter;
+import de.charite.compbio.exomiser.core.filters.PathogenicityDataProvider;
+import de.charite.compbio.exomiser.core.filters.PathogenicityFilter;
+import de.charite.compbio.exomiser.core.filters.VariantFilterDataProvider;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link VariantFilterDataProvider}s fetching the frequency and pathogenicity data for a chunk of
+ * variants from the database, without running the decorated filter. The per-variant method is the original behaviour
+ * and the bulk method is what the VariantFilterRunners now use.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class VariantFilterDataProviderBenchmark extends AbstractVariantChunkBenchmark {
+
+    public enum DataProvider {
+        FREQUENCY {
+            @Override
+            VariantFilterDataProvider build(VariantDataService variantDataService) {
+                return new FrequencyDataProvider(variantDataService, EnumSet.allOf(FrequencySource.class), new FrequencyFilter(1.0f));
+            }
+        },
+        PATHOGENICITY {
+            @Override
+            VariantFilterDataProvider build(VariantDataService variantDataService) {
+                return new PathogenicityDataProvider(variantDataService, EnumSet.of(PathogenicitySource.POLYPHEN, PathogenicitySource.MUTATION_TASTER, PathogenicitySource.SIFT), new PathogenicityFilter(false));
+            }
+        };
+
+        abstract VariantFilterDataProvider build(VariantDataService variantDataService);
+    }
+
+    @Param
+    public DataProvider dataProvider;
+
+    private VariantFilterDataProvider variantFilterDataProvider;
+
+    @Override
+    protected void setUpBenchmark() {
+        variantFilterDataProvider = dataProvider.build(variantDataService);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public void provideVariantDataPerVariant() {
+        variantEvaluations.forEach(variantEvaluation -> variantFilterDataProvider.provideVariantData(variantEvaluation));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public void provideVariantDataInBulk() {
+        variantFilterDataProvider.provideVariantData(variantEvaluations);
+    }
+}
@@ -0,0 +1,3 @@
+CREATE INDEX freqqq ON frequency (chromosome, "position", ref, alt);
+CREATE INDEX variant1 ON variant (chromosome, "position", ref, alt);
+CREATE INDEX RR1 ON REGULATORY_REGIONS (CHROMOSOME, START, "end");
@@ -0,0 +1,55 @@
+-- The subset of the exomiser schema used by the VariantDataService, as created by exomiser-db.
+-- The indexes are created by create_indexes.sql once the synthetic data has been loaded.
+DROP TABLE IF EXISTS frequency;
+
+CREATE TABLE frequency (
+    chromosome smallint,
+    "position" integer,
+    ref character varying(1024),
+    alt character varying(1024),
+    rsid integer,
+    dbsnpmaf double precision,
+    espeamaf double precision,
+    espaamaf double precision,
+    espallmaf double precision,
+    exacafrmaf double precision,
+    exacamrmaf double precision,
+    exaceasmaf double precision,
+    exacfinmaf double precision,
+    exacnfemaf double precision,
+    exacothmaf double precision,
+    exacsasmaf double precision
+);
+
+DROP TABLE IF EXISTS variant;
+
+CREATE TABLE variant (
+    chromosome smallint NOT NULL,
+    "position" integer NOT NULL,
+    ref character(1) NOT NULL,
+    alt character(1) NOT NULL,
+    sift double precision,
+    polyphen double precision,
+    mut_taster double precision,
+    cadd double precision,
+    cadd_raw double precision
+);
+
+DROP TABLE IF EXISTS REGULATORY_REGIONS;
+
+CREATE TABLE REGULATORY_REGIONS (
+    CHROMOSOME SMALLINT,
+    START INTEGER,
+    "end" INTEGER,
+    FEATURE_TYPE VARCHAR(200)
+);
+
+DROP TABLE IF EXISTS tad;
+
+CREATE TABLE tad (
+    chromosome smallint NOT NULL,
+    start integer NOT NULL,
+    "end" integer NOT NULL,
+    entrezID INTEGER NOT NULL,
+    symbol varchar(24)
+);
@@ -0,0 +1,142 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.cli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the analyses of a batch file on a bounded pool of worker threads. The
+ * number of analyses run at once is the lower of the requested number of
+ * threads and the number of analyses which fit into the maximum heap given the
+ * memory budget for a single analysis, so a large batch can't take the JVM
+ * down by running out of memory. A failed analysis is logged and does not stop
+ * the rest of the batch.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class BatchAnalysisRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchAnalysisRunner.class);
+
+    private final int numThreads;
+
+    /**
+     * @param maxThreads the maximum number of analyses to run at once.
+     * @param analysisMemoryBytes the heap required for a single analysis, or 0
+     * if the number of analyses shouldn't be limited by memory.
+     * @param availableMemoryBytes the heap available for the batch.
+     */
+    public BatchAnalysisRunner(int maxThreads, long analysisMemoryBytes, long availableMemoryBytes) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("Number of batch threads must be greater than 0, not " + maxThreads);
+        }
+        this.numThreads = calculateNumThreads(maxThreads, analysisMemoryBytes, availableMemoryBytes);
+    }
+
+    private static int calculateNumThreads(int maxThreads, long analysisMemoryBytes, long availableMemoryBytes) {
+        if (analysisMemoryBytes <= 0) {
+            return maxThreads;
+        }
+        long analysesInMemory = Math.max(1, availableMemoryBytes / analysisMemoryBytes);
+        if (analysesInMemory < maxThreads) {
+            logger.warn("Only {} analyses of {}MB fit in the {}MB heap - limiting batch to {} threads instead of {}.",
+                    analysesInMemory, toMegabytes(analysisMemoryBytes), toMegabytes(availableMemoryBytes), analysesInMemory, maxThreads);
+            return (int) analysesInMemory;
+        }
+        return maxThreads;
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Runs the analysisRunner over each of the items in the batch and waits for
+     * them all to finish.
+     *
+     * @param batch
+     * @param analysisRunner
+     * @return the number of analyses which failed.
+     */
+    public <T> int run(List<T> batch, Consumer<T> analysisRunner) {
+        logger.info("Running {} analyses using {} threads", batch.size(), numThreads);
+        AtomicInteger numFailed = new AtomicInteger();
+        if (numThreads == 1) {
+            batch.forEach(item -> runAnalysis(item, analysisRunner, numFailed));
+        } else {
+            runConcurrently(batch, analysisRunner, numFailed);
+        }
+        if (numFailed.get() > 0) {
+            logger.error("{} of {} analyses failed", numFailed.get(), batch.size());
+        }
+        return numFailed.get();
+    }
+
+    private <T> void runConcurrently(List<T> batch, Consumer<T> analysisRunner, AtomicInteger numFailed) {
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(batch.size());
+            for (T item : batch) {
+                futures.add(executorService.submit(() -> runAnalysis(item, analysisRunner, numFailed)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while running batch", ex);
+        } catch (ExecutionException ex) {
+            //runAnalysis catches everything but Errors, so there's no point carrying on
+            throw new BatchAnalysisException("Batch analysis failed", ex.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private <T> void runAnalysis(T item, Consumer<T> analysisRunner, AtomicInteger numFailed) {
+        try {
+            analysisRunner.accept(item);
+        } catch (RuntimeException ex) {
+            numFailed.incrementAndGet();
+            logger.error("Analysis {} failed", item, ex);
+        }
+    }
+
+    public static class BatchAnalysisException extends RuntimeException {
+
+        BatchAnalysisException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
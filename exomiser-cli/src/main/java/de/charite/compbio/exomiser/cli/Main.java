@@ -18,6 +18,7 @@
  */
 package de.charite.compbio.exomiser.cli;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.charite.compbio.exomiser.cli.config.MainConfig;
 import de.charite.compbio.exomiser.core.Exomiser;
 import de.charite.compbio.exomiser.core.analysis.Analysis;
@@ -25,10 +26,11 @@
 import de.charite.compbio.exomiser.core.analysis.SettingsParser;
 import de.charite.compbio.exomiser.core.analysis.Settings;
 import de.charite.compbio.exomiser.core.analysis.Settings.SettingsBuilder;
-import de.charite.compbio.exomiser.core.writers.OutputFormat;
+import de.charite.compbio.exomiser.core.cache.BoundedCacheManager;
+import de.charite.compbio.exomiser.core.metrics.MetricsReport;
 import de.charite.compbio.exomiser.core.writers.OutputSettings;
-import de.charite.compbio.exomiser.core.writers.ResultsWriter;
-import de.charite.compbio.exomiser.core.writers.ResultsWriterFactory;
+import de.charite.compbio.exomiser.core.writers.MultiFormatResultsWriter;
+import de.charite.compbio.exomiser.core.writers.ResultsWriterUtils;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -46,6 +48,7 @@
 import org.apache.commons.cli.Parser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 /**
@@ -64,10 +67,11 @@ public class Main {
     private Options options;
 
     private SettingsParser settingsParser;
-    private ResultsWriterFactory resultsWriterFactory;
+    private MultiFormatResultsWriter multiFormatResultsWriter;
     private AnalysisParser analysisParser;
     private Exomiser exomiser;
     private String buildVersion;
+    private boolean writeMetricsReport;
 
     public static void main(String[] args) {
         Main main = new Main();
@@ -79,7 +83,12 @@ private void run(String[] args) {
         showSplash();
         //TODO: this should return a list of Analysis- either convert the settings/cli input to an Analysis or add one directly from an analysis yaml file
         //then move ExomiserSettings into this package from core.
-        runAnalyses(args);
+        int numFailedAnalyses = runAnalyses(args);
+        logCacheStats();
+        if (numFailedAnalyses > 0) {
+            logger.error("Exomising finished with {} failed analyses", numFailedAnalyses);
+            System.exit(1);
+        }
         logger.info("Exomising finished - Bye!");
     }
 
@@ -93,11 +102,12 @@ private void setup() {
         options = applicationContext.getBean(Options.class);
 
         settingsParser = applicationContext.getBean(SettingsParser.class);
-        resultsWriterFactory = applicationContext.getBean(ResultsWriterFactory.class);
+        multiFormatResultsWriter = applicationContext.getBean(MultiFormatResultsWriter.class);
         analysisParser = applicationContext.getBean(AnalysisParser.class);
         exomiser = applicationContext.getBean(Exomiser.class);
 
         buildVersion = (String) applicationContext.getBean("buildVersion");
+        writeMetricsReport = applicationContext.getEnvironment().getProperty("writeMetricsReport", Boolean.class, false);
     }
 
     private Path getJarFilePath() {
@@ -118,6 +128,13 @@ private AnnotationConfigApplicationContext setUpApplicationContext(Path jarFileP
         return applicationContext;
     }
 
+    private void logCacheStats() {
+        CacheManager cacheManager = applicationContext.getBean(CacheManager.class);
+        if (cacheManager instanceof BoundedCacheManager) {
+            ((BoundedCacheManager) cacheManager).logCacheStats();
+        }
+    }
+
     private void createDefaultOutputDirIfNotExists(Path jarFilePath) {
         Path defaultOutputDir = jarFilePath.resolve(DEFAULT_OUTPUT_DIR);
         try {
@@ -144,7 +161,11 @@ private void showSplash() {
         System.out.println(splash);
     }
 
-    private void runAnalyses(String[] args) {
+    /**
+     * @return the number of analyses in a batch which failed. A single
+     * analysis which fails throws an exception instead.
+     */
+    private int runAnalyses(String[] args) {
         CommandLineOptionsParser commandLineOptionsParser = applicationContext.getBean(CommandLineOptionsParser.class);
         
         CommandLine commandLine = parseCommandLineOptions(args);
@@ -155,27 +176,52 @@ private void runAnalyses(String[] args) {
             Path analysisBatchFile = Paths.get(commandLine.getOptionValue("analysis-batch"));
             List<Path> analysisScripts = new BatchFileReader().readPathsFromBatchFile(analysisBatchFile);
             logger.info("Running {} analyses from analysis batch file.", analysisScripts.size());
-            //this *can* be run in parallel using parallelStream() at the expense of RAM in order to hold all the variants in memory.
-            //like this:
-            //analysisScripts.parallelStream().forEach(this::runAnalysisFromScript);
-            //HOWEVER there may be threading issues so this needs investigation.
-            analysisScripts.forEach(analysis ->{logger.info("Running analysis: {}", analysis); runAnalysisFromScript(analysis);});
+            //each analysis holds all of its variants in memory, so the number run at once is limited by the batch memory budget
+            BatchAnalysisRunner batchAnalysisRunner = makeBatchAnalysisRunner(commandLine);
+            return batchAnalysisRunner.run(analysisScripts, analysis -> {
+                logger.info("Running analysis: {}", analysis);
+                runAnalysisFromScript(analysis);
+            });
         }
         //check the args for a batch file first as this option is otherwise ignored 
         else if (commandLine.hasOption("batch-file")) {
             Path batchFilePath = Paths.get(commandLine.getOptionValue("batch-file"));
             List<Path> settingsFiles = new BatchFileReader().readPathsFromBatchFile(batchFilePath);
             logger.info("Running {} analyses from settings batch file.", settingsFiles.size());
-            for (Path settingsFile : settingsFiles) {
+            BatchAnalysisRunner batchAnalysisRunner = makeBatchAnalysisRunner(commandLine);
+            return batchAnalysisRunner.run(settingsFiles, settingsFile -> {
                 logger.info("Running settings: {}", settingsFile);
                 SettingsBuilder settingsBuilder = commandLineOptionsParser.parseSettingsFile(settingsFile);
                 runAnalysisFromSettings(settingsBuilder);
-            }
+            });
         } else {
             //make a single SettingsBuilder
             SettingsBuilder settingsBuilder = commandLineOptionsParser.parseCommandLine(commandLine);
             runAnalysisFromSettings(settingsBuilder);
-        }    
+        }
+        return 0;
+    }
+
+    private BatchAnalysisRunner makeBatchAnalysisRunner(CommandLine commandLine) {
+        int batchThreads = (int) parseBatchOption(commandLine, "batch-threads", "1", 1, Integer.MAX_VALUE);
+        long analysisMemoryMegabytes = parseBatchOption(commandLine, "batch-analysis-memory", "0", 0, Long.MAX_VALUE / (1024 * 1024));
+        return new BatchAnalysisRunner(batchThreads, analysisMemoryMegabytes * 1024 * 1024, Runtime.getRuntime().maxMemory());
+    }
+
+    private long parseBatchOption(CommandLine commandLine, String option, String defaultValue, long minValue, long maxValue) {
+        String value = commandLine.getOptionValue(option, defaultValue);
+        try {
+            long parsedValue = Long.parseLong(value.trim());
+            if (parsedValue >= minValue && parsedValue <= maxValue) {
+                return parsedValue;
+            }
+        } catch (NumberFormatException ex) {
+            //reported below along with values out of range
+        }
+        printHelp();
+        logger.error("Invalid value '{}' for --{}. This must be a whole number from {} to {}.", value, option, minValue, maxValue);
+        System.exit(1);
+        return 0;
     }
 
     private CommandLine parseCommandLineOptions(String[] args) {
@@ -222,9 +268,20 @@ private void runAnalysisAndWriteResults(Analysis analysis, OutputSettings output
     
     private void writeResults(Analysis analysis, OutputSettings outputSettings) {
         logger.info("Writing results");
-        for (OutputFormat outFormat : outputSettings.getOutputFormats()) {
-            ResultsWriter resultsWriter = resultsWriterFactory.getResultsWriter(outFormat);
-            resultsWriter.writeFile(analysis, outputSettings);
+        multiFormatResultsWriter.writeFiles(analysis, outputSettings);
+        if (writeMetricsReport) {
+            writeMetricsReport(analysis, outputSettings);
+        }
+    }
+
+    private void writeMetricsReport(Analysis analysis, OutputSettings outputSettings) {
+        String outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), outputSettings.getOutputPrefix(), "metrics.json");
+        MetricsReport metricsReport = analysis.getAnalysisMetrics().getReport();
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(Paths.get(outFileName).toFile(), metricsReport);
+            logger.info("Metrics report written to file {}", outFileName);
+        } catch (IOException ex) {
+            logger.error("Unable to write metrics report to file {}", outFileName, ex);
         }
     }
 
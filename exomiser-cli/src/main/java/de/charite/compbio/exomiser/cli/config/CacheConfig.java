@@ -8,7 +8,11 @@
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import de.charite.compbio.exomiser.core.cache.BoundedCacheManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +39,10 @@
 public class CacheConfig {
     
     private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    //the names used by the @Cacheable methods
+    private static final List<String> CACHE_NAMES = Arrays.asList("pathogenicity", "frequency", "cadd", "remm", "diseaseHp", "diseases", "hpo", "mpo", "zpo");
+    private static final long DEFAULT_MAX_ENTRIES = 100000;
     
     @Autowired
     private Environment env;
@@ -53,7 +61,11 @@ public CacheManager cacheManager() {
                 cacheManager = noOpCacheManager();
                 break;
             case "mem":
-                cacheManager = new ConcurrentMapCacheManager("pathogenicity", "frequency", "diseaseHp", "diseases","hpo", "mpo", "zpo");
+                cacheManager = new ConcurrentMapCacheManager(CACHE_NAMES.toArray(new String[CACHE_NAMES.size()]));
+                cacheNames.addAll(cacheManager.getCacheNames());
+                break;
+            case "bounded":
+                cacheManager = boundedCacheManager();
                 cacheNames.addAll(cacheManager.getCacheNames());
                 break;
             case "ehcache":
@@ -67,6 +79,23 @@ public CacheManager cacheManager() {
         return cacheManager;
     }
 
+    /**
+     * Each cache holds up to cacheMaxEntries entries, or cacheMaxEntries.cacheName if this is set, evicting the least
+     * recently used once full.
+     */
+    public BoundedCacheManager boundedCacheManager() {
+        long defaultMaxEntries = env.getProperty("cacheMaxEntries", Long.class, DEFAULT_MAX_ENTRIES);
+        Map<String, Long> maxEntriesByCacheName = new HashMap<>();
+        for (String cacheName : CACHE_NAMES) {
+            Long maxEntries = env.getProperty("cacheMaxEntries." + cacheName, Long.class);
+            if (maxEntries != null) {
+                maxEntriesByCacheName.put(cacheName, maxEntries);
+            }
+        }
+        logger.info("Caches limited to {} entries except for {}", defaultMaxEntries, maxEntriesByCacheName);
+        return new BoundedCacheManager(defaultMaxEntries, maxEntriesByCacheName, CACHE_NAMES);
+    }
+
     public NoOpCacheManager noOpCacheManager() {
         logger.info("Caching disabled.");
         return new NoOpCacheManager();
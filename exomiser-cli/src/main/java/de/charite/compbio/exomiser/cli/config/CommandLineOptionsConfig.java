@@ -112,6 +112,18 @@ public Options options() {
                 .withDescription("Path to analysis batch file. This should be in plain text file with the path to a single analys script file in yaml format on each line.")
                 .withLongOpt("analysis-batch")
                 .create());
+        options.addOption(OptionBuilder
+                .withArgName("num")
+                .hasArg()
+                .withDescription("Number of analyses from an analysis-batch or batch-file to run at once. Defaults to 1.")
+                .withLongOpt("batch-threads")
+                .create());
+        options.addOption(OptionBuilder
+                .withArgName("MB")
+                .hasArg()
+                .withDescription("Heap in MB required by a single batch analysis. The number of batch-threads will be reduced so that all the running analyses fit into the maximum heap (-Xmx).")
+                .withLongOpt("batch-analysis-memory")
+                .create());
         
         for (OptionMarshaller optionMarshaller : desiredOptionMarshallers()) {
             Option option = optionMarshaller.getOption();
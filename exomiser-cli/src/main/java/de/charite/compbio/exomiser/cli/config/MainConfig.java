@@ -25,6 +25,7 @@
 import de.charite.compbio.exomiser.core.analysis.AnalysisParser;
 import de.charite.compbio.exomiser.core.analysis.SettingsParser;
 import de.charite.compbio.exomiser.core.dao.*;
+import de.charite.compbio.exomiser.core.factories.PrefetchingVariantDataService;
 import de.charite.compbio.exomiser.core.factories.SampleDataFactory;
 import de.charite.compbio.exomiser.core.factories.VariantDataServiceImpl;
 import de.charite.compbio.exomiser.core.dao.DefaultDiseaseDao;
@@ -44,12 +45,14 @@
 import de.charite.compbio.jannovar.data.JannovarDataSerializer;
 import de.charite.compbio.jannovar.data.SerializationException;
 
+import de.charite.compbio.exomiser.core.writers.MultiFormatResultsWriter;
 import de.charite.compbio.exomiser.core.writers.ResultsWriterFactory;
 import de.charite.compbio.jannovar.data.JannovarData;
 import htsjdk.tribble.readers.TabixReader;
 import java.io.IOException;
 
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.CodeSource;
@@ -201,9 +204,25 @@ public TabixReader remmTabixReader() {
     }
 
     @Bean
-    public VariantDataService variantDataService() {
+    public VariantDataServiceImpl variantDataServiceImpl() {
         return new VariantDataServiceImpl();
     }
+
+    /**
+     * Wraps the VariantDataServiceImpl in a PrefetchingVariantDataService if prefetchThreads is greater than 0 so that
+     * the frequency and pathogenicity data for the next chunk of variants is fetched while the current one is filtered.
+     *
+     * @return
+     */
+    @Primary
+    @Bean
+    public VariantDataService variantDataService() {
+        int prefetchThreads = Integer.parseInt(env.getProperty("prefetchThreads", "0"));
+        if (prefetchThreads > 0) {
+            return new PrefetchingVariantDataService(variantDataServiceImpl(), prefetchThreads);
+        }
+        return variantDataServiceImpl();
+    }
     
     @Bean
     public SettingsParser settingsParser() {
@@ -250,13 +269,23 @@ public SampleDataFactory sampleDataFactory() {
 
     /**
      * This needs a lot of RAM and is slow to create from the randomWalkFile, so
-     * it's set as lazy use on the command-line.
+     * it's set as lazy use on the command-line. If the binary version of the
+     * matrix is present this is memory-mapped instead, which is practically
+     * instant and uses next to no heap.
      *
      * @return
      */
     @Lazy
     @Bean
     public DataMatrix randomWalkMatrix() {
+        String randomWalkBinaryFileNameValue = env.getProperty("randomWalkBinaryFileName", "");
+        if (!randomWalkBinaryFileNameValue.isEmpty()) {
+            Path randomWalkBinaryFilePath = dataPath().resolve(randomWalkBinaryFileNameValue);
+            if (Files.exists(randomWalkBinaryFilePath)) {
+                return new DataMatrix(randomWalkBinaryFilePath);
+            }
+            logger.warn("Binary random walk matrix {} not found - reading gzipped text matrix instead. Use the DataMatrixConverter to create it.", randomWalkBinaryFilePath);
+        }
         String randomWalkFileNameValue = getValueOfProperty("randomWalkFileName");
         Path randomWalkFilePath = dataPath().resolve(randomWalkFileNameValue);
 
@@ -271,16 +300,48 @@ public FrequencyDao frequencyDao() {
         return new DefaultFrequencyDao();
     }
 
+    /**
+     * Uses the binary pathogenicity score store written by the exomiser-db
+     * build if it is present as this is far quicker than querying the variant
+     * table.
+     *
+     * @return
+     */
     @Bean
     public PathogenicityDao pathogenicityDao() {
+        Path pathogenicityStorePath = scoreStorePath("pathogenicityStorePath", "pathogenicity.store");
+        if (Files.exists(pathogenicityStorePath)) {
+            return new PathogenicityScoreStoreDao(new PathogenicityScoreStore(pathogenicityStorePath));
+        }
+        logger.info("Pathogenicity score store {} not found - using the database instead.", pathogenicityStorePath);
         return new DefaultPathogenicityDao();
     }
     
+    /**
+     * Uses the binary CADD score stores if they are present as these are far
+     * quicker than querying the tabix files.
+     *
+     * @return
+     */
     @Lazy
     @Bean
     public CaddDao caddDao() {
+        Path caddInDelStorePath = scoreStorePath("caddInDelStorePath", "InDels.cadd");
+        Path caddSnvStorePath = scoreStorePath("caddSnvStorePath", "whole_genome_SNVs.cadd");
+        if (Files.exists(caddInDelStorePath) && Files.exists(caddSnvStorePath)) {
+            return new CaddDao(new CaddScoreStore(caddInDelStorePath), new CaddScoreStore(caddSnvStorePath));
+        }
+        logger.info("CADD score stores {} and {} not found - using tabix files instead. Use the CaddScoreStoreConverter to create them.", caddInDelStorePath, caddSnvStorePath);
         return new CaddDao(indelTabixReader(), snvTabixReader());
     }
+
+    private Path scoreStorePath(String property, String defaultFileName) {
+        String scoreStorePathValue = env.getProperty(property, "");
+        if (scoreStorePathValue.isEmpty()) {
+            return dataPath().resolve(defaultFileName);
+        }
+        return Paths.get(scoreStorePathValue);
+    }
     
     @Lazy
     @Bean
@@ -356,6 +417,12 @@ public ResultsWriterFactory resultsWriterFactory() {
         return new ResultsWriterFactory();
     }
 
+    @Bean
+    public MultiFormatResultsWriter multiFormatResultsWriter() {
+        int resultsWriterThreads = Integer.parseInt(env.getProperty("resultsWriterThreads", "0"));
+        return new MultiFormatResultsWriter(resultsWriterFactory(), resultsWriterThreads);
+    }
+
     protected String getValueOfProperty(String property) throws PropertyNotFoundException {
         String value = env.getProperty(property);
         if (value == null) {
@@ -0,0 +1,142 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.cli;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class BatchAnalysisRunnerTest {
+
+    private static final long ONE_GB = 1024L * 1024 * 1024;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroThreadsThrowsException() {
+        new BatchAnalysisRunner(0, 0, ONE_GB);
+    }
+
+    @Test
+    public void testNumThreadsUnlimitedByMemoryWhenNoAnalysisMemorySet() {
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(8, 0, ONE_GB);
+        assertThat(instance.getNumThreads(), equalTo(8));
+    }
+
+    @Test
+    public void testNumThreadsLimitedByAvailableMemory() {
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(8, ONE_GB / 4, ONE_GB);
+        assertThat(instance.getNumThreads(), equalTo(4));
+    }
+
+    @Test
+    public void testNumThreadsIsAtLeastOneWhenAnalysisNeedsMoreThanAvailableMemory() {
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(8, 2 * ONE_GB, ONE_GB);
+        assertThat(instance.getNumThreads(), equalTo(1));
+    }
+
+    @Test
+    public void testRunEmptyBatch() {
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(4, 0, ONE_GB);
+        int numFailed = instance.run(Collections.<String>emptyList(), item -> {
+            throw new IllegalStateException("Should not be run");
+        });
+        assertThat(numFailed, equalTo(0));
+    }
+
+    @Test
+    public void testRunRunsAllItemsInBatch() {
+        List<Integer> batch = IntStream.range(0, 100).boxed().collect(toList());
+        Set<Integer> analysed = ConcurrentHashMap.newKeySet();
+
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(4, 0, ONE_GB);
+        int numFailed = instance.run(batch, analysed::add);
+
+        assertThat(numFailed, equalTo(0));
+        assertThat(analysed, equalTo(batch.stream().collect(toSet())));
+    }
+
+    @Test(timeout = 10000)
+    public void testRunRunsAnalysesConcurrently() {
+        //each analysis waits for the other one to start, so this will only finish if they run at the same time
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(2, 0, ONE_GB);
+
+        int numFailed = instance.run(Arrays.asList("sample1", "sample2"), item -> {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Analyses were not run concurrently");
+                }
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        assertThat(numFailed, equalTo(0));
+    }
+
+    @Test
+    public void testRunCountsFailedAnalysesAndCarriesOn() {
+        List<Integer> batch = IntStream.range(0, 10).boxed().collect(toList());
+        Set<Integer> analysed = ConcurrentHashMap.newKeySet();
+
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(3, 0, ONE_GB);
+        int numFailed = instance.run(batch, item -> {
+            if (item % 2 == 0) {
+                throw new IllegalStateException("Analysis " + item + " failed");
+            }
+            analysed.add(item);
+        });
+
+        assertThat(numFailed, equalTo(5));
+        assertThat(analysed, equalTo(batch.stream().filter(i -> i % 2 != 0).collect(toSet())));
+    }
+
+    @Test
+    public void testRunOnSingleThreadCountsFailedAnalysesAndCarriesOn() {
+        List<Integer> batch = IntStream.range(0, 10).boxed().collect(toList());
+        Set<Integer> analysed = ConcurrentHashMap.newKeySet();
+
+        BatchAnalysisRunner instance = new BatchAnalysisRunner(1, 0, ONE_GB);
+        int numFailed = instance.run(batch, item -> {
+            if (item < 3) {
+                throw new IllegalStateException("Analysis " + item + " failed");
+            }
+            analysed.add(item);
+        });
+
+        assertThat(numFailed, equalTo(3));
+        assertThat(analysed.size(), equalTo(7));
+    }
+}
@@ -20,22 +20,32 @@
 package de.charite.compbio.exomiser.core.analysis;
 
 import de.charite.compbio.exomiser.core.analysis.util.*;
+import de.charite.compbio.exomiser.core.factories.PrefetchingVariantDataService;
 import de.charite.compbio.exomiser.core.factories.SampleDataFactory;
 import de.charite.compbio.exomiser.core.factories.VariantDataService;
 import de.charite.compbio.exomiser.core.factories.VariantFactory;
 import de.charite.compbio.exomiser.core.filters.*;
+import de.charite.compbio.exomiser.core.metrics.AnalysisMetrics;
+import de.charite.compbio.exomiser.core.metrics.MetricsReport;
 import de.charite.compbio.exomiser.core.model.*;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
 import de.charite.compbio.exomiser.core.prioritisers.Prioritiser;
 import de.charite.compbio.exomiser.core.prioritisers.PriorityType;
 import de.charite.compbio.exomiser.core.prioritisers.ScoringMode;
+import de.charite.compbio.jannovar.annotation.Annotation;
 import de.charite.compbio.jannovar.annotation.VariantEffect;
 import de.charite.compbio.jannovar.pedigree.ModeOfInheritance;
 import de.charite.compbio.jannovar.pedigree.Pedigree;
+import htsjdk.variant.variantcontext.VariantContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -50,6 +60,9 @@ public abstract class AbstractAnalysisRunner implements AnalysisRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractAnalysisRunner.class);
 
+    //number of VCF records annotated and filtered together in one chunk when loading the variants
+    private static final int VARIANT_CONTEXT_CHUNK_SIZE = 5000;
+
     private final SampleDataFactory sampleDataFactory;
     private final VariantDataService variantDataService;
     protected final VariantFilterRunner variantFilterRunner;
@@ -66,10 +79,11 @@ public AbstractAnalysisRunner(SampleDataFactory sampleDataFactory, VariantDataSe
     @Override
     public void runAnalysis(Analysis analysis) {
 
+        final AnalysisMetrics analysisMetrics = new AnalysisMetrics();
+        analysis.setAnalysisMetrics(analysisMetrics);
         final SampleData sampleData = makeSampleDataWithoutGenesOrVariants(analysis);
 
         logger.info("Running analysis on sample: {}", sampleData.getSampleNames());
-        long startAnalysisTimeMillis = System.currentTimeMillis();
 
         final Pedigree pedigree = sampleData.getPedigree();
         final Path vcfPath = analysis.getVcfPath();
@@ -79,7 +93,7 @@ public void runAnalysis(Analysis analysis) {
         new AnalysisStepChecker().check(analysisSteps);
 
         //soo many comments - this is a bad sign that this is too complicated.
-        Map<String, Gene> allGenes = makeKnownGenes();
+        Map<String, Gene> allGenes = analysisMetrics.time("knownGenes", this::makeKnownGenes);
         List<VariantEvaluation> variantEvaluations = new ArrayList<>();
 //        some kind of multi-map with ordered duplicate keys would allow for easy grouping of steps for running the groups together.
         List<List<AnalysisStep>> analysisStepGroups = analysis.getAnalysisStepsGroupedByFunction();
@@ -92,20 +106,21 @@ public void runAnalysis(Analysis analysis) {
             if (firstStep.isVariantFilter() & !variantsLoaded) {
                 //variants take up 99% of all the memory in an analysis - this scales approximately linearly with the sample size
                 //so for whole genomes this is best run as a stream to filter out the unwanted variants with as many filters as possible in one go
-                variantEvaluations = loadAndFilterVariants(vcfPath, allGenes, analysisGroup, analysis);
+                variantEvaluations = loadAndFilterVariants(vcfPath, allGenes, analysisGroup, analysis, analysisMetrics);
                 //this is done here as there are GeneFilter steps which may require Variants in the genes, or the InheritanceModeDependent steps which definitely need them...
                 assignVariantsToGenes(variantEvaluations, allGenes);
                 variantsLoaded = true;
             } else {
-                runSteps(analysisGroup, new ArrayList<>(allGenes.values()), pedigree, analysis.getModeOfInheritance());
+                runSteps(analysisGroup, new ArrayList<>(allGenes.values()), pedigree, analysis.getModeOfInheritance(), analysisMetrics);
             }
         }
         //maybe only the non-variant dependent steps have been run in which case we need to load the variants although
         //the results might be a bit meaningless.
         if (!variantsLoaded) {
-            try(Stream<VariantEvaluation> variantStream = loadVariants(vcfPath)) {
+            try(Stream<VariantEvaluation> variantStream = loadVariants(vcfPath, analysisMetrics)) {
                 variantEvaluations = variantStream.collect(toList());
             }
+            analysisMetrics.add(AnalysisMetrics.VARIANTS_LOADED, variantEvaluations.size());
             assignVariantsToGenes(variantEvaluations, allGenes);
         }
 
@@ -114,36 +129,258 @@ public void runAnalysis(Analysis analysis) {
         final List<VariantEvaluation> variants = getFinalVariantList(variantEvaluations);
         sampleData.setVariantEvaluations(variants);
 
-        scoreGenes(genes, analysis.getScoringMode(), analysis.getModeOfInheritance());
+        analysisMetrics.time("scoring", () -> scoreGenes(genes, analysis.getScoringMode(), analysis.getModeOfInheritance()));
         logger.info("Analysed {} genes containing {} filtered variants", genes.size(), variants.size());
+        analysisMetrics.add("genes.reported", genes.size());
+        analysisMetrics.add("variants.reported", variants.size());
 //        logTopNumScoringGenes(5, genes, analysis);
 
-        long endAnalysisTimeMillis = System.currentTimeMillis();
-        double analysisTimeSecs = (double) (endAnalysisTimeMillis - startAnalysisTimeMillis) / 1000;
+        MetricsReport metricsReport = analysisMetrics.getReport();
+        analysisMetrics.getMetricsRegistry().recordAnalysis(metricsReport);
+        double analysisTimeSecs = (double) metricsReport.getElapsedTimeMillis() / 1000;
         logger.info("Finished analysis in {} secs", analysisTimeSecs);
+        logger.info("Analysis metrics: {}", metricsReport);
     }
 
-    private List<VariantEvaluation> loadAndFilterVariants(Path vcfPath, Map<String, Gene> allGenes, List<AnalysisStep> analysisGroup, Analysis analysis) {
-        GeneReassigner geneReassigner = createNonCodingVariantGeneReassigner(analysis, allGenes);
+    /**
+     * Splits the VCF records into ordered chunks which are annotated, tagged with their regulatory regions and run
+     * through the variant filters, using a pool of worker threads if the analysis requests more than one thread. The
+     * chunks are re-assembled in their original order so the output is identical however many threads are used.
+     * Filtering in chunks also allows the data required by the filters to be fetched for a whole chunk in one go and,
+     * where the variant data service prefetches, for the next chunk to be fetched while the current one is filtered.
+     *
+     * VCF files are almost always coordinate sorted, so the regulatory regions and TADs are found using cursors which
+     * sweep through the regions alongside the variants of a chunk rather than searching for each variant. These still
+     * give the right answer for unsorted input, only more slowly.
+     *
+     * If the runner discards failed variants, any filters which only need the position and QUAL of a record are also
+     * run on the raw VCF records, so those which are certain to fail are never annotated. Where there is an interval or
+     * BED filter and the VCF is indexed, only the records in the target regions are read in the first place.
+     */
+    private List<VariantEvaluation> loadAndFilterVariants(Path vcfPath, Map<String, Gene> allGenes, List<AnalysisStep> analysisGroup, Analysis analysis, AnalysisMetrics analysisMetrics) {
+        GeneReassigner geneReassigner = analysisMetrics.time("index.tads", () -> createNonCodingVariantGeneReassigner(analysis, allGenes));
         List<VariantFilter> variantFilters = getVariantFilterSteps(analysisGroup);
 
+        final AtomicInteger streamed = new AtomicInteger(0);
+        final AtomicInteger passed = new AtomicInteger(0);
+        final AtomicBoolean sortedInput = new AtomicBoolean(true);
+        final AtomicInteger rejectedRecords = new AtomicInteger(0);
+
+        int numThreads = analysis.getNumThreads();
+        logger.info("Loading and filtering variants using {} thread(s)", numThreads);
+        VariantFactory variantFactory = sampleDataFactory.getVariantFactory();
+        ChromosomalRegionIndex<RegulatoryFeature> regulatoryIndex = analysisMetrics.time("index.regulatoryRegions", this::loadRegulatoryRegionIndex);
+        Predicate<VariantContext> variantContextFilter = makeVariantContextFilter(variantFilters, variantFactory, rejectedRecords);
+        OrderedChunkProcessor<VariantContext, VariantEvaluation> chunkProcessor = new OrderedChunkProcessor<>(numThreads, VARIANT_CONTEXT_CHUNK_SIZE);
+        Function<List<VariantEvaluation>, Runnable> variantDataPrefetcher = makeVariantDataPrefetcher(variantFilters);
+        Set<Runnable> unreleasedPrefetches = ConcurrentHashMap.newKeySet();
+
         List<VariantEvaluation> filteredVariants;
-        final int[] streamed = {0};
-        final int[] passed = {0};
-        try (Stream<VariantEvaluation> variantStream = loadVariants(vcfPath)) {
-            filteredVariants = variantStream
-                    .map(logLoadedAndPassedVariants(streamed, passed))
-                    .map(reassignNonCodingVariantToBestGeneInJannovarAnnotations(allGenes, geneReassigner))
-                    .map(reassignNonCodingVariantToBestGeneInTad(allGenes, geneReassigner))
-                    .filter(isAssociatedWithKnownGene(allGenes))
-                    .filter(runVariantFilters(variantFilters))
-                    .map(logPassedVariants(passed))
-                    .collect(toList());
+        try (Stream<VariantContext> variantContextStream = analysisMetrics.timeEach("vcf.parsing", streamVariantContexts(vcfPath, variantFilters, variantFactory))) {
+            //the next chunk is annotated and its data requested before the current chunk is filtered
+            filteredVariants = chunkProcessor.process(variantContextStream, variantContexts -> {
+                if (!isCoordinateSorted(variantContexts)) {
+                    sortedInput.set(false);
+                }
+                //cursors aren't thread-safe, so each chunk gets its own
+                ChromosomalRegionIndex.SweepCursor<RegulatoryFeature> regulatoryCursor = regulatoryIndex.newSweepCursor();
+                ChromosomalRegionIndex.SweepCursor<TopologicalDomain> tadCursor = geneReassigner.newTadCursor();
+                List<VariantEvaluation> annotatedVariants = analysisMetrics.time("annotation", () -> variantFactory.streamVariantEvaluations(variantContexts.stream().filter(variantContextFilter)).collect(toList()));
+                Stream<VariantEvaluation> variantEvaluationStream = annotatedVariants.stream()
+                        .map(setRegulatoryRegionVariantEffect(regulatoryCursor::getRegionsContainingVariant));
+                List<VariantEvaluation> variantsInKnownGenes = assignVariantsToKnownGenes(variantEvaluationStream, allGenes, geneReassigner, tadCursor, streamed, passed, analysisMetrics);
+                Runnable releasePrefetch = variantDataPrefetcher.apply(variantsInKnownGenes);
+                unreleasedPrefetches.add(releasePrefetch);
+                return new PreparedChunk(variantsInKnownGenes, releasePrefetch);
+            }, preparedChunk -> {
+                try {
+                    return filterVariants(preparedChunk.variants, variantFilters, passed, analysisMetrics);
+                } finally {
+                    preparedChunk.releasePrefetch.run();
+                    unreleasedPrefetches.remove(preparedChunk.releasePrefetch);
+                }
+            });
+        } finally {
+            //only left over if the analysis failed before these chunks were filtered
+            unreleasedPrefetches.forEach(Runnable::run);
         }
-        logger.info("Loaded {} variants - {} passed variant filters", streamed[0], passed[0]);
+        if (!sortedInput.get()) {
+            logger.warn("Variants in {} are not sorted by chromosome and position - sorting the VCF will make loading the variants faster", vcfPath);
+        }
+        if (rejectedRecords.get() > 0) {
+            logger.info("Discarded {} VCF records failing variant filters before annotation", rejectedRecords.get());
+        }
+        logger.info("Loaded {} variants - {} passed variant filters", streamed.get(), passed.get());
+        analysisMetrics.add(AnalysisMetrics.VARIANTS_LOADED, streamed.get());
+        analysisMetrics.add(AnalysisMetrics.VARIANTS_PASSED, passed.get());
+        analysisMetrics.add("vcf.recordsRejected", rejectedRecords.get());
         return filteredVariants;
     }
 
+    private Stream<VariantContext> streamVariantContexts(Path vcfPath, List<VariantFilter> variantFilters, VariantFactory variantFactory) {
+        if (discardsFailedVariants() && variantFactory.canQueryRegions(vcfPath)) {
+            Optional<List<GeneticInterval>> targetRegions = getTargetRegions(variantFilters, variantFactory);
+            if (targetRegions.isPresent()) {
+                return variantFactory.streamVariantContexts(vcfPath, padRegions(targetRegions.get()));
+            }
+        }
+        return variantFactory.streamVariantContexts(vcfPath);
+    }
+
+    /**
+     * A variant can only pass an IntervalFilter if it lies in the interval and can only pass a BedFilter if it lies in
+     * one of the target genes, as any off-exome variants fail. If both are present the interval is used as it will
+     * invariably be the smaller.
+     *
+     * @return the regions outside of which no variant can pass the variant filters or empty if there are no such
+     * filters.
+     */
+    private Optional<List<GeneticInterval>> getTargetRegions(List<VariantFilter> variantFilters, VariantFactory variantFactory) {
+        for (VariantFilter variantFilter : variantFilters) {
+            if (variantFilter instanceof IntervalFilter) {
+                return Optional.of(Collections.singletonList(((IntervalFilter) variantFilter).getGeneticInterval()));
+            }
+        }
+        for (VariantFilter variantFilter : variantFilters) {
+            if (variantFilter instanceof BedFilter) {
+                return Optional.of(variantFactory.getGeneRegions(((BedFilter) variantFilter).getTargetGeneSymbols()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The IntervalFilter keeps indels lying within {@link IntervalFilter#INDEL_MARGIN} bases of its interval, as
+     * trimming can move them inside it, so the regions read are widened to match.
+     */
+    private static List<GeneticInterval> padRegions(List<GeneticInterval> regions) {
+        return regions.stream()
+                .map(region -> new GeneticInterval(region.getChromosome(), Math.max(1, region.getStart() - IntervalFilter.INDEL_MARGIN), region.getEnd() + IntervalFilter.INDEL_MARGIN))
+                .collect(toList());
+    }
+
+    /**
+     * @return a predicate which rejects the VCF records which fail any of the {@link VariantContextFilter} in the
+     * variantFilters or accepts everything if this runner keeps failed variants.
+     */
+    private Predicate<VariantContext> makeVariantContextFilter(List<VariantFilter> variantFilters, VariantFactory variantFactory, AtomicInteger rejectedRecords) {
+        if (!discardsFailedVariants()) {
+            return variantContext -> true;
+        }
+        List<VariantContextFilter> variantContextFilters = variantFilters.stream()
+                .filter(variantFilter -> variantFilter instanceof VariantContextFilter)
+                .map(variantFilter -> (VariantContextFilter) variantFilter)
+                .collect(toList());
+        if (variantContextFilters.isEmpty()) {
+            return variantContext -> true;
+        }
+        logger.info("Running {} filter(s) on VCF records before annotation", variantContextFilters.size());
+        return variantContext -> {
+            int chromosome = variantFactory.getChromosomeId(variantContext.getContig());
+            for (VariantContextFilter variantContextFilter : variantContextFilters) {
+                if (!variantContextFilter.mayPass(variantContext, chromosome)) {
+                    rejectedRecords.incrementAndGet();
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private List<VariantEvaluation> assignVariantsToKnownGenes(Stream<VariantEvaluation> variantStream, Map<String, Gene> allGenes, GeneReassigner geneReassigner, ChromosomalRegionIndex.SweepCursor<TopologicalDomain> tadCursor, AtomicInteger streamed, AtomicInteger passed, AnalysisMetrics analysisMetrics) {
+        return analysisMetrics.time("geneAssignment", () -> variantStream
+                .map(logLoadedAndPassedVariants(streamed, passed))
+                .map(reassignNonCodingVariantToBestGeneInJannovarAnnotations(allGenes, geneReassigner))
+                .map(reassignNonCodingVariantToBestGeneInTad(allGenes, geneReassigner, tadCursor))
+                .filter(isAssociatedWithKnownGene(allGenes))
+                .collect(toList()));
+    }
+
+    private List<VariantEvaluation> filterVariants(List<VariantEvaluation> variantsInKnownGenes, List<VariantFilter> variantFilters, AtomicInteger passed, AnalysisMetrics analysisMetrics) {
+        //each filter is run over the whole chunk according to the variantFilterRunner behaviour so that any data the
+        //filter needs can be fetched for the chunk in one go, rather than one variant at a time.
+        for (VariantFilter variantFilter : variantFilters) {
+            runVariantFilter(variantFilter, variantsInKnownGenes, analysisMetrics);
+        }
+        return variantsInKnownGenes.stream()
+                .filter(retainFilteredVariant())
+                .map(logPassedVariants(passed))
+                .map(trimAnnotationsOfFailedVariant())
+                .collect(toList());
+    }
+
+    /**
+     * Finds the frequency and pathogenicity sources needed by the data providers of the variantFilters. Where more than
+     * one provider needs the same type of data the sources of the first are prefetched and the others fetch their own.
+     *
+     * @return a function which starts prefetching the data for a chunk of variants and returns a Runnable to release
+     * it once the chunk has been filtered. This does nothing unless the variant data service prefetches.
+     */
+    private Function<List<VariantEvaluation>, Runnable> makeVariantDataPrefetcher(List<VariantFilter> variantFilters) {
+        if (!(variantDataService instanceof PrefetchingVariantDataService)) {
+            return variants -> () -> {};
+        }
+        Set<FrequencySource> frequencySources = EnumSet.noneOf(FrequencySource.class);
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.noneOf(PathogenicitySource.class);
+        for (VariantFilter variantFilter : variantFilters) {
+            VariantFilter filter = variantFilter;
+            while (filter instanceof VariantFilterDataProvider) {
+                if (filter instanceof FrequencyDataProvider && frequencySources.isEmpty()) {
+                    frequencySources.addAll(((FrequencyDataProvider) filter).getFrequencySources());
+                }
+                if (filter instanceof PathogenicityDataProvider && pathogenicitySources.isEmpty()) {
+                    pathogenicitySources.addAll(((PathogenicityDataProvider) filter).getPathogenicitySources());
+                }
+                filter = ((VariantFilterDataProvider) filter).getDecoratedFilter();
+            }
+        }
+        if (frequencySources.isEmpty() && pathogenicitySources.isEmpty()) {
+            return variants -> () -> {};
+        }
+        logger.info("Prefetching {} frequency and {} pathogenicity data for each chunk of variants", frequencySources, pathogenicitySources);
+        PrefetchingVariantDataService prefetchingVariantDataService = (PrefetchingVariantDataService) variantDataService;
+        return variants -> prefetchingVariantDataService.prefetch(variants, frequencySources, pathogenicitySources)::close;
+    }
+
+    /**
+     * A chunk of variants which have been annotated and assigned to genes, ready to be filtered.
+     */
+    private static class PreparedChunk {
+
+        private final List<VariantEvaluation> variants;
+        private final Runnable releasePrefetch;
+
+        PreparedChunk(List<VariantEvaluation> variants, Runnable releasePrefetch) {
+            this.variants = variants;
+            this.releasePrefetch = releasePrefetch;
+        }
+    }
+
+    /**
+     * @return true if the records are grouped by chromosome and in position order within each chromosome. The order of
+     * the chromosomes doesn't matter.
+     */
+    static boolean isCoordinateSorted(List<VariantContext> variantContexts) {
+        Set<String> finishedContigs = new HashSet<>();
+        String contig = null;
+        int position = 0;
+        for (VariantContext variantContext : variantContexts) {
+            if (!variantContext.getContig().equals(contig)) {
+                if (contig != null) {
+                    finishedContigs.add(contig);
+                }
+                contig = variantContext.getContig();
+                if (finishedContigs.contains(contig)) {
+                    return false;
+                }
+            } else if (variantContext.getStart() < position) {
+                return false;
+            }
+            position = variantContext.getStart();
+        }
+        return true;
+    }
+
     private GeneReassigner createNonCodingVariantGeneReassigner(Analysis analysis, Map<String, Gene> allGenes) {
         ChromosomalRegionIndex<TopologicalDomain> tadIndex = new ChromosomalRegionIndex<>(variantDataService.getTopologicallyAssociatedDomains());
         PriorityType mainPriorityType = analysis.getMainPrioritiserType();
@@ -162,20 +399,20 @@ private List<VariantFilter> getVariantFilterSteps(List<AnalysisStep> analysisSte
     }
 
     //yep, logging logic
-    private Function<VariantEvaluation, VariantEvaluation> logLoadedAndPassedVariants(int[] streamed, int[] passed) {
+    private Function<VariantEvaluation, VariantEvaluation> logLoadedAndPassedVariants(AtomicInteger streamed, AtomicInteger passed) {
         return variantEvaluation -> {
-            streamed[0]++;
-            if (streamed[0] % 100000 == 0) {
-                logger.info("Loaded {} variants - {} passed variant filters", streamed[0], passed[0]);
+            int numStreamed = streamed.incrementAndGet();
+            if (numStreamed % 100000 == 0) {
+                logger.info("Loaded {} variants - {} passed variant filters", numStreamed, passed.get());
             }
             return variantEvaluation;
         };
     }
 
-    private Function<VariantEvaluation, VariantEvaluation> reassignNonCodingVariantToBestGeneInTad(Map<String, Gene> genes, GeneReassigner geneReassigner) {
+    private Function<VariantEvaluation, VariantEvaluation> reassignNonCodingVariantToBestGeneInTad(Map<String, Gene> genes, GeneReassigner geneReassigner, ChromosomalRegionIndex.SweepCursor<TopologicalDomain> tadCursor) {
         //todo: this won't function correctly if run before a prioritiser has been run
         return variantEvaluation -> {
-            geneReassigner.reassignVariantToMostPhenotypicallySimilarGeneInTad(variantEvaluation);
+            geneReassigner.reassignVariantToMostPhenotypicallySimilarGeneInTad(variantEvaluation, tadCursor);
             return variantEvaluation;
         };
     }
@@ -201,40 +438,71 @@ private Function<VariantEvaluation, VariantEvaluation> reassignNonCodingVariantT
 
     /**
      * Defines the filtering behaviour of the runner when performing the initial load and filter of variants. Allows the
-     * concrete runner to define whether a variant should pass or fail when running the variant through the variant
-     * filters defined in the variant filter group, or the initial group if there are more than one.
+     * concrete runner to define whether a variant should be retained once it has been run through the variant filters
+     * defined in the variant filter group, or the initial group if there are more than one. Which of the filters a
+     * variant is run through is defined by the runner's VariantFilterRunner.
+     *
+     * @return
+     */
+    abstract Predicate<VariantEvaluation> retainFilteredVariant();
+
+    /**
+     * Defines whether the runner throws away every variant failing the initial variant filters, in which case VCF
+     * records which are certain to fail can be dropped before they are annotated. This must only return true if the
+     * retainFilteredVariant predicate never keeps a failed variant.
      *
-     * @param variantFilters
      * @return
      */
-    abstract Predicate<VariantEvaluation> runVariantFilters(List<VariantFilter> variantFilters);
+    protected boolean discardsFailedVariants() {
+        return false;
+    }
 
     //more logging logic
-    private Function<VariantEvaluation, VariantEvaluation> logPassedVariants(int[] passed) {
+    private Function<VariantEvaluation, VariantEvaluation> logPassedVariants(AtomicInteger passed) {
         return variantEvaluation -> {
             if (variantEvaluation.passedFilters()) {
-                passed[0]++;
+                passed.incrementAndGet();
             }
             return variantEvaluation;
         };
     }
 
-    private Stream<VariantEvaluation> loadVariants(Path vcfPath) {
+    /**
+     * In a whole genome the vast majority of variants fail the filters, yet runners such as the SimpleAnalysisRunner
+     * hold on to these until the results are written. Each one carries a Jannovar annotation for every transcript it
+     * overlaps, but once the gene has been assigned and the variant has failed, only the representative (first)
+     * annotation is ever read again, so the rest are dropped here.
+     */
+    private Function<VariantEvaluation, VariantEvaluation> trimAnnotationsOfFailedVariant() {
+        return variantEvaluation -> {
+            List<Annotation> annotations = variantEvaluation.getAnnotations();
+            if (!variantEvaluation.passedFilters() && annotations.size() > 1) {
+                variantEvaluation.setAnnotations(Collections.singletonList(annotations.get(0)));
+            }
+            return variantEvaluation;
+        };
+    }
+
+    private Stream<VariantEvaluation> loadVariants(Path vcfPath, AnalysisMetrics analysisMetrics) {
         VariantFactory variantFactory = sampleDataFactory.getVariantFactory();
+        this.regulatoryRegionIndex = analysisMetrics.time("index.regulatoryRegions", this::loadRegulatoryRegionIndex);
+        //WARNING!!! THIS IS NOT THREADSAFE DO NOT USE PARALLEL STREAMS - see loadAndFilterVariants for how to do this
+        return variantFactory.streamVariantEvaluations(vcfPath).map(setRegulatoryRegionVariantEffect(regulatoryRegionIndex.newSweepCursor()::getRegionsContainingVariant));
+    }
+
+    private ChromosomalRegionIndex<RegulatoryFeature> loadRegulatoryRegionIndex() {
         List<RegulatoryFeature> regulatoryFeatures = variantDataService.getRegulatoryFeatures();
-        this.regulatoryRegionIndex = new ChromosomalRegionIndex<>(regulatoryFeatures);
         logger.info("Loaded {} regulatory regions", regulatoryFeatures.size());
-        //WARNING!!! THIS IS NOT THREADSAFE DO NOT USE PARALLEL STREAMS
-        return variantFactory.streamVariantEvaluations(vcfPath).map(setRegulatoryRegionVariantEffect(regulatoryRegionIndex));
+        return new ChromosomalRegionIndex<>(regulatoryFeatures);
     }
 
     //Adds the missing REGULATORY_REGION_VARIANT effect to variants - this isn't in the Jannovar data set.
-    private Function<VariantEvaluation, VariantEvaluation> setRegulatoryRegionVariantEffect(ChromosomalRegionIndex<RegulatoryFeature> regulatoryRegionIndex) {
+    private Function<VariantEvaluation, VariantEvaluation> setRegulatoryRegionVariantEffect(Function<VariantEvaluation, List<RegulatoryFeature>> regulatoryRegionLookup) {
         return variantEvaluation -> {
             VariantEffect variantEffect = variantEvaluation.getVariantEffect();
             //n.b this check here is important as ENSEMBLE can have regulatory regions overlapping with missense variants.
             if (variantEffect == VariantEffect.INTERGENIC_VARIANT || variantEffect == VariantEffect.UPSTREAM_GENE_VARIANT) {
-                List<RegulatoryFeature> overlappingFeatures = regulatoryRegionIndex.getRegionsContainingVariant(variantEvaluation);
+                List<RegulatoryFeature> overlappingFeatures = regulatoryRegionLookup.apply(variantEvaluation);
                 if (!overlappingFeatures.isEmpty()) {
                     //the effect is the same for all regulatory regions, so for the sake of speed, just assign it here rather than look it up form the list
                     variantEvaluation.setVariantEffect(VariantEffect.REGULATORY_REGION_VARIANT);
@@ -283,41 +551,64 @@ private Map<String, Gene> makeKnownGenes() {
     }
 
     //might this be a nascent class waiting to get out here?
-    private void runSteps(List<AnalysisStep> analysisSteps, List<Gene> genes, Pedigree pedigree, ModeOfInheritance modeOfInheritance) {
+    private void runSteps(List<AnalysisStep> analysisSteps, List<Gene> genes, Pedigree pedigree, ModeOfInheritance modeOfInheritance, AnalysisMetrics analysisMetrics) {
         boolean inheritanceModesCalculated = false;
         for (AnalysisStep analysisStep : analysisSteps) {
             if (!inheritanceModesCalculated && analysisStep.isInheritanceModeDependent()) {
-                analyseGeneCompatibilityWithInheritanceMode(genes, pedigree, modeOfInheritance);
+                analysisMetrics.time("inheritanceAnalysis", () -> analyseGeneCompatibilityWithInheritanceMode(genes, pedigree, modeOfInheritance));
                 inheritanceModesCalculated = true;
             }
-            runStep(analysisStep, genes);
+            runStep(analysisStep, genes, analysisMetrics);
         }
     }
 
-    private void runStep(AnalysisStep analysisStep, List<Gene> genes) {
+    private void runStep(AnalysisStep analysisStep, List<Gene> genes, AnalysisMetrics analysisMetrics) {
         if (analysisStep.isVariantFilter()) {
             VariantFilter filter = (VariantFilter) analysisStep;
             logger.info("Running VariantFilter: {}", filter);
-            for (Gene gene : genes) {
-                variantFilterRunner.run(filter, gene.getVariantEvaluations());
-            }
+            //run the filter over all the variants at once so that any data required can be fetched in bulk
+            List<VariantEvaluation> variantEvaluations = genes.stream()
+                    .flatMap(gene -> gene.getVariantEvaluations().stream())
+                    .collect(toList());
+            runVariantFilter(filter, variantEvaluations, analysisMetrics);
             return;
 
         }
         if (GeneFilter.class.isInstance(analysisStep)) {
             GeneFilter filter = (GeneFilter) analysisStep;
             logger.info("Running GeneFilter: {}", filter);
-            geneFilterRunner.run(filter, genes);
+            analysisMetrics.time("geneFilter." + filter.getFilterType(), () -> {
+                geneFilterRunner.run(filter, genes);
+            });
             return;
         }
 
         if (Prioritiser.class.isInstance(analysisStep)) {
             Prioritiser prioritiser = (Prioritiser) analysisStep;
             logger.info("Running Prioritiser: {}", prioritiser);
-            prioritiser.prioritizeGenes(genes);
+            analysisMetrics.time("prioritiser." + prioritiser.getPriorityType(), () -> prioritiser.prioritizeGenes(genes));
         }
     }
 
+    /**
+     * Runs the filter according to the variantFilterRunner behaviour, timing the time spent fetching the data for the
+     * filter separately from the time taken by the filter as a whole.
+     */
+    private void runVariantFilter(VariantFilter variantFilter, List<VariantEvaluation> variantEvaluations, AnalysisMetrics analysisMetrics) {
+        String stage = "variantFilter." + variantFilter.getFilterType();
+        VariantFilter timedFilter = timeDataProvider(variantFilter, stage + ".dataProvider", analysisMetrics);
+        analysisMetrics.time(stage, () -> {
+            variantFilterRunner.run(timedFilter, variantEvaluations);
+        });
+    }
+
+    private static VariantFilter timeDataProvider(VariantFilter variantFilter, String stage, AnalysisMetrics analysisMetrics) {
+        if (variantFilter instanceof VariantFilterDataProvider) {
+            return new TimedVariantFilterDataProvider((VariantFilterDataProvider) variantFilter, stage, analysisMetrics);
+        }
+        return variantFilter;
+    }
+
     private void analyseGeneCompatibilityWithInheritanceMode(List<Gene> genes, Pedigree pedigree, ModeOfInheritance modeOfInheritance) {
         InheritanceModeAnalyser inheritanceModeAnalyser = new InheritanceModeAnalyser(pedigree, modeOfInheritance);
         logger.info("Checking compatibility with {} inheritance mode for genes which passed filters", modeOfInheritance);
@@ -355,4 +646,53 @@ private void logTopNumScoringGenes(int numToLog, List<Gene> genes, Analysis anal
         }
     }
 
+    /**
+     * Records the time spent providing the data for a filter under its own stage. The VariantFilterRunners unwrap
+     * VariantFilterDataProviders in order to fetch the data for many variants at once, so any nested providers are
+     * wrapped in turn as they are unwrapped.
+     */
+    private static class TimedVariantFilterDataProvider implements VariantFilterDataProvider {
+
+        private final VariantFilterDataProvider dataProvider;
+        private final String stage;
+        private final AnalysisMetrics analysisMetrics;
+
+        TimedVariantFilterDataProvider(VariantFilterDataProvider dataProvider, String stage, AnalysisMetrics analysisMetrics) {
+            this.dataProvider = dataProvider;
+            this.stage = stage;
+            this.analysisMetrics = analysisMetrics;
+        }
+
+        @Override
+        public void provideVariantData(VariantEvaluation variantEvaluation) {
+            analysisMetrics.time(stage, () -> dataProvider.provideVariantData(variantEvaluation));
+        }
+
+        @Override
+        public void provideVariantData(List<VariantEvaluation> variantEvaluations) {
+            analysisMetrics.time(stage, () -> dataProvider.provideVariantData(variantEvaluations));
+        }
+
+        @Override
+        public VariantFilter getDecoratedFilter() {
+            return timeDataProvider(dataProvider.getDecoratedFilter(), stage, analysisMetrics);
+        }
+
+        @Override
+        public FilterResult runFilter(VariantEvaluation variantEvaluation) {
+            provideVariantData(variantEvaluation);
+            return getDecoratedFilter().runFilter(variantEvaluation);
+        }
+
+        @Override
+        public FilterType getFilterType() {
+            return dataProvider.getFilterType();
+        }
+
+        @Override
+        public String toString() {
+            return dataProvider.toString();
+        }
+    }
+
 }
@@ -25,6 +25,7 @@
 package de.charite.compbio.exomiser.core.analysis;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.charite.compbio.exomiser.core.metrics.AnalysisMetrics;
 import de.charite.compbio.exomiser.core.model.SampleData;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
@@ -59,6 +60,9 @@ public class Analysis {
     //This could happen at a separate time to the analysis initially being built.
     @JsonIgnore
     private SampleData sampleData = new SampleData();
+    //replaced by the AnalysisRunner each time the analysis is run so that the timings of the results writers can be added
+    @JsonIgnore
+    private AnalysisMetrics analysisMetrics = new AnalysisMetrics();
     //these are more optional variables
     private List<String> hpoIds = new ArrayList<>();
     private ModeOfInheritance modeOfInheritance = ModeOfInheritance.UNINITIALIZED;
@@ -66,6 +70,8 @@ public class Analysis {
     private AnalysisMode analysisMode = AnalysisMode.PASS_ONLY;
     private Set<FrequencySource> frequencySources = EnumSet.noneOf(FrequencySource.class);
     private Set<PathogenicitySource> pathogenicitySources = EnumSet.noneOf(PathogenicitySource.class);
+    //number of threads to use when loading and filtering the variants - 1 will run the original single-threaded stream
+    private int numThreads = 1;
     private final List<AnalysisStep> analysisSteps = new ArrayList<>();
 
     public Analysis() {
@@ -150,6 +156,18 @@ protected void setSampleData(SampleData sampleData) {
         this.sampleData = sampleData;
     }
 
+    /**
+     * @return the stage timings and counters of the last run of this analysis.
+     */
+    @JsonIgnore
+    public AnalysisMetrics getAnalysisMetrics() {
+        return analysisMetrics;
+    }
+
+    protected void setAnalysisMetrics(AnalysisMetrics analysisMetrics) {
+        this.analysisMetrics = analysisMetrics;
+    }
+
     public ModeOfInheritance getModeOfInheritance() {
         return modeOfInheritance;
     }
@@ -198,6 +216,14 @@ public void setPathogenicitySources(Set<PathogenicitySource> pathogenicitySource
         this.pathogenicitySources = pathogenicitySources;
     }
 
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
     public void addStep(AnalysisStep step) {
         this.analysisSteps.add(step);
     }
@@ -259,7 +285,7 @@ public boolean equals(Object obj) {
 
     @Override
     public String toString() {
-        return "Analysis{" + "vcfPath=" + vcfPath + ", pedPath=" + pedPath + ", hpoIds=" + hpoIds + ", modeOfInheritance=" + modeOfInheritance + ", scoringMode=" + scoringMode + ", analysisMode=" + analysisMode + ", frequencySources=" + frequencySources + ", pathogenicitySources=" + pathogenicitySources + ", analysisSteps=" + analysisSteps + '}';
+        return "Analysis{" + "vcfPath=" + vcfPath + ", pedPath=" + pedPath + ", hpoIds=" + hpoIds + ", modeOfInheritance=" + modeOfInheritance + ", scoringMode=" + scoringMode + ", analysisMode=" + analysisMode + ", frequencySources=" + frequencySources + ", pathogenicitySources=" + pathogenicitySources + ", numThreads=" + numThreads + ", analysisSteps=" + analysisSteps + '}';
     }
 
 }
@@ -129,6 +129,11 @@ public AnalysisBuilder pathogenicitySources(Set<PathogenicitySource> pathogenici
             return this;
         }
 
+        public AnalysisBuilder numThreads(int numThreads) {
+            analysis.setNumThreads(numThreads);
+            return this;
+        }
+
         public AnalysisBuilder addOmimPrioritiser() {
             analysis.addStep(priorityFactory.makeOmimPrioritiser());
             return this;
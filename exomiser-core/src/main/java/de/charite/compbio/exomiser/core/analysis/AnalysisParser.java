@@ -209,6 +209,7 @@ public Analysis construct(Map analysisMap) {
             analysis.setAnalysisMode(parseAnalysisMode(analysisMap));
             analysis.setFrequencySources(parseFrequencySources(analysisMap));
             analysis.setPathogenicitySources(parsePathogenicitySources(analysisMap));
+            analysis.setNumThreads(parseNumThreads(analysisMap));
             analysis.addAllSteps(makeAnalysisSteps(analysisMap));
 
             logger.debug("Made analysis: {}", analysis);
@@ -267,6 +268,17 @@ private AnalysisMode parseAnalysisMode(Map<String, String> analysisMap) {
             return AnalysisMode.valueOf(value);
         }
 
+        private int parseNumThreads(Map<String, Integer> analysisMap) {
+            Integer value = analysisMap.get("numThreads");
+            if (value == null) {
+                return 1;
+            }
+            if (value < 1) {
+                throw new AnalysisParserException("numThreads must be greater than 0.", analysisMap);
+            }
+            return value;
+        }
+
         private ScoringMode parseScoringMode(Map<String, String> analysisMap) {
             String value = analysisMap.get("geneScoreMode");
             if (value == null) {
@@ -23,7 +23,6 @@
 import de.charite.compbio.exomiser.core.factories.VariantDataService;
 import de.charite.compbio.exomiser.core.filters.SimpleGeneFilterRunner;
 import de.charite.compbio.exomiser.core.filters.SparseVariantFilterRunner;
-import de.charite.compbio.exomiser.core.filters.VariantFilter;
 import de.charite.compbio.exomiser.core.model.Gene;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 
@@ -64,15 +63,14 @@ protected Predicate<VariantEvaluation> isAssociatedWithKnownGene(Map<String, Gen
     }
 
     @Override
-    protected Predicate<VariantEvaluation> runVariantFilters(List<VariantFilter> variantFilters) {
-        return variantEvaluation -> {
-            //loop through the filters and only run if the variantEvaluation has passed all prior filters
-            variantFilters.stream()
-                    .filter(filter -> variantEvaluation.passedFilters())
-                    .forEach(filter -> variantFilterRunner.run(filter, variantEvaluation));
+    protected Predicate<VariantEvaluation> retainFilteredVariant() {
+        //the variants are only run through the filters until one fails them and only those passing all are kept
+        return VariantEvaluation::passedFilters;
+    }
 
-            return variantEvaluation.passedFilters();
-        };
+    @Override
+    protected boolean discardsFailedVariants() {
+        return true;
     }
 
     @Override
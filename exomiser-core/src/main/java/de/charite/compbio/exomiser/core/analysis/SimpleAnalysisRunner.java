@@ -46,11 +46,8 @@ protected Predicate<VariantEvaluation> isAssociatedWithKnownGene(Map<String, Gen
     }
 
     @Override
-    protected Predicate<VariantEvaluation> runVariantFilters(List<VariantFilter> variantFilters) {
-        return variantEvaluation -> {
-            //loop through the filters and run them over the variantEvaluation according to the variantFilterRunner behaviour
-            variantFilters.stream().forEach(filter -> variantFilterRunner.run(filter, variantEvaluation));
-            return true;
-        };
+    protected Predicate<VariantEvaluation> retainFilteredVariant() {
+        //all the variants are run through all the filters and retained whatever the outcome
+        return variantEvaluation -> true;
     }
 }
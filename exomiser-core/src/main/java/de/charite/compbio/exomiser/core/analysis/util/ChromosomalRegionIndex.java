@@ -32,16 +32,25 @@
  * Interval tree-backed index for chromosomal regions. It enables extremely fast in-memory lookups to find the regions
  * in which a variant can be found.
  *
+ * Where the lookups are made in coordinate order, as they are for a sorted VCF, a {@link SweepCursor} can be used
+ * instead. This walks through the regions of each chromosome in start order alongside the variants, merge-join style,
+ * rather than searching the interval tree for every variant.
+ *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 public class ChromosomalRegionIndex<T extends ChromosomalRegion> {
 
     private static final Logger logger = LoggerFactory.getLogger(ChromosomalRegionIndex.class);
 
+    private static final Comparator<ChromosomalRegion> START_ORDER = Comparator.comparingInt(ChromosomalRegion::getStart).thenComparingInt(ChromosomalRegion::getEnd);
+
     private final Map<Integer, IntervalArray<T>> index;
+    //the regions of each chromosome in start order for the SweepCursor
+    private final Map<Integer, List<T>> startOrderedRegions;
 
     public ChromosomalRegionIndex(Collection<T> chromosomalRegions) {
         this.index = populateIndex(chromosomalRegions);
+        this.startOrderedRegions = createStartOrderedRegions(chromosomalRegions);
     }
 
     private Map<Integer, IntervalArray<T>> populateIndex(Collection<T> chromosomalRegions) {
@@ -65,6 +74,16 @@ private Map<Integer, Set<T>> createRegionIndex(Collection<T> chromosomalRegions)
         return regionIndex;
     }
 
+    private Map<Integer, List<T>> createStartOrderedRegions(Collection<T> chromosomalRegions) {
+        Map<Integer, List<T>> regionsByChromosome = new HashMap<>();
+        for (Map.Entry<Integer, Set<T>> entry : createRegionIndex(chromosomalRegions).entrySet()) {
+            List<T> regions = new ArrayList<>(entry.getValue());
+            regions.sort(START_ORDER);
+            regionsByChromosome.put(entry.getKey(), regions);
+        }
+        return regionsByChromosome;
+    }
+
     private Map<Integer, IntervalArray<T>> createChromosomeIntervalTreeIndex(Map<Integer, Set<T>> regionIndex) {
         Map<Integer, IntervalArray<T>> index = new HashMap<>();
         for (Integer chrId : regionIndex.keySet()) {
@@ -96,6 +115,105 @@ public List<T> getRegionsOverlappingPosition(int chromosome, int position) {
             return queryResult.getEntries();
     }
 
+    /**
+     * @return a new cursor for making lookups in coordinate order. Cursors are not thread-safe, so each thread needs its
+     * own.
+     */
+    public SweepCursor<T> newSweepCursor() {
+        return new SweepCursor<>(this);
+    }
+
+    /**
+     * Finds the regions overlapping a series of positions by sweeping through the start ordered regions of a chromosome
+     * keeping a list of the regions which are open at the current position. For positions in coordinate order each
+     * region is only visited twice, when it opens and when it closes. A position on a different chromosome or before the
+     * previous position re-positions the cursor using the interval tree, so the results are correct for any input order,
+     * but only sorted input gets the benefit.
+     *
+     * The regions overlapping a position are returned in start order.
+     */
+    public static class SweepCursor<T extends ChromosomalRegion> {
+
+        private final ChromosomalRegionIndex<T> regionIndex;
+
+        private int chromosome = -1;
+        private int position;
+        private List<T> regions = Collections.emptyList();
+        //index of the next region to open
+        private int nextRegion;
+        private final List<T> openRegions = new ArrayList<>();
+        private int numSeeks;
+
+        private SweepCursor(ChromosomalRegionIndex<T> regionIndex) {
+            this.regionIndex = regionIndex;
+        }
+
+        public List<T> getRegionsContainingVariant(VariantCoordinates variantCoordinates) {
+            return getRegionsOverlappingPosition(variantCoordinates.getChromosome(), variantCoordinates.getPosition());
+        }
+
+        /**
+         * Use one-based co-ordinates for this method.
+         * @param chromosome
+         * @param position
+         * @return
+         */
+        public List<T> getRegionsOverlappingPosition(int chromosome, int position) {
+            if (chromosome != this.chromosome || position < this.position) {
+                seek(chromosome, position);
+            } else {
+                advance(position);
+            }
+            this.position = position;
+            if (openRegions.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(openRegions);
+        }
+
+        private void seek(int chromosome, int position) {
+            numSeeks++;
+            this.chromosome = chromosome;
+            regions = regionIndex.startOrderedRegions.getOrDefault(chromosome, Collections.emptyList());
+            nextRegion = firstRegionStartingAfter(position);
+            openRegions.clear();
+            openRegions.addAll(regionIndex.getRegionsOverlappingPosition(chromosome, position));
+            openRegions.sort(START_ORDER);
+        }
+
+        private int firstRegionStartingAfter(int position) {
+            int low = 0;
+            int high = regions.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (regions.get(mid).getStart() <= position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void advance(int position) {
+            openRegions.removeIf(region -> region.getEnd() < position);
+            while (nextRegion < regions.size() && regions.get(nextRegion).getStart() <= position) {
+                T region = regions.get(nextRegion++);
+                if (region.getEnd() >= position) {
+                    openRegions.add(region);
+                }
+            }
+        }
+
+        /**
+         * @return the number of times the cursor has had to fall back to the interval tree. This will be one per
+         * chromosome for sorted input.
+         */
+        public int getNumSeeks() {
+            return numSeeks;
+        }
+    }
+
     private class ChromosomalRegionEndExtractor implements IntervalEndExtractor<T> {
 
         public int getBegin(T region) {
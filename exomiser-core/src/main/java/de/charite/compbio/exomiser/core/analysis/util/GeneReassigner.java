@@ -67,16 +67,37 @@ public GeneReassigner(PriorityType priorityType, Map<String, Gene> allGenes, Chr
     public void reassignVariantToMostPhenotypicallySimilarGeneInTad(VariantEvaluation variantEvaluation) {
         if (variantEvaluation.getVariantEffect() == VariantEffect.REGULATORY_REGION_VARIANT) {
             logger.debug("Checking gene assignment for {} chr={} pos={}", variantEvaluation.getVariantEffect(), variantEvaluation.getChromosome(), variantEvaluation.getPosition());
-            assignVariantToGeneWithHighestPhenotypeScore(variantEvaluation);
+            assignVariantToGeneWithHighestPhenotypeScore(variantEvaluation, tadIndex.getRegionsContainingVariant(variantEvaluation));
         }
     }
 
-    private void assignVariantToGeneWithHighestPhenotypeScore(VariantEvaluation variantEvaluation) {
+    /**
+     * As {@link #reassignVariantToMostPhenotypicallySimilarGeneInTad(VariantEvaluation)} but finds the TADs using a
+     * cursor from {@link #newTadCursor()}, which is quicker for variants in coordinate order.
+     *
+     * @param variantEvaluation
+     * @param tadCursor
+     */
+    public void reassignVariantToMostPhenotypicallySimilarGeneInTad(VariantEvaluation variantEvaluation, ChromosomalRegionIndex.SweepCursor<TopologicalDomain> tadCursor) {
+        if (variantEvaluation.getVariantEffect() == VariantEffect.REGULATORY_REGION_VARIANT) {
+            logger.debug("Checking gene assignment for {} chr={} pos={}", variantEvaluation.getVariantEffect(), variantEvaluation.getChromosome(), variantEvaluation.getPosition());
+            assignVariantToGeneWithHighestPhenotypeScore(variantEvaluation, tadCursor.getRegionsContainingVariant(variantEvaluation));
+        }
+    }
+
+    /**
+     * @return a new cursor over the TADs. These are not thread-safe, so each thread will need its own.
+     */
+    public ChromosomalRegionIndex.SweepCursor<TopologicalDomain> newTadCursor() {
+        return tadIndex.newSweepCursor();
+    }
+
+    private void assignVariantToGeneWithHighestPhenotypeScore(VariantEvaluation variantEvaluation, List<TopologicalDomain> tadsContainingVariant) {
         Gene geneWithHighestPhenotypeScore = null;
         Gene currentlyAssignedGene = allGenes.get(variantEvaluation.getGeneSymbol());
         //assign this to the variant's current gene as we don't necessarily want ALL the regulatory region variants to clump into one gene.
         float bestScore = prioritiserScore(currentlyAssignedGene);
-        List<String> genesInTad = getGenesInTadForVariant(variantEvaluation);
+        List<String> genesInTad = getGenesInTads(tadsContainingVariant);
 
         for (String geneSymbol : genesInTad) {
             Gene gene = allGenes.get(geneSymbol);
@@ -105,9 +126,7 @@ private float prioritiserScore(Gene gene) {
         return (gene.getPriorityResult(priorityType) == null)? 0f : gene.getPriorityResult(priorityType).getScore();
     }
 
-    private List<String> getGenesInTadForVariant(VariantEvaluation variantEvaluation) {
-        List<TopologicalDomain> tadsContainingVariant = tadIndex.getRegionsContainingVariant(variantEvaluation);
-
+    private List<String> getGenesInTads(List<TopologicalDomain> tadsContainingVariant) {
         return tadsContainingVariant.stream()
                 .map(TopologicalDomain::getGenes)
                 .flatMap(geneMap -> geneMap.keySet().stream())
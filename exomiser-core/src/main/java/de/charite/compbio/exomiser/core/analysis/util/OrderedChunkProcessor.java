@@ -0,0 +1,214 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.analysis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Splits a sequential stream into fixed-size chunks and applies a function to each chunk on a pool of worker threads,
+ * or on the calling thread if only one thread is requested.
+ * The results are returned in the same order as the input, so the output is identical to that of running the function
+ * over the whole stream on a single thread, provided the function itself only relies on the elements of its own chunk.
+ *
+ * Each chunk can also be given a prepare stage which is always started for the next chunk before the current chunk is
+ * processed. This allows the prepare stage to kick off slow work for a chunk, such as fetching the data it needs, which
+ * then runs in the background while the chunk ahead of it is being processed.
+ *
+ * The number of chunks in flight is bounded to a small multiple of the number of threads so that reading a huge input
+ * cannot race ahead of the workers and fill the heap.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class OrderedChunkProcessor<T, R> {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderedChunkProcessor.class);
+
+    private final int numThreads;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    public OrderedChunkProcessor(int numThreads, int chunkSize) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be greater than 0, not " + numThreads);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0, not " + chunkSize);
+        }
+        this.numThreads = numThreads;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = numThreads * 2;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Consumes the input stream and returns the concatenated output of the chunkFunction applied to each chunk, in
+     * input order. The input stream is read on the calling thread, so it need not be thread-safe.
+     *
+     * @param input
+     * @param chunkFunction
+     * @return
+     */
+    public List<R> process(Stream<T> input, Function<List<T>, List<R>> chunkFunction) {
+        return process(input, Function.identity(), chunkFunction);
+    }
+
+    /**
+     * Consumes the input stream, applying the prepareFunction and then the chunkFunction to each chunk, and returns the
+     * concatenated output of the chunkFunction in input order. The prepareFunction for a chunk is always started before
+     * the chunkFunction for the chunk preceding it. The input stream is read on the calling thread, so it need not be
+     * thread-safe.
+     *
+     * @param input
+     * @param prepareFunction
+     * @param chunkFunction
+     * @return
+     */
+    public <P> List<R> process(Stream<T> input, Function<List<T>, P> prepareFunction, Function<P, List<R>> chunkFunction) {
+        if (numThreads == 1) {
+            return processOnCallingThread(input, prepareFunction, chunkFunction);
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, new ChunkWorkerThreadFactory());
+        List<R> results = new ArrayList<>();
+        Deque<Future<List<R>>> pendingChunks = new ArrayDeque<>();
+        int numChunks = 0;
+        try {
+            Iterator<T> iterator = input.iterator();
+            List<T> chunk = readChunk(iterator);
+            CompletableFuture<P> preparedChunk = chunk.isEmpty() ? null : prepareAsync(chunk, prepareFunction, executorService);
+            while (!chunk.isEmpty()) {
+                List<T> nextChunk = readChunk(iterator);
+                //the workers take tasks in the order they were submitted, so the next chunk is always prepared before
+                //this one is processed
+                CompletableFuture<P> nextPreparedChunk = nextChunk.isEmpty() ? null : prepareAsync(nextChunk, prepareFunction, executorService);
+                submitChunk(preparedChunk.thenApplyAsync(chunkFunction, executorService), pendingChunks, results);
+                numChunks++;
+                chunk = nextChunk;
+                preparedChunk = nextPreparedChunk;
+            }
+            while (!pendingChunks.isEmpty()) {
+                collectNextChunk(pendingChunks, results);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        logger.debug("Processed {} chunks of up to {} elements using {} threads", numChunks, chunkSize, numThreads);
+        return results;
+    }
+
+    //there is no point in handing the work off to another thread if we're only going to wait for it
+    private <P> List<R> processOnCallingThread(Stream<T> input, Function<List<T>, P> prepareFunction, Function<P, List<R>> chunkFunction) {
+        List<R> results = new ArrayList<>();
+        Iterator<T> iterator = input.iterator();
+        List<T> chunk = readChunk(iterator);
+        P preparedChunk = chunk.isEmpty() ? null : prepareFunction.apply(chunk);
+        while (!chunk.isEmpty()) {
+            List<T> nextChunk = readChunk(iterator);
+            P nextPreparedChunk = nextChunk.isEmpty() ? null : prepareFunction.apply(nextChunk);
+            results.addAll(chunkFunction.apply(preparedChunk));
+            chunk = nextChunk;
+            preparedChunk = nextPreparedChunk;
+        }
+        return results;
+    }
+
+    /**
+     * @return the next chunkSize elements from the iterator, or fewer if it runs out. An empty chunk means the input
+     * is finished.
+     */
+    private List<T> readChunk(Iterator<T> iterator) {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && iterator.hasNext()) {
+            chunk.add(iterator.next());
+        }
+        return chunk;
+    }
+
+    private <P> CompletableFuture<P> prepareAsync(List<T> chunk, Function<List<T>, P> prepareFunction, ExecutorService executorService) {
+        return CompletableFuture.supplyAsync(() -> prepareFunction.apply(chunk), executorService);
+    }
+
+    private void submitChunk(Future<List<R>> chunk, Deque<Future<List<R>>> pendingChunks, List<R> results) {
+        //block on the oldest chunk before reading any more input
+        if (pendingChunks.size() >= maxChunksInFlight) {
+            collectNextChunk(pendingChunks, results);
+        }
+        pendingChunks.addLast(chunk);
+    }
+
+    private void collectNextChunk(Deque<Future<List<R>>> pendingChunks, List<R> results) {
+        Future<List<R>> nextChunk = pendingChunks.removeFirst();
+        try {
+            results.addAll(nextChunk.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ChunkProcessingException("Interrupted while waiting for chunk to be processed", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ChunkProcessingException("Unable to process chunk", cause);
+        }
+    }
+
+    private static class ChunkWorkerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger poolNumber = new AtomicInteger(1);
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix = "chunk-" + poolNumber.getAndIncrement() + "-worker-";
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class ChunkProcessingException extends RuntimeException {
+
+        ChunkProcessingException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
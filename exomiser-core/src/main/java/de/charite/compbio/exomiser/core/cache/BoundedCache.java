@@ -0,0 +1,269 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.cache;
+
+import de.charite.compbio.exomiser.core.metrics.MetricsRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory Spring {@link Cache} holding at most a fixed number of entries. Once full, the least recently used entry is
+ * evicted to make room for a new one. The entries are split over a number of independently locked segments, each
+ * evicting in LRU order, so that concurrent analysis threads don't all contend on a single lock. This makes the
+ * eviction order of large caches approximately, rather than strictly, LRU across the whole cache.
+ *
+ * Hits, misses, evictions and the time taken to load the missing values are recorded and can be read with
+ * {@link #getStats()}. The hits and misses are also counted in the default {@link MetricsRegistry} as
+ * cache.[name].hits and cache.[name].misses so that they can be reported for each analysis.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class BoundedCache implements Cache {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final long MIN_SEGMENT_ENTRIES = 256;
+    //null values are legitimate cache values, so they need storing as something
+    private static final Object NULL_VALUE = new Object();
+
+    private final String name;
+    private final long maxEntries;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder totalLoadTimeNanos = new LongAdder();
+    private final LongAdder registryHits;
+    private final LongAdder registryMisses;
+    //Spring calls get() then, on a miss, the cached method followed by put() on the same thread, so this times the load
+    private final ThreadLocal<Long> missStartNanos = new ThreadLocal<>();
+
+    public BoundedCache(String name, long maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum number of entries for cache " + name + " must be greater than 0, not " + maxEntries);
+        }
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.registryHits = MetricsRegistry.getDefault().counter("cache." + name + ".hits");
+        this.registryMisses = MetricsRegistry.getDefault().counter("cache." + name + ".misses");
+        //small caches aren't worth splitting and would be too unevenly filled
+        int numSegments = (int) Math.max(1, Math.min(MAX_SEGMENTS, Long.highestOneBit(maxEntries / MIN_SEGMENT_ENTRIES)));
+        this.segments = new Segment[numSegments];
+        long segmentMaxEntries = maxEntries / numSegments;
+        for (int i = 0; i < numSegments; i++) {
+            //the first segments take the remainder so that the total is exactly maxEntries
+            segments[i] = new Segment(segmentMaxEntries + (i < maxEntries % numSegments ? 1 : 0));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    private Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = segmentFor(key).get(key);
+        if (value == null) {
+            misses.increment();
+            registryMisses.increment();
+            missStartNanos.set(System.nanoTime());
+            return null;
+        }
+        hits.increment();
+        registryHits.increment();
+        missStartNanos.remove();
+        return new SimpleValueWrapper(fromStoreValue(value));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper valueWrapper = get(key);
+        if (valueWrapper == null) {
+            return null;
+        }
+        Object value = valueWrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * Returns the cached value or loads, caches and returns it if missing. This is used by Spring for synchronized
+     * caching. Concurrent loads of the same key are not prevented.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper valueWrapper = get(key);
+        if (valueWrapper != null) {
+            return (T) valueWrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            missStartNanos.remove();
+            throw new IllegalStateException("Unable to load value for key " + key + " into cache " + name, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        recordLoadTime();
+        segmentFor(key).put(key, toStoreValue(value));
+    }
+
+    private void recordLoadTime() {
+        Long startNanos = missStartNanos.get();
+        if (startNanos != null) {
+            totalLoadTimeNanos.add(System.nanoTime() - startNanos);
+            loads.increment();
+            missStartNanos.remove();
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Object existing = segmentFor(key).putIfAbsent(key, toStoreValue(value));
+        if (existing == null) {
+            return null;
+        }
+        return new SimpleValueWrapper(fromStoreValue(existing));
+    }
+
+    @Override
+    public void evict(Object key) {
+        segmentFor(key).remove(key);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public CacheStats getStats() {
+        long size = 0;
+        long evictions = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+            evictions += segment.evictions();
+        }
+        return new CacheStats(name, size, maxEntries, hits.sum(), misses.sum(), evictions, loads.sum(), totalLoadTimeNanos.sum());
+    }
+
+    private static Object toStoreValue(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    private static Object fromStoreValue(Object storeValue) {
+        return storeValue == NULL_VALUE ? null : storeValue;
+    }
+
+    /**
+     * An access-ordered LinkedHashMap is an LRU list - each get moves the entry to the end and the eldest entry is the
+     * one to evict.
+     */
+    private static class Segment {
+
+        private final long maxEntries;
+        private final LinkedHashMap<Object, Object> entries;
+        private long evictions;
+
+        Segment(long maxEntries) {
+            this.maxEntries = maxEntries;
+            this.entries = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                    if (size() > Segment.this.maxEntries) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Object get(Object key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(Object key, Object value) {
+            entries.put(key, value);
+        }
+
+        synchronized Object putIfAbsent(Object key, Object value) {
+            Object existing = entries.get(key);
+            if (existing == null) {
+                entries.put(key, value);
+            }
+            return existing;
+        }
+
+        synchronized void remove(Object key) {
+            entries.remove(key);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long evictions() {
+            return evictions;
+        }
+    }
+}
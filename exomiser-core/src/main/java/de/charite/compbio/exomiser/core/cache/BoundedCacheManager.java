@@ -0,0 +1,98 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * CacheManager for {@link BoundedCache}s. Each cache holds up to the default maximum number of entries unless it has its
+ * own limit. Caches not declared up front are created with the default limit the first time they are asked for, so
+ * every {@link org.springframework.cache.annotation.Cacheable} name is covered without needing to be listed here.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class BoundedCacheManager extends AbstractCacheManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedCacheManager.class);
+
+    private final long defaultMaxEntries;
+    private final Map<String, Long> maxEntriesByCacheName;
+    private final Collection<String> cacheNames;
+
+    /**
+     * @param defaultMaxEntries maximum number of entries for caches without their own limit.
+     * @param maxEntriesByCacheName per-cache limits.
+     * @param cacheNames caches to create on start-up.
+     */
+    public BoundedCacheManager(long defaultMaxEntries, Map<String, Long> maxEntriesByCacheName, Collection<String> cacheNames) {
+        this.defaultMaxEntries = defaultMaxEntries;
+        this.maxEntriesByCacheName = maxEntriesByCacheName;
+        this.cacheNames = cacheNames;
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        List<Cache> caches = new ArrayList<>();
+        for (String cacheName : cacheNames) {
+            caches.add(createCache(cacheName));
+        }
+        return caches;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        logger.debug("Creating cache {} on first use", name);
+        return createCache(name);
+    }
+
+    private BoundedCache createCache(String name) {
+        long maxEntries = maxEntriesByCacheName.getOrDefault(name, defaultMaxEntries);
+        return new BoundedCache(name, maxEntries);
+    }
+
+    /**
+     * @return the current statistics of each cache in the order they were created.
+     */
+    public List<CacheStats> getCacheStats() {
+        return Collections.unmodifiableList(getCacheNames().stream()
+                .map(this::getCache)
+                .filter(BoundedCache.class::isInstance)
+                .map(cache -> ((BoundedCache) cache).getStats())
+                .collect(toList()));
+    }
+
+    public void logCacheStats() {
+        for (CacheStats cacheStats : getCacheStats()) {
+            logger.info("{}", cacheStats);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the usage statistics of a {@link BoundedCache}.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class CacheStats {
+
+    private final String cacheName;
+    private final long size;
+    private final long maxEntries;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long loads;
+    private final long totalLoadTimeNanos;
+
+    public CacheStats(String cacheName, long size, long maxEntries, long hits, long misses, long evictions, long loads, long totalLoadTimeNanos) {
+        this.cacheName = cacheName;
+        this.size = size;
+        this.maxEntries = maxEntries;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.loads = loads;
+        this.totalLoadTimeNanos = totalLoadTimeNanos;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getRequests() {
+        return hits + misses;
+    }
+
+    /**
+     * @return the proportion of requests which were hits, or 0 if there have been no requests.
+     */
+    public double getHitRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0d : (double) hits / requests;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getTotalLoadTimeNanos() {
+        return totalLoadTimeNanos;
+    }
+
+    /**
+     * @return the mean time in milliseconds taken to load a value missing from the cache, or 0 if there have been no
+     * loads.
+     */
+    public double getAverageLoadTimeMillis() {
+        return loads == 0 ? 0d : (double) totalLoadTimeNanos / loads / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{cache=%s, size=%d/%d, hits=%d, misses=%d, hitRate=%.3f, evictions=%d, loads=%d, averageLoadTime=%.3fms}",
+                cacheName, size, maxEntries, hits, misses, getHitRate(), evictions, loads, getAverageLoadTimeMillis());
+    }
+}
@@ -5,18 +5,23 @@
  */
 package de.charite.compbio.exomiser.core.dao;
  
+import de.charite.compbio.exomiser.core.metrics.MetricsRegistry;
 import de.charite.compbio.exomiser.core.model.Variant;
 import de.charite.compbio.exomiser.core.model.pathogenicity.CaddScore;
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
 import htsjdk.tribble.readers.TabixReader;
  
 import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
  
 /**
+ * Provides the CADD scores for a variant either from the tabix indexed CADD
+ * files or, much faster, from the binary {@link CaddScoreStore} files created
+ * from them by the {@link CaddScoreStoreConverter}.
  *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
@@ -24,13 +29,28 @@
 public class CaddDao {
  
     private final Logger logger = LoggerFactory.getLogger(CaddDao.class);
+
+    private static final LongAdder tabixQueryCounter = MetricsRegistry.getDefault().counter("tabix.cadd.queries");
+    private static final LongAdder scoreStoreLookupCounter = MetricsRegistry.getDefault().counter("scoreStore.cadd.lookups");
  
     private final TabixReader inDelTabixReader;
     private final TabixReader snvTabixReader;
+
+    private final CaddScoreStore inDelScoreStore;
+    private final CaddScoreStore snvScoreStore;
  
     public CaddDao(TabixReader inDelTabixReader, TabixReader snvTabixReader) {
         this.inDelTabixReader = inDelTabixReader;
         this.snvTabixReader = snvTabixReader;
+        this.inDelScoreStore = null;
+        this.snvScoreStore = null;
+    }
+
+    public CaddDao(CaddScoreStore inDelScoreStore, CaddScoreStore snvScoreStore) {
+        this.inDelTabixReader = null;
+        this.snvTabixReader = null;
+        this.inDelScoreStore = inDelScoreStore;
+        this.snvScoreStore = snvScoreStore;
     }
  
     @Cacheable(value = "cadd", key = "#variant.chromosomalVariant")
@@ -39,6 +59,9 @@ public PathogenicityData getPathogenicityData(Variant variant) {
     }
  
     PathogenicityData processResults(Variant variant) {
+        if (snvScoreStore != null) {
+            return getScoreStorePathogenicityData(variant);
+        }
         String chromosome = variant.getChromosomeName();
         String ref = variant.getRef();
         String alt = variant.getAlt();
@@ -54,11 +77,39 @@ PathogenicityData processResults(Variant variant) {
         return getSnvCaddPathogenicityData(chromosome, start, ref, alt);
     }
  
+    private PathogenicityData getScoreStorePathogenicityData(Variant variant) {
+        String ref = variant.getRef();
+        String alt = variant.getAlt();
+        int start = variant.getPosition();
+        CaddScoreStore scoreStore = snvScoreStore;
+        if (isIndel(ref, alt)) {
+            // deal with fact that deletion coordinates are handled differently by Jannovar
+            if (alt.equals("-")) {
+                start -= 1;
+            }
+            scoreStore = inDelScoreStore;
+        }
+        scoreStoreLookupCounter.increment();
+        float score = scoreStore.getScore(variant.getChromosome(), start, ref, alt);
+        if (Float.isNaN(score)) {
+            return new PathogenicityData();
+        }
+        return new PathogenicityData(new CaddScore(score));
+    }
+
     private boolean isIndel(String ref, String alt) {
         return ref.equals("-") || alt.equals("-");
     }
  
     private PathogenicityData getIndelCaddPathogenicityData(String chromosome, int start, String ref, String alt) {
+        //TabixReader queries share the underlying file pointer so concurrent queries must be serialised
+        synchronized (inDelTabixReader) {
+            return queryIndelTabix(chromosome, start, ref, alt);
+        }
+    }
+
+    private PathogenicityData queryIndelTabix(String chromosome, int start, String ref, String alt) {
+        tabixQueryCounter.increment();
         try {
             TabixReader.Iterator results = inDelTabixReader.query(chromosome + ":" + start + "-" + start);
             String line;
@@ -89,6 +140,13 @@ private PathogenicityData getIndelCaddPathogenicityData(String chromosome, int s
     }
  
     private PathogenicityData getSnvCaddPathogenicityData(String chromosome, int start, String ref, String alt) {
+        synchronized (snvTabixReader) {
+            return querySnvTabix(chromosome, start, ref, alt);
+        }
+    }
+
+    private PathogenicityData querySnvTabix(String chromosome, int start, String ref, String alt) {
+        tabixQueryCounter.increment();
         try {
             // query SNV file
             TabixReader.Iterator results = snvTabixReader.query(chromosome + ":" + start + "-" + start);
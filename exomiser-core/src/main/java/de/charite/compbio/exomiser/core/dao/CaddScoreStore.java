@@ -0,0 +1,372 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped binary store of CADD scores written by the
+ * {@link CaddScoreStoreWriter}. This replaces a tabix query, with all the
+ * String building and splitting that goes with it, by a binary search of an
+ * in-memory block index followed by a short scan of the mapped records in a
+ * single block.
+ *
+ * File layout (little-endian):
+ * <pre>
+ * header:  MAGIC, VERSION, positions per block
+ * records: varint position delta, number of alleles, then for each allele:
+ *          SNV:   1 byte 1000rraa (ref and alt base codes)
+ *          other: ref length, ref bytes, alt length, alt bytes (length 0 is '-')
+ *          followed by the quantised phred score as an unsigned short
+ * index:   number of chromosomes, then for each one the chromosome number, the
+ *          number of blocks, the first position and file offset of each block
+ *          and the offset of the end of the chromosome's records
+ * trailer: offset of the index
+ * </pre>
+ * The position delta of the first record in a block is relative to the first
+ * position of the block, so each block can be decoded on its own.
+ *
+ * Lookups don't allocate anything and only use absolute reads of the mapped
+ * buffers, so a single instance can be shared by any number of threads.
+ *
+ * Each thread keeps a cursor on the record it last read. When the variants
+ * come in coordinate order, as they do from a sorted VCF, the next lookup
+ * carries on scanning from there, which makes the annotation of a whole
+ * chromosome a single sequential pass through its records. A lookup on another
+ * chromosome or before the cursor falls back to a search of the block index.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class CaddScoreStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaddScoreStore.class);
+
+    static final int MAGIC = 0x43414444;
+    static final int VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int HEADER_BYTES = 12;
+    static final int SNV_FLAG = 0x80;
+    //chromosomes are numbered 1-22, X=23, Y=24, M=25
+    static final int MAX_CHROMOSOME = 25;
+
+    /**
+     * Phred scores are stored as hundredths of a phred. The CADD files give
+     * them to three decimal places, so a stored score can be up to 0.005 of a
+     * phred out. The rescaled score changes by at most ln(10)/10 per phred, at
+     * a phred of 0, so it differs from the one read from the tabix files by no
+     * more than 0.00116. Thousandths of the highest CADD scores wouldn't fit
+     * in the unsigned short. This table holds the score for each of the stored
+     * values rescaled to between 0 and 1 so that there's no need to call
+     * Math.pow for every lookup.
+     */
+    private static final float[] RESCALED_SCORES = new float[65536];
+
+    static {
+        for (int i = 0; i < RESCALED_SCORES.length; i++) {
+            RESCALED_SCORES[i] = rescaleLogTenBasedScore(i / 100f);
+        }
+    }
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    //indexed by chromosome number, null where there are no scores for that chromosome
+    private final int[][] blockFirstPositions = new int[MAX_CHROMOSOME + 1][];
+    private final long[][] blockOffsets = new long[MAX_CHROMOSOME + 1][];
+
+    private final ThreadLocal<SweepCursor> sweepCursors = ThreadLocal.withInitial(SweepCursor::new);
+
+    public CaddScoreStore(Path storeFile) {
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.READ)) {
+            readHeader(channel, storeFile);
+            readIndex(channel);
+            segments = mapSegments(channel);
+        } catch (IOException e) {
+            throw new CaddScoreStoreException("Unable to read CADD score store " + storeFile, e);
+        }
+        logger.info("Memory-mapped CADD score store {}", storeFile);
+    }
+
+    private void readHeader(FileChannel channel, Path storeFile) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        int magic = header.getInt();
+        int version = header.getInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new CaddScoreStoreException(storeFile + " is not a version " + VERSION + " CADD score store");
+        }
+    }
+
+    private void readIndex(FileChannel channel) throws IOException {
+        long indexOffset = readFully(channel, channel.size() - Long.BYTES, Long.BYTES).getLong();
+        long position = indexOffset;
+        int numChromosomes = readFully(channel, position, Integer.BYTES).getInt();
+        position += Integer.BYTES;
+        for (int i = 0; i < numChromosomes; i++) {
+            ByteBuffer chromosomeHeader = readFully(channel, position, 2 * Integer.BYTES);
+            int chromosome = chromosomeHeader.getInt();
+            int numBlocks = chromosomeHeader.getInt();
+            position += 2 * Integer.BYTES;
+            ByteBuffer blocks = readFully(channel, position, numBlocks * (Integer.BYTES + Long.BYTES) + Long.BYTES);
+            position += blocks.capacity();
+            int[] firstPositions = new int[numBlocks];
+            //one more offset than blocks so that the end of the last block is known
+            long[] offsets = new long[numBlocks + 1];
+            for (int block = 0; block < numBlocks; block++) {
+                firstPositions[block] = blocks.getInt();
+                offsets[block] = blocks.getLong();
+            }
+            offsets[numBlocks] = blocks.getLong();
+            blockFirstPositions[chromosome] = firstPositions;
+            blockOffsets[chromosome] = offsets;
+        }
+    }
+
+    private ByteBuffer readFully(FileChannel channel, long position, int numBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(numBytes).order(BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer[] mapSegments(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int numSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        ByteBuffer[] mappedSegments = new ByteBuffer[numSegments];
+        for (int segment = 0; segment < numSegments; segment++) {
+            long start = (long) segment << SEGMENT_SHIFT;
+            mappedSegments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+        }
+        return mappedSegments;
+    }
+
+    private byte get(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    /**
+     * Returns the CADD score rescaled to between 0 and 1 for the given allele,
+     * or NaN if there is no score for it. Deletions and insertions use '-' for
+     * the empty allele, as Jannovar does.
+     *
+     * @param chromosome
+     * @param position
+     * @param ref
+     * @param alt
+     * @return
+     */
+    public float getScore(int chromosome, int position, String ref, String alt) {
+        if (chromosome < 1 || chromosome > MAX_CHROMOSOME || blockFirstPositions[chromosome] == null) {
+            return Float.NaN;
+        }
+        SweepCursor cursor = sweepCursors.get();
+        if (!cursor.moveTo(chromosome, position)) {
+            return Float.NaN;
+        }
+        return scanBlock(cursor, position, ref, alt);
+    }
+
+    private float scanBlock(SweepCursor cursor, int position, String ref, String alt) {
+        int snvCode = snvCode(ref, alt);
+        long offset = cursor.offset;
+        int recordPosition = cursor.previousRecordPosition;
+        boolean cursorUpdated = false;
+        while (offset < cursor.blockEnd) {
+            long recordOffset = offset;
+            int previousRecordPosition = recordPosition;
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = get(offset++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            recordPosition += delta;
+            if (recordPosition >= position && !cursorUpdated) {
+                //leave the cursor on the first record which could match this or a later position
+                cursor.offset = recordOffset;
+                cursor.previousRecordPosition = previousRecordPosition;
+                cursorUpdated = true;
+            }
+            if (recordPosition > position) {
+                return Float.NaN;
+            }
+            int numAlleles = get(offset++) & 0xFF;
+            for (int i = 0; i < numAlleles; i++) {
+                int code = get(offset++) & 0xFF;
+                boolean matches;
+                if ((code & SNV_FLAG) != 0) {
+                    matches = code == snvCode;
+                } else {
+                    matches = matchesAllele(offset, code, ref);
+                    offset += code;
+                    int altLength = get(offset++) & 0xFF;
+                    matches = matches && matchesAllele(offset, altLength, alt);
+                    offset += altLength;
+                }
+                if (matches && recordPosition == position) {
+                    return RESCALED_SCORES[(get(offset) & 0xFF) | (get(offset + 1) & 0xFF) << 8];
+                }
+                offset += 2;
+            }
+        }
+        if (!cursorUpdated) {
+            cursor.offset = offset;
+            cursor.previousRecordPosition = recordPosition;
+        }
+        return Float.NaN;
+    }
+
+    private boolean matchesAllele(long offset, int length, String allele) {
+        if (length == 0) {
+            return "-".equals(allele);
+        }
+        if (allele.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (get(offset + i) != allele.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the single byte code for a substitution of one base by another,
+     * or -1 if the alleles aren't both a single A, C, G or T.
+     */
+    static int snvCode(String ref, String alt) {
+        if (ref.length() != 1 || alt.length() != 1) {
+            return -1;
+        }
+        int refCode = baseCode(ref.charAt(0));
+        int altCode = baseCode(alt.charAt(0));
+        if (refCode < 0 || altCode < 0) {
+            return -1;
+        }
+        return SNV_FLAG | refCode << 2 | altCode;
+    }
+
+    private static int baseCode(char base) {
+        switch (base) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return the phred score as an index into the table of rescaled scores.
+     */
+    static int quantisePhredScore(float phredScore) {
+        int quantised = Math.round(phredScore * 100);
+        return Math.max(0, Math.min(RESCALED_SCORES.length - 1, quantised));
+    }
+
+    /**
+     * rescales a log10-Phred based score to a value between 0 and 1
+     */
+    private static float rescaleLogTenBasedScore(float phredScore) {
+        return 1 - (float) Math.pow(10, -(phredScore / 10));
+    }
+
+    /**
+     * Where a thread has got to in the store.
+     */
+    private class SweepCursor {
+
+        private int chromosome = -1;
+        private int position;
+        private int block;
+        private long blockEnd;
+        //the next record to read and the position the delta in that record is relative to
+        private long offset;
+        private int previousRecordPosition;
+
+        /**
+         * @return false if the position is before the first block of the
+         * chromosome.
+         */
+        boolean moveTo(int chromosome, int position) {
+            int[] firstPositions = blockFirstPositions[chromosome];
+            if (chromosome != this.chromosome || position < this.position) {
+                //random access - search the whole chromosome
+                int newBlock = findBlock(firstPositions, 0, position);
+                if (newBlock < 0) {
+                    this.chromosome = -1;
+                    return false;
+                }
+                this.chromosome = chromosome;
+                setBlock(newBlock);
+            } else if (block + 1 < firstPositions.length && position >= firstPositions[block + 1]) {
+                //sweeping forwards past the end of the current block - only the following blocks need searching
+                setBlock(findBlock(firstPositions, block + 1, position));
+            }
+            this.position = position;
+            return true;
+        }
+
+        private int findBlock(int[] firstPositions, int fromBlock, int position) {
+            int found = Arrays.binarySearch(firstPositions, fromBlock, firstPositions.length, position);
+            //the insertion point is the first block starting after the position, so we want the one before it
+            return found >= 0 ? found : -found - 2;
+        }
+
+        private void setBlock(int newBlock) {
+            block = newBlock;
+            offset = blockOffsets[chromosome][newBlock];
+            blockEnd = blockOffsets[chromosome][newBlock + 1];
+            previousRecordPosition = blockFirstPositions[chromosome][newBlock];
+        }
+    }
+
+    public static class CaddScoreStoreException extends RuntimeException {
+
+        CaddScoreStoreException(String message) {
+            super(message);
+        }
+
+        CaddScoreStoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
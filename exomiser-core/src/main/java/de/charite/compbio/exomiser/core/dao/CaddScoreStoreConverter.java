@@ -0,0 +1,153 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * One-off converter from the CADD whole_genome_SNVs.tsv.gz and InDels.tsv.gz
+ * files to the binary format read by the {@link CaddScoreStore}. Indels are
+ * stored the way Jannovar represents them, without the leading anchor base
+ * and with '-' for an empty allele, so no conversion is needed for a lookup.
+ *
+ * Usage:
+ * <pre>
+ * java -cp exomiser-cli-${version}.jar de.charite.compbio.exomiser.core.dao.CaddScoreStoreConverter whole_genome_SNVs.tsv.gz whole_genome_SNVs.cadd
+ * java -cp exomiser-cli-${version}.jar de.charite.compbio.exomiser.core.dao.CaddScoreStoreConverter InDels.tsv.gz InDels.cadd
+ * </pre>
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class CaddScoreStoreConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaddScoreStoreConverter.class);
+
+    private static final int CHROMOSOME_COLUMN = 0;
+    private static final int POSITION_COLUMN = 1;
+    private static final int REF_COLUMN = 2;
+    private static final int ALT_COLUMN = 3;
+    private static final int PHRED_COLUMN = 5;
+
+    private CaddScoreStoreConverter() {
+    }
+
+    public static void convert(Path caddFile, Path storeFile) {
+        convert(caddFile, storeFile, CaddScoreStoreWriter.DEFAULT_POSITIONS_PER_BLOCK);
+    }
+
+    static void convert(Path caddFile, Path storeFile, int positionsPerBlock) {
+        logger.info("Converting CADD scores from {} to {}", caddFile, storeFile);
+        long numAdded = 0;
+        long numSkipped = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(caddFile), 1 << 16), StandardCharsets.US_ASCII));
+             CaddScoreStoreWriter writer = new CaddScoreStoreWriter(storeFile, positionsPerBlock)) {
+            String line;
+            String[] columns = new String[PHRED_COLUMN + 1];
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                splitColumns(line, columns);
+                int chromosome = parseChromosome(columns[CHROMOSOME_COLUMN]);
+                if (chromosome < 1 || !addScore(writer, chromosome, columns)) {
+                    numSkipped++;
+                } else if (++numAdded % 100_000_000 == 0) {
+                    logger.info("Added {} scores - currently at {}:{}", numAdded, columns[CHROMOSOME_COLUMN], columns[POSITION_COLUMN]);
+                }
+            }
+        } catch (IOException e) {
+            throw new CaddScoreStore.CaddScoreStoreException("Unable to convert CADD file " + caddFile, e);
+        }
+        logger.info("Done - added {} scores, skipped {} on unknown contigs or with alleles longer than {} bases", numAdded, numSkipped, CaddScoreStoreWriter.MAX_ALLELE_LENGTH);
+    }
+
+    //String.split would compile a regex for every line of a file with billions of lines
+    private static void splitColumns(String line, String[] columns) {
+        int start = 0;
+        for (int i = 0; i < columns.length; i++) {
+            int end = line.indexOf('\t', start);
+            if (end < 0) {
+                if (i != columns.length - 1) {
+                    throw new CaddScoreStore.CaddScoreStoreException("Expected at least " + columns.length + " columns in line: " + line);
+                }
+                end = line.length();
+            }
+            columns[i] = line.substring(start, end);
+            start = end + 1;
+        }
+    }
+
+    private static boolean addScore(CaddScoreStoreWriter writer, int chromosome, String[] columns) throws IOException {
+        int position = Integer.parseInt(columns[POSITION_COLUMN]);
+        String ref = columns[REF_COLUMN];
+        String alt = columns[ALT_COLUMN];
+        if (ref.length() != alt.length()) {
+            // deal with fact that Jannovar represents indels differently
+            ref = trimAnchorBase(ref);
+            alt = trimAnchorBase(alt);
+        }
+        return writer.add(chromosome, position, ref, alt, Float.parseFloat(columns[PHRED_COLUMN]));
+    }
+
+    private static String trimAnchorBase(String allele) {
+        return allele.length() == 1 ? "-" : allele.substring(1);
+    }
+
+    /**
+     * @return the chromosome number used by Jannovar or 0 if this isn't one of
+     * the main assembled chromosomes.
+     */
+    static int parseChromosome(String chromosome) {
+        switch (chromosome) {
+            case "X":
+                return 23;
+            case "Y":
+                return 24;
+            case "M":
+            case "MT":
+                return 25;
+            default:
+                try {
+                    int chromosomeNumber = Integer.parseInt(chromosome);
+                    return chromosomeNumber >= 1 && chromosomeNumber <= 22 ? chromosomeNumber : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: CaddScoreStoreConverter <cadd.tsv.gz> <output.cadd>");
+            return;
+        }
+        convert(Paths.get(args[0]), Paths.get(args[1]));
+    }
+}
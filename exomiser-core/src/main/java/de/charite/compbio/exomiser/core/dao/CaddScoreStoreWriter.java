@@ -0,0 +1,244 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the binary file read by the {@link CaddScoreStore}. Scores must be
+ * added in chromosome and position order, which is the order of the tabix
+ * indexed CADD files. All the alleles of a position are written as a single
+ * record and a position is never split across blocks.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+class CaddScoreStoreWriter implements AutoCloseable {
+
+    static final int DEFAULT_POSITIONS_PER_BLOCK = 1024;
+    //the top bit of the allele length is used to flag an SNV
+    static final int MAX_ALLELE_LENGTH = 127;
+    private static final int MAX_ALLELES_PER_RECORD = 255;
+
+    private final OutputStream outputStream;
+    private final int positionsPerBlock;
+    private long offset = 0;
+
+    private final Map<Integer, ChromosomeIndex> chromosomeIndexes = new LinkedHashMap<>();
+    private ChromosomeIndex currentChromosome;
+    private int positionsInBlock;
+    private int previousRecordPosition;
+
+    private int pendingPosition;
+    private int numPendingAlleles;
+    private final ByteArrayOutputStream pendingAlleles = new ByteArrayOutputStream();
+
+    CaddScoreStoreWriter(Path storeFile) throws IOException {
+        this(storeFile, DEFAULT_POSITIONS_PER_BLOCK);
+    }
+
+    CaddScoreStoreWriter(Path storeFile, int positionsPerBlock) throws IOException {
+        if (positionsPerBlock < 1) {
+            throw new IllegalArgumentException("Positions per block must be greater than 0, not " + positionsPerBlock);
+        }
+        this.positionsPerBlock = positionsPerBlock;
+        this.outputStream = new BufferedOutputStream(Files.newOutputStream(storeFile), 1 << 16);
+        ByteBuffer header = newBuffer(CaddScoreStore.HEADER_BYTES);
+        header.putInt(CaddScoreStore.MAGIC);
+        header.putInt(CaddScoreStore.VERSION);
+        header.putInt(positionsPerBlock);
+        write(header);
+    }
+
+    /**
+     * Adds the phred scaled CADD score for the allele. Alleles too long to be
+     * stored are ignored.
+     *
+     * @return true if the score was added.
+     */
+    boolean add(int chromosome, int position, String ref, String alt, float phredScore) throws IOException {
+        if (chromosome < 1 || chromosome > CaddScoreStore.MAX_CHROMOSOME) {
+            throw new IllegalArgumentException("Chromosome must be between 1 and " + CaddScoreStore.MAX_CHROMOSOME + ", not " + chromosome);
+        }
+        if (alleleLength(ref) > MAX_ALLELE_LENGTH || alleleLength(alt) > MAX_ALLELE_LENGTH) {
+            return false;
+        }
+        if (currentChromosome == null || currentChromosome.chromosome != chromosome) {
+            startChromosome(chromosome);
+        } else if (position < pendingPosition) {
+            throw new IllegalStateException(String.format("Scores must be added in position order - %d:%d is before %d:%d", chromosome, position, chromosome, pendingPosition));
+        } else if (position != pendingPosition || numPendingAlleles == MAX_ALLELES_PER_RECORD) {
+            flushRecord();
+        }
+        pendingPosition = position;
+        addAllele(ref, alt, CaddScoreStore.quantisePhredScore(phredScore));
+        return true;
+    }
+
+    private static int alleleLength(String allele) {
+        return "-".equals(allele) ? 0 : allele.length();
+    }
+
+    private void startChromosome(int chromosome) throws IOException {
+        if (chromosomeIndexes.containsKey(chromosome)) {
+            throw new IllegalStateException("Scores must be added in chromosome order - chromosome " + chromosome + " has already been written");
+        }
+        finishChromosome();
+        currentChromosome = new ChromosomeIndex(chromosome);
+        chromosomeIndexes.put(chromosome, currentChromosome);
+        positionsInBlock = 0;
+    }
+
+    private void finishChromosome() throws IOException {
+        if (currentChromosome != null) {
+            flushRecord();
+            currentChromosome.endOffset = offset;
+        }
+    }
+
+    private void addAllele(String ref, String alt, int quantisedScore) {
+        int snvCode = CaddScoreStore.snvCode(ref, alt);
+        if (snvCode >= 0) {
+            pendingAlleles.write(snvCode);
+        } else {
+            writeAllele(ref);
+            writeAllele(alt);
+        }
+        pendingAlleles.write(quantisedScore & 0xFF);
+        pendingAlleles.write(quantisedScore >>> 8);
+        numPendingAlleles++;
+    }
+
+    private void writeAllele(String allele) {
+        if ("-".equals(allele)) {
+            pendingAlleles.write(0);
+        } else {
+            byte[] bytes = allele.getBytes(StandardCharsets.US_ASCII);
+            pendingAlleles.write(bytes.length);
+            pendingAlleles.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private void flushRecord() throws IOException {
+        if (numPendingAlleles == 0) {
+            return;
+        }
+        boolean newPosition = currentChromosome.numBlocks == 0 || pendingPosition != previousRecordPosition;
+        //only start a new block on a new position so that a position's alleles are never split across blocks
+        if (newPosition && (currentChromosome.numBlocks == 0 || positionsInBlock == positionsPerBlock)) {
+            currentChromosome.addBlock(pendingPosition, offset);
+            previousRecordPosition = pendingPosition;
+            positionsInBlock = 0;
+        }
+        if (newPosition) {
+            positionsInBlock++;
+        }
+        writeVarInt(pendingPosition - previousRecordPosition);
+        previousRecordPosition = pendingPosition;
+        outputStream.write(numPendingAlleles);
+        pendingAlleles.writeTo(outputStream);
+        offset += 1 + pendingAlleles.size();
+        pendingAlleles.reset();
+        numPendingAlleles = 0;
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            outputStream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+            offset++;
+        }
+        outputStream.write(value);
+        offset++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finishChromosome();
+            long indexOffset = offset;
+            ByteBuffer numChromosomes = newBuffer(Integer.BYTES);
+            numChromosomes.putInt(chromosomeIndexes.size());
+            write(numChromosomes);
+            for (ChromosomeIndex chromosomeIndex : chromosomeIndexes.values()) {
+                write(chromosomeIndex.toByteBuffer());
+            }
+            ByteBuffer trailer = newBuffer(Long.BYTES);
+            trailer.putLong(indexOffset);
+            write(trailer);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(CaddScoreStore.BYTE_ORDER);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        outputStream.write(buffer.array(), 0, buffer.position());
+        offset += buffer.position();
+    }
+
+    private static class ChromosomeIndex {
+
+        private final int chromosome;
+        //primitive arrays as there are millions of blocks in the whole genome SNV file
+        private int[] blockFirstPositions = new int[1024];
+        private long[] blockOffsets = new long[1024];
+        private int numBlocks;
+        private long endOffset;
+
+        ChromosomeIndex(int chromosome) {
+            this.chromosome = chromosome;
+        }
+
+        void addBlock(int firstPosition, long offset) {
+            if (numBlocks == blockFirstPositions.length) {
+                blockFirstPositions = Arrays.copyOf(blockFirstPositions, numBlocks * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, numBlocks * 2);
+            }
+            blockFirstPositions[numBlocks] = firstPosition;
+            blockOffsets[numBlocks] = offset;
+            numBlocks++;
+        }
+
+        ByteBuffer toByteBuffer() {
+            ByteBuffer buffer = newBuffer(2 * Integer.BYTES + numBlocks * (Integer.BYTES + Long.BYTES) + Long.BYTES);
+            buffer.putInt(chromosome);
+            buffer.putInt(numBlocks);
+            for (int block = 0; block < numBlocks; block++) {
+                buffer.putInt(blockFirstPositions[block]);
+                buffer.putLong(blockOffsets[block]);
+            }
+            buffer.putLong(endOffset);
+            return buffer;
+        }
+    }
+}
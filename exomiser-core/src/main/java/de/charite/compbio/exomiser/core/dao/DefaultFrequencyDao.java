@@ -24,6 +24,7 @@
  */
 package de.charite.compbio.exomiser.core.dao;
 
+import de.charite.compbio.exomiser.core.metrics.MetricsRegistry;
 import de.charite.compbio.exomiser.core.model.frequency.Frequency;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencyData;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
@@ -35,16 +36,25 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Repository;
 
@@ -57,10 +67,22 @@
 public class DefaultFrequencyDao implements FrequencyDao {
 
     private final Logger logger = LoggerFactory.getLogger(DefaultFrequencyDao.class);
+
+    private static final LongAdder queryCounter = MetricsRegistry.getDefault().counter("db.frequency.queries");
+    private static final LongAdder batchQueryCounter = MetricsRegistry.getDefault().counter("db.frequency.batchQueries");
+
+    //maximum number of positions queried in a single IN clause. The IN list is always padded to this length so that
+    //the same statement can be re-used by the driver/connection pool statement cache.
+    static final int MAX_BATCH_SIZE = 500;
     
+    static final String FREQUENCY_CACHE_NAME = "frequency";
+
     @Autowired
     private DataSource dataSource;
 
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
     private final Map<FrequencySource, String> frequencySourceColumnMappings;
     
     public DefaultFrequencyDao() {
@@ -82,10 +104,10 @@ public DefaultFrequencyDao() {
 
     
     
-    @Cacheable(value = "frequency", key = "#variant.chromosomalVariant")
+    @Cacheable(value = FREQUENCY_CACHE_NAME, key = "#variant.chromosomalVariant")
     @Override
     public FrequencyData getFrequencyData(Variant variant) {
-
+        queryCounter.increment();
         try (
                 Connection connection = dataSource.getConnection();
                 PreparedStatement preparedFrequencyQuery = createPreparedStatement(connection, variant);
@@ -125,6 +147,146 @@ private PreparedStatement createPreparedStatement(Connection connection, Variant
         return ps;
     }
 
+    /**
+     * Fetches the FrequencyData for the variants using one query per block of up to {@value #MAX_BATCH_SIZE}
+     * positions on each chromosome, rather than one query per variant. This shares the frequency cache with
+     * {@link #getFrequencyData(Variant)}, if one is configured, so only the variants missing from the cache are
+     * queried and their results are added to it. Variants in a block which couldn't be queried are returned as empty
+     * but not cached.
+     *
+     * @param variants
+     * @return a map of the input variants to their FrequencyData.
+     */
+    @Override
+    public Map<Variant, FrequencyData> getFrequencyData(Collection<? extends Variant> variants) {
+        Map<Variant, FrequencyData> results = new HashMap<>();
+        if (variants.isEmpty()) {
+            return results;
+        }
+        Cache frequencyCache = getFrequencyCache();
+        List<Variant> uncachedVariants = new ArrayList<>();
+        for (Variant variant : variants) {
+            FrequencyData cachedFrequencyData = getCachedFrequencyData(frequencyCache, variant);
+            if (cachedFrequencyData == null) {
+                uncachedVariants.add(variant);
+            } else {
+                results.put(variant, cachedFrequencyData);
+            }
+        }
+        if (uncachedVariants.isEmpty()) {
+            return results;
+        }
+        Map<Integer, List<Variant>> variantsByChromosome = groupVariantsByChromosome(uncachedVariants);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedBatchQuery = connection.prepareStatement(createBatchFrequencyQuery())) {
+            for (Entry<Integer, List<Variant>> chromosomeVariants : variantsByChromosome.entrySet()) {
+                int chromosome = chromosomeVariants.getKey();
+                List<Variant> chromosomeBlock = chromosomeVariants.getValue();
+                for (int i = 0; i < chromosomeBlock.size(); i += MAX_BATCH_SIZE) {
+                    List<Variant> block = chromosomeBlock.subList(i, Math.min(i + MAX_BATCH_SIZE, chromosomeBlock.size()));
+                    batchQueryCounter.increment();
+                    Map<Variant, FrequencyData> blockResults = queryBlock(preparedBatchQuery, chromosome, block);
+                    results.putAll(blockResults);
+                    cacheFrequencyData(frequencyCache, blockResults);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error executing batch frequency query: ", e);
+        }
+        for (Variant variant : uncachedVariants) {
+            results.putIfAbsent(variant, FrequencyData.EMPTY_DATA);
+        }
+        return results;
+    }
+
+    private Cache getFrequencyCache() {
+        if (cacheManager == null) {
+            return null;
+        }
+        return cacheManager.getCache(FREQUENCY_CACHE_NAME);
+    }
+
+    //uses the same key as the @Cacheable single variant query so that the two share entries
+    private FrequencyData getCachedFrequencyData(Cache frequencyCache, Variant variant) {
+        if (frequencyCache == null) {
+            return null;
+        }
+        Cache.ValueWrapper cachedValue = frequencyCache.get(variant.getChromosomalVariant());
+        return cachedValue == null ? null : (FrequencyData) cachedValue.get();
+    }
+
+    private void cacheFrequencyData(Cache frequencyCache, Map<Variant, FrequencyData> frequencyData) {
+        if (frequencyCache == null) {
+            return;
+        }
+        for (Entry<Variant, FrequencyData> entry : frequencyData.entrySet()) {
+            frequencyCache.put(entry.getKey().getChromosomalVariant(), entry.getValue());
+        }
+    }
+
+    private Map<Integer, List<Variant>> groupVariantsByChromosome(Collection<? extends Variant> variants) {
+        Map<Integer, List<Variant>> variantsByChromosome = new TreeMap<>();
+        for (Variant variant : variants) {
+            variantsByChromosome.computeIfAbsent(variant.getChromosome(), chr -> new ArrayList<>()).add(variant);
+        }
+        return variantsByChromosome;
+    }
+
+    private String createBatchFrequencyQuery() {
+        StringBuilder positionParameters = new StringBuilder("?");
+        for (int i = 1; i < MAX_BATCH_SIZE; i++) {
+            positionParameters.append(", ?");
+        }
+        //same ordering as the single variant query within each position, ref and alt so that the same row is chosen
+        return "SELECT position, ref, alt, rsid, dbSNPmaf, espEAmaf, espAAmaf, espAllmaf, exacAFRmaf,  exacAMRmaf, exacEASmaf, exacFINmaf, exacNFEmaf, exacOTHmaf, exacSASmaf "
+                + "FROM frequency "
+                + "WHERE chromosome = ? "
+                + "AND position IN (" + positionParameters + ") "
+                + "ORDER BY position, ref, alt, dbsnpmaf desc, espeamaf desc, espaamaf desc, espallmaf desc ";
+    }
+
+    private Map<Variant, FrequencyData> queryBlock(PreparedStatement preparedBatchQuery, int chromosome, List<Variant> block) throws SQLException {
+        Set<Integer> positions = new TreeSet<>();
+        for (Variant variant : block) {
+            positions.add(variant.getPosition());
+        }
+        preparedBatchQuery.setInt(1, chromosome);
+        int parameterIndex = 2;
+        int lastPosition = 0;
+        for (int position : positions) {
+            preparedBatchQuery.setInt(parameterIndex++, position);
+            lastPosition = position;
+        }
+        //pad out the remaining parameters with a position we're already looking for
+        while (parameterIndex <= MAX_BATCH_SIZE + 1) {
+            preparedBatchQuery.setInt(parameterIndex++, lastPosition);
+        }
+
+        Map<String, FrequencyData> allelesFrequencyData = new HashMap<>();
+        try (ResultSet rs = preparedBatchQuery.executeQuery()) {
+            while (rs.next()) {
+                String alleleKey = alleleKey(rs.getInt("position"), rs.getString("ref"), rs.getString("alt"));
+                //only the first row for each allele is used, as with the single variant query
+                if (!allelesFrequencyData.containsKey(alleleKey)) {
+                    RsId rsId = makeRsId(rs);
+                    Set<Frequency> frequencies = makeFrequencies(rs, new HashSet<>());
+                    allelesFrequencyData.put(alleleKey, makeFrequencyData(rsId, frequencies));
+                }
+            }
+        }
+
+        Map<Variant, FrequencyData> blockResults = new HashMap<>();
+        for (Variant variant : block) {
+            String alleleKey = alleleKey(variant.getPosition(), variant.getRef(), variant.getAlt());
+            blockResults.put(variant, allelesFrequencyData.getOrDefault(alleleKey, FrequencyData.EMPTY_DATA));
+        }
+        return blockResults;
+    }
+
+    private String alleleKey(int position, String ref, String alt) {
+        return position + "-" + ref + "-" + alt;
+    }
+
     private FrequencyData processResults(ResultSet rs) throws SQLException {
 
         RsId rsId = null;
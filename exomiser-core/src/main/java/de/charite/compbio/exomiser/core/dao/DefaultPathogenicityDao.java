@@ -24,6 +24,7 @@
  */
 package de.charite.compbio.exomiser.core.dao;
 
+import de.charite.compbio.exomiser.core.metrics.MetricsRegistry;
 import de.charite.compbio.exomiser.core.model.pathogenicity.CaddScore;
 import de.charite.compbio.exomiser.core.model.pathogenicity.MutationTasterScore;
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
@@ -37,6 +38,7 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.sql.DataSource;
 
@@ -55,6 +57,8 @@ public class DefaultPathogenicityDao implements PathogenicityDao {
 
     private final Logger logger = LoggerFactory.getLogger(DefaultPathogenicityDao.class);
 
+    private static final LongAdder queryCounter = MetricsRegistry.getDefault().counter("db.pathogenicity.queries");
+
     @Autowired
     private DataSource dataSource;
 
@@ -68,7 +72,7 @@ public PathogenicityData getPathogenicityData(Variant variant) {
         if (variantEffect != VariantEffect.MISSENSE_VARIANT) {
             return PathogenicityData.EMPTY_DATA;
         }
-
+        queryCounter.increment();
         try (
                 Connection connection = dataSource.getConnection();
                 PreparedStatement preparedStatement = createPreparedStatement(connection, variant);
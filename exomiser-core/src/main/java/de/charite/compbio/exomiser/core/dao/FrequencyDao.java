@@ -8,6 +8,10 @@
 import de.charite.compbio.exomiser.core.model.Variant;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencyData;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
@@ -15,5 +19,20 @@
 public interface FrequencyDao {
 
     FrequencyData getFrequencyData(Variant variant);
-    
+
+    /**
+     * Returns the FrequencyData for a block of variants. Implementations should override this to fetch the data in as
+     * few trips to the datasource as possible. Variants with no data are mapped to FrequencyData.EMPTY_DATA.
+     *
+     * @param variants
+     * @return a map of the input variants to their FrequencyData.
+     */
+    default Map<Variant, FrequencyData> getFrequencyData(Collection<? extends Variant> variants) {
+        Map<Variant, FrequencyData> frequencyData = new HashMap<>();
+        for (Variant variant : variants) {
+            frequencyData.put(variant, getFrequencyData(variant));
+        }
+        return frequencyData;
+    }
+
 }
@@ -60,9 +60,8 @@ public Set<PhenotypeMatch> getPhenotypeMatchesForHpoTerm(PhenotypeTerm hpoTerm)
             return rsProcessor.processOntologyTermMatchResultSet(rs, hpoTerm);
             
         } catch (SQLException e) {
-            logger.error("Unable to execute query '{}' for HP-MP match terms", mappingQuery, e);
+            throw new OntologyDaoException("Unable to execute query '" + mappingQuery + "' for " + hpoTerm.getId() + " HP-MP match terms", e);
         }
-        return Collections.emptySet();
     }
 
     private PreparedStatement setQueryHpId(final Connection connection, String mappingQuery, PhenotypeTerm hpoTerm) throws SQLException {
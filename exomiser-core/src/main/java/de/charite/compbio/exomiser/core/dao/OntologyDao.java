@@ -17,5 +17,22 @@ public interface OntologyDao {
     
     public Set<PhenotypeTerm> getAllTerms();
     
+    /**
+     * @param hpoTerm
+     * @return the matches of the HPO term to the phenotypes of this ontology,
+     * which is empty if there are none.
+     * @throws OntologyDaoException if the matches couldn't be read.
+     */
     public Set<PhenotypeMatch> getPhenotypeMatchesForHpoTerm(PhenotypeTerm hpoTerm);
+
+    /**
+     * Thrown when the phenotype matches can't be read, so that a failed query
+     * isn't mistaken for a term with no matches and cached as such.
+     */
+    public static class OntologyDaoException extends RuntimeException {
+
+        OntologyDaoException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import de.charite.compbio.exomiser.core.model.pathogenicity.MutationTasterScore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PolyPhenScore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.SiftScore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped binary store of the SIFT, PolyPhen and MutationTaster scores of
+ * the missense SNVs in dbNSFP, written by the
+ * {@link PathogenicityScoreStoreWriter}. This replaces a query of the variant
+ * table for every missense variant by a binary search of an in-memory block
+ * index followed by a short scan of the mapped records in a single block.
+ *
+ * File layout (little-endian):
+ * <pre>
+ * header:  MAGIC, VERSION, positions per block
+ * records: varint position delta, number of alleles, then for each allele:
+ *          1 byte 1000rraa (ref and alt base codes)
+ *          1 byte 00000mps flagging which of the MutationTaster, PolyPhen and
+ *          SIFT scores follow, then each of those scores as a float
+ * index:   number of chromosomes, then for each one the chromosome number, the
+ *          number of blocks, the first position and file offset of each block
+ *          and the offset of the end of the chromosome's records
+ * trailer: offset of the index
+ * </pre>
+ * The position delta of the first record in a block is relative to the first
+ * position of the block, so each block can be decoded on its own. Where dbNSFP
+ * has several lines for the same allele, only the most pathogenic of each
+ * score is stored, which is the same as the {@link DefaultPathogenicityDao}
+ * returns from the variant table.
+ *
+ * Lookups only use absolute reads of the mapped buffers, so a single instance
+ * can be shared by any number of threads.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PathogenicityScoreStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PathogenicityScoreStore.class);
+
+    static final int MAGIC = 0x4E534650;
+    static final int VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int HEADER_BYTES = 12;
+    //chromosomes are numbered 1-22, X=23, Y=24, M=25
+    static final int MAX_CHROMOSOME = 25;
+
+    static final int SIFT_FLAG = 1;
+    static final int POLYPHEN_FLAG = 1 << 1;
+    static final int MUTATION_TASTER_FLAG = 1 << 2;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    //indexed by chromosome number, null where there are no scores for that chromosome
+    private final int[][] blockFirstPositions = new int[MAX_CHROMOSOME + 1][];
+    private final long[][] blockOffsets = new long[MAX_CHROMOSOME + 1][];
+
+    public PathogenicityScoreStore(Path storeFile) {
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.READ)) {
+            readHeader(channel, storeFile);
+            readIndex(channel);
+            segments = mapSegments(channel);
+        } catch (IOException e) {
+            throw new PathogenicityScoreStoreException("Unable to read pathogenicity score store " + storeFile, e);
+        }
+        logger.info("Memory-mapped pathogenicity score store {}", storeFile);
+    }
+
+    private void readHeader(FileChannel channel, Path storeFile) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        int magic = header.getInt();
+        int version = header.getInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new PathogenicityScoreStoreException(storeFile + " is not a version " + VERSION + " pathogenicity score store");
+        }
+    }
+
+    private void readIndex(FileChannel channel) throws IOException {
+        long indexOffset = readFully(channel, channel.size() - Long.BYTES, Long.BYTES).getLong();
+        long position = indexOffset;
+        int numChromosomes = readFully(channel, position, Integer.BYTES).getInt();
+        position += Integer.BYTES;
+        for (int i = 0; i < numChromosomes; i++) {
+            ByteBuffer chromosomeHeader = readFully(channel, position, 2 * Integer.BYTES);
+            int chromosome = chromosomeHeader.getInt();
+            int numBlocks = chromosomeHeader.getInt();
+            position += 2 * Integer.BYTES;
+            ByteBuffer blocks = readFully(channel, position, numBlocks * (Integer.BYTES + Long.BYTES) + Long.BYTES);
+            position += blocks.capacity();
+            int[] firstPositions = new int[numBlocks];
+            //one more offset than blocks so that the end of the last block is known
+            long[] offsets = new long[numBlocks + 1];
+            for (int block = 0; block < numBlocks; block++) {
+                firstPositions[block] = blocks.getInt();
+                offsets[block] = blocks.getLong();
+            }
+            offsets[numBlocks] = blocks.getLong();
+            blockFirstPositions[chromosome] = firstPositions;
+            blockOffsets[chromosome] = offsets;
+        }
+    }
+
+    private ByteBuffer readFully(FileChannel channel, long position, int numBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(numBytes).order(BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer[] mapSegments(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int numSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        ByteBuffer[] mappedSegments = new ByteBuffer[numSegments];
+        for (int segment = 0; segment < numSegments; segment++) {
+            long start = (long) segment << SEGMENT_SHIFT;
+            mappedSegments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start)).order(BYTE_ORDER);
+        }
+        return mappedSegments;
+    }
+
+    private byte get(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    private float getFloat(long offset) {
+        int bits = (get(offset) & 0xFF) | (get(offset + 1) & 0xFF) << 8 | (get(offset + 2) & 0xFF) << 16 | (get(offset + 3) & 0xFF) << 24;
+        return Float.intBitsToFloat(bits);
+    }
+
+    /**
+     * Returns the SIFT, PolyPhen and MutationTaster scores for the given SNV.
+     *
+     * @param chromosome
+     * @param position
+     * @param ref
+     * @param alt
+     * @return the scores or {@link PathogenicityData#EMPTY_DATA} if there are
+     * none for the allele.
+     */
+    public PathogenicityData getPathogenicityData(int chromosome, int position, String ref, String alt) {
+        int snvCode = snvCode(ref, alt);
+        if (snvCode < 0 || chromosome < 1 || chromosome > MAX_CHROMOSOME || blockFirstPositions[chromosome] == null) {
+            return PathogenicityData.EMPTY_DATA;
+        }
+        int[] firstPositions = blockFirstPositions[chromosome];
+        int found = Arrays.binarySearch(firstPositions, position);
+        //the insertion point is the first block starting after the position, so we want the one before it
+        int block = found >= 0 ? found : -found - 2;
+        if (block < 0) {
+            return PathogenicityData.EMPTY_DATA;
+        }
+        return scanBlock(chromosome, block, position, snvCode);
+    }
+
+    private PathogenicityData scanBlock(int chromosome, int block, int position, int snvCode) {
+        long offset = blockOffsets[chromosome][block];
+        long blockEnd = blockOffsets[chromosome][block + 1];
+        int recordPosition = blockFirstPositions[chromosome][block];
+        while (offset < blockEnd) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = get(offset++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            recordPosition += delta;
+            if (recordPosition > position) {
+                return PathogenicityData.EMPTY_DATA;
+            }
+            int numAlleles = get(offset++) & 0xFF;
+            for (int i = 0; i < numAlleles; i++) {
+                int code = get(offset++) & 0xFF;
+                int flags = get(offset++) & 0xFF;
+                if (code == snvCode && recordPosition == position) {
+                    return readScores(offset, flags);
+                }
+                offset += Integer.bitCount(flags) * Float.BYTES;
+            }
+        }
+        return PathogenicityData.EMPTY_DATA;
+    }
+
+    private PathogenicityData readScores(long offset, int flags) {
+        SiftScore siftScore = null;
+        PolyPhenScore polyPhenScore = null;
+        MutationTasterScore mutationTasterScore = null;
+        if ((flags & SIFT_FLAG) != 0) {
+            siftScore = new SiftScore(getFloat(offset));
+            offset += Float.BYTES;
+        }
+        if ((flags & POLYPHEN_FLAG) != 0) {
+            polyPhenScore = new PolyPhenScore(getFloat(offset));
+            offset += Float.BYTES;
+        }
+        if ((flags & MUTATION_TASTER_FLAG) != 0) {
+            mutationTasterScore = new MutationTasterScore(getFloat(offset));
+        }
+        if (siftScore == null && polyPhenScore == null && mutationTasterScore == null) {
+            return PathogenicityData.EMPTY_DATA;
+        }
+        return new PathogenicityData(polyPhenScore, mutationTasterScore, siftScore);
+    }
+
+    /**
+     * @return the single byte code for a substitution of one base by another,
+     * or -1 if the alleles aren't both a single A, C, G or T.
+     */
+    static int snvCode(String ref, String alt) {
+        return CaddScoreStore.snvCode(ref, alt);
+    }
+
+    public static class PathogenicityScoreStoreException extends RuntimeException {
+
+        PathogenicityScoreStoreException(String message) {
+            super(message);
+        }
+
+        PathogenicityScoreStoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
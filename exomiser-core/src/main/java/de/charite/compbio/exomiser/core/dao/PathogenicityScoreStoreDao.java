@@ -0,0 +1,57 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import de.charite.compbio.exomiser.core.metrics.MetricsRegistry;
+import de.charite.compbio.exomiser.core.model.Variant;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
+import de.charite.compbio.jannovar.annotation.VariantEffect;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provides the SIFT, PolyPhen and MutationTaster scores of missense variants
+ * from the binary {@link PathogenicityScoreStore} written by the exomiser-db
+ * build, rather than querying the variant table like the
+ * {@link DefaultPathogenicityDao}.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PathogenicityScoreStoreDao implements PathogenicityDao {
+
+    private static final LongAdder scoreStoreLookupCounter = MetricsRegistry.getDefault().counter("scoreStore.pathogenicity.lookups");
+
+    private final PathogenicityScoreStore scoreStore;
+
+    public PathogenicityScoreStoreDao(PathogenicityScoreStore scoreStore) {
+        this.scoreStore = scoreStore;
+    }
+
+    @Override
+    public PathogenicityData getPathogenicityData(Variant variant) {
+        //only missense variants have scores, everything else gets a constant pathogenicity score.
+        if (variant.getVariantEffect() != VariantEffect.MISSENSE_VARIANT) {
+            return PathogenicityData.EMPTY_DATA;
+        }
+        scoreStoreLookupCounter.increment();
+        return scoreStore.getPathogenicityData(variant.getChromosome(), variant.getPosition(), variant.getRef(), variant.getAlt());
+    }
+
+}
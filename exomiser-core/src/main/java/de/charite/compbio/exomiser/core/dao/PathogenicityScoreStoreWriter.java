@@ -0,0 +1,282 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the binary file read by the {@link PathogenicityScoreStore}. Scores
+ * must be added in chromosome and position order. The scores for the same
+ * allele can be added more than once, in which case the lowest SIFT and highest
+ * PolyPhen and MutationTaster scores are kept.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PathogenicityScoreStoreWriter implements AutoCloseable {
+
+    public static final int DEFAULT_POSITIONS_PER_BLOCK = 256;
+    //one slot for each of the 16 possible SNV codes
+    private static final int NUM_SNV_CODES = 16;
+
+    private final OutputStream outputStream;
+    private final int positionsPerBlock;
+    private long offset = 0;
+
+    private final Map<Integer, ChromosomeIndex> chromosomeIndexes = new LinkedHashMap<>();
+    private ChromosomeIndex currentChromosome;
+    private int positionsInBlock;
+    private int previousRecordPosition;
+
+    private int pendingPosition;
+    private int numPendingAlleles;
+    private final float[] pendingSift = new float[NUM_SNV_CODES];
+    private final float[] pendingPolyPhen = new float[NUM_SNV_CODES];
+    private final float[] pendingMutationTaster = new float[NUM_SNV_CODES];
+    private final boolean[] pendingAlleles = new boolean[NUM_SNV_CODES];
+
+    private long numAlleles;
+
+    public PathogenicityScoreStoreWriter(Path storeFile) throws IOException {
+        this(storeFile, DEFAULT_POSITIONS_PER_BLOCK);
+    }
+
+    public PathogenicityScoreStoreWriter(Path storeFile, int positionsPerBlock) throws IOException {
+        if (positionsPerBlock < 1) {
+            throw new IllegalArgumentException("Positions per block must be greater than 0, not " + positionsPerBlock);
+        }
+        this.positionsPerBlock = positionsPerBlock;
+        this.outputStream = new BufferedOutputStream(Files.newOutputStream(storeFile), 1 << 16);
+        ByteBuffer header = newBuffer(PathogenicityScoreStore.HEADER_BYTES);
+        header.putInt(PathogenicityScoreStore.MAGIC);
+        header.putInt(PathogenicityScoreStore.VERSION);
+        header.putInt(positionsPerBlock);
+        write(header);
+        clearPendingAlleles();
+    }
+
+    /**
+     * Adds the scores for the SNV. Any of the scores can be null, but alleles
+     * with no scores or which aren't a substitution of one of A, C, G or T for
+     * another are ignored.
+     *
+     * @return true if the scores were added.
+     */
+    public boolean add(int chromosome, int position, String ref, String alt, Float sift, Float polyPhen, Float mutationTaster) throws IOException {
+        if (chromosome < 1 || chromosome > PathogenicityScoreStore.MAX_CHROMOSOME) {
+            throw new IllegalArgumentException("Chromosome must be between 1 and " + PathogenicityScoreStore.MAX_CHROMOSOME + ", not " + chromosome);
+        }
+        int snvCode = PathogenicityScoreStore.snvCode(ref, alt);
+        if (snvCode < 0 || (isMissing(sift) && isMissing(polyPhen) && isMissing(mutationTaster))) {
+            return false;
+        }
+        if (currentChromosome == null || currentChromosome.chromosome != chromosome) {
+            startChromosome(chromosome);
+        } else if (position < pendingPosition) {
+            throw new IllegalStateException(String.format("Scores must be added in position order - %d:%d is before %d:%d", chromosome, position, chromosome, pendingPosition));
+        } else if (position != pendingPosition) {
+            flushRecord();
+        }
+        pendingPosition = position;
+        addAllele(snvCode & 0xF, sift, polyPhen, mutationTaster);
+        return true;
+    }
+
+    private static boolean isMissing(Float score) {
+        return score == null || score.isNaN();
+    }
+
+    /**
+     * @return the number of distinct alleles written so far.
+     */
+    public long getNumAlleles() {
+        return numAlleles;
+    }
+
+    private void startChromosome(int chromosome) throws IOException {
+        if (chromosomeIndexes.containsKey(chromosome)) {
+            throw new IllegalStateException("Scores must be added in chromosome order - chromosome " + chromosome + " has already been written");
+        }
+        finishChromosome();
+        currentChromosome = new ChromosomeIndex(chromosome);
+        chromosomeIndexes.put(chromosome, currentChromosome);
+        positionsInBlock = 0;
+    }
+
+    private void finishChromosome() throws IOException {
+        if (currentChromosome != null) {
+            flushRecord();
+            currentChromosome.endOffset = offset;
+        }
+    }
+
+    private void addAllele(int allele, Float sift, Float polyPhen, Float mutationTaster) {
+        if (!pendingAlleles[allele]) {
+            pendingAlleles[allele] = true;
+            numPendingAlleles++;
+        }
+        //NaN marks a missing score, so the comparisons only need to check for it on the pending side
+        if (!isMissing(sift) && (Float.isNaN(pendingSift[allele]) || sift < pendingSift[allele])) {
+            pendingSift[allele] = sift;
+        }
+        if (!isMissing(polyPhen) && (Float.isNaN(pendingPolyPhen[allele]) || polyPhen > pendingPolyPhen[allele])) {
+            pendingPolyPhen[allele] = polyPhen;
+        }
+        if (!isMissing(mutationTaster) && (Float.isNaN(pendingMutationTaster[allele]) || mutationTaster > pendingMutationTaster[allele])) {
+            pendingMutationTaster[allele] = mutationTaster;
+        }
+    }
+
+    private void clearPendingAlleles() {
+        Arrays.fill(pendingAlleles, false);
+        Arrays.fill(pendingSift, Float.NaN);
+        Arrays.fill(pendingPolyPhen, Float.NaN);
+        Arrays.fill(pendingMutationTaster, Float.NaN);
+        numPendingAlleles = 0;
+    }
+
+    private void flushRecord() throws IOException {
+        if (numPendingAlleles == 0) {
+            return;
+        }
+        if (currentChromosome.numBlocks == 0 || positionsInBlock == positionsPerBlock) {
+            currentChromosome.addBlock(pendingPosition, offset);
+            previousRecordPosition = pendingPosition;
+            positionsInBlock = 0;
+        }
+        positionsInBlock++;
+        writeVarInt(pendingPosition - previousRecordPosition);
+        previousRecordPosition = pendingPosition;
+        ByteBuffer record = newBuffer(1 + numPendingAlleles * (2 + 3 * Float.BYTES));
+        record.put((byte) numPendingAlleles);
+        for (int allele = 0; allele < NUM_SNV_CODES; allele++) {
+            if (pendingAlleles[allele]) {
+                writeAllele(record, allele);
+            }
+        }
+        write(record);
+        numAlleles += numPendingAlleles;
+        clearPendingAlleles();
+    }
+
+    private void writeAllele(ByteBuffer record, int allele) {
+        int flags = 0;
+        if (!Float.isNaN(pendingSift[allele])) {
+            flags |= PathogenicityScoreStore.SIFT_FLAG;
+        }
+        if (!Float.isNaN(pendingPolyPhen[allele])) {
+            flags |= PathogenicityScoreStore.POLYPHEN_FLAG;
+        }
+        if (!Float.isNaN(pendingMutationTaster[allele])) {
+            flags |= PathogenicityScoreStore.MUTATION_TASTER_FLAG;
+        }
+        record.put((byte) (CaddScoreStore.SNV_FLAG | allele));
+        record.put((byte) flags);
+        if ((flags & PathogenicityScoreStore.SIFT_FLAG) != 0) {
+            record.putFloat(pendingSift[allele]);
+        }
+        if ((flags & PathogenicityScoreStore.POLYPHEN_FLAG) != 0) {
+            record.putFloat(pendingPolyPhen[allele]);
+        }
+        if ((flags & PathogenicityScoreStore.MUTATION_TASTER_FLAG) != 0) {
+            record.putFloat(pendingMutationTaster[allele]);
+        }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            outputStream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+            offset++;
+        }
+        outputStream.write(value);
+        offset++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finishChromosome();
+            long indexOffset = offset;
+            ByteBuffer numChromosomes = newBuffer(Integer.BYTES);
+            numChromosomes.putInt(chromosomeIndexes.size());
+            write(numChromosomes);
+            for (ChromosomeIndex chromosomeIndex : chromosomeIndexes.values()) {
+                write(chromosomeIndex.toByteBuffer());
+            }
+            ByteBuffer trailer = newBuffer(Long.BYTES);
+            trailer.putLong(indexOffset);
+            write(trailer);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(PathogenicityScoreStore.BYTE_ORDER);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        outputStream.write(buffer.array(), 0, buffer.position());
+        offset += buffer.position();
+    }
+
+    private static class ChromosomeIndex {
+
+        private final int chromosome;
+        private int[] blockFirstPositions = new int[1024];
+        private long[] blockOffsets = new long[1024];
+        private int numBlocks;
+        private long endOffset;
+
+        ChromosomeIndex(int chromosome) {
+            this.chromosome = chromosome;
+        }
+
+        void addBlock(int firstPosition, long offset) {
+            if (numBlocks == blockFirstPositions.length) {
+                blockFirstPositions = Arrays.copyOf(blockFirstPositions, numBlocks * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, numBlocks * 2);
+            }
+            blockFirstPositions[numBlocks] = firstPosition;
+            blockOffsets[numBlocks] = offset;
+            numBlocks++;
+        }
+
+        ByteBuffer toByteBuffer() {
+            ByteBuffer buffer = newBuffer(2 * Integer.BYTES + numBlocks * (Integer.BYTES + Long.BYTES) + Long.BYTES);
+            buffer.putInt(chromosome);
+            buffer.putInt(numBlocks);
+            for (int block = 0; block < numBlocks; block++) {
+                buffer.putInt(blockFirstPositions[block]);
+                buffer.putLong(blockOffsets[block]);
+            }
+            buffer.putLong(endOffset);
+            return buffer;
+        }
+    }
+}
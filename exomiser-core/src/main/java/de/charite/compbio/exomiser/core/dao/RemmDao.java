@@ -24,6 +24,7 @@
  */
 package de.charite.compbio.exomiser.core.dao;
 
+import de.charite.compbio.exomiser.core.metrics.MetricsRegistry;
 import de.charite.compbio.exomiser.core.model.Variant;
 import de.charite.compbio.exomiser.core.model.pathogenicity.RemmScore;
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
@@ -31,6 +32,7 @@
 import htsjdk.tribble.readers.TabixReader;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
@@ -45,6 +47,8 @@ public class RemmDao {
 
     private final Logger logger = LoggerFactory.getLogger(RemmDao.class);
 
+    private static final LongAdder tabixQueryCounter = MetricsRegistry.getDefault().counter("tabix.remm.queries");
+
     private final TabixReader remmTabixReader;
 
     public RemmDao(TabixReader remmTabixReader) {
@@ -89,7 +93,15 @@ private static boolean isInsertion(Variant variant) {
         return variant.getRef().equals("-");
     }
     
-    private PathogenicityData getRemmData(String chromosome, int start, int end) throws NumberFormatException {
+    private PathogenicityData getRemmData(String chromosome, int start, int end) {
+        //TabixReader queries share the underlying file pointer so concurrent queries must be serialised
+        synchronized (remmTabixReader) {
+            return queryRemmTabix(chromosome, start, end);
+        }
+    }
+
+    private PathogenicityData queryRemmTabix(String chromosome, int start, int end) throws NumberFormatException {
+        tabixQueryCounter.increment();
         try {
             float ncds = Float.NaN;
             String line;
@@ -0,0 +1,280 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.factories;
+
+import de.charite.compbio.exomiser.core.model.RegulatoryFeature;
+import de.charite.compbio.exomiser.core.model.TopologicalDomain;
+import de.charite.compbio.exomiser.core.model.Variant;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencyData;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decorates a VariantDataService so that the frequency and pathogenicity data for a chunk of variants can be fetched on
+ * a pool of I/O threads while the chunk before it is being filtered. The analysis calls {@link #prefetch} for a chunk as
+ * soon as it has been annotated and when the data providers of the variant filters ask for the data for those variants
+ * it is either already there or on its way, so the database round-trips and tabix seeks overlap with the filtering
+ * rather than adding to it.
+ *
+ * The lookups for each data source of a chunk are made on one I/O thread in the order of the variants, which are
+ * usually coordinate sorted, so that stores keeping a cursor per thread, like the CADD score store, can sweep through
+ * their file rather than searching it for every variant. Separate chunks are fetched concurrently.
+ *
+ * Lookups for variants which haven't been prefetched, or were prefetched for different sources, are passed straight
+ * through to the decorated service, which must be safe to call from several threads at once.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PrefetchingVariantDataService implements VariantDataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchingVariantDataService.class);
+
+    private final VariantDataService variantDataService;
+    private final int numThreads;
+    private final ExecutorService ioExecutor;
+    private final ConcurrentMap<Variant, Prefetch> prefetchedVariants = new ConcurrentHashMap<>();
+
+    /**
+     * @param variantDataService the service to make the lookups with
+     * @param numThreads         the number of lookups which can be made concurrently
+     */
+    public PrefetchingVariantDataService(VariantDataService variantDataService, int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be greater than 0, not " + numThreads);
+        }
+        this.variantDataService = variantDataService;
+        this.numThreads = numThreads;
+        this.ioExecutor = Executors.newFixedThreadPool(numThreads, new PrefetchThreadFactory());
+        logger.info("Prefetching variant data using {} threads", numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Starts fetching the data from the given sources for the variants in the background. This is returned from the
+     * lookups for these variants until the returned Prefetch is closed, which should be done once the variants have
+     * been filtered so that the data can be garbage collected. An empty set of sources means that data type isn't
+     * prefetched.
+     *
+     * @param variants             the variants to fetch the data for, in the order the lookups are to be made
+     * @param frequencySources
+     * @param pathogenicitySources
+     * @return
+     */
+    public Prefetch prefetch(List<? extends Variant> variants, Set<FrequencySource> frequencySources, Set<PathogenicitySource> pathogenicitySources) {
+        Prefetch prefetch = new Prefetch(variants, frequencySources, pathogenicitySources);
+        for (Variant variant : variants) {
+            prefetchedVariants.put(variant, prefetch);
+        }
+        return prefetch;
+    }
+
+    @Override
+    public FrequencyData getVariantFrequencyData(Variant variant, Set<FrequencySource> frequencySources) {
+        Prefetch prefetch = prefetchedVariants.get(variant);
+        if (prefetch != null && prefetch.hasFrequencyData(frequencySources)) {
+            return prefetch.getFrequencyData(variant);
+        }
+        return variantDataService.getVariantFrequencyData(variant, frequencySources);
+    }
+
+    @Override
+    public Map<Variant, FrequencyData> getVariantFrequencyData(Collection<? extends Variant> variants, Set<FrequencySource> frequencySources) {
+        Map<Variant, FrequencyData> frequencyData = new HashMap<>();
+        List<Variant> notPrefetched = new ArrayList<>();
+        for (Variant variant : variants) {
+            Prefetch prefetch = prefetchedVariants.get(variant);
+            if (prefetch != null && prefetch.hasFrequencyData(frequencySources)) {
+                frequencyData.put(variant, prefetch.getFrequencyData(variant));
+            } else {
+                notPrefetched.add(variant);
+            }
+        }
+        if (!notPrefetched.isEmpty()) {
+            frequencyData.putAll(variantDataService.getVariantFrequencyData(notPrefetched, frequencySources));
+        }
+        return frequencyData;
+    }
+
+    @Override
+    public PathogenicityData getVariantPathogenicityData(Variant variant, Set<PathogenicitySource> pathogenicitySources) {
+        Prefetch prefetch = prefetchedVariants.get(variant);
+        if (prefetch != null && prefetch.hasPathogenicityData(pathogenicitySources)) {
+            return prefetch.getPathogenicityData(variant);
+        }
+        return variantDataService.getVariantPathogenicityData(variant, pathogenicitySources);
+    }
+
+    /**
+     * Any variants which weren't prefetched are looked up one after the other on the calling thread, in the order
+     * given, rather than being spread over the I/O threads where they would arrive at the stores in no particular order.
+     */
+    @Override
+    public Map<Variant, PathogenicityData> getVariantPathogenicityData(Collection<? extends Variant> variants, Set<PathogenicitySource> pathogenicitySources) {
+        Map<Variant, PathogenicityData> pathogenicityData = new HashMap<>();
+        List<Variant> notPrefetched = new ArrayList<>();
+        for (Variant variant : variants) {
+            Prefetch prefetch = prefetchedVariants.get(variant);
+            if (prefetch != null && prefetch.hasPathogenicityData(pathogenicitySources)) {
+                pathogenicityData.put(variant, prefetch.getPathogenicityData(variant));
+            } else {
+                notPrefetched.add(variant);
+            }
+        }
+        if (!notPrefetched.isEmpty()) {
+            pathogenicityData.putAll(variantDataService.getVariantPathogenicityData(notPrefetched, pathogenicitySources));
+        }
+        return pathogenicityData;
+    }
+
+    private static <R> R waitFor(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PrefetchException("Interrupted while waiting for variant data", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new PrefetchException("Unable to fetch variant data", cause);
+        }
+    }
+
+    @Override
+    public List<RegulatoryFeature> getRegulatoryFeatures() {
+        return variantDataService.getRegulatoryFeatures();
+    }
+
+    @Override
+    public List<TopologicalDomain> getTopologicallyAssociatedDomains() {
+        return variantDataService.getTopologicallyAssociatedDomains();
+    }
+
+    /**
+     * Stops the I/O threads. Lookups made after this will fail.
+     */
+    public void shutdown() {
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * The data being fetched for a chunk of variants. The frequencies are fetched in one batch and the pathogenicity
+     * scores one variant after another, each on a single I/O thread.
+     */
+    public class Prefetch implements AutoCloseable {
+
+        private final List<Variant> variants;
+        private final Set<FrequencySource> frequencySources;
+        private final Set<PathogenicitySource> pathogenicitySources;
+        private final CompletableFuture<Map<Variant, FrequencyData>> frequencyData;
+        private final CompletableFuture<Map<Variant, PathogenicityData>> pathogenicityData;
+
+        private Prefetch(List<? extends Variant> variants, Set<FrequencySource> frequencySources, Set<PathogenicitySource> pathogenicitySources) {
+            this.variants = new ArrayList<>(variants);
+            this.frequencySources = frequencySources.isEmpty() ? EnumSet.noneOf(FrequencySource.class) : EnumSet.copyOf(frequencySources);
+            this.pathogenicitySources = pathogenicitySources.isEmpty() ? EnumSet.noneOf(PathogenicitySource.class) : EnumSet.copyOf(pathogenicitySources);
+            if (this.frequencySources.isEmpty()) {
+                this.frequencyData = CompletableFuture.completedFuture(Collections.emptyMap());
+            } else {
+                this.frequencyData = CompletableFuture.supplyAsync(() -> variantDataService.getVariantFrequencyData(this.variants, this.frequencySources), ioExecutor);
+            }
+            if (this.pathogenicitySources.isEmpty()) {
+                this.pathogenicityData = CompletableFuture.completedFuture(Collections.emptyMap());
+            } else {
+                this.pathogenicityData = CompletableFuture.supplyAsync(() -> variantDataService.getVariantPathogenicityData(this.variants, this.pathogenicitySources), ioExecutor);
+            }
+        }
+
+        private boolean hasFrequencyData(Set<FrequencySource> sources) {
+            return !frequencySources.isEmpty() && frequencySources.equals(sources);
+        }
+
+        private FrequencyData getFrequencyData(Variant variant) {
+            return waitFor(frequencyData).getOrDefault(variant, FrequencyData.EMPTY_DATA);
+        }
+
+        private boolean hasPathogenicityData(Set<PathogenicitySource> sources) {
+            return !pathogenicitySources.isEmpty() && pathogenicitySources.equals(sources);
+        }
+
+        private PathogenicityData getPathogenicityData(Variant variant) {
+            return waitFor(pathogenicityData).getOrDefault(variant, PathogenicityData.EMPTY_DATA);
+        }
+
+        /**
+         * Stops serving the data for these variants and abandons any lookups which haven't started yet. Lookups which
+         * have already started are left to finish, as interrupting them could close the stores' file channels.
+         */
+        @Override
+        public void close() {
+            frequencyData.cancel(false);
+            pathogenicityData.cancel(false);
+            for (Variant variant : variants) {
+                prefetchedVariants.remove(variant, this);
+            }
+        }
+    }
+
+    private static class PrefetchThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger poolNumber = new AtomicInteger(1);
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix = "prefetch-" + poolNumber.getAndIncrement() + "-io-";
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class PrefetchException extends RuntimeException {
+
+        PrefetchException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -31,7 +31,10 @@
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
 import de.charite.compbio.jannovar.annotation.VariantEffect;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -42,8 +45,40 @@ public interface VariantDataService {
 
     public FrequencyData getVariantFrequencyData(Variant variant, Set<FrequencySource> frequencySources);
 
+    /**
+     * Batch version of {@link #getVariantFrequencyData(Variant, Set)}. Implementations backed by a database should
+     * override this to avoid making one round-trip per variant.
+     *
+     * @param variants
+     * @param frequencySources
+     * @return a map of the input variants to their FrequencyData from the specified sources.
+     */
+    default public Map<Variant, FrequencyData> getVariantFrequencyData(Collection<? extends Variant> variants, Set<FrequencySource> frequencySources) {
+        Map<Variant, FrequencyData> frequencyData = new HashMap<>();
+        for (Variant variant : variants) {
+            frequencyData.put(variant, getVariantFrequencyData(variant, frequencySources));
+        }
+        return frequencyData;
+    }
+
     public PathogenicityData getVariantPathogenicityData(Variant variant, Set<PathogenicitySource> pathogenicitySources);
 
+    /**
+     * Batch version of {@link #getVariantPathogenicityData(Variant, Set)}. Implementations able to make the lookups
+     * concurrently or in bulk should override this.
+     *
+     * @param variants
+     * @param pathogenicitySources
+     * @return a map of the input variants to their PathogenicityData from the specified sources.
+     */
+    default public Map<Variant, PathogenicityData> getVariantPathogenicityData(Collection<? extends Variant> variants, Set<PathogenicitySource> pathogenicitySources) {
+        Map<Variant, PathogenicityData> pathogenicityData = new HashMap<>();
+        for (Variant variant : variants) {
+            pathogenicityData.put(variant, getVariantPathogenicityData(variant, pathogenicitySources));
+        }
+        return pathogenicityData;
+    }
+
     public List<RegulatoryFeature> getRegulatoryFeatures();
     
     public List<TopologicalDomain> getTopologicallyAssociatedDomains();
@@ -32,7 +32,10 @@
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
 import de.charite.compbio.jannovar.annotation.VariantEffect;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import static java.util.stream.Collectors.toSet;
 import javax.annotation.Resource;
@@ -70,6 +73,17 @@ public FrequencyData getVariantFrequencyData(Variant variant, Set<FrequencySourc
         return frequencyDataFromSpecifiedSources(allFrequencyData, frequencySources);
     }
 
+    @Override
+    public Map<Variant, FrequencyData> getVariantFrequencyData(Collection<? extends Variant> variants, Set<FrequencySource> frequencySources) {
+        Map<Variant, FrequencyData> allFrequencyData = frequencyDao.getFrequencyData(variants);
+        Map<Variant, FrequencyData> frequencyData = new HashMap<>();
+        for (Variant variant : variants) {
+            FrequencyData variantFrequencyData = allFrequencyData.getOrDefault(variant, FrequencyData.EMPTY_DATA);
+            frequencyData.put(variant, frequencyDataFromSpecifiedSources(variantFrequencyData, frequencySources));
+        }
+        return frequencyData;
+    }
+
     protected FrequencyData frequencyDataFromSpecifiedSources(FrequencyData allFrequencyData, Set<FrequencySource> frequencySources) {
         Set<Frequency> wanted = allFrequencyData.getKnownFrequencies().stream()
                 .filter(frequency -> frequencySources.contains(frequency.getSource()))
@@ -24,6 +24,9 @@
  */
 package de.charite.compbio.exomiser.core.factories;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import de.charite.compbio.exomiser.core.model.GeneticInterval;
 import de.charite.compbio.exomiser.core.model.Variant;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.jannovar.annotation.Annotation;
@@ -32,18 +35,26 @@
 import de.charite.compbio.jannovar.data.JannovarData;
 import de.charite.compbio.jannovar.htsjdk.InvalidCoordinatesException;
 import de.charite.compbio.jannovar.htsjdk.VariantContextAnnotator;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
 import de.charite.compbio.jannovar.reference.GenomeVariant;
+import de.charite.compbio.jannovar.reference.Strand;
 import de.charite.compbio.jannovar.reference.TranscriptModel;
+import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.variant.variantcontext.*;
 import htsjdk.variant.vcf.VCFFileReader;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -62,24 +73,144 @@ public class VariantFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(VariantFactory.class);
 
-    private final VariantContextAnnotator variantAnnotator;
+    //The VariantContextAnnotator is not thread-safe, so each thread gets its own instance built from the shared,
+    //read-only JannovarData. This allows the variants to be annotated in parallel.
+    private final ThreadLocal<VariantContextAnnotator> variantAnnotator;
+    //only used by the deprecated constructor where we can't make new annotators, so access to it has to be serialised
+    private final VariantContextAnnotator sharedVariantAnnotator;
+    //used to resolve contigs and gene regions before annotation - this isn't available from the deprecated constructor
+    private final JannovarData jannovarData;
 
     //in cases where a variant cannot be positioned on a chromosome we're going to use 0 in order to fulfil the
     //requirement of a variant having an integer chromosome
     private final int UNKNOWN_CHROMOSOME = 0;
 
+    //A whole genome has millions of variants but only a handful of distinct SNV alleles and chromosome names, so
+    //these are shared rather than every variant holding its own copy of the same few strings. This only de-duplicates
+    //the strings - each VariantEvaluation is still a full object holding its VariantContext and annotations.
+    private static final Interner<String> SHARED_STRINGS = Interners.newWeakInterner();
+
     /**
      * @deprecated Use alternative constructor requiring JannovarData
      * @param variantAnnotator
      */
     @Deprecated
     public VariantFactory(VariantAnnotator variantAnnotator) {
-        this.variantAnnotator = variantAnnotator.getVariantContextAnnotator();
+        VariantContextAnnotator variantContextAnnotator = variantAnnotator.getVariantContextAnnotator();
+        this.sharedVariantAnnotator = variantContextAnnotator;
+        this.jannovarData = null;
+        this.variantAnnotator = ThreadLocal.withInitial(() -> variantContextAnnotator);
     }
 
     @Autowired
     public VariantFactory(JannovarData jannovarData) {
-        this.variantAnnotator = new VariantContextAnnotator(jannovarData.getRefDict(), jannovarData.getChromosomes());
+        this.sharedVariantAnnotator = null;
+        this.jannovarData = jannovarData;
+        this.variantAnnotator = ThreadLocal.withInitial(() -> new VariantContextAnnotator(jannovarData.getRefDict(), jannovarData.getChromosomes()));
+    }
+
+    /**
+     * @param contig the contig name of a VCF record, e.g. "1", "chr1" or "X"
+     * @return the chromosome number which the VariantEvaluations built from a record on this contig will be given, or
+     * 0 if the contig is unknown or cannot be resolved without annotating the record.
+     */
+    public int getChromosomeId(String contig) {
+        if (jannovarData == null) {
+            return UNKNOWN_CHROMOSOME;
+        }
+        Integer chromosome = jannovarData.getRefDict().getContigNameToID().get(contig);
+        return chromosome == null ? UNKNOWN_CHROMOSOME : chromosome;
+    }
+
+    /**
+     * @param geneSymbols
+     * @return the transcribed regions of all the known transcripts of the genes, on the forward strand. Unknown gene
+     * symbols are ignored.
+     */
+    public List<GeneticInterval> getGeneRegions(Collection<String> geneSymbols) {
+        if (jannovarData == null) {
+            return Collections.emptyList();
+        }
+        List<GeneticInterval> geneRegions = new ArrayList<>();
+        for (String geneSymbol : geneSymbols) {
+            for (TranscriptModel transcriptModel : jannovarData.getTmByGeneSymbol().get(geneSymbol)) {
+                GenomeInterval txRegion = transcriptModel.getTXRegion().withStrand(Strand.FWD);
+                //GenomeIntervals are zero-based half-open, GeneticIntervals are one-based fully-closed
+                geneRegions.add(new GeneticInterval(txRegion.getChr(), txRegion.getBeginPos() + 1, txRegion.getEndPos()));
+            }
+        }
+        return geneRegions;
+    }
+
+    /**
+     * @param vcfPath
+     * @return true if the VCF is bgzipped with a tabix index next to it and the contig names can be resolved, so that
+     * streamVariantContexts can be used to read only the records in given regions.
+     */
+    public boolean canQueryRegions(Path vcfPath) {
+        String fileName = vcfPath.getFileName().toString();
+        return jannovarData != null && fileName.endsWith(".gz") && Files.exists(vcfPath.resolveSibling(fileName + ".tbi"));
+    }
+
+    /**
+     * Streams only the records overlapping the regions from a bgzipped and tabix indexed VCF, rather than reading the
+     * whole file. Overlapping regions are merged and a record spanning more than one region is only returned once.
+     * The records are returned in chromosome then position order, whatever the order of the regions.
+     *
+     * @param vcfPath
+     * @param regions
+     * @return
+     */
+    public Stream<VariantContext> streamVariantContexts(Path vcfPath, Collection<GeneticInterval> regions) {
+        List<GeneticInterval> mergedRegions = mergeRegions(regions);
+        logger.info("Streaming variants in {} region(s) from indexed file {}", mergedRegions.size(), vcfPath);
+        VCFFileReader vcfReader = new VCFFileReader(vcfPath.toFile(), true);
+        return IntStream.range(0, mergedRegions.size())
+                .boxed()
+                .flatMap(i -> {
+                    GeneticInterval region = mergedRegions.get(i);
+                    //a record reaching back into the previous region on the chromosome will already have been returned
+                    GeneticInterval previous = i == 0 ? null : mergedRegions.get(i - 1);
+                    int previousEnd = (previous != null && previous.getChromosome() == region.getChromosome()) ? previous.getEnd() : 0;
+                    return queryRegion(vcfReader, region).filter(variantContext -> variantContext.getStart() > previousEnd);
+                })
+                .onClose(vcfReader::close);
+    }
+
+    //The VCF could name the contig "1" or "chr1", so all the names the reference knows it by are tried. Tabix returns
+    //nothing for names not in the index.
+    private Stream<VariantContext> queryRegion(VCFFileReader vcfReader, GeneticInterval region) {
+        return jannovarData.getRefDict().getContigNameToID().entrySet().stream()
+                .filter(contig -> contig.getValue() == region.getChromosome())
+                .flatMap(contig -> {
+                    CloseableIterator<VariantContext> records = vcfReader.query(contig.getKey(), region.getStart(), region.getEnd());
+                    Iterable<VariantContext> recordIterable = () -> records;
+                    return StreamSupport.stream(recordIterable.spliterator(), false).onClose(records::close);
+                });
+    }
+
+    /**
+     * @return the regions sorted by chromosome and start with any overlapping or abutting regions merged together.
+     */
+    static List<GeneticInterval> mergeRegions(Collection<GeneticInterval> regions) {
+        List<GeneticInterval> sortedRegions = new ArrayList<>(regions);
+        sortedRegions.sort(Comparator.comparingInt(GeneticInterval::getChromosome).thenComparingInt(GeneticInterval::getStart));
+        List<GeneticInterval> mergedRegions = new ArrayList<>();
+        GeneticInterval current = null;
+        for (GeneticInterval region : sortedRegions) {
+            if (current != null && current.getChromosome() == region.getChromosome() && region.getStart() <= current.getEnd() + 1) {
+                current = new GeneticInterval(current.getChromosome(), current.getStart(), Math.max(current.getEnd(), region.getEnd()));
+            } else {
+                if (current != null) {
+                    mergedRegions.add(current);
+                }
+                current = region;
+            }
+        }
+        if (current != null) {
+            mergedRegions.add(current);
+        }
+        return mergedRegions;
     }
 
     public List<VariantContext> createVariantContexts(Path vcfPath) {
@@ -96,7 +227,7 @@ public Stream<VariantContext> streamVariantContexts(Path vcfPath) {
         VCFFileReader vcfReader = new VCFFileReader(vcfPath.toFile(), false); // false => do not require index
         Iterable<VariantContext> variantIterable = () -> vcfReader.iterator();
         boolean runParallel = false;
-        return StreamSupport.stream(variantIterable.spliterator(), runParallel);
+        return StreamSupport.stream(variantIterable.spliterator(), runParallel).onClose(vcfReader::close);
     }
 
     public List<VariantEvaluation> createVariantEvaluations(Path vcfPath) {
@@ -175,10 +306,13 @@ private Function<VariantContext, Stream<VariantEvaluation>> streamVariantEvaluat
      */
     public List<VariantAnnotations> buildVariantAnnotations(VariantContext variantContext) {
         try {
-            synchronized (this) {
-                //builds one annotation list for each alternative allele
-                return variantAnnotator.buildAnnotations(variantContext);
+            //builds one annotation list for each alternative allele
+            if (sharedVariantAnnotator != null) {
+                synchronized (sharedVariantAnnotator) {
+                    return sharedVariantAnnotator.buildAnnotations(variantContext);
+                }
             }
+            return variantAnnotator.get().buildAnnotations(variantContext);
         } catch (InvalidCoordinatesException ex) {
             //Not all genes can be assigned to a chromosome, so these will fail here.
             //Should we report these? They will not be used in the analysis or appear in the output anywhere.
@@ -226,9 +360,9 @@ private Predicate<Genotype> alleleObservedInGenotype(Allele allele) {
      */
     private VariantEvaluation buildUnknownVariantEvaluation(VariantContext variantContext, int altAlleleId) {
         // Build the GenomeChange object.
-        final String chromosomeName = variantContext.getContig();
-        final String ref = variantContext.getReference().getBaseString();
-        final String alt = variantContext.getAlternateAllele(altAlleleId).getBaseString();
+        final String chromosomeName = SHARED_STRINGS.intern(variantContext.getContig());
+        final String ref = SHARED_STRINGS.intern(variantContext.getReference().getBaseString());
+        final String alt = SHARED_STRINGS.intern(variantContext.getAlternateAllele(altAlleleId).getBaseString());
         final int pos = variantContext.getStart();
 
         logger.trace("Building unannotated variant for {} {} {} {} - assigning to chromosome {}", chromosomeName, pos, ref, alt, UNKNOWN_CHROMOSOME);
@@ -271,7 +405,7 @@ protected VariantEvaluation buildAnnotatedVariantEvaluation(VariantContext varia
                 //quality is the only value from the VCF file directly required for analysis
                 .quality(variantContext.getPhredScaledQual())
                 //jannovar derived data
-                .chromosomeName(genomeVariant.getChrName())
+                .chromosomeName(SHARED_STRINGS.intern(genomeVariant.getChrName()))
                 .isOffExome(variantEffect.isOffExome())
                 .geneSymbol(buildGeneSymbol(highestImpactAnnotation))
                 .geneId(buildGeneId(highestImpactAnnotation))
@@ -304,7 +438,7 @@ private String buildRef(VariantAnnotations variantAnnotations) {
         if (variantAnnotations.getRef().equals("")) {
             return "-";
         } else {
-            return variantAnnotations.getRef();
+            return SHARED_STRINGS.intern(variantAnnotations.getRef());
         }
     }
 
@@ -312,7 +446,7 @@ private String buildAlt(VariantAnnotations variantAnnotations) {
         if (variantAnnotations.getAlt().equals("")) {
             return "-";
         } else {
-            return variantAnnotations.getAlt();
+            return SHARED_STRINGS.intern(variantAnnotations.getAlt());
         }
     }
 
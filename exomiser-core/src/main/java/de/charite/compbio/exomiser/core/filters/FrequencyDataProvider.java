@@ -1,11 +1,15 @@
 package de.charite.compbio.exomiser.core.filters;
 
 import de.charite.compbio.exomiser.core.factories.VariantDataService;
+import de.charite.compbio.exomiser.core.model.Variant;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencyData;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -28,6 +32,10 @@ public FrequencyDataProvider(VariantDataService variantDataService, Set<Frequenc
         }
     }
 
+    public Set<FrequencySource> getFrequencySources() {
+        return frequencySources;
+    }
+
     @Override
     public void provideVariantData(VariantEvaluation variantEvaluation) {
         //check there are no frequencies first - this may be genuine, or possibly the variant hasn't yet had the data added
@@ -37,5 +45,22 @@ public void provideVariantData(VariantEvaluation variantEvaluation) {
             variantEvaluation.setFrequencyData(frequencyData);
         }
     }
+
+    @Override
+    public void provideVariantData(List<VariantEvaluation> variantEvaluations) {
+        List<VariantEvaluation> variantsWithoutFrequencies = new ArrayList<>();
+        for (VariantEvaluation variantEvaluation : variantEvaluations) {
+            if (variantEvaluation.getFrequencyData().getKnownFrequencies().isEmpty()) {
+                variantsWithoutFrequencies.add(variantEvaluation);
+            }
+        }
+        if (variantsWithoutFrequencies.isEmpty()) {
+            return;
+        }
+        Map<Variant, FrequencyData> frequencyData = variantDataService.getVariantFrequencyData(variantsWithoutFrequencies, frequencySources);
+        for (VariantEvaluation variantEvaluation : variantsWithoutFrequencies) {
+            variantEvaluation.setFrequencyData(frequencyData.getOrDefault(variantEvaluation, FrequencyData.EMPTY_DATA));
+        }
+    }
     
 }
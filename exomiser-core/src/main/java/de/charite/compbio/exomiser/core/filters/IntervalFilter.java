@@ -3,6 +3,8 @@
 import de.charite.compbio.exomiser.core.model.GeneticInterval;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.exomiser.core.model.Variant;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,7 +21,7 @@
  * @author Peter N Robinson
  * @version 0.08 (April 28, 2013)
  */
-public class IntervalFilter implements VariantFilter {
+public class IntervalFilter implements VariantFilter, VariantContextFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(IntervalFilter.class);
 
@@ -28,6 +30,14 @@ public class IntervalFilter implements VariantFilter {
     private final FilterResult passesFilter = new PassFilterResult(filterType);
     private final FilterResult failsFilter = new FailFilterResult(filterType);
 
+    /**
+     * How far outside the interval a record which isn't made up entirely of substitutions can lie and still be kept by
+     * {@link #mayPass}. Jannovar only moves an allele within the bases of its own record when trimming it, so this is
+     * a generous margin. Regions read from an indexed VCF are padded by the same amount, so every record which may
+     * pass is read.
+     */
+    public static final int INDEL_MARGIN = 100;
+
     private final GeneticInterval interval;
 
     /**
@@ -62,6 +72,37 @@ public FilterResult runFilter(VariantEvaluation variantEvaluation) {
         return passesFilter;
     }
 
+    /**
+     * The chromosome of a record is unchanged by annotation, but the position of an allele can be moved by Jannovar
+     * when it trims the bases shared with the reference. A substitution can only move within the span of its reference
+     * allele, whereas an indel could be shifted further, so any other records are kept if they lie within
+     * {@link #INDEL_MARGIN} bases of the interval.
+     */
+    @Override
+    public boolean mayPass(VariantContext variantContext, int chromosome) {
+        if (chromosome != 0 && variantNotOnSameChromosomeAsInterval(chromosome)) {
+            return false;
+        }
+        if (hasOnlySubstitutions(variantContext)) {
+            return overlapsInterval(variantContext, 0);
+        }
+        return overlapsInterval(variantContext, INDEL_MARGIN);
+    }
+
+    private boolean overlapsInterval(VariantContext variantContext, int margin) {
+        return variantContext.getEnd() + margin >= interval.getStart() && variantContext.getStart() - margin <= interval.getEnd();
+    }
+
+    private boolean hasOnlySubstitutions(VariantContext variantContext) {
+        int refLength = variantContext.getReference().length();
+        for (Allele allele : variantContext.getAlternateAlleles()) {
+            if (allele.isSymbolic() || allele.length() != refLength) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean variantIsNotWithinInterval(Variant variant) {
         if (variantNotOnSameChromosomeAsInterval(variant.getChromosome())) {
             return true;
@@ -6,10 +6,14 @@
 package de.charite.compbio.exomiser.core.filters;
 
 import de.charite.compbio.exomiser.core.factories.VariantDataService;
+import de.charite.compbio.exomiser.core.model.Variant;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -30,6 +34,10 @@ public PathogenicityDataProvider(VariantDataService variantDataService, Set<Path
         }
     }
 
+    public Set<PathogenicitySource> getPathogenicitySources() {
+        return pathogenicitySources;
+    }
+
     @Override
     public void provideVariantData(VariantEvaluation variantEvaluation) {
         if (variantEvaluation.getPathogenicityData().getPredictedPathogenicityScores().isEmpty()) {
@@ -38,4 +46,21 @@ public void provideVariantData(VariantEvaluation variantEvaluation) {
         }
     }
 
+    @Override
+    public void provideVariantData(List<VariantEvaluation> variantEvaluations) {
+        List<VariantEvaluation> variantsWithoutPathogenicityScores = new ArrayList<>();
+        for (VariantEvaluation variantEvaluation : variantEvaluations) {
+            if (variantEvaluation.getPathogenicityData().getPredictedPathogenicityScores().isEmpty()) {
+                variantsWithoutPathogenicityScores.add(variantEvaluation);
+            }
+        }
+        if (variantsWithoutPathogenicityScores.isEmpty()) {
+            return;
+        }
+        Map<Variant, PathogenicityData> pathogenicityData = variantDataService.getVariantPathogenicityData(variantsWithoutPathogenicityScores, pathogenicitySources);
+        for (VariantEvaluation variantEvaluation : variantsWithoutPathogenicityScores) {
+            variantEvaluation.setPathogenicityData(pathogenicityData.getOrDefault(variantEvaluation, PathogenicityData.EMPTY_DATA));
+        }
+    }
+
 }
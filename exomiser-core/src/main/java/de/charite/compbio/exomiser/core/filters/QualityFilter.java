@@ -1,6 +1,7 @@
 package de.charite.compbio.exomiser.core.filters;
 
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import htsjdk.variant.variantcontext.VariantContext;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +14,7 @@
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  * @version 0.09 (18 December, 2013).
  */
-public class QualityFilter implements VariantFilter {
+public class QualityFilter implements VariantFilter, VariantContextFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(QualityFilter.class);
 
@@ -68,6 +69,14 @@ public FilterResult runFilter(VariantEvaluation variantEvaluation) {
         return failsFilter;
     }
 
+    /**
+     * All the alleles of a record share the same QUAL, so the whole record can be rejected here.
+     */
+    @Override
+    public boolean mayPass(VariantContext variantContext, int chromosome) {
+        return overQualityThreshold(variantContext.getPhredScaledQual());
+    }
+
     protected boolean overQualityThreshold(double qualityScore) {
         return qualityScore >= mimimumQualityThreshold;
     }
@@ -52,8 +52,10 @@ public class SimpleVariantFilterRunner implements VariantFilterRunner {
     @Override
     public List<VariantEvaluation> run(List<VariantFilter> variantFilters, List<VariantEvaluation> variantEvaluations) {
         logger.info("Filtering {} variants using simple filtering...", variantEvaluations.size());
-        for (VariantEvaluation variantEvaluation : variantEvaluations) {
-            run(variantFilters, variantEvaluation);
+        //running each filter over all the variants in turn gives the same results as running all the filters over each
+        //variant in turn, but allows the data for each filter to be fetched in bulk.
+        for (VariantFilter filter : variantFilters) {
+            runFilterOverVariants(filter, variantEvaluations);
         }
         logger.info("Ran {} filters over {} variants using simple filtering.", getFilterTypes(variantFilters), variantEvaluations.size());
         return variantEvaluations;
@@ -61,23 +63,35 @@ public List<VariantEvaluation> run(List<VariantFilter> variantFilters, List<Vari
 
     @Override
     public List<VariantEvaluation> run(VariantFilter filter, List<VariantEvaluation> filterables) {
-        for (VariantEvaluation variantEvaluation : filterables) {
-            run(filter, variantEvaluation);
-        }
+        runFilterOverVariants(filter, filterables);
         return filterables;
     }
 
-    private void run(List<VariantFilter> variantFilters, VariantEvaluation variantEvaluation) {
-        for (VariantFilter filter : variantFilters) {
-            run(filter, variantEvaluation);
-        }
-    }
-
     @Override
     public FilterResult run(Filter filter, VariantEvaluation variantEvaluation) {
         return runFilterAndAddResult(filter, variantEvaluation);
     }
 
+    /**
+     * Runs the filter over all of the variantEvaluations. Where the filter is a {@code VariantFilterDataProvider} the
+     * data for all the variants is provided in one go before the decorated filter is run over them, rather than
+     * making a trip to the data source for each variant.
+     *
+     * @param filter
+     * @param variantEvaluations
+     */
+    protected void runFilterOverVariants(VariantFilter filter, List<VariantEvaluation> variantEvaluations) {
+        VariantFilter filterToRun = filter;
+        while (filterToRun instanceof VariantFilterDataProvider) {
+            VariantFilterDataProvider dataProvider = (VariantFilterDataProvider) filterToRun;
+            dataProvider.provideVariantData(variantEvaluations);
+            filterToRun = dataProvider.getDecoratedFilter();
+        }
+        for (VariantEvaluation variantEvaluation : variantEvaluations) {
+            runFilterAndAddResult(filterToRun, variantEvaluation);
+        }
+    }
+
     protected FilterResult runFilterAndAddResult(Filter filter, Filterable filterable) {
         FilterResult filterResult = filter.runFilter(filterable);
         filterable.addFilterResult(filterResult);
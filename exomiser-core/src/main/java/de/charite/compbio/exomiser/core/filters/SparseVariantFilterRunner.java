@@ -43,11 +43,7 @@ public List<VariantEvaluation> run(List<VariantFilter> filters, List<VariantEval
 
     @Override
     public List<VariantEvaluation> run(VariantFilter filter, List<VariantEvaluation> variantEvaluations) {
-        for (VariantEvaluation variantEvaluation : variantEvaluations) {
-            if (variantEvaluation.passedFilters()) {
-                run(filter, variantEvaluation);
-            }
-        }
+        runFilterOverVariants(filter, makeListofFilteredVariants(variantEvaluations));
         return makeListofFilteredVariants(variantEvaluations);
     }
 
@@ -61,13 +57,10 @@ private boolean ifThereAreNoFiltersToRun(List<VariantFilter> filters) {
 
     private List<VariantEvaluation> runFilters(List<VariantFilter> filters, List<VariantEvaluation> variantEvaluations) {
 
-        for (Filter filter : filters) {
-            for (VariantEvaluation variantEvaluation : variantEvaluations) {
-                //the only difference between sparse and full filtering is this if clause here...
-                if (variantEvaluation.passedFilters()) {
-                    run(filter, variantEvaluation);
-                }
-            }
+        for (VariantFilter filter : filters) {
+            //the only difference between sparse and full filtering is that only the variants which have passed the
+            //previous filters are run through the next one...
+            runFilterOverVariants(filter, makeListofFilteredVariants(variantEvaluations));
         }
         return makeListofFilteredVariants(variantEvaluations);
     }
@@ -0,0 +1,43 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.filters;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+/**
+ * Implemented by {@link VariantFilter} which only need the position and QUAL of a VCF record. These can be run on the
+ * raw {@link VariantContext} before it is annotated, so that a runner which discards failed variants never needs to
+ * annotate, look up data for, or create VariantEvaluations from the records which cannot pass.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public interface VariantContextFilter {
+
+    /**
+     * Implementations must be conservative - a record should only be rejected if every one of the VariantEvaluations
+     * made from it would be certain to fail the {@link VariantFilter#runFilter} method.
+     *
+     * @param variantContext the unannotated VCF record
+     * @param chromosome the chromosome number the contig of the record will be assigned, or 0 if this is unknown
+     * @return false if none of the alleles of the record can pass the filter.
+     */
+    public boolean mayPass(VariantContext variantContext, int chromosome);
+
+}
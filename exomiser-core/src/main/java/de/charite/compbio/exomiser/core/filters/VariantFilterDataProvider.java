@@ -2,6 +2,8 @@
 
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 
+import java.util.List;
+
 /**
  * Decorator interface to provide data for variants just in time for the filter 
  * which requires it.
@@ -15,6 +17,17 @@ public interface VariantFilterDataProvider extends VariantFilter {
      * @param variantEvaluation 
      */
     public void provideVariantData(VariantEvaluation variantEvaluation);
+
+    /**
+     * Provides a block of variantEvaluations with the implementation-specific data. Implementations which are able to
+     * fetch their data in bulk should override this.
+     * @param variantEvaluations
+     */
+    default public void provideVariantData(List<VariantEvaluation> variantEvaluations) {
+        for (VariantEvaluation variantEvaluation : variantEvaluations) {
+            provideVariantData(variantEvaluation);
+        }
+    }
     
     /**
      * @return the decorated filter which the DataProvider is providing data for.
@@ -0,0 +1,168 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Collects the time spent in each stage of a single analysis along with its counters. Stages may be timed from any
+ * number of threads at once, in which case the stage time is the sum of the time spent on each thread, so with
+ * several threads the stage times can add up to more than the elapsed time of the analysis.
+ *
+ * The counters of the {@link MetricsRegistry} such as the database and tabix queries or cache hits and misses are
+ * shared by every analysis in the JVM, so the report only contains the change in these while the analysis was
+ * running. These are exact for a single analysis at a time, but will include the calls of any other analysis run
+ * concurrently.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class AnalysisMetrics {
+
+    public static final String VARIANTS_LOADED = "variants.loaded";
+    public static final String VARIANTS_PASSED = "variants.passed";
+
+    private final MetricsRegistry metricsRegistry;
+    private final Map<String, Long> registryCountsAtStart;
+    private final long startNanos;
+    private final Map<String, MetricsRegistry.StageTimer> stageTimers = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, LongAdder> counters = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public AnalysisMetrics() {
+        this(MetricsRegistry.getDefault());
+    }
+
+    public AnalysisMetrics(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        this.registryCountsAtStart = metricsRegistry.getCounters();
+        this.startNanos = System.nanoTime();
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public <T> T time(String stage, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            recordTime(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void time(String stage, Runnable runnable) {
+        long start = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            recordTime(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void recordTime(String stage, long nanos) {
+        stageTimer(stage).record(nanos);
+    }
+
+    /**
+     * Times how long the stream takes to produce its elements, for instance the parsing of a lazily read file. The
+     * stage is only counted as called once however many elements are read.
+     *
+     * @param stage
+     * @param stream
+     * @return a sequential stream of the same elements, which closes the original stream when closed.
+     */
+    public <T> Stream<T> timeEach(String stage, Stream<T> stream) {
+        MetricsRegistry.StageTimer stageTimer = stageTimer(stage);
+        stageTimer.calls.increment();
+        Iterator<T> iterator = stream.iterator();
+        Iterator<T> timedIterator = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                long start = System.nanoTime();
+                try {
+                    return iterator.hasNext();
+                } finally {
+                    stageTimer.totalTimeNanos.add(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public T next() {
+                long start = System.nanoTime();
+                try {
+                    return iterator.next();
+                } finally {
+                    stageTimer.totalTimeNanos.add(System.nanoTime() - start);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(timedIterator, Spliterator.ORDERED), false).onClose(stream::close);
+    }
+
+    private MetricsRegistry.StageTimer stageTimer(String stage) {
+        return stageTimers.computeIfAbsent(stage, key -> new MetricsRegistry.StageTimer());
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void add(String counter, long amount) {
+        counters.computeIfAbsent(counter, key -> new LongAdder()).add(amount);
+    }
+
+    public long getCount(String counter) {
+        LongAdder count = counters.get(counter);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @return a snapshot of the metrics collected so far.
+     */
+    public MetricsReport getReport() {
+        List<MetricsReport.StageTiming> stageTimings = new ArrayList<>();
+        Map<String, Long> analysisCounts = new LinkedHashMap<>();
+        synchronized (stageTimers) {
+            stageTimers.forEach((stage, stageTimer) -> stageTimings.add(stageTimer.toStageTiming(stage)));
+        }
+        synchronized (counters) {
+            counters.forEach((counter, count) -> analysisCounts.put(counter, count.sum()));
+        }
+        Map<String, Long> registryCounts = new LinkedHashMap<>();
+        metricsRegistry.getCounters().forEach((counter, count) -> {
+            long change = count - registryCountsAtStart.getOrDefault(counter, 0L);
+            if (change != 0 && !counter.equals(MetricsRegistry.ANALYSES_COMPLETED)) {
+                registryCounts.put(counter, change);
+            }
+        });
+        return new MetricsReport(System.nanoTime() - startNanos, stageTimings, analysisCounts, registryCounts);
+    }
+}
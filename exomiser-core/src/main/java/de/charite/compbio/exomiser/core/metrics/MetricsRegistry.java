@@ -0,0 +1,132 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application-wide, thread-safe collection of named counters and the accumulated stage timings of every analysis run
+ * in this JVM. The DAOs and caches count their calls here as they are created in many different configurations and
+ * are shared between concurrently running analyses, so an individual analysis only sees the change in these counters
+ * while it was running - see {@link AnalysisMetrics}.
+ *
+ * Counters are returned as {@link LongAdder} so that classes counting a hot path can hold on to them rather than
+ * looking them up by name for every call.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class MetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    public static final String ANALYSES_COMPLETED = "analyses.completed";
+
+    private static final MetricsRegistry DEFAULT_REGISTRY = new MetricsRegistry();
+
+    private final long startNanos = System.nanoTime();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StageTimer> stageTimers = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry shared by everything in this JVM.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT_REGISTRY;
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    public void add(String name, long amount) {
+        counter(name).add(amount);
+    }
+
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return a snapshot of all the counters, sorted by name.
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+    /**
+     * Adds the stage timings and counters of a finished analysis to the totals held here. Counters which the analysis
+     * only read from this registry are not added again.
+     *
+     * @param report
+     */
+    public void recordAnalysis(MetricsReport report) {
+        for (MetricsReport.StageTiming stageTiming : report.getStageTimings()) {
+            StageTimer stageTimer = stageTimers.computeIfAbsent(stageTiming.getName(), key -> new StageTimer());
+            stageTimer.calls.add(stageTiming.getCalls());
+            stageTimer.totalTimeNanos.add(stageTiming.getTotalTimeNanos());
+        }
+        report.getAnalysisCounters().forEach(this::add);
+        increment(ANALYSES_COMPLETED);
+        logger.debug("Recorded metrics for analysis {}", report);
+    }
+
+    /**
+     * @return the stage timings of all the analyses recorded so far and all of the counters, timed from the creation
+     * of this registry.
+     */
+    public MetricsReport getReport() {
+        List<MetricsReport.StageTiming> stageTimings = new ArrayList<>();
+        new TreeMap<>(stageTimers).forEach((name, stageTimer) -> stageTimings.add(stageTimer.toStageTiming(name)));
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return new MetricsReport(elapsedNanos, stageTimings, getCounters(), Collections.emptyMap());
+    }
+
+    static class StageTimer {
+
+        final LongAdder calls = new LongAdder();
+        final LongAdder totalTimeNanos = new LongAdder();
+
+        void record(long nanos) {
+            calls.increment();
+            totalTimeNanos.add(nanos);
+        }
+
+        MetricsReport.StageTiming toStageTiming(String name) {
+            return new MetricsReport.StageTiming(name, calls.sum(), totalTimeNanos.sum());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.metrics;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the time spent in each stage of an analysis together with its counters. The getters are
+ * laid out so that the report can be written out as JSON by Jackson.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+@JsonPropertyOrder({"elapsedTimeMillis", "variantsPerSecond", "stageTimings", "counters"})
+public class MetricsReport {
+
+    private final long elapsedTimeNanos;
+    private final List<StageTiming> stageTimings;
+    private final Map<String, Long> analysisCounters;
+    private final Map<String, Long> counters;
+
+    /**
+     * @param elapsedTimeNanos wall-clock time covered by the report
+     * @param stageTimings     in the order the stages were first run
+     * @param analysisCounters counted by the analysis itself
+     * @param sharedCounters   read from a {@link MetricsRegistry} shared with other analyses
+     */
+    public MetricsReport(long elapsedTimeNanos, List<StageTiming> stageTimings, Map<String, Long> analysisCounters, Map<String, Long> sharedCounters) {
+        this.elapsedTimeNanos = elapsedTimeNanos;
+        this.stageTimings = Collections.unmodifiableList(stageTimings);
+        this.analysisCounters = Collections.unmodifiableMap(new TreeMap<>(analysisCounters));
+        Map<String, Long> allCounters = new TreeMap<>(sharedCounters);
+        allCounters.putAll(analysisCounters);
+        this.counters = Collections.unmodifiableMap(allCounters);
+    }
+
+    @JsonIgnore
+    public long getElapsedTimeNanos() {
+        return elapsedTimeNanos;
+    }
+
+    public long getElapsedTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedTimeNanos);
+    }
+
+    public List<StageTiming> getStageTimings() {
+        return stageTimings;
+    }
+
+    public Optional<StageTiming> getStageTiming(String name) {
+        return stageTimings.stream().filter(stageTiming -> stageTiming.getName().equals(name)).findFirst();
+    }
+
+    /**
+     * @return all the counters, sorted by name.
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return only the counters which were counted by the analysis itself, rather than read from a shared registry.
+     */
+    @JsonIgnore
+    public Map<String, Long> getAnalysisCounters() {
+        return analysisCounters;
+    }
+
+    public long getCount(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    /**
+     * @return the number of variants loaded per second of elapsed time, or 0 if no time has elapsed.
+     */
+    public double getVariantsPerSecond() {
+        if (elapsedTimeNanos <= 0) {
+            return 0d;
+        }
+        return getCount(AnalysisMetrics.VARIANTS_LOADED) / ((double) elapsedTimeNanos / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MetricsReport{elapsedTime=%dms, variantsPerSecond=%.1f, stageTimings=%s, counters=%s}", getElapsedTimeMillis(), getVariantsPerSecond(), stageTimings, counters);
+    }
+
+    /**
+     * The total time spent in a stage over all of the times it was run.
+     */
+    @JsonPropertyOrder({"name", "calls", "totalTimeMillis", "meanTimeMillis"})
+    public static class StageTiming {
+
+        private final String name;
+        private final long calls;
+        private final long totalTimeNanos;
+
+        public StageTiming(String name, long calls, long totalTimeNanos) {
+            this.name = name;
+            this.calls = calls;
+            this.totalTimeNanos = totalTimeNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        @JsonIgnore
+        public long getTotalTimeNanos() {
+            return totalTimeNanos;
+        }
+
+        public double getTotalTimeMillis() {
+            return (double) totalTimeNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public double getMeanTimeMillis() {
+            return calls == 0 ? 0d : getTotalTimeMillis() / calls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s=%.3fms/%d", name, getTotalTimeMillis(), calls);
+        }
+    }
+}
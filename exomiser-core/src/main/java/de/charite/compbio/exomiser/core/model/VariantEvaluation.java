@@ -86,10 +86,10 @@ public class VariantEvaluation implements Comparable<VariantEvaluation>, Filtera
     private List<Annotation> annotations;
     private String geneSymbol;
     private int entrezGeneId;
-    private final String chromosomalVariant;
 
     //results from filters
-    private final Map<FilterType, FilterResult> passedFilterResultsMap;
+    //most variants in a genome fail filtering so the passed results map is only created when it's needed
+    private Map<FilterType, FilterResult> passedFilterResultsMap = Collections.emptyMap();
     private final Set<FilterType> failedFilterTypes;
 
     //score-related stuff
@@ -113,12 +113,10 @@ private VariantEvaluation(VariantBuilder builder) {
         annotations = builder.annotations;
         geneSymbol = builder.geneSymbol;
         entrezGeneId = builder.entrezGeneId;
-        chromosomalVariant = builder.chromosomalVariant;
 
         variantContext = builder.variantContext;
         altAlleleId = builder.altAlleleId;
 
-        passedFilterResultsMap = new LinkedHashMap<>();
         failedFilterTypes = EnumSet.noneOf(FilterType.class);
 
         frequencyData = builder.frequencyData;
@@ -298,11 +296,13 @@ public boolean hasAnnotations() {
 //    }
 
     /**
-     * @return a String such as chr6:g.29911092G>T
+     * This is only used for output so is built on demand rather than stored for every variant.
+     *
+     * @return a String such as 6:g.29911092G>T
      */
     @Override
     public String getChromosomalVariant() {
-        return chromosomalVariant;
+        return chr + ":g." + pos + ref + ">" + alt;
     }
 
     public String getGenotypeAsString() {
@@ -395,6 +395,9 @@ public boolean addFilterResult(FilterResult filterResult) {
     }
 
     private boolean addPassedFilterResult(FilterResult filterResult) {
+        if (passedFilterResultsMap.isEmpty()) {
+            passedFilterResultsMap = new LinkedHashMap<>();
+        }
         passedFilterResultsMap.put(filterResult.getFilterType(), filterResult);
         return true;
     }
@@ -635,7 +638,6 @@ public static class VariantBuilder {
         private List<Annotation> annotations = Collections.emptyList();
         private String geneSymbol = ".";
         private int entrezGeneId = -1;
-        private String chromosomalVariant;
 
         private VariantContext variantContext;
         private int altAlleleId;
@@ -686,11 +688,6 @@ private String buildChromosomeName(int chr) {
             }
         }
 
-        // Change can be null for unknown references, or may not be set. Just in case, we'll hack something together.
-        private String buildChromosomalVariant(int chr, int pos, String ref, String alt) {
-            return chr + ":g." + pos + ref + ">" + alt;
-        }
-
         public VariantBuilder variantContext(VariantContext variantContext) {
             this.variantContext = variantContext;
             return this;
@@ -782,10 +779,6 @@ public VariantEvaluation build() {
                 chromosomeName = buildChromosomeName(chr);
             }
 
-            if (chromosomalVariant == null) {
-                chromosomalVariant = buildChromosomalVariant(chr, pos, ref, alt);
-            }
-
             if (variantContext == null) {
                 variantContext = buildVariantContext(chr, pos, ref, alt, phredScore);
             }
@@ -5,6 +5,8 @@
 import de.charite.compbio.exomiser.core.model.PhenotypeMatch;
 import de.charite.compbio.exomiser.core.model.PhenotypeTerm;
 import de.charite.compbio.exomiser.core.prioritisers.util.DataMatrix;
+import de.charite.compbio.exomiser.core.prioritisers.util.PhenotypeMatchIndex;
+import de.charite.compbio.exomiser.core.prioritisers.util.PhenotypeMatchIndex.TermMatches;
 import de.charite.compbio.exomiser.core.prioritisers.util.PriorityService;
 import de.charite.compbio.exomiser.core.model.Organism;
 import java.util.*;
@@ -208,13 +210,14 @@ private Map<Integer, Model> makeHpToHumanMatches(boolean runHuman, List<Phenotyp
         //TODO: this must always run in order that the best score is set 
         // Human
         logger.info("Fetching HUMAN-{} phenotype matches...", species);
-        Map<PhenotypeTerm, Set<PhenotypeMatch>> humanPhenotypeMatches = getMatchingPhenotypesForSpecies(queryHpoPhenotypes, species);
+        PhenotypeMatchIndex phenotypeMatchIndex = priorityService.getPhenotypeMatchIndex(species);
+        Map<PhenotypeTerm, Set<PhenotypeMatch>> humanPhenotypeMatches = getMatchingPhenotypesForSpecies(queryHpoPhenotypes, phenotypeMatchIndex);
         Set<PhenotypeMatch> bestMatches = getBestMatchesForQueryTerms(humanPhenotypeMatches);
 
         calculateBestScoresFromHumanPhenotypes(bestMatches);
 
         if (runHuman) {
-            return runDynamicQuery(bestMatches, humanPhenotypeMatches, species);
+            return calculateBestGeneModelPhenotypeMatchForSpecies(species, bestMatches, queryHpoPhenotypes, phenotypeMatchIndex);
         } else {
             return Collections.emptyMap();
         }
@@ -223,18 +226,19 @@ private Map<Integer, Model> makeHpToHumanMatches(boolean runHuman, List<Phenotyp
     private Map<Integer, Model> makeHpToOtherSpeciesMatches(boolean runSpecies, List<PhenotypeTerm> queryHpoPhenotypes, Organism species) {
         if (runSpecies) {
             logger.info("Fetching HUMAN-{} phenotype matches...", species);
-            Map<PhenotypeTerm, Set<PhenotypeMatch>> mousePhenotypeMatches = getMatchingPhenotypesForSpecies(queryHpoPhenotypes, species);
-            Set<PhenotypeMatch> bestMatches = getBestMatchesForQueryTerms(mousePhenotypeMatches);
-            return runDynamicQuery(bestMatches, mousePhenotypeMatches, species);
+            PhenotypeMatchIndex phenotypeMatchIndex = priorityService.getPhenotypeMatchIndex(species);
+            Map<PhenotypeTerm, Set<PhenotypeMatch>> speciesPhenotypeMatches = getMatchingPhenotypesForSpecies(queryHpoPhenotypes, phenotypeMatchIndex);
+            Set<PhenotypeMatch> bestMatches = getBestMatchesForQueryTerms(speciesPhenotypeMatches);
+            return calculateBestGeneModelPhenotypeMatchForSpecies(species, bestMatches, queryHpoPhenotypes, phenotypeMatchIndex);
         } else {
             return Collections.emptyMap();
         }
     }
 
-    private Map<PhenotypeTerm, Set<PhenotypeMatch>> getMatchingPhenotypesForSpecies(List<PhenotypeTerm> queryHpoPhenotypes, Organism species) {
+    private Map<PhenotypeTerm, Set<PhenotypeMatch>> getMatchingPhenotypesForSpecies(List<PhenotypeTerm> queryHpoPhenotypes, PhenotypeMatchIndex phenotypeMatchIndex) {
         Map<PhenotypeTerm, Set<PhenotypeMatch>> speciesPhenotypeMatches = new LinkedHashMap<>();
         for (PhenotypeTerm hpoTerm : queryHpoPhenotypes) {
-            Set<PhenotypeMatch> termMatches = priorityService.getSpeciesMatchesForHpoTerm(hpoTerm, species);
+            Set<PhenotypeMatch> termMatches = phenotypeMatchIndex.getTermMatches(hpoTerm).getMatches();
             speciesPhenotypeMatches.put(hpoTerm, termMatches);
         }
         return speciesPhenotypeMatches;
@@ -321,27 +325,7 @@ private void calculateBestScoresFromHumanPhenotypes(Collection<PhenotypeMatch> b
         logger.info("bestMaxScore={} bestAvgScore={} sumBestScore={} numBestMatches={}", bestMaxScore, bestAvgScore, sumBestScore, bestMatches.size());
     }
 
-    private Map<Integer, Model> runDynamicQuery(Set<PhenotypeMatch> bestMatches, Map<PhenotypeTerm, Set<PhenotypeMatch>> allPhenotypeMatches, Organism species) {
-
-        //TODO: take speciesPhenotypeMatches as input argument for runDynamicQuery
-        //'hpId + mpId' : phenotypeMatch
-        Map<String, PhenotypeMatch> speciesPhenotypeMatches = new HashMap<>();
-
-        for (Entry<PhenotypeTerm, Set<PhenotypeMatch>> entry : allPhenotypeMatches.entrySet()) {
-            PhenotypeTerm queryTerm = entry.getKey();
-            String hpId = queryTerm.getId();
-            for (PhenotypeMatch match : entry.getValue()) {
-                PhenotypeTerm matchTerm = match.getMatchPhenotype();
-                String mpId = matchTerm.getId();
-                String matchIds = hpId + mpId;
-                speciesPhenotypeMatches.put(matchIds, match);
-            }
-        }
-
-        return calculateBestGeneModelPhenotypeMatchForSpecies(species, bestMatches, speciesPhenotypeMatches);
-    }
-
-    private Map<Integer, Model> calculateBestGeneModelPhenotypeMatchForSpecies(Organism organism, Set<PhenotypeMatch> bestMatches, Map<String, PhenotypeMatch> speciesPhenotypeMatches) {
+    private Map<Integer, Model> calculateBestGeneModelPhenotypeMatchForSpecies(Organism organism, Set<PhenotypeMatch> bestMatches, List<PhenotypeTerm> queryHpoPhenotypes, PhenotypeMatchIndex phenotypeMatchIndex) {
         // calculate best phenotype matches and scores for all genes
         //Integer = EntrezGeneId, String = GeneModelId
 
@@ -352,36 +336,50 @@ private Map<Integer, Model> calculateBestGeneModelPhenotypeMatchForSpecies(Organ
         }
         logger.info("hpIdsWithPhenotypeMatch={}", hpIdsWithPhenotypeMatch);
 
-        Set<String> matchedPhenotypeIdsForSpecies = new TreeSet<>();
-        for (PhenotypeMatch match : speciesPhenotypeMatches.values()) {
-            matchedPhenotypeIdsForSpecies.add(match.getMatchPhenotypeId());
+        //the rows of the match table for the query terms and the phenotypes of the species which any of these match 
+        Map<String, TermMatches> queryTermMatches = new HashMap<>();
+        BitSet matchedPhenotypeIdsForSpecies = new BitSet();
+        for (PhenotypeTerm hpoTerm : queryHpoPhenotypes) {
+            TermMatches termMatches = phenotypeMatchIndex.getTermMatches(hpoTerm);
+            termMatches.addMatchedTermIds(matchedPhenotypeIdsForSpecies);
+            queryTermMatches.put(hpoTerm.getId(), termMatches);
         }
-        logger.info("matchedPhenotypeIdsForspecies {}={}", organism, matchedPhenotypeIdsForSpecies.size());
+        logger.info("matchedPhenotypeIdsForspecies {}={}", organism, matchedPhenotypeIdsForSpecies.cardinality());
 
-        Map<Integer, Set<Model>> geneModelPhenotypeMatches = new HashMap<>();
-        List<Model> diseaseGeneModels = priorityService.getModelsForOrganism(organism);
-        for (Model model : diseaseGeneModels) {
+        List<TermMatches> hpIdsWithPhenotypeMatchTermMatches = new ArrayList<>();
+        for (String hpId : hpIdsWithPhenotypeMatch) {
+            hpIdsWithPhenotypeMatchTermMatches.add(queryTermMatches.get(hpId));
+        }
 
-            List<String> matchedPhenotypeIdsForModel = new ArrayList<>();
-            for (String mpid : model.getPhenotypeIds()) {
-                if (matchedPhenotypeIdsForSpecies.contains(mpid)) {
-                    matchedPhenotypeIdsForModel.add(mpid);
+        Map<Integer, Set<Model>> geneModelPhenotypeMatches = new HashMap<>();
+        for (int modelIndex = 0; modelIndex < phenotypeMatchIndex.getNumModels(); modelIndex++) {
+            int[] modelTermIds = phenotypeMatchIndex.getModelTermIds(modelIndex);
+            int[] matchedPhenotypeIdsForModel = new int[modelTermIds.length];
+            int numMatchedPhenotypeIdsForModel = 0;
+            for (int termId : modelTermIds) {
+                if (matchedPhenotypeIdsForSpecies.get(termId)) {
+                    matchedPhenotypeIdsForModel[numMatchedPhenotypeIdsForModel++] = termId;
                 }
             }
+            if (numMatchedPhenotypeIdsForModel == 0) {
+                continue;
+            }
+            //only models with a phenotype match are made as the vast majority won't have one
+            Model model = null;
 
             double maxModelMatchScore = 0d;
             double sumModelBestMatchScores = 0d;
 
-            for (String hpId : hpIdsWithPhenotypeMatch) {
+            for (TermMatches hpTermMatches : hpIdsWithPhenotypeMatchTermMatches) {
                 double bestMatchScore = 0d;
-                for (String mpId : matchedPhenotypeIdsForModel) {
-                    String matchIds = hpId + mpId;
-                    if (speciesPhenotypeMatches.containsKey(matchIds)) {
-                        PhenotypeMatch match = speciesPhenotypeMatches.get(matchIds);
+                for (int i = 0; i < numMatchedPhenotypeIdsForModel; i++) {
+                    PhenotypeMatch match = hpTermMatches.getMatch(matchedPhenotypeIdsForModel[i]);
+                    if (match != null) {
                         double matchScore = match.getScore();
                         // identify best match
                         bestMatchScore = Math.max(matchScore, bestMatchScore);
                         if (matchScore > 0) {
+                            model = (model == null) ? phenotypeMatchIndex.makeModel(modelIndex) : model;
                             addGeneModelPhenotypeMatch(geneModelPhenotypeMatches, model, match);
                         }
                     }
@@ -392,16 +390,16 @@ private Map<Integer, Model> calculateBestGeneModelPhenotypeMatchForSpecies(Organ
                 }
             }
             // Reciprocal hits                                                                                                                                                                                 
-            for (String mpId : matchedPhenotypeIdsForModel) {
+            for (int i = 0; i < numMatchedPhenotypeIdsForModel; i++) {
                 double bestMatchScore = 0f;
-                for (String hpId : hpIdsWithPhenotypeMatch) {
-                    String matchIds = hpId + mpId;
-                    if (speciesPhenotypeMatches.containsKey(matchIds)) {
-                        PhenotypeMatch match = speciesPhenotypeMatches.get(matchIds);
+                for (TermMatches hpTermMatches : hpIdsWithPhenotypeMatchTermMatches) {
+                    PhenotypeMatch match = hpTermMatches.getMatch(matchedPhenotypeIdsForModel[i]);
+                    if (match != null) {
                         double matchScore = match.getScore();
                         // identify best match
                         bestMatchScore = Math.max(matchScore, bestMatchScore);
                         if (matchScore > 0) {
+                            model = (model == null) ? phenotypeMatchIndex.makeModel(modelIndex) : model;
                             addGeneModelPhenotypeMatch(geneModelPhenotypeMatches, model, match);
                         }
                     }
@@ -417,8 +415,8 @@ private Map<Integer, Model> calculateBestGeneModelPhenotypeMatchForSpecies(Organ
              * Aug 2015 - changed calculation to take into account all HPO terms for averaging after DDD benchmarking - keeps consistent across species then
              */
             //int rowColumnCount = hpIdsWithPhenotypeMatch.size() + matchedPhenotypeIdsForModel.size();
-            int rowColumnCount = hpoIds.size() + matchedPhenotypeIdsForModel.size();
-            // calculate combined score
+            int rowColumnCount = hpoIds.size() + numMatchedPhenotypeIdsForModel;
+            // calculate combined score - a non-zero sum means there was a positive match, so the model will have been made
             if (sumModelBestMatchScores != 0) {
                 double avgBestHitRowsColumnsScore = sumModelBestMatchScores / rowColumnCount;
                 double combinedScore = 50 * (maxModelMatchScore / bestMaxScore + avgBestHitRowsColumnsScore / bestAvgScore);
@@ -500,7 +498,7 @@ private void addGeneModelPhenotypeMatch(Map<Integer, Set<Model>> geneModelPhenot
     //TODO: does this have to be a list and a map? Can't it just be a map of scores?
     private FloatMatrix makeWeightedProteinInteractionMatrixFromHighQualityPhenotypeMatchedGenes(List<Integer> highQualityPhenoMatchedGenes, Map<Integer, Double> geneScores) {
         logger.info("Making weighted-score Protein-Protein interaction sub-matrix from high quality phenotypic gene matches...");
-        int rows = randomWalkMatrix.getMatrix().getRows();
+        int rows = randomWalkMatrix.getNumRows();
         int cols = highQualityPhenoMatchedGenes.size();
         FloatMatrix highQualityPpiMatrix = FloatMatrix.zeros(rows, cols);
         int c = 0;
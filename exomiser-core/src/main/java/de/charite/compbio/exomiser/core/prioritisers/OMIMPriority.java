@@ -1,15 +1,11 @@
 package de.charite.compbio.exomiser.core.prioritisers;
 
 import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore.DiseaseAssociation;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore.GeneAssociationStoreException;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +31,7 @@ public class OMIMPriority implements Prioritiser {
 
     private static final Logger logger = LoggerFactory.getLogger(OMIMPriority.class);
 
-    private DataSource dataSource;
+    private GeneAssociationStore geneAssociationStore;
 
     /**
      * Flag for output field representing OMIM.
@@ -79,58 +75,28 @@ private OMIMPriorityResult retrieveOmimData(Gene gene) {
 
         }
         getOmimDiseasesForGene(gene, priorityResult);
-//        findOrphaNetDiseasesForGene(gene, priorityResult);
 
         return priorityResult;
     }
 
     private void getOmimDiseasesForGene(Gene gene, OMIMPriorityResult rel) {
-        String omimQuery = "SELECT disease_id, omim_gene_id, diseasename, type, inheritance "
-                + "FROM disease "
-                + "WHERE gene_id = ?";
-
-        try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement(omimQuery);
-            preparedStatement.setInt(1, gene.getEntrezGeneID());
-            ResultSet rs = preparedStatement.executeQuery();
-            while (rs.next()) {
-                // The way the db was constructed, there is just one line for each such query.
-                //  phenmim,genemim,diseasename,type"+
-                String diseaseId = rs.getString(1);
-                String diseaseName = rs.getString(3);
-                if (diseaseId.startsWith("OMIM")) {
-                    String omimGeneId = rs.getString(2);
-                    char typ = rs.getString(4).charAt(0);
-                    char inheritance = rs.getString(5).charAt(0);
-                    float factor = getInheritanceFactor(gene, inheritance);
-                    rel.addRow(diseaseId, omimGeneId, diseaseName, typ, inheritance, factor);            
-                } else {
-                    rel.addOrphanetRow(diseaseId, diseaseName);
-
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error executing OMIM query", e);
+        List<DiseaseAssociation> diseaseAssociations;
+        try {
+            diseaseAssociations = geneAssociationStore.getDiseaseAssociations(gene.getEntrezGeneID());
+        } catch (GeneAssociationStoreException e) {
+            logger.error("Error retrieving OMIM diseases for gene {}", gene.getGeneSymbol(), e);
+            return;
         }
-    }
-
-    private void findOrphaNetDiseasesForGene(Gene gene, OMIMPriorityResult rel) {
-        // Now try to get the Orphanet data
-        String orphanetQuery = "SELECT disease_id, diseasename "
-                + "FROM disease "
-                + "WHERE disease_id LIKE '%ORPHA%' AND gene_id = ?";
-        
-        try (Connection connection = dataSource.getConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement(orphanetQuery);
-            preparedStatement.setInt(1, gene.getEntrezGeneID());
-            ResultSet rs = preparedStatement.executeQuery();
-            while (rs.next()) {
-                String orphanum = rs.getString(1);
-                String disease = rs.getString(2);
-                rel.addOrphanetRow(orphanum, disease);
+        for (DiseaseAssociation diseaseAssociation : diseaseAssociations) {
+            String diseaseId = diseaseAssociation.getDiseaseId();
+            String diseaseName = diseaseAssociation.getDiseaseName();
+            if (diseaseId.startsWith("OMIM")) {
+                char inheritance = diseaseAssociation.getInheritance();
+                float factor = getInheritanceFactor(gene, inheritance);
+                rel.addRow(diseaseId, diseaseAssociation.getOmimGeneId(), diseaseName, diseaseAssociation.getType(), inheritance, factor);
+            } else {
+                rel.addOrphanetRow(diseaseId, diseaseName);
             }
-        } catch (SQLException e) {
-            logger.error("Exception caused by Orphanet query!", e);
         }
     }
 
@@ -178,8 +144,8 @@ private float getInheritanceFactor(Gene gene, char inheritance) {
         }
     }
 
-    public void setDataSource(DataSource dataSource) {
-        this.dataSource = dataSource;
+    public void setGeneAssociationStore(GeneAssociationStore geneAssociationStore) {
+        this.geneAssociationStore = geneAssociationStore;
     }
 
     @Override
@@ -20,31 +20,18 @@
 package de.charite.compbio.exomiser.core.prioritisers;
 
 import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.prioritisers.util.PhenixContext;
 import de.charite.compbio.exomiser.core.prioritisers.util.ScoreDistribution;
-import de.charite.compbio.exomiser.core.prioritisers.util.ScoreDistributionContainer;
-import hpo.HPOutils;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import ontologizer.go.OBOParser;
-import ontologizer.go.OBOParserException;
-import ontologizer.go.Ontology;
 import ontologizer.go.Term;
-import ontologizer.go.TermContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import similarity.SimilarityUtilities;
-import similarity.concepts.ResnikSimilarity;
 import similarity.objects.InformationContentObjectSimilarity;
-import sonumina.math.graph.SlimDirectedGraphView;
 
 /**
  * Filter variants according to the phenotypic similarity of the specified
@@ -63,19 +50,14 @@ public class PhenixPriority implements Prioritiser {
     private static final Logger logger = LoggerFactory.getLogger(PhenixPriority.class);
 
     /**
-     * The HPO as Ontologizer-Ontology object
+     * The shared, pre-parsed HPO, annotations and score distributions.
      */
-    private Ontology hpo;
-
-    /**
-     * The HPO as SlimDirectedGraph (fast access to ancestors etc.)
-     */
-    private SlimDirectedGraphView<Term> hpoSlim;
+    private PhenixContext phenixContext;
 
     /**
      * A list of error-messages
      */
-    private List<String> errorMessages = null;
+    private List<String> errorMessages = new ArrayList<>();
 
 
     /**
@@ -90,12 +72,6 @@ public class PhenixPriority implements Prioritiser {
 
     private float DEFAULT_SCORE = 0f;
 
-    private Map<String, List<Term>> geneId2annotations;
-
-    private Map<Term, Double> term2ic;
-
-    private final ScoreDistributionContainer scoredistributionContainer = new ScoreDistributionContainer();
-
     private int numberQueryTerms;
     /**
      * A counter of the number of genes that could not be found in the database
@@ -109,11 +85,6 @@ public class PhenixPriority implements Prioritiser {
     private int analysedGenes;
 
     private boolean symmetric;
-    /**
-     * Path to the directory that has the files needed to calculate the score
-     * distribution.
-     */
-    private String scoredistributionFolder;
     /**
      * Keeps track of the maximum semantic similarity score to date
      */
@@ -132,6 +103,7 @@ public class PhenixPriority implements Prioritiser {
      * {@code http://compbio.charite.de/hudson/job/hpo/}) and
      * ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt-file (obtained from
      * {@code http://compbio.charite.de/hudson/job/hpo.annotations.monthly/lastSuccessfulBuild/artifact/annotation/}).
+     * These are only parsed once per JVM - see {@link PhenixContext}.
      * @param hpoQueryTermIds List of HPO terms
      * @param symmetric Flag to indicate if the semantic similarity score should
      * be calculated using the symmetrix formula.
@@ -140,22 +112,28 @@ public class PhenixPriority implements Prioritiser {
      * Hudson page</a>
      */
     public PhenixPriority(String scoreDistributionFolder, List<String> hpoQueryTermIds, boolean symmetric) {
+        this(PhenixContext.forDataDirectory(Paths.get(scoreDistributionFolder)), hpoQueryTermIds, symmetric);
+    }
+
+    /**
+     * Create a new instance of the PhenixPriority using the shared
+     * PhenixContext.
+     *
+     * @param phenixContext
+     * @param hpoQueryTermIds List of HPO terms
+     * @param symmetric Flag to indicate if the semantic similarity score should
+     * be calculated using the symmetrix formula.
+     */
+    public PhenixPriority(PhenixContext phenixContext, List<String> hpoQueryTermIds, boolean symmetric) {
 
         if (hpoQueryTermIds.isEmpty()) {
             throw new PhenixException("Please supply some HPO terms. PhenIX is unable to prioritise genes without these.");
         }
-
-        if (!scoreDistributionFolder.endsWith(File.separatorChar + "")) {
-            scoreDistributionFolder += File.separatorChar;
-        }
-        this.scoredistributionFolder = scoreDistributionFolder;
-        String hpoOboFile = String.format("%s%s", scoreDistributionFolder, "hp.obo");
-        String hpoAnnotationFile = String.format("%s%s", scoreDistributionFolder, "ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt");
-        parseData(hpoOboFile, hpoAnnotationFile);
+        this.phenixContext = phenixContext;
 
         Set<Term> hpoQueryTermsHS = new HashSet<>();        
         for (String termIdString : hpoQueryTermIds) {
-            Term t = hpo.getTermIncludingAlternatives(termIdString);
+            Term t = phenixContext.getTerm(termIdString);
             if (t != null) {
                 hpoQueryTermsHS.add(t);
             } else {
@@ -167,12 +145,8 @@ public PhenixPriority(String scoreDistributionFolder, List<String> hpoQueryTermI
         this.symmetric = symmetric;
 
         numberQueryTerms = hpoQueryTerms.size();
-        if (!scoredistributionContainer.didParseDistributions(symmetric, numberQueryTerms)) {
-            scoredistributionContainer.parseDistributions(symmetric, numberQueryTerms, scoreDistributionFolder);
-        }
 
-        ResnikSimilarity resnik = new ResnikSimilarity(hpo, (HashMap<Term, Double>) term2ic);
-        similarityMeasure = new InformationContentObjectSimilarity(resnik, symmetric, false);
+        similarityMeasure = phenixContext.makeSimilarityMeasure(symmetric);
     }
 
     /**
@@ -183,126 +157,6 @@ public PhenixPriority(String scoreDistributionFolder, List<String> hpoQueryTermI
     protected PhenixPriority (List<String> hpoIds, boolean symmetric) {
         this.symmetric = symmetric;
     }
-    
-    private void parseData(String hpoOboFile, String hpoAnnotationFile) {
-        //The phenomizerData directory must contain the files "hp.obo", "ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt" 
-        //as well as the score distribution files "*.out", all of which can be downloaded from the HPO hudson server.
-        try {
-            parseOntology(hpoOboFile);
-        } catch (OBOParserException e) {
-            logger.error("Error parsing ontology file {}", hpoOboFile, e);
-        } catch (IOException ioe) {
-            logger.error("I/O Error with ontology file{}", hpoOboFile, ioe);
-        }
-        try {
-            parseAnnotations(hpoAnnotationFile);
-        } catch (IOException e) {
-            logger.error("Error parsing annotation file {}", hpoAnnotationFile, e);
-        }
-    }
-
-    /**
-     * Parse the HPO phenotype annotation file (e.g., phenotype_annotation.tab).
-     * The point of this is to get the links between diseases and HPO phenotype
-     * terms. The hpoAnnotationFile is The
-     * ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt-file
-     *
-     * @param hpoAnnotationFile path to the file
-     */
-    private void parseAnnotations(String hpoAnnotationFile) throws IOException {
-        geneId2annotations = new HashMap<>();
-
-        BufferedReader in = new BufferedReader(new FileReader(hpoAnnotationFile));
-        String line = null;
-        while ((line = in.readLine()) != null) {
-            if (line.startsWith("#")) {
-                continue;
-            }
-
-            String[] split = line.split("\t");
-            String entrez = split[0];
-            Term term = null;
-            try {
-                /* split[4] is the HPO term field of an annotation line. */
-                term = hpo.getTermIncludingAlternatives(split[3]);
-            } catch (IllegalArgumentException e) {
-                logger.error("Unable to get term for line \n{}\n", line);
-                logger.error("The offending field was '{}'", split[3]);
-                for (int k = 0; k < split.length; ++k) {
-                    logger.error("{} '{}'", k, split[k]);
-                }
-                term = null;
-            }
-            if (term == null) {
-                continue;
-            }
-
-            List<Term> annotations;
-
-            if (geneId2annotations.containsKey(entrez)) {
-                annotations = geneId2annotations.get(entrez);
-            } else {
-                annotations = new ArrayList<>();
-            }
-            annotations.add(term);
-            geneId2annotations.put(entrez, annotations);
-        }
-        in.close();
-
-        // cleanup annotations
-        for (String entrez : geneId2annotations.keySet()) {
-            List<Term> terms = geneId2annotations.get(entrez);
-            Set<Term> uniqueTerms = new HashSet<>(terms);
-            List<Term> uniqueTermsAL = new ArrayList<>();
-            uniqueTermsAL.addAll(uniqueTerms);
-            List<Term> termsMostSpecific = HPOutils.cleanUpAssociation((ArrayList<Term>)uniqueTermsAL, hpoSlim, hpo.getRootTerm());
-            geneId2annotations.put(entrez, termsMostSpecific);
-        }
-
-        // prepare IC computation
-        final Map<Term, Set<String>> annotationTerm2geneIds = new HashMap<>();
-        for (String oId : geneId2annotations.keySet()) {
-            List<Term> annotations = geneId2annotations.get(oId);
-            for (Term annot : annotations) {
-                List<Term> termAndAncestors = hpoSlim.getAncestors(annot);
-                for (Term term : termAndAncestors) {
-                    Set<String> objectsAnnotatedByTerm; 
-                    // here we store which objects have been annotated with this term
-                    if (annotationTerm2geneIds.containsKey(term)) {
-                        objectsAnnotatedByTerm = annotationTerm2geneIds.get(term);
-                    } else {
-                        objectsAnnotatedByTerm = new HashSet<>();
-                    }
-                    // add the current object
-                    objectsAnnotatedByTerm.add(oId); 
-                    annotationTerm2geneIds.put(term, objectsAnnotatedByTerm);
-                }
-            }
-        }
-        term2ic = caclulateTermIC(hpo, annotationTerm2geneIds);
-
-    }
-
-    /**
-     * Parses the human-phenotype-ontology.obo file (or equivalently, the hp.obo
-     * file from our Hudosn server).
-     *
-     * @param hpoOboFile path to the hp.obo file.
-     */
-    private Ontology parseOntology(String hpoOboFile) throws IOException, OBOParserException {
-        OBOParser oboParser = new OBOParser(hpoOboFile, OBOParser.PARSE_XREFS);
-        String parseInfo = oboParser.doParse();
-        logger.info(parseInfo);
-
-        TermContainer termContainer = new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
-        Ontology hpo = new Ontology(termContainer);
-        hpo.setRelevantSubontology(termContainer.get(HPOutils.organAbnormalityRootId).getName());
-        SlimDirectedGraphView<Term> hpoSlim = hpo.getSlimGraphView();
-
-        this.hpo = hpo;
-        this.hpoSlim = hpoSlim;
-        return hpo;
-    }
 
     /**
      * Flag to output results of filtering against Uberpheno data.
@@ -346,7 +200,11 @@ private void normalizePhenomizerScores(List<Gene> genes) {
         if (maxSemSim < 1) {
             return;
         }
-        PhenixPriorityResult.setNormalizationFactor(1d / maxSemSim);
+        double normalizationFactor = 1d / maxSemSim;
+        for (Gene gene : genes) {
+            PhenixPriorityResult result = (PhenixPriorityResult) gene.getPriorityResult(PriorityType.PHENIX_PRIORITY);
+            result.setNormalizationFactor(normalizationFactor);
+        }
         /*for (Gene g : genes) {
          float score = g.getRelevagetScorepe.PHENIX_PRIORITY);
          score /= this.maxSemSim;
@@ -363,14 +221,13 @@ private PhenixPriorityResult scoreVariantHPO(Gene gene) {
         int entrezGeneId = gene.getEntrezGeneID();
         String entrezGeneIdString = entrezGeneId + "";
 
-        if (!geneId2annotations.containsKey(entrezGeneIdString)) {
+        List<Term> annotationsOfGene = phenixContext.getAnnotationsForGene(entrezGeneIdString);
+        if (annotationsOfGene == null) {
             //System.err.println("INVALID GENE GIVEN (will set to default-score): Entrez ID: " + g.getEntrezGeneID() + " / " + g.getGeneSymbol());
             this.offTargetGenes++;
             return new PhenixPriorityResult(DEFAULT_SCORE);
         }
 
-        List<Term> annotationsOfGene = geneId2annotations.get(entrezGeneIdString);
-
         double similarityScore = similarityMeasure.computeObjectSimilarity( (ArrayList<Term>) hpoQueryTerms, (ArrayList<Term>) annotationsOfGene);
         if (similarityScore > maxSemSim) {
             maxSemSim = similarityScore;
@@ -379,8 +236,7 @@ private PhenixPriorityResult scoreVariantHPO(Gene gene) {
             errorMessages.add("Error: score was NAN for gene:" + gene + " : " + hpoQueryTerms + " <-> " + annotationsOfGene);
         }
 
-        ScoreDistribution scoreDist = scoredistributionContainer.getDistribution(entrezGeneIdString, numberQueryTerms, symmetric,
-                scoredistributionFolder);
+        ScoreDistribution scoreDist = phenixContext.getScoreDistribution(entrezGeneIdString, numberQueryTerms, symmetric);
 
 	// get the pvalue
         double rawPvalue;
@@ -432,31 +288,6 @@ private PhenixPriorityResult scoreVariantHPO(Gene gene) {
         // return new PhenixPriorityResult(avg);
     }
 
-    private Map<Term, Double> caclulateTermIC(Ontology ontology, Map<Term, Set<String>> term2objectIdsAnnotated) {
-
-        Term root = ontology.getRootTerm();
-        Map<Term, Integer> term2frequency = new HashMap<>();
-        for (Term t : term2objectIdsAnnotated.keySet()) {
-            term2frequency.put(t, term2objectIdsAnnotated.get(t).size());
-        }
-
-        int maxFreq = term2frequency.get(root);
-        Map<Term, Double> term2informationContent = SimilarityUtilities.caculateInformationContent(maxFreq, (HashMap<Term, Integer>) term2frequency);
-
-        int frequencyZeroCounter = 0;
-        double ICzeroCountTerms = -1 * (Math.log(1 / (double) maxFreq));
-
-        for (Term t : ontology) {
-            if (!term2frequency.containsKey(t)) {
-                ++frequencyZeroCounter;
-                term2informationContent.put(t, ICzeroCountTerms);
-            }
-        }
-
-        logger.info("WARNING: Frequency of {} terms was zero!! Set IC of these to : {}", frequencyZeroCounter, ICzeroCountTerms);
-        return term2informationContent;
-    }
-
     private static class PhenixException extends RuntimeException {
 
         private PhenixException(String message) {
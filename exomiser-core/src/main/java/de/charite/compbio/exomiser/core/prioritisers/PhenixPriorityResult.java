@@ -22,10 +22,14 @@ public class PhenixPriorityResult implements PriorityResult {
      */
     private final double negativeLogPval;
 
-    private static double NORMALIZATION_FACTOR = 1f;
+    /**
+     * Set per result rather than statically so that concurrently running
+     * analyses don't overwrite each other's factor.
+     */
+    private double normalizationFactor = 1d;
 
-    public static void setNormalizationFactor(double factor) {
-        NORMALIZATION_FACTOR = factor;
+    public void setNormalizationFactor(double factor) {
+        this.normalizationFactor = factor;
     }
 
     /**
@@ -51,7 +55,7 @@ public PriorityType getPriorityType() {
      */
     @Override
     public float getScore() {
-        return (float) (hpoSemSimScore * NORMALIZATION_FACTOR);
+        return (float) (hpoSemSimScore * normalizationFactor);
     }
 
     /**
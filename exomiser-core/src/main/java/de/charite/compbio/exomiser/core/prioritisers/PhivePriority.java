@@ -7,6 +7,9 @@
 import java.util.ArrayList;
 import java.util.HashMap;
 import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore.GeneAssociationStoreException;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore.MouseModel;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -19,8 +22,8 @@
 /**
  * Filter variants according to the phenotypic similarity of the specified
  * clinical phenotypes to mouse models disrupting the same gene. We use MGI
- * annotated phenotype data and the Phenodigm/OWLSim algorithm. The filter is
- * implemented with an SQL query.
+ * annotated phenotype data and the Phenodigm/OWLSim algorithm. The mouse models
+ * of each gene are taken from the in-memory {@link GeneAssociationStore}.
  * <P>
  * This class prioritizes the genes that have survived the initial VCF filter
  * (i.e., it is use on genes for which we have found rare, potentially
@@ -38,7 +41,7 @@ public class PhivePriority implements Prioritiser {
     private static final Logger logger = LoggerFactory.getLogger(PhivePriority.class);
 
     private static final PriorityType PRIORITY_TYPE = PriorityType.PHIVE_PRIORITY;
-    private static final float NO_PHENOTYPE_HIT_SCORE = 0.1f;
+    static final float NO_PHENOTYPE_HIT_SCORE = 0.1f;
     static final float NO_MOUSE_MODEL_SCORE = 0.6f;
 
     private final List<String> hpoIds;
@@ -47,6 +50,7 @@ public class PhivePriority implements Prioritiser {
     float bestAvgScore = 0f;
 
     private DataSource dataSource;
+    private GeneAssociationStore geneAssociationStore;
 
     /**
      * Keeps track of the number of variants for which data was available in
@@ -95,9 +99,9 @@ public void prioritizeGenes(List<Gene> genes) {
 
         String mappingQuery = "SELECT mp_id, score FROM hp_mp_mappings M WHERE M.hp_id = ?";
 
-        for (String hpId : hpoIds) {
-            try (Connection connection = dataSource.getConnection()) {
-                PreparedStatement findMappingStatement = connection.prepareStatement(mappingQuery);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement findMappingStatement = connection.prepareStatement(mappingQuery)) {
+            for (String hpId : hpoIds) {
                 findMappingStatement.setString(1, hpId);
                 ResultSet rs = findMappingStatement.executeQuery();
                 int found = 0;
@@ -118,12 +122,13 @@ public void prioritizeGenes(List<Gene> genes) {
                         bestMappedTermMpId.put(hpId, mpId);
                     }
                 }
+                rs.close();
                 if (found == 1) {
                     hpIdsWithPhenotypeMatch.add(hpId);
                 }
-            } catch (SQLException e) {
-                logger.error("Problem setting up SQL query: {}", mappingQuery, e);
             }
+        } catch (SQLException e) {
+            logger.error("Problem setting up SQL query: {}", mappingQuery, e);
         }
         calculateBestPhenotypeMatchScores(hpIdsWithPhenotypeMatch, bestMappedTermScore, bestMappedTermMpId, mappedTerms);
 
@@ -171,126 +176,95 @@ private void calculateBestPhenotypeMatchScores(Set<String> hpIdsWithPhenotypeMat
     }
 
     private PhivePriorityResult prioritiseGene(Gene gene, Set<String> knownMps, Set<String> hpIdsWithPhenotypeMatch, Map<String, Float> mappedTerms) {
-        float mgiScore = NO_PHENOTYPE_HIT_SCORE;
         String mgiGeneId = null;
         String mgiGeneSymbol = null;
-        String genesymbol = gene.getGeneSymbol();
-        
-        /* Note that there are two queries. The testGeneStatement basically tests
-         * whether the gene in question is in the database; it must have both an
-         * orthologue in the table {@code human2mouse_orthologs}, and there must be
-         * some data on it in the table {@code  mgi_mp}.
-         * 
-         * Then, we select the MGI gene id (e.g., MGI:1234567), the corresponding
-         * mouse gene symbol and the phenodigm score. There is currently one score
-         * for each pair of OMIM diseases and MGI genes.
-         */
-        //TODO: test this using one statement only:
-        // SELECT mouse_model_id, mp_id, M.mgi_gene_id, M.mgi_gene_symbol
-        // FROM mgi_mp M, human2mouse_orthologs H
-        // WHERE M.mgi_gene_id = H.mgi_gene_id AND human_gene_symbol = ?
-        try (Connection connection = dataSource.getConnection()) {
-            String testGeneQuery = "SELECT human_gene_symbol "
-                    + "FROM mgi_mp M, human2mouse_orthologs H "
-                    + "WHERE M.mgi_gene_id = H.mgi_gene_id "
-                    + "AND human_gene_symbol = ? LIMIT 1";
-            PreparedStatement testGeneStatement = connection.prepareStatement(testGeneQuery);
-            testGeneStatement.setString(1, genesymbol);
-            ResultSet rs2 = testGeneStatement.executeQuery();
-            if (rs2.next()) {
-                // calculate score for this gene
-                String mouseAnnotationQuery = "SELECT mouse_model_id, mp_id, M.mgi_gene_id, M.mgi_gene_symbol "
-                        + "FROM mgi_mp M, human2mouse_orthologs H "
-                        + "WHERE M.mgi_gene_id = H.mgi_gene_id "
-                        + "AND human_gene_symbol = ?";
-                PreparedStatement findMouseAnnotationStatement = connection.prepareStatement(mouseAnnotationQuery);
-                findMouseAnnotationStatement.setString(1, genesymbol);
-                ResultSet rs = findMouseAnnotationStatement.executeQuery();
-                float bestCombinedScore = 0f;// keep track of best score for gene
-                while (rs.next()) {
-                    int mouseModelId = rs.getInt(1);
-                    //System.out.println("Calculating score for mouse model id "+mouse_model_id+" gene "+genesymbol);
-                    String mpIds = rs.getString(2);
-                    mgiGeneId = rs.getString(3);
-                    mgiGeneSymbol = rs.getString(4);
-                    String[] mpInitial = mpIds.split(",");
-                    List<String> mpList = new ArrayList<>();
-                    for (String mpId : mpInitial) {
-                        if (knownMps.contains(mpId)) {
-                            mpList.add(mpId);
-                        }
-                    }
 
-                    int rowColumnCount = hpIdsWithPhenotypeMatch.size() + mpList.size();
-                    float maxScore = 0f;
-                    float sumBestHitRowsColumnsScore = 0f;
+        // The gene must have an orthologue in the table {@code human2mouse_orthologs}, and there must be some data on
+        // it in the table {@code mgi_mp}. There is currently one score for each pair of OMIM diseases and MGI genes.
+        List<MouseModel> mouseModels;
+        try {
+            mouseModels = geneAssociationStore.getMouseModels(gene.getGeneSymbol());
+        } catch (GeneAssociationStoreException e) {
+            logger.error("Error retrieving mouse models for gene {}: ", gene.getGeneSymbol(), e);
+            return new PhivePriorityResult(mgiGeneId, mgiGeneSymbol, NO_PHENOTYPE_HIT_SCORE);
+        }
+        if (mouseModels.isEmpty()) {
+            // no mouse model exists in MGI for this gene
+            return new PhivePriorityResult(mgiGeneId, mgiGeneSymbol, NO_MOUSE_MODEL_SCORE);
+        }
+        // calculate score for this gene
+        float bestCombinedScore = 0f;// keep track of best score for gene
+        for (MouseModel mouseModel : mouseModels) {
+            mgiGeneId = mouseModel.getMgiGeneId();
+            mgiGeneSymbol = mouseModel.getMgiGeneSymbol();
+            List<String> mpList = new ArrayList<>();
+            for (String mpId : mouseModel.getPhenotypeIds()) {
+                if (knownMps.contains(mpId)) {
+                    mpList.add(mpId);
+                }
+            }
 
-                    for (String hpId : hpIdsWithPhenotypeMatch) {
-                        float bestScore = 0f;
-                        for (String mpId : mpList) {
-                            String hashKey = hpId + mpId;
-                            if (mappedTerms.containsKey(hashKey)) {
-                                float score = mappedTerms.get(hashKey);
-                                // identify best match
-                                if (score > bestScore) {
-                                    bestScore = score;
-                                }
-                            }
-                        }
-                        if (bestScore != 0) {
-                            sumBestHitRowsColumnsScore += bestScore;
-                            if (bestScore > maxScore) {
-                                maxScore = bestScore;
-                            }
+            int rowColumnCount = hpIdsWithPhenotypeMatch.size() + mpList.size();
+            float maxScore = 0f;
+            float sumBestHitRowsColumnsScore = 0f;
+
+            for (String hpId : hpIdsWithPhenotypeMatch) {
+                float bestScore = 0f;
+                for (String mpId : mpList) {
+                    String hashKey = hpId + mpId;
+                    if (mappedTerms.containsKey(hashKey)) {
+                        float score = mappedTerms.get(hashKey);
+                        // identify best match
+                        if (score > bestScore) {
+                            bestScore = score;
                         }
                     }
-                    // Reciprocal hits
-                    for (String mpId : mpList) {
-                        float bestScore = 0f;
-                        for (String hpId : hpIdsWithPhenotypeMatch) {
-                            String hashKey = hpId + mpId;
-                            if (mappedTerms.containsKey(hashKey)) {
-                                float score = mappedTerms.get(hashKey);
-                                // identify best match
-                                if (score > bestScore) {
-                                    bestScore = score;
-                                }
-                            }
-                        }
-                        if (bestScore != 0) {
-                            sumBestHitRowsColumnsScore += bestScore;
-                            if (bestScore > maxScore) {
-                                maxScore = bestScore;
-                            }
-                        }
+                }
+                if (bestScore != 0) {
+                    sumBestHitRowsColumnsScore += bestScore;
+                    if (bestScore > maxScore) {
+                        maxScore = bestScore;
                     }
-                    // calculate combined score
-                    if (sumBestHitRowsColumnsScore != 0) {
-                        float avgBestHitRowsColumnsScore = sumBestHitRowsColumnsScore / rowColumnCount;
-                        float combinedScore = 50 * (maxScore / bestMaxScore
-                                + avgBestHitRowsColumnsScore / bestAvgScore);
-                        if (combinedScore > 100) {
-                            combinedScore = 100;
-                        }
-                        // is this the best score so far for this gene?
-                        if (combinedScore > bestCombinedScore) {
-                            bestCombinedScore = combinedScore;
+                }
+            }
+            // Reciprocal hits
+            for (String mpId : mpList) {
+                float bestScore = 0f;
+                for (String hpId : hpIdsWithPhenotypeMatch) {
+                    String hashKey = hpId + mpId;
+                    if (mappedTerms.containsKey(hashKey)) {
+                        float score = mappedTerms.get(hashKey);
+                        // identify best match
+                        if (score > bestScore) {
+                            bestScore = score;
                         }
                     }
-                    // do next mouse model
                 }
-                rs.close();
-                mgiScore = bestCombinedScore / 100;
-                if (mgiScore >= 0) {
-                    foundDataForMgiPhenodigm++;
+                if (bestScore != 0) {
+                    sumBestHitRowsColumnsScore += bestScore;
+                    if (bestScore > maxScore) {
+                        maxScore = bestScore;
+                    }
                 }
-            } else {
-                // no mouse model exists in MGI for this gene
-                mgiScore = NO_MOUSE_MODEL_SCORE;
             }
-            rs2.close();
-        } catch (SQLException e) {
-            logger.error("Error executing Phenodigm query: ", e);
+            // calculate combined score
+            if (sumBestHitRowsColumnsScore != 0) {
+                float avgBestHitRowsColumnsScore = sumBestHitRowsColumnsScore / rowColumnCount;
+                float combinedScore = 50 * (maxScore / bestMaxScore
+                        + avgBestHitRowsColumnsScore / bestAvgScore);
+                if (combinedScore > 100) {
+                    combinedScore = 100;
+                }
+                // is this the best score so far for this gene?
+                if (combinedScore > bestCombinedScore) {
+                    bestCombinedScore = combinedScore;
+                }
+            }
+            // do next mouse model
+        }
+        float mgiScore = bestCombinedScore / 100;
+        if (mgiScore >= 0) {
+            foundDataForMgiPhenodigm++;
         }
         return new PhivePriorityResult(mgiGeneId, mgiGeneSymbol, mgiScore);
     }
@@ -299,6 +273,10 @@ public void setDataSource(DataSource dataSource) {
         this.dataSource = dataSource;
     }
 
+    public void setGeneAssociationStore(GeneAssociationStore geneAssociationStore) {
+        this.geneAssociationStore = geneAssociationStore;
+    }
+
     @Override
     public int hashCode() {
         int hash = 5;
@@ -6,6 +6,8 @@
 package de.charite.compbio.exomiser.core.prioritisers;
 
 import de.charite.compbio.exomiser.core.prioritisers.util.DataMatrix;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore;
+import de.charite.compbio.exomiser.core.prioritisers.util.PhenixContext;
 import de.charite.compbio.exomiser.core.prioritisers.util.PriorityService;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -40,6 +42,8 @@ public class PriorityFactoryImpl implements PriorityFactory {
     @Autowired
     private Path phenixDataDirectory;
 
+    private GeneAssociationStore geneAssociationStore;
+
     /**
      * Returns a Prioritiser of the given type, ready to run according to the
      * settings provided. Will return a non-functional prioritiser in cases
@@ -94,14 +98,15 @@ private List<String> getHpoIdsForDiseaseId(String diseaseId) {
     @Override
     public OMIMPriority makeOmimPrioritiser() {
         OMIMPriority priority = new OMIMPriority();
-        priority.setDataSource(dataSource);
+        priority.setGeneAssociationStore(getGeneAssociationStore());
         return priority;
     }
 
     @Override
     public PhenixPriority makePhenixPrioritiser(List<String> hpoIds) {
         boolean symmetric = false;
-        PhenixPriority priority = new PhenixPriority(phenixDataDirectory.toString(), hpoIds, symmetric);
+        PhenixContext phenixContext = PhenixContext.forDataDirectory(phenixDataDirectory);
+        PhenixPriority priority = new PhenixPriority(phenixContext, hpoIds, symmetric);
         return priority;
     }
 
@@ -109,9 +114,21 @@ public PhenixPriority makePhenixPrioritiser(List<String> hpoIds) {
     public PhivePriority makePhivePrioritiser(List<String> hpoIds) {
         PhivePriority priority = new PhivePriority(hpoIds);
         priority.setDataSource(dataSource);
+        priority.setGeneAssociationStore(getGeneAssociationStore());
         return priority;
     }
 
+    /**
+     * The store is shared by every prioritiser made by this factory so that the
+     * gene associations are only read from the database once.
+     */
+    private synchronized GeneAssociationStore getGeneAssociationStore() {
+        if (geneAssociationStore == null) {
+            geneAssociationStore = new GeneAssociationStore(dataSource);
+        }
+        return geneAssociationStore;
+    }
+
     @Override
     public ExomeWalkerPriority makeExomeWalkerPrioritiser(List<Integer> entrezSeedGenes) {
         ExomeWalkerPriority priority = new ExomeWalkerPriority(randomWalkMatrix, entrezSeedGenes);
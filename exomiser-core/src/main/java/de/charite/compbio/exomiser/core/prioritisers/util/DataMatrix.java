@@ -8,6 +8,12 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -20,6 +26,13 @@
 /**
  * Contains the random walk relationships and the entrez-id to index relations.
  *
+ * The matrix can either be held on the heap as a {@link FloatMatrix} or be
+ * memory-mapped from the binary column-major format written by
+ * {@link #writeBinaryMatrix}. The mapped version starts up in milliseconds,
+ * doesn't use any heap for the matrix itself and the pages are shared by every
+ * JVM on the host reading the same file. Use the {@link DataMatrixConverter}
+ * to create the binary file from the original gzipped text files.
+ *
  * @author sebastiankohler
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
@@ -33,12 +46,101 @@ public class DataMatrix {
     private String name = "";
     private static final Pattern SPLIT_PATTERN = Pattern.compile("\t");
 
+    /**
+     * Binary file layout (little-endian): MAGIC, VERSION, number of rows (the
+     * matrix is square), the entrez gene id for each row followed by the float
+     * values column by column.
+     */
+    static final int BINARY_MAGIC = 0x52574D58;
+    static final int BINARY_VERSION = 1;
+    private static final ByteOrder BINARY_BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int BINARY_HEADER_INTS = 3;
+
+    //only set for a memory-mapped matrix. Each segment holds whole columns so that the matrix can be bigger than 2GB.
+    private FloatBuffer[] mappedColumnSegments;
+    private int columnsPerSegment;
+    private int numRows;
+
     public DataMatrix(FloatMatrix matrix, Map<Integer, Integer> entrezIdToRowIndex) {
         this.matrix = matrix;
         this.entrezIdToRowIndex = entrezIdToRowIndex;
         for (Entry<Integer, Integer> entrezIdToRow : entrezIdToRowIndex.entrySet()) {
             rowToEntrezIdIndex.put(entrezIdToRow.getValue(), entrezIdToRow.getKey());
         }
+        this.numRows = matrix.rows;
+    }
+
+    /**
+     * Memory-maps a matrix written by {@link #writeBinaryMatrix}. Only the
+     * gene index is read onto the heap.
+     *
+     * @param binaryMatrixFile
+     */
+    public DataMatrix(Path binaryMatrixFile) {
+        try (FileChannel channel = FileChannel.open(binaryMatrixFile, StandardOpenOption.READ)) {
+            int rows = readBinaryHeader(channel, binaryMatrixFile);
+            readBinaryIndex(channel, rows);
+            mapColumnSegments(channel, rows);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read binary DataMatrix file " + binaryMatrixFile, e);
+        }
+        name = binaryMatrixFile.toString();
+        logger.info("Memory-mapped {}x{} DataMatrix from {}", numRows, numRows, binaryMatrixFile);
+    }
+
+    private int readBinaryHeader(FileChannel channel, Path binaryMatrixFile) throws IOException {
+        ByteBuffer header = readFully(channel, 0, BINARY_HEADER_INTS * Integer.BYTES);
+        int magic = header.getInt();
+        int version = header.getInt();
+        if (magic != BINARY_MAGIC || version != BINARY_VERSION) {
+            throw new RuntimeException(binaryMatrixFile + " is not a version " + BINARY_VERSION + " binary DataMatrix file");
+        }
+        int rows = header.getInt();
+        long expectedSize = dataOffset(rows) + (long) rows * rows * Float.BYTES;
+        if (channel.size() != expectedSize) {
+            throw new RuntimeException(binaryMatrixFile + " is truncated - expected " + expectedSize + " bytes but was " + channel.size());
+        }
+        return rows;
+    }
+
+    private void readBinaryIndex(FileChannel channel, int rows) throws IOException {
+        ByteBuffer index = readFully(channel, BINARY_HEADER_INTS * Integer.BYTES, rows * Integer.BYTES);
+        for (int row = 0; row < rows; row++) {
+            int entrezId = index.getInt();
+            rowToEntrezIdIndex.put(row, entrezId);
+            entrezIdToRowIndex.put(entrezId, row);
+        }
+    }
+
+    private ByteBuffer readFully(FileChannel channel, long position, int numBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(numBytes).order(BINARY_BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void mapColumnSegments(FileChannel channel, int rows) throws IOException {
+        long bytesPerColumn = (long) rows * Float.BYTES;
+        columnsPerSegment = (int) Math.max(1, Integer.MAX_VALUE / Math.max(1, bytesPerColumn));
+        int numSegments = rows == 0 ? 0 : (rows + columnsPerSegment - 1) / columnsPerSegment;
+        mappedColumnSegments = new FloatBuffer[numSegments];
+        for (int segment = 0; segment < numSegments; segment++) {
+            int firstColumn = segment * columnsPerSegment;
+            int numColumns = Math.min(columnsPerSegment, rows - firstColumn);
+            long position = dataOffset(rows) + firstColumn * bytesPerColumn;
+            mappedColumnSegments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, position, numColumns * bytesPerColumn)
+                    .order(BINARY_BYTE_ORDER)
+                    .asFloatBuffer();
+        }
+        numRows = rows;
+    }
+
+    private static long dataOffset(int rows) {
+        return (long) (BINARY_HEADER_INTS + rows) * Integer.BYTES;
     }
 
     public DataMatrix(String matrixFileZip, String entrezId2indexFileZip, boolean shouldUseExponent) {
@@ -61,6 +163,7 @@ private void setUpIndexAndCreateEmptyMatrix(String object2idxFileZip) {
             throw new RuntimeException(e);
         }
         setUpMatrix();
+        numRows = matrix.rows;
     }
 
     private void addLineDataToIndexes(String line) {
@@ -127,10 +230,29 @@ public Map<Integer, Integer> getEntrezIdToRowIndex() {
         return entrezIdToRowIndex;
     }
 
-    public FloatMatrix getMatrix() {
+    /**
+     * Returns the whole matrix. For a memory-mapped matrix this will copy all
+     * of it onto the heap on the first call, so use {@link #getNumRows()} and
+     * {@link #getColumnMatrixForGene(int)} where possible.
+     *
+     * @return
+     */
+    public synchronized FloatMatrix getMatrix() {
+        if (matrix == null) {
+            logger.warn("Copying memory-mapped DataMatrix {} onto the heap", name);
+            FloatMatrix heapMatrix = new FloatMatrix(numRows, numRows);
+            for (int column = 0; column < numRows; column++) {
+                heapMatrix.putColumn(column, new FloatMatrix(numRows, 1, readMappedColumn(column)));
+            }
+            matrix = heapMatrix;
+        }
         return matrix;
     }
 
+    public int getNumRows() {
+        return numRows;
+    }
+
     public String getName() {
         return name;
     }
@@ -145,7 +267,60 @@ public Integer getRowIndexForGene(int entrezGeneId) {
     
     public FloatMatrix getColumnMatrixForGene(int entrezGeneId) {
         Integer rowIndex = entrezIdToRowIndex.get(entrezGeneId);
-        return matrix.getColumn(rowIndex);
+        return new FloatMatrix(numRows, 1, getColumn(rowIndex));
+    }
+
+    private float[] getColumn(int column) {
+        if (mappedColumnSegments != null) {
+            return readMappedColumn(column);
+        }
+        return matrix.getColumn(column).data;
+    }
+
+    private float[] readMappedColumn(int column) {
+        //duplicate the buffer so that the position isn't shared between threads
+        FloatBuffer segment = mappedColumnSegments[column / columnsPerSegment].duplicate();
+        segment.position((column % columnsPerSegment) * numRows);
+        float[] values = new float[numRows];
+        segment.get(values);
+        return values;
+    }
+
+    /**
+     * Writes the matrix in the binary column-major format read by
+     * {@link #DataMatrix(Path)}.
+     *
+     * @param dataMatrix
+     * @param binaryMatrixFile
+     */
+    public static void writeBinaryMatrix(DataMatrix dataMatrix, Path binaryMatrixFile) {
+        int rows = dataMatrix.getNumRows();
+        try (FileChannel channel = FileChannel.open(binaryMatrixFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate((int) dataOffset(rows)).order(BINARY_BYTE_ORDER);
+            header.putInt(BINARY_MAGIC);
+            header.putInt(BINARY_VERSION);
+            header.putInt(rows);
+            for (int row = 0; row < rows; row++) {
+                header.putInt(dataMatrix.rowToEntrezIdIndex.get(row));
+            }
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer columnBuffer = ByteBuffer.allocate(rows * Float.BYTES).order(BINARY_BYTE_ORDER);
+            for (int column = 0; column < rows; column++) {
+                columnBuffer.clear();
+                columnBuffer.asFloatBuffer().put(dataMatrix.getColumn(column));
+                writeFully(channel, columnBuffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write binary DataMatrix to file " + binaryMatrixFile, e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
     }
     
     public static void writeMatrix(FloatMatrix matrix, String file, Map<String, Integer> id2index, boolean doLogarithm) {
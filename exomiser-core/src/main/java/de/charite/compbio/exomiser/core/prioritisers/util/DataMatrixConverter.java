@@ -0,0 +1,63 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * One-off converter from the gzipped tab-separated random walk matrix and its
+ * id2index file to the memory-mappable binary format read by
+ * {@link DataMatrix#DataMatrix(Path)}. The exponent is applied to the values
+ * here, so it doesn't need doing again when the binary file is read.
+ *
+ * Usage:
+ * <pre>
+ * java -Xmx4g -cp exomiser-cli-${version}.jar de.charite.compbio.exomiser.core.prioritisers.util.DataMatrixConverter rw_string_9_05.gz rw_string_9_05_id2index.gz rw_string_9_05.bin
+ * </pre>
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class DataMatrixConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataMatrixConverter.class);
+
+    private DataMatrixConverter() {
+    }
+
+    public static void convert(Path matrixFileZip, Path entrezId2indexFileZip, Path binaryMatrixFile) {
+        logger.info("Reading DataMatrix from {} and {}", matrixFileZip, entrezId2indexFileZip);
+        DataMatrix dataMatrix = new DataMatrix(matrixFileZip.toString(), entrezId2indexFileZip.toString(), true);
+        logger.info("Writing binary DataMatrix to {}", binaryMatrixFile);
+        DataMatrix.writeBinaryMatrix(dataMatrix, binaryMatrixFile);
+        logger.info("Done");
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: DataMatrixConverter <matrix.gz> <id2index.gz> <output.bin>");
+            return;
+        }
+        convert(Paths.get(args[0]), Paths.get(args[1]), Paths.get(args[2]));
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only, in-memory copy of the known disease associations of every human gene, keyed by Entrez gene id, and the
+ * mouse models of every human gene, keyed by the human gene symbol of the MGI orthologue. These used to be looked up
+ * with one or two SQL queries for every gene in every analysis by the
+ * {@link de.charite.compbio.exomiser.core.prioritisers.OMIMPriority} and
+ * {@link de.charite.compbio.exomiser.core.prioritisers.PhivePriority}. Instead both tables are read once, the first time
+ * either is asked for. The disease associations are held in sorted int arrays so that a lookup is a binary search with
+ * no boxing. The mouse models use the same human_gene_symbol key the per-gene queries did, as not every orthologue has
+ * an Entrez id.
+ *
+ * If the database cannot be read a {@link GeneAssociationStoreException} is thrown and the load will be tried again on
+ * the next lookup, so that a failure is never mistaken for a gene having no associations.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class GeneAssociationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneAssociationStore.class);
+
+    private static final String DISEASE_QUERY = "SELECT gene_id, disease_id, omim_gene_id, diseasename, type, inheritance FROM disease";
+    private static final String MOUSE_MODEL_QUERY = "SELECT H.human_gene_symbol, M.mouse_model_id, M.mp_id, M.mgi_gene_id, M.mgi_gene_symbol "
+            + "FROM mgi_mp M, human2mouse_orthologs H "
+            + "WHERE M.mgi_gene_id = H.mgi_gene_id AND H.human_gene_symbol IS NOT NULL";
+
+    private final DataSource dataSource;
+
+    private volatile IntKeyedIndex<DiseaseAssociation> diseaseAssociations;
+    private volatile Map<String, List<MouseModel>> mouseModels;
+
+    public GeneAssociationStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param entrezGeneId
+     * @return the diseases associated with the gene, in database order, or an empty list if there are none.
+     * @throws GeneAssociationStoreException if the disease table cannot be read.
+     */
+    public List<DiseaseAssociation> getDiseaseAssociations(int entrezGeneId) {
+        IntKeyedIndex<DiseaseAssociation> index = diseaseAssociations;
+        if (index == null) {
+            index = loadDiseaseAssociations();
+        }
+        return index.get(entrezGeneId);
+    }
+
+    /**
+     * @param humanGeneSymbol
+     * @return the mouse models of the MGI orthologues of the gene, in database order, or an empty list if there are
+     * none.
+     * @throws GeneAssociationStoreException if the mouse model tables cannot be read.
+     */
+    public List<MouseModel> getMouseModels(String humanGeneSymbol) {
+        Map<String, List<MouseModel>> index = mouseModels;
+        if (index == null) {
+            index = loadMouseModels();
+        }
+        return index.getOrDefault(humanGeneSymbol, Collections.emptyList());
+    }
+
+    private synchronized IntKeyedIndex<DiseaseAssociation> loadDiseaseAssociations() {
+        if (diseaseAssociations != null) {
+            return diseaseAssociations;
+        }
+        Map<Integer, List<DiseaseAssociation>> geneDiseases = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(DISEASE_QUERY);
+             ResultSet rs = preparedStatement.executeQuery()) {
+            while (rs.next()) {
+                int entrezGeneId = rs.getInt(1);
+                DiseaseAssociation diseaseAssociation = new DiseaseAssociation(rs.getString(2), rs.getString(3), rs.getString(4), firstChar(rs.getString(5)), firstChar(rs.getString(6)));
+                geneDiseases.computeIfAbsent(entrezGeneId, key -> new ArrayList<>()).add(diseaseAssociation);
+            }
+        } catch (SQLException e) {
+            throw new GeneAssociationStoreException("Unable to load gene disease associations", e);
+        }
+        diseaseAssociations = IntKeyedIndex.of(geneDiseases);
+        logger.info("Loaded disease associations for {} genes", diseaseAssociations.size());
+        return diseaseAssociations;
+    }
+
+    private synchronized Map<String, List<MouseModel>> loadMouseModels() {
+        if (mouseModels != null) {
+            return mouseModels;
+        }
+        Map<String, List<MouseModel>> geneModels = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(MOUSE_MODEL_QUERY);
+             ResultSet rs = preparedStatement.executeQuery()) {
+            while (rs.next()) {
+                String humanGeneSymbol = rs.getString(1);
+                String mpIds = rs.getString(3);
+                List<String> phenotypeIds = mpIds == null ? Collections.emptyList() : Arrays.asList(mpIds.split(","));
+                MouseModel mouseModel = new MouseModel(rs.getInt(2), rs.getString(4), rs.getString(5), phenotypeIds);
+                geneModels.computeIfAbsent(humanGeneSymbol, key -> new ArrayList<>()).add(mouseModel);
+            }
+        } catch (SQLException e) {
+            throw new GeneAssociationStoreException("Unable to load mouse models", e);
+        }
+        for (Map.Entry<String, List<MouseModel>> entry : geneModels.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        mouseModels = Collections.unmodifiableMap(geneModels);
+        logger.info("Loaded mouse models for {} genes", mouseModels.size());
+        return mouseModels;
+    }
+
+    //inheritance and type codes are single characters - U is 'unknown' for both
+    private static char firstChar(String value) {
+        if (value == null || value.isEmpty()) {
+            return 'U';
+        }
+        return value.charAt(0);
+    }
+
+    /**
+     * Immutable map of int to lists of values backed by a sorted array of keys.
+     */
+    private static final class IntKeyedIndex<T> {
+
+        private final int[] keys;
+        private final List<?>[] values;
+
+        private IntKeyedIndex(int[] keys, List<?>[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        static <T> IntKeyedIndex<T> of(Map<Integer, List<T>> map) {
+            int[] keys = map.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            List<?>[] values = new List<?>[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = Collections.unmodifiableList(new ArrayList<>(map.get(keys[i])));
+            }
+            return new IntKeyedIndex<>(keys, values);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> get(int key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return Collections.emptyList();
+            }
+            return (List<T>) values[index];
+        }
+
+        int size() {
+            return keys.length;
+        }
+    }
+
+    /**
+     * A row of the disease table - an OMIM or Orphanet disease associated with a gene.
+     */
+    public static final class DiseaseAssociation {
+
+        private final String diseaseId;
+        private final String omimGeneId;
+        private final String diseaseName;
+        private final char type;
+        private final char inheritance;
+
+        public DiseaseAssociation(String diseaseId, String omimGeneId, String diseaseName, char type, char inheritance) {
+            this.diseaseId = diseaseId;
+            this.omimGeneId = omimGeneId;
+            this.diseaseName = diseaseName;
+            this.type = type;
+            this.inheritance = inheritance;
+        }
+
+        public String getDiseaseId() {
+            return diseaseId;
+        }
+
+        public String getOmimGeneId() {
+            return omimGeneId;
+        }
+
+        public String getDiseaseName() {
+            return diseaseName;
+        }
+
+        public char getType() {
+            return type;
+        }
+
+        public char getInheritance() {
+            return inheritance;
+        }
+    }
+
+    /**
+     * A mouse model from MGI and the MP terms annotated to it.
+     */
+    public static final class MouseModel {
+
+        private final int mouseModelId;
+        private final String mgiGeneId;
+        private final String mgiGeneSymbol;
+        private final List<String> phenotypeIds;
+
+        public MouseModel(int mouseModelId, String mgiGeneId, String mgiGeneSymbol, List<String> phenotypeIds) {
+            this.mouseModelId = mouseModelId;
+            this.mgiGeneId = mgiGeneId;
+            this.mgiGeneSymbol = mgiGeneSymbol;
+            this.phenotypeIds = Collections.unmodifiableList(phenotypeIds);
+        }
+
+        public int getMouseModelId() {
+            return mouseModelId;
+        }
+
+        public String getMgiGeneId() {
+            return mgiGeneId;
+        }
+
+        public String getMgiGeneSymbol() {
+            return mgiGeneSymbol;
+        }
+
+        public List<String> getPhenotypeIds() {
+            return phenotypeIds;
+        }
+    }
+
+    public static class GeneAssociationStoreException extends RuntimeException {
+
+        GeneAssociationStoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
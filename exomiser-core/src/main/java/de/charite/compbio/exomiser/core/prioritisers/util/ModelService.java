@@ -17,11 +17,32 @@
  */
 public interface ModelService {
 
+    /**
+     * @return all the human disease models.
+     * @throws ModelServiceException if the models couldn't be read.
+     */
     public List<Model> getHumanDiseaseModels();
 
+    /**
+     * @return all the mouse gene models.
+     * @throws ModelServiceException if the models couldn't be read.
+     */
     public List<Model> getMouseGeneModels();
 
+    /**
+     * @return all the fish gene models.
+     * @throws ModelServiceException if the models couldn't be read.
+     */
     public List<Model> getFishGeneModels();
-    
-    
+
+    /**
+     * Thrown when the models can't be read, so that a failed query isn't
+     * mistaken for there being no models and cached as such.
+     */
+    public static class ModelServiceException extends RuntimeException {
+
+        ModelServiceException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
 }
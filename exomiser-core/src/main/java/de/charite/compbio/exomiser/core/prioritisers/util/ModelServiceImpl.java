@@ -82,7 +82,7 @@ private List<Model> runDiseaseModelQuery(String modelQuery) {
                 models.add(model);
             }
         } catch (SQLException e) {
-            logger.error("Problem setting up model query: {}", modelQuery, e);
+            throw new ModelServiceException("Problem running model query: " + modelQuery, e);
         }
         return models;
     }
@@ -116,7 +116,7 @@ private List<Model> runGeneModelQuery(String modelQuery) {
                 models.add(model);
             }
         } catch (SQLException e) {
-            logger.error("Problem setting up model query: {}", modelQuery, e);
+            throw new ModelServiceException("Problem running model query: " + modelQuery, e);
         }
         return models;
     }
@@ -0,0 +1,272 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2015  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers.util;
+
+import hpo.HPOutils;
+import ontologizer.go.OBOParser;
+import ontologizer.go.OBOParserException;
+import ontologizer.go.Ontology;
+import ontologizer.go.Term;
+import ontologizer.go.TermContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import similarity.SimilarityUtilities;
+import similarity.concepts.ResnikSimilarity;
+import similarity.objects.InformationContentObjectSimilarity;
+import sonumina.math.graph.SlimDirectedGraphView;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the parsed HPO, the gene to phenotype annotations, the term
+ * information content and the score distributions used by the PhenixPriority.
+ * These are expensive to create and never change, so there is a single shared
+ * instance per phenix data directory per JVM, created on first use with
+ * {@link #forDataDirectory(Path)}. All the data is read-only once created, apart
+ * from the score distributions which are loaded on demand by the thread-safe
+ * {@link ScoreDistributionContainer}.
+ *
+ * The phenix data directory must contain the files "hp.obo",
+ * "ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt" as well as the score
+ * distribution files "*.out", all of which can be downloaded from the HPO
+ * hudson server.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PhenixContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhenixContext.class);
+
+    private static final Map<Path, PhenixContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final String HPO_OBO_FILE_NAME = "hp.obo";
+    private static final String HPO_ANNOTATION_FILE_NAME = "ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt";
+
+    private final String scoreDistributionFolder;
+
+    /**
+     * The HPO as Ontologizer-Ontology object
+     */
+    private Ontology hpo;
+
+    /**
+     * The HPO as SlimDirectedGraph (fast access to ancestors etc.)
+     */
+    private SlimDirectedGraphView<Term> hpoSlim;
+
+    private Map<String, List<Term>> geneId2annotations;
+
+    private Map<Term, Double> term2ic;
+
+    private final ScoreDistributionContainer scoreDistributionContainer = new ScoreDistributionContainer();
+
+    /**
+     * Returns the shared PhenixContext for the data directory, parsing the
+     * data the first time this is called for a directory.
+     *
+     * @param phenixDataDirectory
+     * @return
+     */
+    public static PhenixContext forDataDirectory(Path phenixDataDirectory) {
+        return CONTEXTS.computeIfAbsent(phenixDataDirectory.toAbsolutePath().normalize(), PhenixContext::new);
+    }
+
+    private PhenixContext(Path phenixDataDirectory) {
+        logger.info("Loading PhenIX data from {}", phenixDataDirectory);
+        this.scoreDistributionFolder = phenixDataDirectory.toString() + File.separatorChar;
+        String hpoOboFile = phenixDataDirectory.resolve(HPO_OBO_FILE_NAME).toString();
+        String hpoAnnotationFile = phenixDataDirectory.resolve(HPO_ANNOTATION_FILE_NAME).toString();
+        try {
+            parseOntology(hpoOboFile);
+        } catch (OBOParserException | IOException e) {
+            throw new PhenixContextException("Unable to parse ontology file " + hpoOboFile, e);
+        }
+        try {
+            parseAnnotations(hpoAnnotationFile);
+        } catch (IOException e) {
+            throw new PhenixContextException("Unable to parse annotation file " + hpoAnnotationFile, e);
+        }
+    }
+
+    /**
+     * Parses the human-phenotype-ontology.obo file (or equivalently, the hp.obo
+     * file from our Hudosn server).
+     *
+     * @param hpoOboFile path to the hp.obo file.
+     */
+    private void parseOntology(String hpoOboFile) throws IOException, OBOParserException {
+        OBOParser oboParser = new OBOParser(hpoOboFile, OBOParser.PARSE_XREFS);
+        String parseInfo = oboParser.doParse();
+        logger.info(parseInfo);
+
+        TermContainer termContainer = new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
+        hpo = new Ontology(termContainer);
+        hpo.setRelevantSubontology(termContainer.get(HPOutils.organAbnormalityRootId).getName());
+        hpoSlim = hpo.getSlimGraphView();
+    }
+
+    /**
+     * Parse the HPO phenotype annotation file (e.g., phenotype_annotation.tab).
+     * The point of this is to get the links between diseases and HPO phenotype
+     * terms. The hpoAnnotationFile is The
+     * ALL_SOURCES_ALL_FREQUENCIES_genes_to_phenotype.txt-file
+     *
+     * @param hpoAnnotationFile path to the file
+     */
+    private void parseAnnotations(String hpoAnnotationFile) throws IOException {
+        Map<String, List<Term>> annotationsForGeneId = new HashMap<>();
+
+        try (BufferedReader in = new BufferedReader(new FileReader(hpoAnnotationFile))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] split = line.split("\t");
+                String entrez = split[0];
+                Term term;
+                try {
+                    /* split[4] is the HPO term field of an annotation line. */
+                    term = hpo.getTermIncludingAlternatives(split[3]);
+                } catch (IllegalArgumentException e) {
+                    logger.error("Unable to get term for line \n{}\n", line);
+                    logger.error("The offending field was '{}'", split[3]);
+                    for (int k = 0; k < split.length; ++k) {
+                        logger.error("{} '{}'", k, split[k]);
+                    }
+                    term = null;
+                }
+                if (term == null) {
+                    continue;
+                }
+                annotationsForGeneId.computeIfAbsent(entrez, key -> new ArrayList<>()).add(term);
+            }
+        }
+
+        // cleanup annotations
+        for (Map.Entry<String, List<Term>> entry : annotationsForGeneId.entrySet()) {
+            ArrayList<Term> uniqueTerms = new ArrayList<>(new HashSet<>(entry.getValue()));
+            List<Term> termsMostSpecific = HPOutils.cleanUpAssociation(uniqueTerms, hpoSlim, hpo.getRootTerm());
+            entry.setValue(termsMostSpecific);
+        }
+        geneId2annotations = Collections.unmodifiableMap(annotationsForGeneId);
+
+        // prepare IC computation
+        final Map<Term, Set<String>> annotationTerm2geneIds = new HashMap<>();
+        for (Map.Entry<String, List<Term>> entry : geneId2annotations.entrySet()) {
+            String geneId = entry.getKey();
+            for (Term annot : entry.getValue()) {
+                for (Term term : hpoSlim.getAncestors(annot)) {
+                    // here we store which objects have been annotated with this term
+                    annotationTerm2geneIds.computeIfAbsent(term, key -> new HashSet<>()).add(geneId);
+                }
+            }
+        }
+        term2ic = caclulateTermIC(hpo, annotationTerm2geneIds);
+    }
+
+    private Map<Term, Double> caclulateTermIC(Ontology ontology, Map<Term, Set<String>> term2objectIdsAnnotated) {
+
+        Term root = ontology.getRootTerm();
+        HashMap<Term, Integer> term2frequency = new HashMap<>();
+        for (Term t : term2objectIdsAnnotated.keySet()) {
+            term2frequency.put(t, term2objectIdsAnnotated.get(t).size());
+        }
+
+        int maxFreq = term2frequency.get(root);
+        Map<Term, Double> term2informationContent = SimilarityUtilities.caculateInformationContent(maxFreq, term2frequency);
+
+        int frequencyZeroCounter = 0;
+        double ICzeroCountTerms = -1 * (Math.log(1 / (double) maxFreq));
+
+        for (Term t : ontology) {
+            if (!term2frequency.containsKey(t)) {
+                ++frequencyZeroCounter;
+                term2informationContent.put(t, ICzeroCountTerms);
+            }
+        }
+
+        logger.info("WARNING: Frequency of {} terms was zero!! Set IC of these to : {}", frequencyZeroCounter, ICzeroCountTerms);
+        return term2informationContent;
+    }
+
+    /**
+     * @param termId
+     * @return the HPO term for the id or one of its alternative ids, or null if
+     * the term isn't in the ontology.
+     */
+    public Term getTerm(String termId) {
+        return hpo.getTermIncludingAlternatives(termId);
+    }
+
+    /**
+     * @param entrezGeneId
+     * @return the most specific HPO terms annotated to the gene, or null if the
+     * gene has no annotations.
+     */
+    public List<Term> getAnnotationsForGene(String entrezGeneId) {
+        return geneId2annotations.get(entrezGeneId);
+    }
+
+    /**
+     * Returns a new similarity measure backed by the shared term information
+     * content.
+     *
+     * @param symmetric
+     * @return
+     */
+    public InformationContentObjectSimilarity makeSimilarityMeasure(boolean symmetric) {
+        ResnikSimilarity resnik = new ResnikSimilarity(hpo, (HashMap<Term, Double>) term2ic);
+        return new InformationContentObjectSimilarity(resnik, symmetric, false);
+    }
+
+    /**
+     * Returns the score distribution for the gene, loading the distributions
+     * for the number of query terms the first time these are requested.
+     *
+     * @param entrezGeneId
+     * @param numQueryTerms
+     * @param symmetric
+     * @return
+     */
+    public ScoreDistribution getScoreDistribution(String entrezGeneId, int numQueryTerms, boolean symmetric) {
+        return scoreDistributionContainer.getDistribution(entrezGeneId, numQueryTerms, symmetric, scoreDistributionFolder);
+    }
+
+    public static class PhenixContextException extends RuntimeException {
+
+        PhenixContextException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2015  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers.util;
+
+import de.charite.compbio.exomiser.core.model.DiseaseModel;
+import de.charite.compbio.exomiser.core.model.GeneModel;
+import de.charite.compbio.exomiser.core.model.Model;
+import de.charite.compbio.exomiser.core.model.PhenotypeMatch;
+import de.charite.compbio.exomiser.core.model.PhenotypeTerm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-memory index of the disease/gene models for a species and their matches
+ * to HPO terms. The phenotype ids of the models are encoded as ints so that the
+ * models are held as int arrays and the HPO-to-species phenotype matches are
+ * held as a sparse term-by-term table, one sorted row per HPO term, which is
+ * searched by int id rather than by concatenating term ids.
+ *
+ * The models are loaded when the index is created. The row for an HPO term is
+ * loaded the first time the term is queried and cached, so after that scoring a
+ * sample doesn't need to hit the database. Up to maxCachedTerms rows are kept,
+ * after which rows for new terms are loaded for each query. A row which fails
+ * to load isn't cached. The index is safe to share between threads. As the {@link Model} is mutable, {@link #makeModel(int)} returns a
+ * new instance for each call.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PhenotypeMatchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhenotypeMatchIndex.class);
+
+    //a sample has tens of HPO terms, so this covers the terms of many samples
+    static final int DEFAULT_MAX_CACHED_TERMS = 2000;
+
+    private final Map<String, Integer> phenotypeIdToTermId = new HashMap<>();
+    private final Model[] models;
+    private final int[][] modelTermIds;
+
+    private final Function<PhenotypeTerm, Set<PhenotypeMatch>> phenotypeMatchLoader;
+    private final Map<String, TermMatches> hpoIdToTermMatches = new ConcurrentHashMap<>();
+    private final int maxCachedTerms;
+
+    /**
+     * @param models all the models for a species.
+     * @param phenotypeMatchLoader returns all the matches of an HPO term to the
+     * phenotypes of the species.
+     */
+    public PhenotypeMatchIndex(List<Model> models, Function<PhenotypeTerm, Set<PhenotypeMatch>> phenotypeMatchLoader) {
+        this(models, phenotypeMatchLoader, DEFAULT_MAX_CACHED_TERMS);
+    }
+
+    /**
+     * @param models all the models for a species.
+     * @param phenotypeMatchLoader returns all the matches of an HPO term to the
+     * phenotypes of the species.
+     * @param maxCachedTerms the number of HPO terms to keep the matches of.
+     */
+    public PhenotypeMatchIndex(List<Model> models, Function<PhenotypeTerm, Set<PhenotypeMatch>> phenotypeMatchLoader, int maxCachedTerms) {
+        this.phenotypeMatchLoader = phenotypeMatchLoader;
+        this.maxCachedTerms = maxCachedTerms;
+        this.models = models.toArray(new Model[models.size()]);
+        this.modelTermIds = new int[models.size()][];
+        for (int i = 0; i < this.models.length; i++) {
+            modelTermIds[i] = encodePhenotypeIds(this.models[i].getPhenotypeIds());
+        }
+        logger.info("Indexed {} models with {} distinct phenotypes", this.models.length, phenotypeIdToTermId.size());
+    }
+
+    private int[] encodePhenotypeIds(List<String> phenotypeIds) {
+        int[] termIds = new int[phenotypeIds.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = phenotypeIdToTermId.computeIfAbsent(phenotypeIds.get(i), id -> phenotypeIdToTermId.size());
+        }
+        return termIds;
+    }
+
+    public int getNumModels() {
+        return models.length;
+    }
+
+    /**
+     * @param modelIndex
+     * @return the encoded phenotype ids of the model, in the same order as
+     * {@link Model#getPhenotypeIds()}. Do not modify this.
+     */
+    public int[] getModelTermIds(int modelIndex) {
+        return modelTermIds[modelIndex];
+    }
+
+    /**
+     * @param modelIndex
+     * @return a new copy of the model with no score or phenotype matches set.
+     */
+    public Model makeModel(int modelIndex) {
+        Model model = models[modelIndex];
+        if (model instanceof DiseaseModel) {
+            DiseaseModel diseaseModel = (DiseaseModel) model;
+            return new DiseaseModel(diseaseModel.getModelId(), diseaseModel.getOrganism(), diseaseModel.getEntrezGeneId(), diseaseModel.getHumanGeneSymbol(), diseaseModel.getDiseaseId(), diseaseModel.getDiseaseTerm(), diseaseModel.getPhenotypeIds());
+        }
+        GeneModel geneModel = (GeneModel) model;
+        return new GeneModel(geneModel.getModelId(), geneModel.getOrganism(), geneModel.getEntrezGeneId(), geneModel.getHumanGeneSymbol(), geneModel.getModelGeneId(), geneModel.getModelGeneSymbol(), geneModel.getPhenotypeIds());
+    }
+
+    /**
+     * @param hpoTerm
+     * @return the row of the match table for the HPO term, loading it if it
+     * isn't cached.
+     */
+    public TermMatches getTermMatches(PhenotypeTerm hpoTerm) {
+        TermMatches termMatches = hpoIdToTermMatches.get(hpoTerm.getId());
+        if (termMatches != null) {
+            return termMatches;
+        }
+        //the database is queried outside of the map so that other terms can be read and loaded at the same time, and
+        //an exception from the loader leaves nothing cached
+        TermMatches loadedTermMatches = makeTermMatches(phenotypeMatchLoader.apply(hpoTerm));
+        if (hpoIdToTermMatches.size() >= maxCachedTerms) {
+            return loadedTermMatches;
+        }
+        termMatches = hpoIdToTermMatches.putIfAbsent(hpoTerm.getId(), loadedTermMatches);
+        return termMatches == null ? loadedTermMatches : termMatches;
+    }
+
+    private TermMatches makeTermMatches(Set<PhenotypeMatch> phenotypeMatches) {
+        Map<Integer, PhenotypeMatch> bestMatchForTermId = new HashMap<>();
+        for (PhenotypeMatch match : phenotypeMatches) {
+            //matches to phenotypes not annotated to any model can never contribute to a model score
+            Integer termId = phenotypeIdToTermId.get(match.getMatchPhenotypeId());
+            if (termId != null) {
+                bestMatchForTermId.merge(termId, match, (current, other) -> other.getScore() > current.getScore() ? other : current);
+            }
+        }
+        int[] termIds = bestMatchForTermId.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        PhenotypeMatch[] matches = new PhenotypeMatch[termIds.length];
+        for (int i = 0; i < termIds.length; i++) {
+            matches[i] = bestMatchForTermId.get(termIds[i]);
+        }
+        return new TermMatches(Collections.unmodifiableSet(phenotypeMatches), termIds, matches);
+    }
+
+    /**
+     * The matches of a single HPO term to the phenotypes of the species.
+     */
+    public static class TermMatches {
+
+        private final Set<PhenotypeMatch> matches;
+        private final int[] termIds;
+        private final PhenotypeMatch[] termIdMatches;
+
+        private TermMatches(Set<PhenotypeMatch> matches, int[] termIds, PhenotypeMatch[] termIdMatches) {
+            this.matches = matches;
+            this.termIds = termIds;
+            this.termIdMatches = termIdMatches;
+        }
+
+        /**
+         * @return all the matches for the HPO term, including those to
+         * phenotypes which are not annotated to any model.
+         */
+        public Set<PhenotypeMatch> getMatches() {
+            return matches;
+        }
+
+        /**
+         * @param termId
+         * @return the match for the encoded phenotype id or null if there is no
+         * match.
+         */
+        public PhenotypeMatch getMatch(int termId) {
+            int index = Arrays.binarySearch(termIds, termId);
+            return index < 0 ? null : termIdMatches[index];
+        }
+
+        /**
+         * Sets the bits of the encoded phenotype ids matched by this HPO term.
+         *
+         * @param matchedTermIds
+         */
+        public void addMatchedTermIds(BitSet matchedTermIds) {
+            for (int termId : termIds) {
+                matchedTermIds.set(termId);
+            }
+        }
+    }
+}
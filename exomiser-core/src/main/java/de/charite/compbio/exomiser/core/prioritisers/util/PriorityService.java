@@ -14,7 +14,9 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +40,8 @@ public class PriorityService {
     @Autowired
     private DiseaseDao diseaseDao;
 
+    private final Map<Organism, PhenotypeMatchIndex> phenotypeMatchIndexes = new ConcurrentHashMap<>();
+
     public List<PhenotypeTerm> makePhenotypeTermsFromHpoIds(List<String> hpoIds) {
         List<PhenotypeTerm> phenotypeTerms = new ArrayList<>();
         for (String hpoId : hpoIds) {
@@ -92,6 +96,27 @@ public List<Model> getModelsForOrganism(Organism species) {
         }
     }
 
+    /**
+     * Returns the shared in-memory index of the models and HPO term matches
+     * for the species, creating it on first use. The index is only kept if the
+     * models were loaded, so a failed load is tried again on the next call.
+     *
+     * @param species
+     * @return
+     * @throws ModelService.ModelServiceException if the models couldn't be
+     * loaded.
+     */
+    public PhenotypeMatchIndex getPhenotypeMatchIndex(Organism species) {
+        PhenotypeMatchIndex phenotypeMatchIndex = phenotypeMatchIndexes.get(species);
+        if (phenotypeMatchIndex != null) {
+            return phenotypeMatchIndex;
+        }
+        //the models are loaded outside of the map so that a slow load doesn't block access to the other species
+        PhenotypeMatchIndex loadedIndex = new PhenotypeMatchIndex(getModelsForOrganism(species), hpoTerm -> getSpeciesMatchesForHpoTerm(hpoTerm, species));
+        phenotypeMatchIndex = phenotypeMatchIndexes.putIfAbsent(species, loadedIndex);
+        return phenotypeMatchIndex == null ? loadedIndex : phenotypeMatchIndex;
+    }
+
     public String getDiseaseTermForId(String diseaseId) {
         return diseaseDao.getDiseaseIdToTerms().get(diseaseId);
     }
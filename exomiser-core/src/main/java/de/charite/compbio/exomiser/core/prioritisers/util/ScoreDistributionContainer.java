@@ -7,41 +7,41 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Holds the score distributions for each number of query terms. These are
+ * loaded from the distribution files on first request and cached, so the
+ * container can be shared by concurrently running prioritisers.
+ */
 public class ScoreDistributionContainer {
 
     private final Logger logger = LoggerFactory.getLogger(ScoreDistributionContainer.class);
     
 	private boolean verboseParsing;
 
-	private int maxNumberQueryTerms = 20;
+	private volatile int maxNumberQueryTerms = 20;
 
 	public ScoreDistributionContainer(boolean verboseInParsing) {
 
 		this.verboseParsing = verboseInParsing;
-		this.key2scoreDistribution = new HashMap<String, Map<String, ScoreDistribution>>();
+		this.key2scoreDistribution = new ConcurrentHashMap<>();
 	}
 
 	private Map<String, Map<String, ScoreDistribution>> key2scoreDistribution = null;
 
 	public ScoreDistributionContainer() {
-		this.key2scoreDistribution = new HashMap<String, Map<String, ScoreDistribution>>();
+		this.key2scoreDistribution = new ConcurrentHashMap<>();
 	}
 
 	public synchronized void addDistribution(String diseaseId, int numberQueryTerms, boolean symmetric, ScoreDistribution actualDistribution) {
 
 		String key = getKey(symmetric, numberQueryTerms);
 
-		Map<String, ScoreDistribution> mim2scoredist;
-		if (key2scoreDistribution.containsKey(key))
-			mim2scoredist = key2scoreDistribution.get(key);
-		else
-			mim2scoredist = new HashMap<String, ScoreDistribution>();
-
+		Map<String, ScoreDistribution> mim2scoredist = key2scoreDistribution.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
 		mim2scoredist.put(diseaseId, actualDistribution);
-		key2scoreDistribution.put(key, mim2scoredist);
 
 	}
 
@@ -58,6 +58,10 @@ public ScoreDistribution getDistribution(String entrezGeneId, int numQueryTerms,
 		if (numQueryTerms > maxNumberQueryTerms)
 			numQueryTerms = maxNumberQueryTerms;
 
+		if (!didParseDistributions(symmetric, numQueryTerms)) {
+			parseDistributions(symmetric, numQueryTerms, scoreDistributionFolder);
+		}
+
 		while (true) {
 
 			String key = getKey(symmetric, numQueryTerms);
@@ -105,7 +109,9 @@ public boolean didParseDistributions(boolean symmetric, int numQueryTerms) {
 	}
 
 	/**
-	 * 
+	 * Parses the distributions file for the number of query terms, unless
+	 * this has already been done. The distributions are only made visible to
+	 * {@link #getDistribution} once the whole file has been read.
 	 * 
 	 * @param symmetric
 	 * @param numQueryTerms
@@ -117,6 +123,10 @@ public synchronized void parseDistributions(boolean symmetric, int numQueryTerms
 			numQueryTerms = maxNumberQueryTerms;
 
 		String key = getKey(symmetric, numQueryTerms);
+		if (key2scoreDistribution.containsKey(key)) {
+			return;
+		}
+		Map<String, ScoreDistribution> mim2scoredist = new HashMap<>();
 		String line = null;
 		String file = distributionsFolder + key + ".out";
 
@@ -127,8 +137,7 @@ public synchronized void parseDistributions(boolean symmetric, int numQueryTerms
 
 		if (verboseParsing)
 			logger.info("try parsing file: {}", file);
-		try {
-			final BufferedReader in = new BufferedReader(new FileReader(file));
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
 			ScoreDistribution actualDistribution = null;
 			String actualDiseaseId = null;
 			double numberRandomizations = -1;
@@ -142,7 +151,7 @@ public synchronized void parseDistributions(boolean symmetric, int numQueryTerms
 
 					if (actualDistribution != null) {
 						actualDistribution.setDistribution(scores, pvalues, numberRandomizations);
-						addDistribution(actualDiseaseId, numQueryTerms, symmetric, actualDistribution);
+						mim2scoredist.put(actualDiseaseId, actualDistribution);
 						scores = new ArrayList<Double>();
 						pvalues = new ArrayList<Double>();
 					}
@@ -169,12 +178,15 @@ public synchronized void parseDistributions(boolean symmetric, int numQueryTerms
 			if (verboseParsing)
 				logger.info("done while loop.... add last");
 
-			actualDistribution.setDistribution(scores, pvalues, numberRandomizations);
-			addDistribution(actualDiseaseId, numQueryTerms, symmetric, actualDistribution);
+			if (actualDistribution != null) {
+				actualDistribution.setDistribution(scores, pvalues, numberRandomizations);
+				mim2scoredist.put(actualDiseaseId, actualDistribution);
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(line + "\n" + e);
 
 		}
+		key2scoreDistribution.put(key, mim2scoredist);
 		if (verboseParsing)
 			logger.info("done parsing");
 
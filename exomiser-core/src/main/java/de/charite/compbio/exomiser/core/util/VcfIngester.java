@@ -0,0 +1,345 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.util;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Writes an uploaded VCF to disk, counting and checking the variant lines as the bytes go past, so that the upload is
+ * only read once and never held in memory. Lines are never turned into Strings - only the first few bytes and the
+ * number of columns of each line are looked at, which is enough to catch files which are not VCF, have been truncated
+ * or have lost their tabs.
+ *
+ * Block gzipped (bgzip) files are written to disk as uploaded and are only decompressed to be scanned, as htsjdk can
+ * read them directly. Plain gzipped files can't be read by htsjdk so are written out decompressed.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class VcfIngester {
+
+    private static final Logger logger = LoggerFactory.getLogger(VcfIngester.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Compression {
+        NONE, GZIP, BGZIP
+    }
+
+    private VcfIngester() {
+    }
+
+    /**
+     * Writes the VCF to a file of the same name in the output directory. If the file is not a valid VCF, the partly
+     * written file is deleted and an {@link InvalidVcfException} is thrown.
+     *
+     * @param inputStream      the uploaded VCF, which may be gzipped or bgzipped
+     * @param outputDirectory  directory the VCF will be written to
+     * @param originalFileName name of the uploaded file - any directories in the name are ignored
+     * @return details of the VCF written to disk
+     * @throws IOException if the file can't be read, written, or already exists
+     */
+    public static IngestedVcf ingest(InputStream inputStream, Path outputDirectory, String originalFileName) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        Compression compression = detectCompression(bufferedInput);
+        Path outputPath = outputDirectory.resolve(makeOutputFileName(originalFileName, compression));
+
+        VcfLineScanner scanner = new VcfLineScanner();
+        try (OutputStream output = Files.newOutputStream(outputPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            switch (compression) {
+                case BGZIP:
+                    TeeInputStream teeInput = new TeeInputStream(bufferedInput, output);
+                    scan(new BlockCompressedInputStream(teeInput), scanner, null);
+                    //make sure anything after the last block read, such as the EOF marker block, makes it to disk
+                    teeInput.drain();
+                    break;
+                case GZIP:
+                    scan(new GZIPInputStream(bufferedInput, BUFFER_SIZE), scanner, output);
+                    break;
+                default:
+                    scan(bufferedInput, scanner, output);
+            }
+            scanner.finish();
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(outputPath);
+            throw ex;
+        }
+        logger.info("Wrote {} VCF with {} samples and {} variants to {}", compression, scanner.getNumSamples(), scanner.getNumVariants(), outputPath);
+        return new IngestedVcf(outputPath, compression, scanner.getNumVariants(), scanner.getNumSamples());
+    }
+
+    private static void scan(InputStream vcfInput, VcfLineScanner scanner, OutputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = vcfInput.read(buffer)) != -1) {
+            if (output != null) {
+                output.write(buffer, 0, bytesRead);
+            }
+            scanner.scan(buffer, 0, bytesRead);
+        }
+    }
+
+    /**
+     * Peeks at the gzip header without consuming it. BGZF blocks are gzip members with a 'BC' extra subfield.
+     */
+    static Compression detectCompression(BufferedInputStream input) throws IOException {
+        byte[] header = new byte[14];
+        input.mark(header.length);
+        int headerLength = 0;
+        int bytesRead;
+        while (headerLength < header.length && (bytesRead = input.read(header, headerLength, header.length - headerLength)) != -1) {
+            headerLength += bytesRead;
+        }
+        input.reset();
+
+        boolean isGzip = headerLength >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+        if (!isGzip) {
+            return Compression.NONE;
+        }
+        boolean hasExtraField = headerLength >= 4 && (header[3] & 0x04) != 0;
+        boolean isBgzf = hasExtraField && headerLength >= 14 && header[12] == 'B' && header[13] == 'C';
+        return isBgzf ? Compression.BGZIP : Compression.GZIP;
+    }
+
+    static String makeOutputFileName(String originalFileName, Compression compression) {
+        //never trust a client with the path
+        Path fileNamePath = Paths.get(originalFileName).getFileName();
+        String fileName = fileNamePath == null ? "sample.vcf" : fileNamePath.toString();
+        boolean hasGzipExtension = fileName.endsWith(".gz");
+        if (compression == Compression.BGZIP) {
+            //htsjdk relies on the extension to know the file is compressed
+            return hasGzipExtension ? fileName : fileName + ".gz";
+        }
+        return hasGzipExtension ? fileName.substring(0, fileName.length() - ".gz".length()) : fileName;
+    }
+
+    /**
+     * Copies every byte read through it to the output.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream output;
+
+        TeeInputStream(InputStream input, OutputStream output) {
+            super(input);
+            this.output = output;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                output.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int bytesRead = super.read(buffer, offset, length);
+            if (bytesRead > 0) {
+                output.write(buffer, offset, bytesRead);
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            //skipped bytes still need to be copied
+            byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            int bytesRead = read(buffer, 0, buffer.length);
+            return Math.max(bytesRead, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        void drain() throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (read(buffer, 0, buffer.length) != -1) {
+                //read() does the copying
+            }
+        }
+    }
+
+    /**
+     * Checks the structure of a VCF a buffer at a time. Only the first bytes of each line are kept, along with the
+     * number of tabs, so the memory used doesn't depend on the length of the lines.
+     */
+    static class VcfLineScanner {
+
+        private static final byte[] FILE_FORMAT = "##fileformat=VCF".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] CHROM_HEADER = "#CHROM".getBytes(StandardCharsets.US_ASCII);
+        private static final int MIN_COLUMNS = 8;
+        private static final int NUM_FIXED_COLUMNS_WITH_FORMAT = 9;
+
+        private final byte[] linePrefix = new byte[FILE_FORMAT.length];
+        private int linePrefixLength = 0;
+        private int lineLength = 0;
+        private int numTabs = 0;
+        private int lineNumber = 1;
+
+        private int numHeaderColumns = 0;
+        private int numVariants = 0;
+
+        void scan(byte[] buffer, int offset, int length) {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    endLine();
+                } else if (b != '\r') {
+                    if (linePrefixLength < linePrefix.length) {
+                        linePrefix[linePrefixLength++] = b;
+                    }
+                    if (b == '\t') {
+                        numTabs++;
+                    }
+                    lineLength++;
+                }
+            }
+        }
+
+        void finish() {
+            if (lineLength > 0) {
+                endLine();
+            }
+            if (numHeaderColumns == 0) {
+                throw new InvalidVcfException("No #CHROM header line found");
+            }
+        }
+
+        private void endLine() {
+            if (lineLength > 0) {
+                checkLine();
+            }
+            lineNumber++;
+            linePrefixLength = 0;
+            lineLength = 0;
+            numTabs = 0;
+        }
+
+        private void checkLine() {
+            int numColumns = numTabs + 1;
+            if (lineNumber == 1 && !lineStartsWith(FILE_FORMAT)) {
+                throw new InvalidVcfException("Line 1 - VCF files must start with ##fileformat=VCF");
+            }
+            if (linePrefix[0] == '#') {
+                if (lineStartsWith(CHROM_HEADER)) {
+                    if (numColumns < MIN_COLUMNS) {
+                        throw new InvalidVcfException(String.format("Line %d - #CHROM header has %d columns but needs at least %d", lineNumber, numColumns, MIN_COLUMNS));
+                    }
+                    numHeaderColumns = numColumns;
+                }
+                return;
+            }
+            if (numHeaderColumns == 0) {
+                throw new InvalidVcfException(String.format("Line %d - variant found before the #CHROM header line", lineNumber));
+            }
+            if (numColumns != numHeaderColumns) {
+                throw new InvalidVcfException(String.format("Line %d - expected %d tab separated columns but found %d", lineNumber, numHeaderColumns, numColumns));
+            }
+            numVariants++;
+        }
+
+        private boolean lineStartsWith(byte[] prefix) {
+            if (linePrefixLength < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (linePrefix[i] != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int getNumVariants() {
+            return numVariants;
+        }
+
+        int getNumSamples() {
+            return Math.max(0, numHeaderColumns - NUM_FIXED_COLUMNS_WITH_FORMAT);
+        }
+    }
+
+    public static class IngestedVcf {
+
+        private final Path path;
+        private final Compression compression;
+        private final int numVariants;
+        private final int numSamples;
+
+        IngestedVcf(Path path, Compression compression, int numVariants, int numSamples) {
+            this.path = path;
+            this.compression = compression;
+            this.numVariants = numVariants;
+            this.numSamples = numSamples;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public Compression getCompression() {
+            return compression;
+        }
+
+        public int getNumVariants() {
+            return numVariants;
+        }
+
+        public int getNumSamples() {
+            return numSamples;
+        }
+
+        @Override
+        public String toString() {
+            return "IngestedVcf{" +
+                    "path=" + path +
+                    ", compression=" + compression +
+                    ", numVariants=" + numVariants +
+                    ", numSamples=" + numSamples +
+                    '}';
+        }
+    }
+
+    public static class InvalidVcfException extends RuntimeException {
+
+        InvalidVcfException(String message) {
+            super(message);
+        }
+    }
+}
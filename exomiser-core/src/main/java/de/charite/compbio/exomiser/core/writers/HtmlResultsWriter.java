@@ -14,10 +14,14 @@
 import de.charite.compbio.exomiser.core.model.SampleData;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.exomiser.core.filters.FilterReport;
-import de.charite.compbio.exomiser.core.model.Gene;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -51,9 +55,9 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
         String outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), settings.getOutputPrefix(), OUTPUT_FORMAT);
         Path outFile = Paths.get(outFileName);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(outFile, Charset.defaultCharset())) {
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(outFile))) {
 
-            writer.write(writeString(analysis, settings));
+            write(analysis, settings, outputStream);
 
         } catch (IOException ex) {
             logger.error("Unable to write results to file {}.", outFileName, ex);
@@ -64,6 +68,39 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
 
     @Override
     public String writeString(Analysis analysis, OutputSettings settings) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            write(analysis, settings, outputStream);
+        } catch (IOException ex) {
+            logger.error("Unable to write results to string.", ex);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Renders the template straight into the outputStream rather than building
+     * the whole page as a String first - for a genome this can be tens of MB.
+     */
+    @Override
+    public void write(Analysis analysis, OutputSettings settings, OutputStream outputStream) throws IOException {
+        SampleData sampleData = analysis.getSampleData();
+        ResultsSummary resultsSummary = new ResultsSummary(
+                makeAnalysisStepReports(analysis),
+                makeVariantEffectCounters(sampleData.getVariantEvaluations()),
+                ResultsWriterUtils.getMaxPassedGenes(sampleData.getGenes(), settings.getNumberOfGenesToShow()),
+                sampleData.getUnAnnotatedVariantEvaluations());
+        write(analysis, settings, resultsSummary, outputStream);
+    }
+
+    @Override
+    public void write(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary, OutputStream outputStream) throws IOException {
+        Context context = makeContext(analysis, settings, resultsSummary);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        templateEngine.process("results", context, writer);
+        writer.flush();
+    }
+
+    private Context makeContext(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary) {
         Context context = new Context();
         //write the settings
         ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
@@ -82,14 +119,11 @@ public String writeString(Analysis analysis, OutputSettings settings) {
         
         SampleData sampleData = analysis.getSampleData();
         //make the user aware of any unanalysed variants
-        List<VariantEvaluation> unAnalysedVarEvals = sampleData.getUnAnnotatedVariantEvaluations();
-        context.setVariable("unAnalysedVarEvals", unAnalysedVarEvals);
+        context.setVariable("unAnalysedVarEvals", resultsSummary.getUnAnnotatedVariantEvaluations());
         
         //write out the analysis reports section
-        List<FilterReport> analysisStepReports = makeAnalysisStepReports(analysis);
-        context.setVariable("filterReports", analysisStepReports);
+        context.setVariable("filterReports", resultsSummary.getFilterReports());
         //write out the variant type counters
-        List<VariantEffectCount> variantTypeCounters = makeVariantEffectCounters(sampleData.getVariantEvaluations());
         List<String> sampleNames= sampleData.getSampleNames();
         String sampleName = "Anonymous";
         if(!sampleNames.isEmpty()) {
@@ -97,12 +131,11 @@ public String writeString(Analysis analysis, OutputSettings settings) {
         }
         context.setVariable("sampleName", sampleName);
         context.setVariable("sampleNames", sampleNames);
-        context.setVariable("variantTypeCounters", variantTypeCounters);
+        context.setVariable("variantTypeCounters", resultsSummary.getVariantEffectCounts());
                  
-        List<Gene> passedGenes = ResultsWriterUtils.getMaxPassedGenes(sampleData.getGenes(), settings.getNumberOfGenesToShow());       
-        context.setVariable("genes", passedGenes);
+        context.setVariable("genes", resultsSummary.getPassedGenes());
         
-        return templateEngine.process("results", context);
+        return context;
     }
 
     protected List<VariantEffectCount> makeVariantEffectCounters(List<VariantEvaluation> variantEvaluations) {
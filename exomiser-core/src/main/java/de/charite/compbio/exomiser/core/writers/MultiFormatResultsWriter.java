@@ -0,0 +1,288 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.writers;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.metrics.AnalysisMetrics;
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the results of an {@link Analysis} to a file for each of the requested {@link OutputFormat}s. The
+ * {@link ResultsSummary} is calculated once and shared by all the writers. The genes are then read in a single pass,
+ * decoding the genotypes of their variants once, and each gene is handed to the {@link ResultsRecordWriter} of every
+ * format. These run concurrently so that the time taken to write all the formats is roughly that of the slowest one.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class MultiFormatResultsWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiFormatResultsWriter.class);
+
+    private final ResultsWriterFactory resultsWriterFactory;
+    private final int maxThreads;
+
+    /**
+     * @param resultsWriterFactory
+     * @param maxThreads the maximum number of formats to write at once. 0 will write all the requested formats at once,
+     *                   1 will write them one after another on the calling thread.
+     */
+    public MultiFormatResultsWriter(ResultsWriterFactory resultsWriterFactory, int maxThreads) {
+        if (maxThreads < 0) {
+            throw new IllegalArgumentException("Maximum number of threads cannot be negative, not " + maxThreads);
+        }
+        this.resultsWriterFactory = resultsWriterFactory;
+        this.maxThreads = maxThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void writeFiles(Analysis analysis, OutputSettings settings) {
+        Set<OutputFormat> outputFormats = settings.getOutputFormats();
+        if (outputFormats.isEmpty()) {
+            return;
+        }
+        AnalysisMetrics analysisMetrics = analysis.getAnalysisMetrics();
+        ResultsSummary resultsSummary = analysisMetrics.time("resultsWriter.summary", () -> ResultsSummary.of(analysis, settings));
+        //the unannotated variants are in the VCF and HTML output, but aren't part of any gene
+        decodeGenotypes(resultsSummary.getUnAnnotatedVariantEvaluations());
+
+        List<FormatWriter> formatWriters = new ArrayList<>();
+        try {
+            for (OutputFormat outputFormat : outputFormats) {
+                ResultsWriter resultsWriter = resultsWriterFactory.getResultsWriter(outputFormat);
+                formatWriters.add(new FormatWriter(resultsWriter, outputFormat, analysis, settings, resultsSummary));
+            }
+            int numThreads = calculateNumThreads(outputFormats.size());
+            if (numThreads == 1) {
+                writeGenes(analysis, formatWriters);
+            } else {
+                logger.info("Writing {} output formats using {} threads", outputFormats.size(), numThreads);
+                writeGenesConcurrently(analysis, formatWriters, numThreads);
+            }
+        } finally {
+            formatWriters.forEach(FormatWriter::close);
+        }
+        throwFirstFailure(formatWriters);
+    }
+
+    private int calculateNumThreads(int numFormats) {
+        if (maxThreads == 0) {
+            return numFormats;
+        }
+        return Math.min(maxThreads, numFormats);
+    }
+
+    private void writeGenes(Analysis analysis, List<FormatWriter> formatWriters) {
+        for (Gene gene : analysis.getSampleData().getGenes()) {
+            decodeGenotypes(gene.getVariantEvaluations());
+            for (FormatWriter formatWriter : formatWriters) {
+                formatWriter.writeGene(gene);
+            }
+        }
+        formatWriters.forEach(FormatWriter::finish);
+    }
+
+    /**
+     * Each format is written by a single thread so that its records stay in the same order as the genes, with the
+     * formats shared out between the threads.
+     */
+    private void writeGenesConcurrently(Analysis analysis, List<FormatWriter> formatWriters, int numThreads) {
+        ThreadFactory threadFactory = new ResultsWriterThreadFactory();
+        List<ExecutorService> executorServices = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            executorServices.add(Executors.newSingleThreadExecutor(threadFactory));
+        }
+        try {
+            for (Gene gene : analysis.getSampleData().getGenes()) {
+                decodeGenotypes(gene.getVariantEvaluations());
+                for (int i = 0; i < formatWriters.size(); i++) {
+                    FormatWriter formatWriter = formatWriters.get(i);
+                    executorServices.get(i % numThreads).execute(() -> formatWriter.writeGene(gene));
+                }
+            }
+            List<Future<?>> pendingFormats = new ArrayList<>();
+            for (int i = 0; i < formatWriters.size(); i++) {
+                pendingFormats.add(executorServices.get(i % numThreads).submit(formatWriters.get(i)::finish));
+            }
+            waitForAll(pendingFormats);
+        } finally {
+            executorServices.forEach(ExecutorService::shutdownNow);
+        }
+    }
+
+    /**
+     * htsjdk only parses the genotypes of a VariantContext the first time they are asked for and this isn't thread-safe,
+     * so this is done once here as each gene is read, before it is handed to the writers.
+     */
+    private void decodeGenotypes(List<VariantEvaluation> variantEvaluations) {
+        for (VariantEvaluation variantEvaluation : variantEvaluations) {
+            variantEvaluation.getVariantContext().getGenotypes().iterator();
+        }
+    }
+
+    //IOExceptions only cost us the one file and have already been logged, anything else is a bug so is passed on
+    private void throwFirstFailure(List<FormatWriter> formatWriters) {
+        for (FormatWriter formatWriter : formatWriters) {
+            if (formatWriter.failure instanceof RuntimeException) {
+                throw (RuntimeException) formatWriter.failure;
+            }
+        }
+    }
+
+    //let every writer finish before reporting the first failure so that we're not left with partially written files
+    private void waitForAll(List<Future<?>> pendingFormats) {
+        RuntimeException failure = null;
+        for (Future<?> pendingFormat : pendingFormats) {
+            try {
+                pendingFormat.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ResultsWriterException("Interrupted while waiting for results to be written", ex);
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    Throwable cause = ex.getCause();
+                    failure = cause instanceof RuntimeException ? (RuntimeException) cause : new ResultsWriterException("Unable to write results", cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The file and {@link ResultsRecordWriter} for one {@link OutputFormat}. Once writing has failed no more genes are
+     * handed to the writer, leaving the failure to be reported once all the other formats have been written.
+     */
+    private static class FormatWriter {
+
+        private final OutputFormat outputFormat;
+        private final String outFileName;
+        private final AnalysisMetrics analysisMetrics;
+        private OutputStream outputStream;
+        private ResultsRecordWriter recordWriter;
+        private long writeNanos;
+        private Exception failure;
+
+        FormatWriter(ResultsWriter resultsWriter, OutputFormat outputFormat, Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary) {
+            this.outputFormat = outputFormat;
+            this.outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), settings.getOutputPrefix(), outputFormat);
+            this.analysisMetrics = analysis.getAnalysisMetrics();
+            long start = System.nanoTime();
+            try {
+                outputStream = new BufferedOutputStream(Files.newOutputStream(Paths.get(outFileName)));
+                recordWriter = resultsWriter.openRecordWriter(analysis, settings, resultsSummary, outputStream);
+            } catch (IOException | RuntimeException ex) {
+                fail(ex);
+            }
+            writeNanos += System.nanoTime() - start;
+        }
+
+        void writeGene(Gene gene) {
+            if (failure != null) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                recordWriter.writeGene(gene);
+            } catch (IOException | RuntimeException ex) {
+                fail(ex);
+            }
+            writeNanos += System.nanoTime() - start;
+        }
+
+        void finish() {
+            if (failure != null) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                recordWriter.finish();
+                outputStream.flush();
+            } catch (IOException | RuntimeException ex) {
+                fail(ex);
+            }
+            writeNanos += System.nanoTime() - start;
+            analysisMetrics.recordTime("resultsWriter." + outputFormat, writeNanos);
+            if (failure == null) {
+                logger.info("{} results written to file {}.", outputFormat, outFileName);
+            }
+        }
+
+        private void fail(Exception ex) {
+            failure = ex;
+            if (ex instanceof IOException) {
+                logger.error("Unable to write results to file {}.", outFileName, ex);
+            }
+        }
+
+        void close() {
+            if (outputStream == null) {
+                return;
+            }
+            try {
+                outputStream.close();
+            } catch (IOException ex) {
+                logger.error("Unable to close file {}.", outFileName, ex);
+            }
+        }
+    }
+
+    private static class ResultsWriterThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger poolNumber = new AtomicInteger(1);
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix = "results-writer-" + poolNumber.getAndIncrement() + "-thread-";
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class ResultsWriterException extends RuntimeException {
+
+        ResultsWriterException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -5,19 +5,19 @@
  */
 package de.charite.compbio.exomiser.core.writers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import de.charite.compbio.exomiser.core.analysis.Analysis;
 import de.charite.compbio.exomiser.core.model.Gene;
-import de.charite.compbio.exomiser.core.model.SampleData;
 import de.charite.compbio.exomiser.core.prioritisers.HiPhivePriorityResult;
 import de.charite.compbio.exomiser.core.prioritisers.PriorityType;
 import de.charite.compbio.exomiser.core.writers.phenogrid.PhenoGrid;
 import de.charite.compbio.exomiser.core.writers.phenogrid.PhenoGridAdaptor;
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -40,9 +40,9 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
         String outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), settings.getOutputPrefix(), OUTPUT_FORMAT);
         Path outFile = Paths.get(outFileName);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(outFile, Charset.defaultCharset())) {
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(outFile))) {
 
-            writer.write(writeString(analysis, settings));
+            write(analysis, settings, outputStream);
 
         } catch (IOException ex) {
             logger.error("Unable to write results to file {}.", outFileName, ex);
@@ -53,8 +53,30 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
 
     @Override
     public String writeString(Analysis analysis, OutputSettings settings) {
-        SampleData sampleData = analysis.getSampleData();
-        List<Gene> passedGenes = ResultsWriterUtils.getMaxPassedGenes(sampleData.getGenes(), settings.getNumberOfGenesToShow());       
+        List<Gene> passedGenes = ResultsWriterUtils.getMaxPassedGenes(analysis.getSampleData().getGenes(), settings.getNumberOfGenesToShow());
+        return writePhenoGridAsJson(makePhenoGrid(passedGenes));
+    }
+
+    @Override
+    public void write(Analysis analysis, OutputSettings settings, OutputStream outputStream) throws IOException {
+        List<Gene> passedGenes = ResultsWriterUtils.getMaxPassedGenes(analysis.getSampleData().getGenes(), settings.getNumberOfGenesToShow());
+        writePhenoGrid(makePhenoGrid(passedGenes), outputStream);
+    }
+
+    @Override
+    public void write(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary, OutputStream outputStream) throws IOException {
+        writePhenoGrid(makePhenoGrid(resultsSummary.getPassedGenes()), outputStream);
+    }
+
+    private void writePhenoGrid(PhenoGrid phenogrid, OutputStream outputStream) throws IOException {
+        ObjectMapper mapper = makeObjectMapper();
+        //the outputStream belongs to the caller
+        mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        mapper.writeValue(outputStream, phenogrid);
+        outputStream.flush();
+    }
+
+    private PhenoGrid makePhenoGrid(List<Gene> passedGenes) {
         List<HiPhivePriorityResult> hiPhiveResults = new ArrayList<>();
         for (Gene gene : passedGenes) {
             if (gene.getPriorityResults().containsKey(PriorityType.HIPHIVE_PRIORITY)) {
@@ -64,13 +86,18 @@ public String writeString(Analysis analysis, OutputSettings settings) {
         }
         PhenoGridAdaptor phenoGridAdaptor = new PhenoGridAdaptor();
         PhenoGrid phenogrid = phenoGridAdaptor.makePhenoGridFromHiPhiveResults("hiPhive specified phenotypes", hiPhiveResults) ;
-        return writePhenoGridAsJson(phenogrid);
+        return phenogrid;
     }
 
-    private String writePhenoGridAsJson(PhenoGrid phenogrid) {
+    private ObjectMapper makeObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(SerializationFeature.INDENT_OUTPUT, false);
         mapper.configure(SerializationFeature.WRITE_ENUMS_USING_TO_STRING, true);
+        return mapper;
+    }
+
+    private String writePhenoGridAsJson(PhenoGrid phenogrid) {
+        ObjectMapper mapper = makeObjectMapper();
         try {
             return mapper.writeValueAsString(phenogrid);
         } catch (JsonProcessingException ex) {
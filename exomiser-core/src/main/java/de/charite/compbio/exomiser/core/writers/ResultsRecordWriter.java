@@ -1,4 +1,3 @@
-
 /*
  * The Exomiser - A tool to annotate and prioritize variants
  *
@@ -18,26 +17,33 @@
  *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package db.migration.postgres;
+package de.charite.compbio.exomiser.core.writers;
+
+import de.charite.compbio.exomiser.core.model.Gene;
 
-import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
-import java.io.FileReader;
-import java.sql.Connection;
-import org.postgresql.copy.CopyManager;
-import org.postgresql.core.BaseConnection;
+import java.io.IOException;
 
 /**
- * Flyway java migration for importing phenoseries data into the exomiser PostgreSQL instance.
- * 
+ * Writes the results for one {@link OutputFormat} a {@link Gene} at a time, in the order the genes are handed over.
+ * Obtained from {@link ResultsWriter#openRecordWriter}, which has already written any header to the output.
+ *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
-public class V2_5__Insert_phenoseries implements JdbcMigration {
-    
-    @Override
-    public void migrate(Connection connection) throws Exception {
-        CopyManager copyManager = new CopyManager((BaseConnection) connection);
-        try (FileReader fileReader = new FileReader("data/phenoseries.pg")) {
-            copyManager.copyIn("COPY phenoseries from STDIN WITH DELIMITER '|';", fileReader, 1024);
-        }
-    }
+public interface ResultsRecordWriter {
+
+    /**
+     * Writes the records for the gene and its variants.
+     *
+     * @param gene
+     * @throws IOException
+     */
+    public void writeGene(Gene gene) throws IOException;
+
+    /**
+     * Writes anything remaining once all the genes have been handed over and flushes, but does not close, the
+     * outputStream.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException;
 }
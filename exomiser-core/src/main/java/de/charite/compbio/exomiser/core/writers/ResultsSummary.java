@@ -0,0 +1,79 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.writers;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.filters.FilterReport;
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.model.SampleData;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The data derived from an {@link Analysis} which is shared between several of the {@link ResultsWriter}s - the filter
+ * reports, variant effect counts and the top passed genes. These each require a full pass over the genes or variants,
+ * so when writing more than one {@link OutputFormat} they are calculated once up front and handed to every writer.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class ResultsSummary {
+
+    private final List<FilterReport> filterReports;
+    private final List<VariantEffectCount> variantEffectCounts;
+    private final List<Gene> passedGenes;
+    private final List<VariantEvaluation> unAnnotatedVariantEvaluations;
+
+    public ResultsSummary(List<FilterReport> filterReports, List<VariantEffectCount> variantEffectCounts, List<Gene> passedGenes, List<VariantEvaluation> unAnnotatedVariantEvaluations) {
+        this.filterReports = Collections.unmodifiableList(filterReports);
+        this.variantEffectCounts = Collections.unmodifiableList(variantEffectCounts);
+        this.passedGenes = Collections.unmodifiableList(passedGenes);
+        this.unAnnotatedVariantEvaluations = Collections.unmodifiableList(unAnnotatedVariantEvaluations);
+    }
+
+    public static ResultsSummary of(Analysis analysis, OutputSettings settings) {
+        SampleData sampleData = analysis.getSampleData();
+        return new ResultsSummary(
+                ResultsWriterUtils.makeFilterReports(analysis),
+                ResultsWriterUtils.makeVariantEffectCounters(sampleData.getVariantEvaluations()),
+                ResultsWriterUtils.getMaxPassedGenes(sampleData.getGenes(), settings.getNumberOfGenesToShow()),
+                sampleData.getUnAnnotatedVariantEvaluations());
+    }
+
+    public List<FilterReport> getFilterReports() {
+        return filterReports;
+    }
+
+    public List<VariantEffectCount> getVariantEffectCounts() {
+        return variantEffectCounts;
+    }
+
+    /**
+     * @return the passed genes, up to the number of genes to show in the {@link OutputSettings}
+     */
+    public List<Gene> getPassedGenes() {
+        return passedGenes;
+    }
+
+    public List<VariantEvaluation> getUnAnnotatedVariantEvaluations() {
+        return unAnnotatedVariantEvaluations;
+    }
+}
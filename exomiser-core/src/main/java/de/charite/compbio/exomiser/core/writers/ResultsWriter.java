@@ -7,6 +7,10 @@
 package de.charite.compbio.exomiser.core.writers;
 
 import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.model.Gene;
+
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 
@@ -21,6 +25,61 @@ public interface ResultsWriter {
      * @param settings
      */
     public void writeFile(Analysis analysis, OutputSettings settings);
+
+    /**
+     * Streams the result data to the outputStream as each record is produced,
+     * without first building the whole report in memory. The outputStream is
+     * flushed, but not closed, so it remains the responsibility of the caller.
+     *
+     * @param analysis
+     * @param settings
+     * @param outputStream
+     * @throws IOException
+     */
+    public void write(Analysis analysis, OutputSettings settings, OutputStream outputStream) throws IOException;
+
+    /**
+     * As {@link #write(Analysis, OutputSettings, OutputStream)}, but using the
+     * already calculated resultsSummary rather than working it out again.
+     * Writers which don't use any of the summary data need not override this.
+     *
+     * @param analysis
+     * @param settings
+     * @param resultsSummary
+     * @param outputStream
+     * @throws IOException
+     */
+    default public void write(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary, OutputStream outputStream) throws IOException {
+        write(analysis, settings, outputStream);
+    }
+
+    /**
+     * Opens a {@link ResultsRecordWriter} on the outputStream so that the
+     * genes can be handed to this writer one at a time, along with any other
+     * writers for the same analysis. By default nothing is written until
+     * {@link ResultsRecordWriter#finish()} is called, which suits the formats
+     * built only from the resultsSummary.
+     *
+     * @param analysis
+     * @param settings
+     * @param resultsSummary
+     * @param outputStream
+     * @return a writer for the genes of the analysis
+     * @throws IOException
+     */
+    default public ResultsRecordWriter openRecordWriter(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary, OutputStream outputStream) throws IOException {
+        return new ResultsRecordWriter() {
+            @Override
+            public void writeGene(Gene gene) {
+                //the whole report is written from the resultsSummary in finish
+            }
+
+            @Override
+            public void finish() throws IOException {
+                write(analysis, settings, resultsSummary, outputStream);
+            }
+        };
+    }
        
     /**
      * Writes the result data out to a String.
@@ -46,12 +46,25 @@ public class ResultsWriterUtils {
      * @return
      */
     public static String makeOutputFilename(Path vcfPath, String outputPrefix, OutputFormat outputFormat) {
+        return makeOutputFilename(vcfPath, outputPrefix, outputFormat.getFileExtension());
+    }
+
+    /**
+     * Makes the name of a file written alongside the results, such as the metrics report, using the same prefix as
+     * the results files.
+     *
+     * @param vcfPath
+     * @param outputPrefix
+     * @param fileExtension
+     * @return
+     */
+    public static String makeOutputFilename(Path vcfPath, String outputPrefix, String fileExtension) {
         if (outputPrefix.isEmpty()) {
             String defaultOutputPrefix = String.format("%s/%s-exomiser-results", ResultsWriterUtils.DEFAULT_OUTPUT_DIR, vcfPath.getFileName());
             logger.debug("Output prefix was unspecified. Will write out to: {}", defaultOutputPrefix);
             outputPrefix = defaultOutputPrefix;
         }
-        return String.format("%s.%s", outputPrefix, outputFormat.getFileExtension());
+        return String.format("%s.%s", outputPrefix, fileExtension);
     }
 
     /**
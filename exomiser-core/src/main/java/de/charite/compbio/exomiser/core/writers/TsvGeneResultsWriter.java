@@ -9,13 +9,17 @@
 import de.charite.compbio.exomiser.core.prioritisers.HiPhivePriorityResult;
 import de.charite.compbio.exomiser.core.prioritisers.PriorityType;
 import de.charite.compbio.exomiser.core.prioritisers.PriorityResult;
-import de.charite.compbio.exomiser.core.model.SampleData;
 import de.charite.compbio.exomiser.core.model.Gene;
 import de.charite.compbio.exomiser.core.prioritisers.ExomeWalkerPriorityResult;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -46,8 +50,8 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
         String outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), settings.getOutputPrefix(), OUTPUT_FORMAT);
         Path outFile = Paths.get(outFileName);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(outFile, Charset.defaultCharset())) {
-            writer.write(writeString(analysis, settings));
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(outFile))) {
+            write(analysis, settings, outputStream);
         } catch (IOException ex) {
             logger.error("Unable to write results to file {}.", outFileName, ex);
         }
@@ -57,16 +61,49 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
 
     @Override
     public String writeString(Analysis analysis, OutputSettings settings) {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(HEADER_LINE);
-        
-        SampleData sampleData = analysis.getSampleData();
-        for (Gene gene : sampleData.getGenes()) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            write(analysis, settings, outputStream);
+        } catch (IOException ex) {
+            logger.error("Unable to write results to string.", ex);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void write(Analysis analysis, OutputSettings settings, OutputStream outputStream) throws IOException {
+        ResultsRecordWriter recordWriter = new GeneRecordWriter(outputStream);
+        for (Gene gene : analysis.getSampleData().getGenes()) {
+            recordWriter.writeGene(gene);
+        }
+        recordWriter.finish();
+    }
+
+    @Override
+    public ResultsRecordWriter openRecordWriter(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary, OutputStream outputStream) throws IOException {
+        return new GeneRecordWriter(outputStream);
+    }
+
+    private class GeneRecordWriter implements ResultsRecordWriter {
+
+        private final Writer writer;
+
+        GeneRecordWriter(OutputStream outputStream) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(HEADER_LINE);
+        }
+
+        @Override
+        public void writeGene(Gene gene) throws IOException {
             if (gene.passedFilters()) {
-                stringBuilder.append(makeGeneLine(gene));
+                writer.write(makeGeneLine(gene));
             }
         }
-        return stringBuilder.toString();
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
     }
 
     /**
@@ -22,7 +22,12 @@
 import com.google.common.base.Joiner;
 import de.charite.compbio.exomiser.core.analysis.Analysis;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DecimalFormat;
@@ -38,7 +43,6 @@
 
 import de.charite.compbio.exomiser.core.filters.FilterType;
 import de.charite.compbio.exomiser.core.model.Gene;
-import de.charite.compbio.exomiser.core.model.SampleData;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.exomiser.core.model.frequency.Frequency;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencyData;
@@ -89,8 +93,8 @@ public TsvVariantResultsWriter() {
     public void writeFile(Analysis analysis, OutputSettings settings) {
         String outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), settings.getOutputPrefix(), OUTPUT_FORMAT);
         Path outFile = Paths.get(outFileName);
-        try (CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(outFile, StandardCharsets.UTF_8), format)) {
-            writeData(analysis, settings.outputPassVariantsOnly(), printer);
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(outFile))) {
+            write(analysis, settings, outputStream);
         } catch (IOException ex) {
             logger.error("Unable to write results to file {}.", outFileName, ex);
         }
@@ -100,27 +104,56 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
 
     @Override
     public String writeString(Analysis analysis, OutputSettings settings) {
-        StringBuilder output = new StringBuilder();
-        try (CSVPrinter printer = new CSVPrinter(output, format)) {
-            writeData(analysis, settings.outputPassVariantsOnly(), printer);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            write(analysis, settings, outputStream);
         } catch (IOException ex) {
-            logger.error("Unable to write results to string {}.", output, ex);
+            logger.error("Unable to write results to string.", ex);
         }
-        return output.toString();
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
     }
 
-    private void writeData(Analysis analysis, boolean writeOnlyPassVariants, CSVPrinter printer) throws IOException {
-        SampleData sampleData = analysis.getSampleData();
-        if (writeOnlyPassVariants) {
-            logger.info("Writing out only PASS variants");
-            for (Gene gene : sampleData.getGenes()) {
-                writeOnlyPassVariantsOfGene(gene, printer);
+    @Override
+    public void write(Analysis analysis, OutputSettings settings, OutputStream outputStream) throws IOException {
+        ResultsRecordWriter recordWriter = new VariantRecordWriter(settings.outputPassVariantsOnly(), outputStream);
+        for (Gene gene : analysis.getSampleData().getGenes()) {
+            recordWriter.writeGene(gene);
+        }
+        recordWriter.finish();
+    }
+
+    @Override
+    public ResultsRecordWriter openRecordWriter(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary, OutputStream outputStream) throws IOException {
+        return new VariantRecordWriter(settings.outputPassVariantsOnly(), outputStream);
+    }
+
+    private class VariantRecordWriter implements ResultsRecordWriter {
+
+        private final boolean writeOnlyPassVariants;
+        private final CSVPrinter printer;
+
+        VariantRecordWriter(boolean writeOnlyPassVariants, OutputStream outputStream) throws IOException {
+            this.writeOnlyPassVariants = writeOnlyPassVariants;
+            //the printer isn't closed here as that would also close the caller's outputStream
+            this.printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)), format);
+            if (writeOnlyPassVariants) {
+                logger.info("Writing out only PASS variants");
             }
-        } else {
-            for (Gene gene : sampleData.getGenes()) {
+        }
+
+        @Override
+        public void writeGene(Gene gene) throws IOException {
+            if (writeOnlyPassVariants) {
+                writeOnlyPassVariantsOfGene(gene, printer);
+            } else {
                 writeAllVariantsOfGene(gene, printer);
             }
         }
+
+        @Override
+        public void finish() throws IOException {
+            printer.flush();
+        }
     }
 
     private void writeOnlyPassVariantsOfGene(Gene gene, CSVPrinter printer) throws IOException {
@@ -19,9 +19,6 @@
 
 package de.charite.compbio.exomiser.core.writers;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
 import de.charite.compbio.exomiser.core.analysis.Analysis;
 import de.charite.compbio.exomiser.core.filters.FilterType;
 import de.charite.compbio.exomiser.core.model.Gene;
@@ -29,20 +26,25 @@
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.jannovar.htsjdk.InfoFields;
 import de.charite.compbio.jannovar.htsjdk.VariantContextWriterConstructionHelper;
+import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.vcf.*;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 
-import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 // TODO(holtgrew): Write out to sorting VariantContextWriter?
@@ -76,12 +78,10 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
         // create a VariantContextWriter writing to the output file path
         String outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), settings.getOutputPrefix(), OUTPUT_FORMAT);
         Path outFile = Paths.get(outFileName);
-        SampleData sampleData = analysis.getSampleData();
-        try (VariantContextWriter writer = VariantContextWriterConstructionHelper.openVariantContextWriter(sampleData.getVcfHeader(),
-                outFile.toString(),
-                InfoFields.BOTH,
-                getAdditionalHeaderLines())) {
-            writeData(sampleData, settings.outputPassVariantsOnly(), writer);
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(outFile))) {
+            write(analysis, settings, outputStream);
+        } catch (IOException ex) {
+            logger.error("Unable to write results to file {}.", outFileName, ex);
         }
         logger.info("{} results written to file {}.", OUTPUT_FORMAT, outFileName);
     }
@@ -90,97 +90,81 @@ public void writeFile(Analysis analysis, OutputSettings settings) {
     public String writeString(Analysis analysis, OutputSettings settings) {
         // create a VariantContextWriter writing to a buffer
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        SampleData sampleData = analysis.getSampleData();
-        try (VariantContextWriter writer = VariantContextWriterConstructionHelper.openVariantContextWriter(sampleData.getVcfHeader(),
-                baos,
-                InfoFields.BOTH,
-                getAdditionalHeaderLines())) {
-            writeData(sampleData, settings.outputPassVariantsOnly(), writer);
-        }
+        write(analysis, settings, baos);
         logger.info("{} results written to string buffer", OUTPUT_FORMAT);
         return new String(baos.toByteArray(), StandardCharsets.UTF_8);
     }
 
-    private void writeData(SampleData sampleData, boolean writeOnlyPassVariants, VariantContextWriter writer) {
-        writeUnannotatedVariants(sampleData, writer);
-        // actually write the data and close writer again
-        if (writeOnlyPassVariants) {
-            logger.info("Writing out only PASS variants");
-            writeOnlyPassSampleData(sampleData, writer);
-        } else {
-            writeAllSampleData(sampleData, writer);
+    @Override
+    public void write(Analysis analysis, OutputSettings settings, OutputStream outputStream) {
+        ResultsRecordWriter recordWriter = new VcfRecordWriter(analysis.getSampleData(), settings.outputPassVariantsOnly(), outputStream);
+        for (Gene gene : analysis.getSampleData().getGenes()) {
+            recordWriter.writeGene(gene);
         }
+        recordWriter.finish();
     }
 
-    private void writeUnannotatedVariants(SampleData sampleData, VariantContextWriter writer) {
-        List<VariantContext> updatedRecords = updateGeneVariantRecords(null, sampleData.getUnAnnotatedVariantEvaluations());
-        updatedRecords.forEach(record-> writer.add(record));
-    }
-
-    private void writeOnlyPassSampleData(SampleData sampleData, VariantContextWriter writer) {
-        for (Gene gene : sampleData.getGenes()) {
-            List<VariantContext> updatedRecords = updateGeneVariantRecords(gene, gene.getPassedVariantEvaluations());
-            updatedRecords.forEach(record-> writer.add(record));
-        }
+    @Override
+    public ResultsRecordWriter openRecordWriter(Analysis analysis, OutputSettings settings, ResultsSummary resultsSummary, OutputStream outputStream) {
+        return new VcfRecordWriter(analysis.getSampleData(), settings.outputPassVariantsOnly(), outputStream);
     }
 
     /**
-     * Write the <code>sampleData</code> as VCF to <code>writer</code>.
-     *
-     * <code>writer</code> is already completely initialized, including all
-     * headers, so data is written out directly for each
-     * {@link VariantEvalution} in <code>sampleData</code>.
-     *
-     * @param sampleData data set to write out
-     * @param writer writer to write to
+     * Writes the header and the unannotated variants as soon as it is opened, then the records of each gene as it is
+     * handed over.
      */
-    private void writeAllSampleData(SampleData sampleData, VariantContextWriter writer) {
-        for (Gene gene : sampleData.getGenes()) {
-            logger.debug("updating variant records for gene {}", gene);
-            List<VariantContext> updatedRecords = updateGeneVariantRecords(gene, gene.getVariantEvaluations());
-            updatedRecords.forEach(record-> writer.add(record));
+    private class VcfRecordWriter implements ResultsRecordWriter {
+
+        private final boolean writeOnlyPassVariants;
+        private final VariantContextWriter writer;
+
+        VcfRecordWriter(SampleData sampleData, boolean writeOnlyPassVariants, OutputStream outputStream) {
+            this.writeOnlyPassVariants = writeOnlyPassVariants;
+            //closing the VariantContextWriter is the only way to make it flush everything, but the outputStream belongs to the caller
+            this.writer = VariantContextWriterConstructionHelper.openVariantContextWriter(sampleData.getVcfHeader(),
+                    new CloseShieldOutputStream(outputStream),
+                    InfoFields.BOTH,
+                    getAdditionalHeaderLines());
+            writeGeneVariantRecords(null, sampleData.getUnAnnotatedVariantEvaluations(), writer);
+            if (writeOnlyPassVariants) {
+                logger.info("Writing out only PASS variants");
+            }
         }
-    }
 
-    //this needs a MultiMap<VariantContext, VariantEvaluation> (see InheritanceModeAnalyser for this)
-    private List<VariantContext> updateGeneVariantRecords(Gene gene, List<VariantEvaluation> variants) {
-        if (variants.isEmpty()) {
-            return Collections.emptyList();
+        @Override
+        public void writeGene(Gene gene) {
+            logger.debug("updating variant records for gene {}", gene);
+            if (writeOnlyPassVariants) {
+                writeGeneVariantRecords(gene, gene.getPassedVariantEvaluations(), writer);
+            } else {
+                writeGeneVariantRecords(gene, gene.getVariantEvaluations(), writer);
+            }
         }
-//        maybe check if the variant is multi-allelic first?
-        Multimap<String, VariantEvaluation> variantContextToEvaluations = mapVariantEvaluationsToVariantContextString(variants);
-        return variantContextToEvaluations.asMap()
-                .values()
-                .stream()
-                .map(variantEvaluations -> updateRecord(Lists.newArrayList(variantEvaluations), gene))
-                .collect(toList());
-    }
 
-    private Multimap<String, VariantEvaluation> mapVariantEvaluationsToVariantContextString(List<VariantEvaluation> variantEvaluations) {
-        //using ArrayListMultimap is important as the order of the values (alleles) must be preserved so that they match the order listed in the ALT fildl
-        ArrayListMultimap<String, VariantEvaluation> geneVariants = ArrayListMultimap.create();
-        for (VariantEvaluation variantEvaluation : variantEvaluations) {
-            geneVariants.put(variantContextKeyValue(variantEvaluation.getVariantContext()), variantEvaluation);
+        @Override
+        public void finish() {
+            writer.close();
         }
-        return geneVariants;
     }
 
     /**
-     * A {@link VariantContext} cannot be used directly as a key in a Map or put into a Set as it does not override equals or hashCode.
-     * Also simply using toString isn't an option as the compatible variants returned from the
-     * {@link de.charite.compbio.exomiser.core.analysis.util.InheritanceModeAnalyser#inheritanceCompatibilityChecker}
-     * are different instances and have had their genotype strings changed. This method solves these problems.
+     * Groups the alleles of the gene back into their original VCF records and writes each updated record straight to
+     * the writer. Only the variants of the one gene are ever held in the map, so the memory used is bounded by the
+     * largest gene rather than the whole sample.
      */
-    private String variantContextKeyValue(VariantContext variantContext) {
-        //using StringBuilder instead of String.format as the performance is better and we're going to be doing this for every variant in the VCF
-        // chr10-123256215-T*-[G, A]
-        // chr5-11-AC*-[AT]
-        StringBuilder keyValueBuilder = new StringBuilder();
-        keyValueBuilder.append(variantContext.getContig()).append('-');
-        keyValueBuilder.append(variantContext.getStart()).append('-');
-        keyValueBuilder.append(variantContext.getReference()).append('-');
-        keyValueBuilder.append(variantContext.getAlternateAlleles());
-        return keyValueBuilder.toString();
+    private void writeGeneVariantRecords(Gene gene, List<VariantEvaluation> variants, VariantContextWriter writer) {
+        if (variants.isEmpty()) {
+            return;
+        }
+        //using a LinkedHashMap and ArrayList is important as the order of the alleles must be preserved so that they match the order listed in the ALT field
+        Map<VariantContextKey, List<VariantEvaluation>> variantContextToEvaluations = new LinkedHashMap<>();
+        for (VariantEvaluation variantEvaluation : variants) {
+            VariantContextKey key = new VariantContextKey(variantEvaluation.getVariantContext());
+            variantContextToEvaluations.computeIfAbsent(key, k -> new ArrayList<>()).add(variantEvaluation);
+        }
+        for (List<VariantEvaluation> variantEvaluations : variantContextToEvaluations.values()) {
+            writer.add(updateRecord(variantEvaluations, gene));
+        }
     }
 
     private VariantContext updateRecord(List<VariantEvaluation> variantEvaluations, Gene gene) {
@@ -277,4 +261,48 @@ private List<VCFHeaderLine> getAdditionalHeaderLines() {
         return lines;
     }
 
+    /**
+     * A {@link VariantContext} cannot be used directly as a key in a Map or put into a Set as it does not override equals or hashCode.
+     * Also simply using toString isn't an option as the compatible variants returned from the
+     * {@link de.charite.compbio.exomiser.core.analysis.util.InheritanceModeAnalyser#inheritanceCompatibilityChecker}
+     * are different instances and have had their genotype strings changed. This key uses the fields which identify the
+     * original VCF record without building a new String for every variant.
+     */
+    private static final class VariantContextKey {
+
+        private final String contig;
+        private final int start;
+        private final Allele reference;
+        private final List<Allele> alternateAlleles;
+        private final int hashCode;
+
+        VariantContextKey(VariantContext variantContext) {
+            this.contig = variantContext.getContig();
+            this.start = variantContext.getStart();
+            this.reference = variantContext.getReference();
+            this.alternateAlleles = variantContext.getAlternateAlleles();
+            this.hashCode = Objects.hash(contig, start, reference, alternateAlleles);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            VariantContextKey other = (VariantContextKey) obj;
+            return start == other.start
+                    && contig.equals(other.contig)
+                    && reference.equals(other.reference)
+                    && alternateAlleles.equals(other.alternateAlleles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
 }
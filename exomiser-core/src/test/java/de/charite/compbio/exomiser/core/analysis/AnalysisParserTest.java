@@ -126,6 +126,31 @@ public void testParseAnalysis_FullAnalysisMode() {
         assertThat(analysis.getAnalysisMode(), equalTo(AnalysisMode.FULL));
     }
 
+    @Test
+    public void testParseAnalysis_DefaultNumThreads() {
+        Analysis analysis = instance.parseAnalysis(addStepToAnalysis(""));
+        assertThat(analysis.getNumThreads(), equalTo(1));
+    }
+
+    @Test
+    public void testParseAnalysis_NumThreads() {
+        Analysis analysis = instance.parseAnalysis(
+                "analysis:\n"
+                + "    vcf: test.vcf\n"
+                + "    numThreads: 4\n"
+                + "    ");
+        assertThat(analysis.getNumThreads(), equalTo(4));
+    }
+
+    @Test(expected = AnalysisParserException.class)
+    public void testParseAnalysis_NumThreadsLessThanOne() {
+        instance.parseAnalysis(
+                "analysis:\n"
+                + "    vcf: test.vcf\n"
+                + "    numThreads: 0\n"
+                + "    ");
+    }
+
     @Test
     public void testParseAnalysisStep_UnsupportedFilterAddsNothingToAnalysisSteps() {
         Analysis analysis = instance.parseAnalysis(addStepToAnalysis("wibbleFilter: {}"));
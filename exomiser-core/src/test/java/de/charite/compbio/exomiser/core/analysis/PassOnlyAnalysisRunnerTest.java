@@ -24,7 +24,12 @@
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Ignore;
@@ -93,6 +98,53 @@ public void testRunAnalysis_VariantFilterOnly_OneVariantPasses() {
         assertThat(passedGene.getNumberOfVariants(), equalTo(1));
     }
 
+    private List<String> runIntervalFilterAnalysis(Path vcfPath, GeneticInterval interval) {
+        Analysis analysis = makeAnalysis(vcfPath, new IntervalFilter(interval));
+        instance.runAnalysis(analysis);
+
+        List<String> passedVariants = new ArrayList<>();
+        for (Gene gene : analysis.getSampleData().getGenes()) {
+            for (VariantEvaluation variantEvaluation : gene.getPassedVariantEvaluations()) {
+                passedVariants.add(variantEvaluation.getChromosome() + ":" + variantEvaluation.getPosition() + variantEvaluation.getRef() + ">" + variantEvaluation.getAlt());
+            }
+        }
+        return passedVariants;
+    }
+
+    @Test
+    public void testRunAnalysis_IndexedVcfIntervalFilter_OneVariantPasses() {
+        Path indexedVcfPath = Paths.get("src/test/resources/regionTest.vcf.gz");
+
+        assertThat(runIntervalFilterAnalysis(indexedVcfPath, new GeneticInterval(1, 145508800, 145508800)), equalTo(Arrays.asList("1:145508800T>C")));
+    }
+
+    @Test
+    public void testRunAnalysis_IndexedVcfIndelTrimmedIntoInterval() {
+        Path indexedVcfPath = Paths.get("src/test/resources/regionTest.vcf.gz");
+        //the deletion record starts at 145508798, before the interval, but the deleted bases start at 145508799
+        List<String> passedVariants = runIntervalFilterAnalysis(indexedVcfPath, new GeneticInterval(1, 145508799, 145508800));
+
+        assertThat(passedVariants, equalTo(Arrays.asList("1:145508799AC>-", "1:145508800T>C")));
+    }
+
+    @Test
+    public void testRunAnalysis_IndexedVcfGivesSameResultsAsWholeVcfAtIntervalBoundaries() {
+        Path wholeVcfPath = Paths.get("src/test/resources/regionTest.vcf");
+        Path indexedVcfPath = Paths.get("src/test/resources/regionTest.vcf.gz");
+        //each of these starts or ends next to one of the indels
+        List<GeneticInterval> intervals = Arrays.asList(
+                new GeneticInterval(1, 145508600, 145508699),
+                new GeneticInterval(1, 145508600, 145508700),
+                new GeneticInterval(1, 145508701, 145508797),
+                new GeneticInterval(1, 145508701, 145508798),
+                new GeneticInterval(1, 145508799, 145508799),
+                new GeneticInterval(1, 145508801, 145510000));
+
+        for (GeneticInterval interval : intervals) {
+            assertThat(interval.toString(), runIntervalFilterAnalysis(indexedVcfPath, interval), equalTo(runIntervalFilterAnalysis(wholeVcfPath, interval)));
+        }
+    }
+
     @Test
     public void testRunAnalysis_TwoVariantFilters_AllVariantsFail() {
         VariantFilter intervalFilter = new IntervalFilter(new GeneticInterval(1, 145508800, 145508800));
@@ -20,20 +20,27 @@
 package de.charite.compbio.exomiser.core.analysis;
 
 import de.charite.compbio.exomiser.core.filters.*;
+import de.charite.compbio.exomiser.core.metrics.AnalysisMetrics;
+import de.charite.compbio.exomiser.core.metrics.MetricsReport;
 import de.charite.compbio.exomiser.core.model.FilterStatus;
 import de.charite.compbio.exomiser.core.model.Gene;
 import de.charite.compbio.exomiser.core.model.GeneticInterval;
 import de.charite.compbio.exomiser.core.model.SampleData;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
 import de.charite.compbio.exomiser.core.prioritisers.MockPrioritiser;
 import de.charite.compbio.exomiser.core.prioritisers.Prioritiser;
 import de.charite.compbio.exomiser.core.prioritisers.PriorityType;
 import de.charite.compbio.jannovar.pedigree.ModeOfInheritance;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import java.util.Arrays;
 import java.util.EnumSet;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -136,6 +143,59 @@ public void testRunAnalysis_TwoVariantFilters_AllVariantsFailFilters_VariantsSho
         assertThat(rbm8Variant2.getFailedFilterTypes(), equalTo(EnumSet.of(FilterType.QUALITY_FILTER)));
     }
 
+    @Test
+    public void testRunAnalysis_FailedVariantsOnlyKeepRepresentativeAnnotation() {
+        VariantFilter intervalFilter = new IntervalFilter(new GeneticInterval(1, 145508800, 145508800));
+
+        Analysis analysis = makeAnalysis(vcfPath, intervalFilter);
+        instance.runAnalysis(analysis);
+
+        for (VariantEvaluation variantEvaluation : analysis.getSampleData().getVariantEvaluations()) {
+            if (!variantEvaluation.passedFilters()) {
+                assertThat(variantEvaluation.getAnnotations().size() <= 1, is(true));
+            }
+        }
+    }
+
+    @Test
+    public void testRunAnalysis_RecordsStageTimingsAndCounters() {
+        VariantFilter frequencyFilter = new FrequencyDataProvider(stubDataService, EnumSet.of(FrequencySource.ESP_ALL), new FrequencyFilter(1f));
+        Map<String, Float> hiPhiveGeneScores = new HashMap<>();
+        hiPhiveGeneScores.put("RBM8A", 0.65f);
+        Prioritiser mockHiPhivePrioritiser = new MockPrioritiser(PriorityType.HIPHIVE_PRIORITY, hiPhiveGeneScores);
+
+        Analysis analysis = makeAnalysis(vcfPath, frequencyFilter, mockHiPhivePrioritiser);
+        instance.runAnalysis(analysis);
+
+        MetricsReport metricsReport = analysis.getAnalysisMetrics().getReport();
+        for (String stage : Arrays.asList("vcf.parsing", "annotation", "index.regulatoryRegions", "index.tads", "variantFilter.FREQUENCY_FILTER", "variantFilter.FREQUENCY_FILTER.dataProvider", "prioritiser.HIPHIVE_PRIORITY", "scoring")) {
+            assertThat(stage, metricsReport.getStageTiming(stage).isPresent(), is(true));
+        }
+        assertThat(metricsReport.getCount("variants.reported"), equalTo((long) analysis.getSampleData().getVariantEvaluations().size()));
+        assertThat(metricsReport.getCount(AnalysisMetrics.VARIANTS_LOADED) > 0, is(true));
+    }
+
+    @Test
+    public void testRunAnalysis_MultipleThreadsProducesSameResultsAsSingleThread() {
+        VariantFilter intervalFilter = new IntervalFilter(new GeneticInterval(1, 145508800, 145508800));
+        VariantFilter qualityFilter = new QualityFilter(120);
+
+        Analysis singleThreadAnalysis = makeAnalysis(vcfPath, intervalFilter, qualityFilter);
+        instance.runAnalysis(singleThreadAnalysis);
+
+        Analysis multiThreadAnalysis = makeAnalysis(vcfPath, intervalFilter, qualityFilter);
+        multiThreadAnalysis.setNumThreads(4);
+        instance.runAnalysis(multiThreadAnalysis);
+
+        List<VariantEvaluation> expected = singleThreadAnalysis.getSampleData().getVariantEvaluations();
+        List<VariantEvaluation> actual = multiThreadAnalysis.getSampleData().getVariantEvaluations();
+        assertThat(actual, equalTo(expected));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getFilterStatus(), equalTo(expected.get(i).getFilterStatus()));
+            assertThat(actual.get(i).getFailedFilterTypes(), equalTo(expected.get(i).getFailedFilterTypes()));
+        }
+    }
+
     @Test
     public void testRunAnalysis_TwoVariantFiltersOnePrioritiser_VariantsShouldHaveAllVariantFilterResults() {
         VariantFilter intervalFilter = new IntervalFilter(new GeneticInterval(1, 145508800, 145508800));
@@ -365,4 +425,25 @@ public void testRunAnalysis_VariantFilterPrioritiserPriorityScoreFilterVariantFi
         assertThat(rbm8Variant2.passedFilter(FilterType.INHERITANCE_FILTER), is(true));
     }
 
+    private VariantContext variantContext(String contig, int position) {
+        return new VariantContextBuilder().chr(contig).start(position).stop(position).alleles("A", "T").make();
+    }
+
+    @Test
+    public void testIsCoordinateSorted() {
+        assertThat(AbstractAnalysisRunner.isCoordinateSorted(Arrays.asList(
+                variantContext("1", 10), variantContext("1", 10), variantContext("1", 20), variantContext("X", 1), variantContext("2", 5))), is(true));
+    }
+
+    @Test
+    public void testIsCoordinateSorted_PositionsOutOfOrder() {
+        assertThat(AbstractAnalysisRunner.isCoordinateSorted(Arrays.asList(
+                variantContext("1", 20), variantContext("1", 10))), is(false));
+    }
+
+    @Test
+    public void testIsCoordinateSorted_ChromosomeNotContiguous() {
+        assertThat(AbstractAnalysisRunner.isCoordinateSorted(Arrays.asList(
+                variantContext("1", 10), variantContext("2", 10), variantContext("1", 20))), is(false));
+    }
 }
@@ -24,9 +24,13 @@
 import de.charite.compbio.exomiser.core.model.VariantCoordinates;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.*;
@@ -135,4 +139,60 @@ public void testGetTadsContainingVariant_TwoOverlappingTadsVariantInOne() {
         assertThat(instance.getRegionsContainingVariant(variant), equalTo(Arrays.asList(tad)));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSweepCursorReturnsRegionsInStartOrder() {
+        TopologicalDomain tad = new TopologicalDomain(1, 25, 75, new HashMap<>());
+        TopologicalDomain tad1 = new TopologicalDomain(1, 1, 100, new HashMap<>());
+        createInstance(tad, tad1);
+        ChromosomalRegionIndex.SweepCursor<TopologicalDomain> cursor = instance.newSweepCursor();
+
+        assertThat(cursor.getRegionsContainingVariant(variant), equalTo(Arrays.asList(tad1, tad)));
+    }
+
+    @Test
+    public void testSweepCursorSortedPositionsOnlySeeksOncePerChromosome() {
+        TopologicalDomain tad = new TopologicalDomain(1, 10, 20, new HashMap<>());
+        TopologicalDomain tad1 = new TopologicalDomain(1, 15, 30, new HashMap<>());
+        TopologicalDomain tad2 = new TopologicalDomain(2, 10, 20, new HashMap<>());
+        createInstance(tad, tad1, tad2);
+        ChromosomalRegionIndex.SweepCursor<TopologicalDomain> cursor = instance.newSweepCursor();
+
+        assertThat(cursor.getRegionsOverlappingPosition(1, 5), equalTo(Collections.<TopologicalDomain>emptyList()));
+        assertThat(cursor.getRegionsOverlappingPosition(1, 10), equalTo(Arrays.asList(tad)));
+        assertThat(cursor.getRegionsOverlappingPosition(1, 15), equalTo(Arrays.asList(tad, tad1)));
+        assertThat(cursor.getRegionsOverlappingPosition(1, 15), equalTo(Arrays.asList(tad, tad1)));
+        assertThat(cursor.getRegionsOverlappingPosition(1, 21), equalTo(Arrays.asList(tad1)));
+        assertThat(cursor.getRegionsOverlappingPosition(1, 31), equalTo(Collections.<TopologicalDomain>emptyList()));
+        assertThat(cursor.getRegionsOverlappingPosition(2, 20), equalTo(Arrays.asList(tad2)));
+        assertThat(cursor.getNumSeeks(), equalTo(2));
+    }
+
+    @Test
+    public void testSweepCursorGivesSameRegionsAsIndexForSortedAndUnsortedPositions() {
+        Random random = new Random(42);
+        List<TopologicalDomain> tads = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int chr = 1 + random.nextInt(3);
+            int start = 1 + random.nextInt(10000);
+            tads.add(new TopologicalDomain(chr, start, start + random.nextInt(500), new HashMap<>()));
+        }
+        instance = new ChromosomalRegionIndex<>(tads);
+
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            positions.add(1 + random.nextInt(11000));
+        }
+        List<Integer> sortedPositions = new ArrayList<>(positions);
+        Collections.sort(sortedPositions);
+
+        for (List<Integer> queryPositions : Arrays.asList(sortedPositions, positions)) {
+            ChromosomalRegionIndex.SweepCursor<TopologicalDomain> cursor = instance.newSweepCursor();
+            for (int chr = 1; chr <= 3; chr++) {
+                for (int position : queryPositions) {
+                    assertThat(new HashSet<>(cursor.getRegionsOverlappingPosition(chr, position)), equalTo(new HashSet<>(instance.getRegionsOverlappingPosition(chr, position))));
+                }
+            }
+        }
+    }
+
+}
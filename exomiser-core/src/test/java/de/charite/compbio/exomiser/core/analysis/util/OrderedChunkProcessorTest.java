@@ -0,0 +1,122 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.analysis.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class OrderedChunkProcessorTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroThreadsThrowsException() {
+        new OrderedChunkProcessor<Integer, Integer>(0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroChunkSizeThrowsException() {
+        new OrderedChunkProcessor<Integer, Integer>(2, 0);
+    }
+
+    @Test
+    public void testProcessEmptyStream() {
+        OrderedChunkProcessor<Integer, Integer> instance = new OrderedChunkProcessor<>(4, 10);
+        List<Integer> result = instance.process(Stream.empty(), chunk -> chunk);
+        assertThat(result, equalTo(Collections.<Integer>emptyList()));
+    }
+
+    @Test
+    public void testProcessReturnsResultsInInputOrder() {
+        List<Integer> input = IntStream.range(0, 10007).boxed().collect(toList());
+        OrderedChunkProcessor<Integer, Integer> instance = new OrderedChunkProcessor<>(4, 100);
+
+        List<Integer> result = instance.process(input.stream(), chunk -> chunk.stream().map(i -> i * 2).collect(toList()));
+
+        List<Integer> expected = input.stream().map(i -> i * 2).collect(toList());
+        assertThat(result, equalTo(expected));
+    }
+
+    @Test
+    public void testProcessWithFilteringChunkFunction() {
+        List<Integer> input = IntStream.range(0, 1000).boxed().collect(toList());
+        OrderedChunkProcessor<Integer, Integer> instance = new OrderedChunkProcessor<>(3, 7);
+
+        List<Integer> result = instance.process(input.stream(), chunk -> chunk.stream().filter(i -> i % 3 == 0).collect(toList()));
+
+        List<Integer> expected = input.stream().filter(i -> i % 3 == 0).collect(toList());
+        assertThat(result, equalTo(expected));
+    }
+
+    @Test
+    public void testProcessPreparesNextChunkBeforeProcessingCurrentChunk() {
+        List<String> events = new ArrayList<>();
+        OrderedChunkProcessor<Integer, Integer> instance = new OrderedChunkProcessor<>(1, 2);
+
+        List<Integer> result = instance.process(IntStream.range(0, 5).boxed(), chunk -> {
+            events.add("prepare " + chunk);
+            return chunk;
+        }, chunk -> {
+            events.add("process " + chunk);
+            return chunk;
+        });
+
+        assertThat(result, equalTo(Arrays.asList(0, 1, 2, 3, 4)));
+        assertThat(events, equalTo(Arrays.asList("prepare [0, 1]", "prepare [2, 3]", "process [0, 1]", "prepare [4]", "process [2, 3]", "process [4]")));
+    }
+
+    @Test
+    public void testProcessWithPrepareFunctionReturnsResultsInInputOrder() {
+        List<Integer> input = IntStream.range(0, 10007).boxed().collect(toList());
+        OrderedChunkProcessor<Integer, Integer> instance = new OrderedChunkProcessor<>(4, 100);
+
+        List<Integer> result = instance.process(input.stream(), chunk -> chunk.stream().map(i -> i * 2).collect(toList()), chunk -> chunk.stream().map(i -> i + 1).collect(toList()));
+
+        List<Integer> expected = input.stream().map(i -> i * 2 + 1).collect(toList());
+        assertThat(result, equalTo(expected));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProcessRethrowsRuntimeExceptionFromPrepareFunction() {
+        OrderedChunkProcessor<Integer, Integer> instance = new OrderedChunkProcessor<>(2, 5);
+        instance.<List<Integer>>process(IntStream.range(0, 100).boxed(), chunk -> {
+            throw new IllegalStateException("Boom!");
+        }, chunk -> chunk);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProcessRethrowsRuntimeExceptionFromChunkFunction() {
+        OrderedChunkProcessor<Integer, Integer> instance = new OrderedChunkProcessor<>(2, 5);
+        instance.process(IntStream.range(0, 100).boxed(), chunk -> {
+            throw new IllegalStateException("Boom!");
+        });
+    }
+}
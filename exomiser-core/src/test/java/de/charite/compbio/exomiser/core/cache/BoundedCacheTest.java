@@ -0,0 +1,183 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class BoundedCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroMaxEntriesThrowsException() {
+        new BoundedCache("test", 0);
+    }
+
+    @Test
+    public void testGetMissingKeyIsMiss() {
+        BoundedCache instance = new BoundedCache("test", 10);
+
+        assertThat(instance.get("key"), nullValue());
+
+        CacheStats stats = instance.getStats();
+        assertThat(stats.getHits(), equalTo(0L));
+        assertThat(stats.getMisses(), equalTo(1L));
+    }
+
+    @Test
+    public void testPutThenGetIsHit() {
+        BoundedCache instance = new BoundedCache("test", 10);
+        instance.get("key");
+        instance.put("key", "value");
+
+        assertThat(instance.get("key").get(), equalTo("value"));
+
+        CacheStats stats = instance.getStats();
+        assertThat(stats.getHits(), equalTo(1L));
+        assertThat(stats.getMisses(), equalTo(1L));
+        assertThat(stats.getHitRate(), equalTo(0.5));
+        assertThat(stats.getLoads(), equalTo(1L));
+        assertThat(stats.getSize(), equalTo(1L));
+    }
+
+    @Test
+    public void testCachesNullValues() {
+        BoundedCache instance = new BoundedCache("test", 10);
+        instance.put("key", null);
+
+        assertThat(instance.get("key").get(), nullValue());
+        assertThat(instance.getStats().getHits(), equalTo(1L));
+    }
+
+    @Test
+    public void testGetWithType() {
+        BoundedCache instance = new BoundedCache("test", 10);
+        instance.put("key", "value");
+
+        assertThat(instance.get("key", String.class), equalTo("value"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetWithWrongTypeThrowsException() {
+        BoundedCache instance = new BoundedCache("test", 10);
+        instance.put("key", "value");
+
+        instance.get("key", Integer.class);
+    }
+
+    @Test
+    public void testGetWithValueLoaderOnlyLoadsMissingValue() {
+        BoundedCache instance = new BoundedCache("test", 10);
+
+        assertThat(instance.get("key", () -> "value"), equalTo("value"));
+        assertThat(instance.get("key", () -> "other value"), equalTo("value"));
+        assertThat(instance.getStats().getLoads(), equalTo(1L));
+    }
+
+    @Test
+    public void testSizeNeverExceedsMaxEntries() {
+        BoundedCache instance = new BoundedCache("test", 100);
+        IntStream.range(0, 1000).forEach(i -> instance.put(i, i));
+
+        CacheStats stats = instance.getStats();
+        assertThat(stats.getSize(), equalTo(100L));
+        assertThat(stats.getEvictions(), equalTo(900L));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedEntry() {
+        BoundedCache instance = new BoundedCache("test", 2);
+        instance.put(1, "one");
+        instance.put(2, "two");
+        //use 1 so that 2 becomes the least recently used
+        instance.get(1);
+        instance.put(3, "three");
+
+        assertThat(instance.get(2), nullValue());
+        assertThat(instance.get(1).get(), equalTo("one"));
+        assertThat(instance.get(3).get(), equalTo("three"));
+        assertThat(instance.getStats().getEvictions(), equalTo(1L));
+    }
+
+    @Test
+    public void testLargeCacheSizeNeverExceedsMaxEntries() {
+        BoundedCache instance = new BoundedCache("test", 10000);
+        IntStream.range(0, 100000).forEach(i -> instance.put(i, i));
+
+        CacheStats stats = instance.getStats();
+        assertThat(stats.getSize() <= 10000L, is(true));
+        assertThat(stats.getSize() + stats.getEvictions(), equalTo(100000L));
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        BoundedCache instance = new BoundedCache("test", 10);
+
+        assertThat(instance.putIfAbsent("key", "value"), nullValue());
+        assertThat(instance.putIfAbsent("key", "other value").get(), equalTo("value"));
+        assertThat(instance.get("key").get(), equalTo("value"));
+    }
+
+    @Test
+    public void testEvictAndClear() {
+        BoundedCache instance = new BoundedCache("test", 10);
+        instance.put("key", "value");
+        instance.put("key1", "value1");
+
+        instance.evict("key");
+        assertThat(instance.get("key"), nullValue());
+        assertThat(instance.getStats().getSize(), equalTo(1L));
+
+        instance.clear();
+        assertThat(instance.getStats().getSize(), equalTo(0L));
+    }
+
+    @Test
+    public void testCacheManagerUsesPerCacheLimits() {
+        Map<String, Long> maxEntries = new HashMap<>();
+        maxEntries.put("frequency", 500L);
+        BoundedCacheManager instance = new BoundedCacheManager(100, maxEntries, Arrays.asList("frequency", "pathogenicity"));
+
+        assertThat(((BoundedCache) instance.getCache("frequency")).getMaxEntries(), equalTo(500L));
+        assertThat(((BoundedCache) instance.getCache("pathogenicity")).getMaxEntries(), equalTo(100L));
+    }
+
+    @Test
+    public void testCacheManagerCreatesUndeclaredCaches() {
+        BoundedCacheManager instance = new BoundedCacheManager(100, Collections.emptyMap(), Collections.emptyList());
+
+        assertThat(instance.getCache("cadd"), instanceOf(BoundedCache.class));
+        assertThat(instance.getCacheNames().contains("cadd"), is(true));
+        assertThat(instance.getCacheStats().size(), equalTo(1));
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import de.charite.compbio.exomiser.core.model.pathogenicity.CaddScore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
+import htsjdk.tribble.readers.TabixReader;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class CaddScoreStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    //the rescaled value of a phred score of 3.45
+    private static final float SCORE_3_45 = 0.54814404f;
+
+    //the phred scores are rounded to hundredths, which is out by at most 0.005 of a phred, and the rescaled score
+    //changes by at most ln(10)/10 = 0.23 per phred, so the rescaled scores can be out by up to 0.00116
+    private static final float QUANTISATION_TOLERANCE = 0.0012f;
+
+    private CaddScoreStore convert(int positionsPerBlock, String... lines) throws IOException {
+        Path caddFile = tempFolder.newFile().toPath();
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(caddFile));
+             Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.US_ASCII)) {
+            writer.write("## CADD v1.3 (c) University of Washington and Hudson-Alpha Institute for Biotechnology 2013-2015. All rights reserved.\n");
+            writer.write("#Chrom\tPos\tRef\tAlt\tRawScore\tPHRED\n");
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        Path storeFile = tempFolder.newFile().toPath();
+        CaddScoreStoreConverter.convert(caddFile, storeFile, positionsPerBlock);
+        return new CaddScoreStore(storeFile);
+    }
+
+    private CaddScoreStore convert(String... lines) throws IOException {
+        return convert(CaddScoreStoreWriter.DEFAULT_POSITIONS_PER_BLOCK, lines);
+    }
+
+    private static VariantEvaluation variant(int chr, int pos, String ref, String alt) {
+        if (ref.equals("-") || alt.equals("-")) {
+            return new VariantEvaluation.VariantBuilder(chr, pos, ref, alt)
+                    .variantContext(Mockito.mock(VariantContext.class))
+                    .build();
+        }
+        return new VariantEvaluation.VariantBuilder(chr, pos, ref, alt).build();
+    }
+
+    @Test
+    public void testGetScoreSnv() throws IOException {
+        CaddScoreStore instance = convert(
+                "1\t2\tA\tC\t-0.234\t4.45",
+                "1\t2\tA\tG\t-0.234\t1.0",
+                "1\t2\tA\tT\t-0.234\t3.45");
+
+        assertThat(instance.getScore(1, 2, "A", "T"), equalTo(SCORE_3_45));
+    }
+
+    @Test
+    public void testGetScoreSnvNoMatchingAllele() throws IOException {
+        CaddScoreStore instance = convert("1\t2\tA\tT\t-0.234\t3.45");
+
+        assertThat(Float.isNaN(instance.getScore(1, 2, "A", "C")), is(true));
+    }
+
+    @Test
+    public void testGetScorePositionNotInStore() throws IOException {
+        CaddScoreStore instance = convert(
+                "1\t2\tA\tT\t-0.234\t3.45",
+                "1\t4\tA\tT\t-0.234\t3.45");
+
+        assertThat(Float.isNaN(instance.getScore(1, 1, "A", "T")), is(true));
+        assertThat(Float.isNaN(instance.getScore(1, 3, "A", "T")), is(true));
+        assertThat(Float.isNaN(instance.getScore(1, 5, "A", "T")), is(true));
+    }
+
+    @Test
+    public void testGetScoreChromosomeNotInStore() throws IOException {
+        CaddScoreStore instance = convert("1\t2\tA\tT\t-0.234\t3.45");
+
+        assertThat(Float.isNaN(instance.getScore(2, 2, "A", "T")), is(true));
+        assertThat(Float.isNaN(instance.getScore(0, 2, "A", "T")), is(true));
+        assertThat(Float.isNaN(instance.getScore(26, 2, "A", "T")), is(true));
+    }
+
+    @Test
+    public void testGetScoreSexAndMitochondrialChromosomes() throws IOException {
+        CaddScoreStore instance = convert(
+                "X\t1\tA\tT\t-0.234\t3.45",
+                "Y\t1\tA\tT\t-0.234\t3.45",
+                "MT\t1\tA\tT\t-0.234\t3.45",
+                "GL000192.1\t1\tA\tT\t-0.234\t3.45");
+
+        assertThat(instance.getScore(23, 1, "A", "T"), equalTo(SCORE_3_45));
+        assertThat(instance.getScore(24, 1, "A", "T"), equalTo(SCORE_3_45));
+        assertThat(instance.getScore(25, 1, "A", "T"), equalTo(SCORE_3_45));
+    }
+
+    @Test
+    public void testGetScoreIndelsAreStoredWithoutAnchorBase() throws IOException {
+        CaddScoreStore instance = convert(
+                "1\t2\tA\tAC\t-0.234\t4.45",
+                "1\t2\tA\tAT\t-0.234\t3.45",
+                "1\t2\tAGG\tA\t-0.234\t3.45");
+
+        assertThat(instance.getScore(1, 2, "-", "T"), equalTo(SCORE_3_45));
+        assertThat(instance.getScore(1, 2, "GG", "-"), equalTo(SCORE_3_45));
+        assertThat(Float.isNaN(instance.getScore(1, 2, "-", "TT")), is(true));
+        assertThat(Float.isNaN(instance.getScore(1, 2, "G", "-")), is(true));
+    }
+
+    @Test
+    public void testGetScoreAcrossManyBlocks() throws IOException {
+        String[] lines = new String[1000];
+        int position = 1;
+        for (int i = 0; i < lines.length; i++) {
+            //varying gaps so that some deltas need more than one byte
+            position += i % 2 == 0 ? 3 : 300;
+            lines[i] = String.format("2\t%d\tC\tG\t0.1\t%d.5", position, i % 50);
+        }
+        CaddScoreStore instance = convert(7, lines);
+
+        for (String line : lines) {
+            String[] fields = line.split("\t");
+            position = Integer.parseInt(fields[1]);
+            float expected = 1 - (float) Math.pow(10, -(Float.parseFloat(fields[5]) / 10));
+            assertThat(instance.getScore(2, position, "C", "G"), equalTo(expected));
+            assertThat(Float.isNaN(instance.getScore(2, position + 1, "C", "G")), is(true));
+        }
+    }
+
+    @Test
+    public void testGetScoreOutOfOrderLookupsAfterSortedLookups() throws IOException {
+        CaddScoreStore instance = convert(2,
+                "1\t2\tA\tT\t-0.234\t3.45",
+                "1\t4\tA\tT\t-0.234\t3.45",
+                "1\t6\tA\tT\t-0.234\t3.45",
+                "1\t8\tA\tT\t-0.234\t3.45",
+                "1\t10\tA\tT\t-0.234\t3.45",
+                "2\t2\tA\tT\t-0.234\t3.45");
+
+        for (int position : new int[]{2, 3, 4, 8, 10, 11, 2, 6, 1, 10, 6}) {
+            float expected = position % 2 == 0 ? SCORE_3_45 : Float.NaN;
+            assertThat("1:" + position, instance.getScore(1, position, "A", "T"), equalTo(expected));
+        }
+        assertThat(instance.getScore(2, 2, "A", "T"), equalTo(SCORE_3_45));
+        assertThat(instance.getScore(1, 4, "A", "T"), equalTo(SCORE_3_45));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConvertPositionsOutOfOrderThrowsException() throws IOException {
+        convert("1\t3\tA\tT\t-0.234\t3.45",
+                "1\t2\tA\tT\t-0.234\t3.45");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConvertChromosomesOutOfOrderThrowsException() throws IOException {
+        convert("1\t2\tA\tT\t-0.234\t3.45",
+                "2\t2\tA\tT\t-0.234\t3.45",
+                "1\t3\tA\tT\t-0.234\t3.45");
+    }
+
+    @Test(expected = CaddScoreStore.CaddScoreStoreException.class)
+    public void testOpenFileWhichIsNotAStoreThrowsException() throws IOException {
+        Path notAStore = tempFolder.newFile().toPath();
+        Files.write(notAStore, "not a CADD score store".getBytes(StandardCharsets.US_ASCII));
+        new CaddScoreStore(notAStore);
+    }
+
+    @Test
+    public void testParseChromosome() {
+        List<String> chromosomes = Arrays.asList("1", "22", "X", "Y", "M", "MT", "23", "GL000192.1");
+        int[] expected = {1, 22, 23, 24, 25, 25, 0, 0};
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(chromosomes.get(i), CaddScoreStoreConverter.parseChromosome(chromosomes.get(i)), equalTo(expected[i]));
+        }
+    }
+
+    @Test
+    public void testCaddDaoUsesScoreStores() throws IOException {
+        CaddScoreStore snvStore = convert("1\t2\tA\tT\t-0.234\t3.45");
+        CaddScoreStore inDelStore = convert(
+                "1\t2\tA\tAT\t-0.234\t3.45",
+                "1\t2\tAT\tA\t-0.234\t3.45");
+        CaddDao caddDao = new CaddDao(inDelStore, snvStore);
+
+        PathogenicityData expected = new PathogenicityData(new CaddScore(SCORE_3_45));
+        assertThat(caddDao.getPathogenicityData(variant(1, 2, "A", "T")), equalTo(expected));
+        assertThat(caddDao.getPathogenicityData(variant(1, 2, "-", "T")), equalTo(expected));
+        // deletions are one position further on in Jannovar
+        assertThat(caddDao.getPathogenicityData(variant(1, 3, "T", "-")), equalTo(expected));
+        assertThat(caddDao.getPathogenicityData(variant(1, 2, "A", "C")), equalTo(new PathogenicityData()));
+    }
+
+    @Test
+    public void testCaddDaoScoreStoresMatchTabixWithinQuantisationTolerance() throws IOException {
+        //the CADD files give the PHRED score to three decimal places, the worst cases are just either side of 0
+        String[] phredScores = {"0.000", "0.001", "0.004", "0.005", "0.015", "1.234", "3.456", "9.995", "15.678", "20.005", "35.999", "48.123", "99.000"};
+        TabixReader snvTabixReader = Mockito.mock(TabixReader.class);
+        TabixReader inDelTabixReader = Mockito.mock(TabixReader.class);
+        String[] snvLines = new String[phredScores.length];
+        String[] inDelLines = new String[phredScores.length];
+        for (int i = 0; i < phredScores.length; i++) {
+            int position = i + 1;
+            snvLines[i] = "1\t" + position + "\tA\tT\t-0.234\t" + phredScores[i];
+            inDelLines[i] = "1\t" + position + "\tA\tAT\t-0.234\t" + phredScores[i];
+            String region = "1:" + position + "-" + position;
+            Mockito.when(snvTabixReader.query(region)).thenReturn(new MockTabixIterator(Collections.singletonList(snvLines[i])));
+            Mockito.when(inDelTabixReader.query(region)).thenReturn(new MockTabixIterator(Collections.singletonList(inDelLines[i])));
+        }
+        CaddDao tabixDao = new CaddDao(inDelTabixReader, snvTabixReader);
+        CaddDao scoreStoreDao = new CaddDao(convert(inDelLines), convert(snvLines));
+
+        for (int i = 0; i < phredScores.length; i++) {
+            for (VariantEvaluation variant : Arrays.asList(variant(1, i + 1, "A", "T"), variant(1, i + 1, "-", "T"))) {
+                float tabixScore = tabixDao.getPathogenicityData(variant).getCaddScore().getScore();
+                float scoreStoreScore = scoreStoreDao.getPathogenicityData(variant).getCaddScore().getScore();
+                assertEquals(phredScores[i] + " " + variant.getRef() + ">" + variant.getAlt(), tabixScore, scoreStoreScore, QUANTISATION_TOLERANCE);
+            }
+        }
+    }
+}
@@ -26,6 +26,8 @@
 
 import javax.sql.DataSource;
 import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -47,6 +49,11 @@ public DataSource dataSource() {
         return dataSource;
     }
     
+    @Bean
+    public CacheManager cacheManager() {
+        return new ConcurrentMapCacheManager(DefaultFrequencyDao.FREQUENCY_CACHE_NAME);
+    }
+
     @Bean
     public DefaultFrequencyDao defaultFrequencyDao() {
         return new DefaultFrequencyDao();
@@ -30,7 +30,10 @@
 import de.charite.compbio.exomiser.core.model.frequency.FrequencyData;
 import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
 import de.charite.compbio.exomiser.core.model.frequency.RsId;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 
@@ -41,6 +44,8 @@
 
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -59,6 +64,9 @@ public class DefaultFrequencyDaoTest {
     @Autowired
     private DefaultFrequencyDao instance;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     Variant variantNotInDatabase;
     Variant variantInDatabaseWithRsId;
 
@@ -92,5 +100,53 @@ public void testVariantInDatabaseReturnsFrequencyData() {
         assertThat(result, equalTo(expected));
         assertThat(result.isRepresentedInDatabase(), is(true));
     }
-       
+
+    @Test
+    public void testGetFrequencyDataForBlockOfVariants() {
+        Map<Variant, FrequencyData> results = instance.getFrequencyData(Arrays.asList(variantNotInDatabase, variantInDatabaseWithRsId));
+
+        assertThat(results.size(), equalTo(2));
+        assertThat(results.get(variantNotInDatabase), equalTo(NO_DATA));
+        assertThat(results.get(variantInDatabaseWithRsId), equalTo(new FrequencyData(rsId, dbSnp, espAa, espAll, espEa)));
+    }
+
+    @Test
+    public void testGetFrequencyDataForBlockOfVariantsMatchesSingleVariantQuery() {
+        Variant sameBlockDifferentAllele = new VariantEvaluation.VariantBuilder(10, 123256215, "T", "A").build();
+        List<Variant> variants = Arrays.asList(variantNotInDatabase, variantInDatabaseWithRsId, sameBlockDifferentAllele);
+
+        Map<Variant, FrequencyData> results = instance.getFrequencyData(variants);
+
+        for (Variant variant : variants) {
+            assertThat(results.get(variant), equalTo(instance.getFrequencyData(variant)));
+        }
+    }
+
+    @Test
+    public void testGetFrequencyDataForBlockOfVariantsAddsQueriedVariantsToCache() {
+        instance.getFrequencyData(Arrays.asList(variantNotInDatabase, variantInDatabaseWithRsId));
+
+        Cache frequencyCache = cacheManager.getCache(DefaultFrequencyDao.FREQUENCY_CACHE_NAME);
+        assertThat(frequencyCache.get(variantNotInDatabase.getChromosomalVariant()).get(), equalTo(NO_DATA));
+        assertThat(frequencyCache.get(variantInDatabaseWithRsId.getChromosomalVariant()).get(), equalTo(new FrequencyData(rsId, dbSnp, espAa, espAll, espEa)));
+    }
+
+    @Test
+    public void testGetFrequencyDataForBlockOfVariantsOnlyQueriesVariantsMissingFromCache() {
+        Variant cachedVariant = new VariantEvaluation.VariantBuilder(5, 1000, "A", "C").build();
+        FrequencyData cachedFrequencyData = new FrequencyData(new RsId(12345), new Frequency(0.5f, FrequencySource.ESP_ALL));
+        cacheManager.getCache(DefaultFrequencyDao.FREQUENCY_CACHE_NAME).put(cachedVariant.getChromosomalVariant(), cachedFrequencyData);
+
+        Map<Variant, FrequencyData> results = instance.getFrequencyData(Arrays.asList(cachedVariant, variantInDatabaseWithRsId));
+
+        assertThat(results.get(cachedVariant), equalTo(cachedFrequencyData));
+        assertThat(results.get(variantInDatabaseWithRsId), equalTo(new FrequencyData(rsId, dbSnp, espAa, espAll, espEa)));
+    }
+
+    @Test
+    public void testGetFrequencyDataForEmptyBlockOfVariants() {
+        Map<Variant, FrequencyData> results = instance.getFrequencyData(Collections.<Variant>emptyList());
+        assertThat(results.isEmpty(), is(true));
+    }
+
 }
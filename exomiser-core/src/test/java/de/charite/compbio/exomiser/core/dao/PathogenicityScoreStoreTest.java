@@ -0,0 +1,143 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.dao;
+
+import de.charite.compbio.exomiser.core.model.pathogenicity.MutationTasterScore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PolyPhenScore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.SiftScore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PathogenicityScoreStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path storeFile;
+
+    @Before
+    public void setUp() throws IOException {
+        storeFile = tempFolder.newFile().toPath();
+    }
+
+    @Test
+    public void testGetPathogenicityDataAllScores() throws IOException {
+        try (PathogenicityScoreStoreWriter writer = new PathogenicityScoreStoreWriter(storeFile)) {
+            writer.add(1, 12345, "A", "T", 0.01f, 0.99f, 0.8f);
+        }
+        PathogenicityScoreStore instance = new PathogenicityScoreStore(storeFile);
+
+        PathogenicityData expected = new PathogenicityData(new PolyPhenScore(0.99f), new MutationTasterScore(0.8f), new SiftScore(0.01f));
+        assertThat(instance.getPathogenicityData(1, 12345, "A", "T"), equalTo(expected));
+    }
+
+    @Test
+    public void testGetPathogenicityDataOnlySomeScores() throws IOException {
+        try (PathogenicityScoreStoreWriter writer = new PathogenicityScoreStoreWriter(storeFile)) {
+            writer.add(1, 12345, "A", "T", null, 0.99f, null);
+        }
+        PathogenicityScoreStore instance = new PathogenicityScoreStore(storeFile);
+
+        assertThat(instance.getPathogenicityData(1, 12345, "A", "T"), equalTo(new PathogenicityData(new PolyPhenScore(0.99f))));
+    }
+
+    @Test
+    public void testGetPathogenicityDataKeepsMostPathogenicScoresForRepeatedAllele() throws IOException {
+        try (PathogenicityScoreStoreWriter writer = new PathogenicityScoreStoreWriter(storeFile)) {
+            writer.add(1, 12345, "A", "T", 0.5f, 0.1f, null);
+            writer.add(1, 12345, "A", "C", 0.9f, 0.9f, 0.9f);
+            writer.add(1, 12345, "A", "T", 0.2f, 0.05f, 0.6f);
+        }
+        PathogenicityScoreStore instance = new PathogenicityScoreStore(storeFile);
+
+        PathogenicityData expected = new PathogenicityData(new PolyPhenScore(0.1f), new MutationTasterScore(0.6f), new SiftScore(0.2f));
+        assertThat(instance.getPathogenicityData(1, 12345, "A", "T"), equalTo(expected));
+    }
+
+    @Test
+    public void testGetPathogenicityDataMissingVariantReturnsEmptyData() throws IOException {
+        try (PathogenicityScoreStoreWriter writer = new PathogenicityScoreStoreWriter(storeFile)) {
+            writer.add(1, 12345, "A", "T", 0.01f, 0.99f, 0.8f);
+            writer.add(23, 200, "G", "C", 0.01f, 0.99f, 0.8f);
+        }
+        PathogenicityScoreStore instance = new PathogenicityScoreStore(storeFile);
+
+        assertThat(instance.getPathogenicityData(1, 12345, "A", "G"), equalTo(PathogenicityData.EMPTY_DATA));
+        assertThat(instance.getPathogenicityData(1, 12344, "A", "T"), equalTo(PathogenicityData.EMPTY_DATA));
+        assertThat(instance.getPathogenicityData(1, 12346, "A", "T"), equalTo(PathogenicityData.EMPTY_DATA));
+        assertThat(instance.getPathogenicityData(2, 12345, "A", "T"), equalTo(PathogenicityData.EMPTY_DATA));
+        assertThat(instance.getPathogenicityData(1, 12345, "AT", "T"), equalTo(PathogenicityData.EMPTY_DATA));
+    }
+
+    @Test
+    public void testGetPathogenicityDataAcrossBlocksAndChromosomes() throws IOException {
+        try (PathogenicityScoreStoreWriter writer = new PathogenicityScoreStoreWriter(storeFile, 2)) {
+            for (int chr = 1; chr <= 3; chr++) {
+                for (int pos = 1; pos <= 1000; pos++) {
+                    writer.add(chr, pos * 1000, "C", "T", pos / 1000f, null, null);
+                }
+            }
+        }
+        PathogenicityScoreStore instance = new PathogenicityScoreStore(storeFile);
+
+        for (int chr = 1; chr <= 3; chr++) {
+            for (int pos = 1; pos <= 1000; pos++) {
+                assertThat(instance.getPathogenicityData(chr, pos * 1000, "C", "T"), equalTo(new PathogenicityData(new SiftScore(pos / 1000f))));
+            }
+        }
+    }
+
+    @Test
+    public void testWriterIgnoresAllelesWithNoScoresOrWhichAreNotSnvs() throws IOException {
+        try (PathogenicityScoreStoreWriter writer = new PathogenicityScoreStoreWriter(storeFile)) {
+            assertThat(writer.add(1, 12345, "A", "T", null, null, null), equalTo(false));
+            assertThat(writer.add(1, 12345, "A", "TT", 0.1f, null, null), equalTo(false));
+            assertThat(writer.add(1, 12345, "N", "T", 0.1f, null, null), equalTo(false));
+            assertThat(writer.getNumAlleles(), equalTo(0L));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriterThrowsExceptionWhenPositionsOutOfOrder() throws IOException {
+        try (PathogenicityScoreStoreWriter writer = new PathogenicityScoreStoreWriter(storeFile)) {
+            writer.add(1, 12345, "A", "T", 0.1f, null, null);
+            writer.add(1, 12344, "A", "T", 0.1f, null, null);
+        }
+    }
+
+    @Test(expected = PathogenicityScoreStore.PathogenicityScoreStoreException.class)
+    public void testNotAStoreFileThrowsException() throws IOException {
+        Files.write(storeFile, new byte[32]);
+        new PathogenicityScoreStore(storeFile);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.factories;
+
+import de.charite.compbio.exomiser.core.model.Variant;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import de.charite.compbio.exomiser.core.model.frequency.Frequency;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencyData;
+import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
+import de.charite.compbio.exomiser.core.model.frequency.RsId;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PolyPhenScore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PrefetchingVariantDataServiceTest {
+
+    private PrefetchingVariantDataService instance;
+    private VariantDataServiceMock variantDataService;
+    private List<VariantEvaluation> variants;
+
+    @Before
+    public void setUp() {
+        variantDataService = new VariantDataServiceMock();
+        variants = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            VariantEvaluation variant = new VariantEvaluation.VariantBuilder(1, i, "A", "T").build();
+            variants.add(variant);
+            if (i % 3 == 0) {
+                variantDataService.put(variant, new FrequencyData(new RsId(i), new Frequency(i / 100f, FrequencySource.ESP_ALL)));
+                variantDataService.put(variant, new PathogenicityData(new PolyPhenScore(i / 100f)));
+            }
+        }
+        instance = new PrefetchingVariantDataService(variantDataService, 4);
+    }
+
+    @After
+    public void tearDown() {
+        instance.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroThreadsThrowsException() {
+        new PrefetchingVariantDataService(variantDataService, 0);
+    }
+
+    @Test
+    public void testGetVariantFrequencyDataForVariantsSameAsDecoratedService() {
+        Set<FrequencySource> frequencySources = EnumSet.of(FrequencySource.ESP_ALL);
+        Map<Variant, FrequencyData> expected = variantDataService.getVariantFrequencyData(variants, frequencySources);
+
+        assertThat(instance.getVariantFrequencyData(variants, frequencySources), equalTo(expected));
+    }
+
+    @Test
+    public void testGetVariantPathogenicityDataForVariantsSameAsDecoratedService() {
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.of(PathogenicitySource.POLYPHEN);
+        Map<Variant, PathogenicityData> expected = variantDataService.getVariantPathogenicityData(variants, pathogenicitySources);
+
+        assertThat(instance.getVariantPathogenicityData(variants, pathogenicitySources), equalTo(expected));
+    }
+
+    @Test
+    public void testGetVariantPathogenicityDataForSingleVariantIsPassedThrough() {
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.of(PathogenicitySource.POLYPHEN);
+        VariantEvaluation variant = variants.get(2);
+
+        assertThat(instance.getVariantPathogenicityData(variant, pathogenicitySources), equalTo(new PathogenicityData(new PolyPhenScore(0.03f))));
+    }
+
+    @Test
+    public void testPrefetchedDataSameAsDecoratedService() {
+        Set<FrequencySource> frequencySources = EnumSet.of(FrequencySource.ESP_ALL);
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.of(PathogenicitySource.POLYPHEN);
+        Map<Variant, FrequencyData> expectedFrequencyData = variantDataService.getVariantFrequencyData(variants, frequencySources);
+        Map<Variant, PathogenicityData> expectedPathogenicityData = variantDataService.getVariantPathogenicityData(variants, pathogenicitySources);
+
+        try (PrefetchingVariantDataService.Prefetch prefetch = instance.prefetch(variants, frequencySources, pathogenicitySources)) {
+            assertThat(instance.getVariantFrequencyData(variants, frequencySources), equalTo(expectedFrequencyData));
+            assertThat(instance.getVariantPathogenicityData(variants, pathogenicitySources), equalTo(expectedPathogenicityData));
+            assertThat(instance.getVariantPathogenicityData(variants.get(2), pathogenicitySources), equalTo(new PathogenicityData(new PolyPhenScore(0.03f))));
+        }
+    }
+
+    @Test
+    public void testPrefetchedPathogenicityLookupsAreMadeInOrderOnOneThread() {
+        LookupRecordingVariantDataService recordingDataService = new LookupRecordingVariantDataService();
+        PrefetchingVariantDataService recordingInstance = new PrefetchingVariantDataService(recordingDataService, 4);
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.of(PathogenicitySource.POLYPHEN);
+        try (PrefetchingVariantDataService.Prefetch prefetch = recordingInstance.prefetch(variants, EnumSet.noneOf(FrequencySource.class), pathogenicitySources)) {
+            recordingInstance.getVariantPathogenicityData(variants, pathogenicitySources);
+        } finally {
+            recordingInstance.shutdown();
+        }
+        assertThat(recordingDataService.lookedUpVariants, equalTo(new ArrayList<Variant>(variants)));
+        assertThat(recordingDataService.lookupThreads.size(), equalTo(1));
+        assertThat(recordingDataService.lookupThreads.contains(Thread.currentThread().getName()), is(false));
+    }
+
+    @Test
+    public void testClosedPrefetchIsNoLongerUsed() {
+        LookupRecordingVariantDataService recordingDataService = new LookupRecordingVariantDataService();
+        PrefetchingVariantDataService recordingInstance = new PrefetchingVariantDataService(recordingDataService, 2);
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.of(PathogenicitySource.POLYPHEN);
+        try {
+            PrefetchingVariantDataService.Prefetch prefetch = recordingInstance.prefetch(variants, EnumSet.noneOf(FrequencySource.class), pathogenicitySources);
+            recordingInstance.getVariantPathogenicityData(variants, pathogenicitySources);
+            prefetch.close();
+            recordingDataService.lookupThreads.clear();
+
+            recordingInstance.getVariantPathogenicityData(variants.get(0), pathogenicitySources);
+        } finally {
+            recordingInstance.shutdown();
+        }
+        assertThat(recordingDataService.lookupThreads, equalTo(Collections.singleton(Thread.currentThread().getName())));
+    }
+
+    @Test
+    public void testPrefetchForOtherSourcesIsNotUsed() {
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.of(PathogenicitySource.POLYPHEN);
+        Map<Variant, PathogenicityData> expected = variantDataService.getVariantPathogenicityData(variants, EnumSet.of(PathogenicitySource.MUTATION_TASTER));
+
+        try (PrefetchingVariantDataService.Prefetch prefetch = instance.prefetch(variants, EnumSet.noneOf(FrequencySource.class), pathogenicitySources)) {
+            assertThat(instance.getVariantPathogenicityData(variants, EnumSet.of(PathogenicitySource.MUTATION_TASTER)), equalTo(expected));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExceptionFromDecoratedServiceIsRethrown() {
+        VariantDataService failingDataService = new VariantDataServiceMock() {
+            @Override
+            public PathogenicityData getVariantPathogenicityData(Variant variant, Set<PathogenicitySource> pathogenicitySources) {
+                throw new IllegalStateException("Boom!");
+            }
+        };
+        PrefetchingVariantDataService failingInstance = new PrefetchingVariantDataService(failingDataService, 2);
+        Set<PathogenicitySource> pathogenicitySources = EnumSet.of(PathogenicitySource.POLYPHEN);
+        try (PrefetchingVariantDataService.Prefetch prefetch = failingInstance.prefetch(variants, EnumSet.noneOf(FrequencySource.class), pathogenicitySources)) {
+            failingInstance.getVariantPathogenicityData(variants, pathogenicitySources);
+        } finally {
+            failingInstance.shutdown();
+        }
+    }
+
+    /**
+     * Records the variants and threads each pathogenicity lookup was made for and on.
+     */
+    private static class LookupRecordingVariantDataService extends VariantDataServiceMock {
+
+        private final List<Variant> lookedUpVariants = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> lookupThreads = Collections.synchronizedSet(new HashSet<>());
+
+        @Override
+        public PathogenicityData getVariantPathogenicityData(Variant variant, Set<PathogenicitySource> pathogenicitySources) {
+            lookedUpVariants.add(variant);
+            lookupThreads.add(Thread.currentThread().getName());
+            return super.getVariantPathogenicityData(variant, pathogenicitySources);
+        }
+    }
+}
@@ -33,6 +33,7 @@
 import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -113,6 +114,15 @@ public FrequencyData getVariantFrequencyData(Variant variant, Set<FrequencySourc
         return frequencyDataFromSpecifiedSources(allFrequencyData, frequencySources);
     }
 
+    @Override
+    public Map<Variant, FrequencyData> getVariantFrequencyData(Collection<? extends Variant> variants, Set<FrequencySource> frequencySources) {
+        Map<Variant, FrequencyData> frequencyData = new HashMap<>();
+        for (Variant variant : variants) {
+            frequencyData.put(variant, getVariantFrequencyData(variant, frequencySources));
+        }
+        return frequencyData;
+    }
+
     @Override
     public PathogenicityData getVariantPathogenicityData(Variant variant, Set<PathogenicitySource> pathogenicitySources) {
         PathogenicityData pathData = expectedPathogenicityData.getOrDefault(variant, new PathogenicityData());
@@ -24,6 +24,7 @@
  */
 package de.charite.compbio.exomiser.core.factories;
 
+import de.charite.compbio.exomiser.core.model.GeneticInterval;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.jannovar.data.JannovarData;
 import htsjdk.tribble.TribbleException;
@@ -35,6 +36,8 @@
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -47,6 +50,9 @@
  */
 public class VariantFactoryTest {
 
+    //bgzipped and tabix indexed copy of regionTest.vcf, which names its contigs chr1 rather than 1
+    private static final Path INDEXED_VCF = Paths.get("src/test/resources/regionTest.vcf.gz");
+
     private final VariantFactory instance;
 
     public VariantFactoryTest() {
@@ -66,6 +72,107 @@ public void alternateConstructor() {
         assertThat(alternateFactory, notNullValue());
     }
 
+    @Test
+    public void testGetChromosomeId_KnownContig() {
+        assertThat(instance.getChromosomeId("1"), equalTo(1));
+    }
+
+    @Test
+    public void testGetChromosomeId_UnknownContig() {
+        assertThat(instance.getChromosomeId("wibble"), equalTo(0));
+    }
+
+    @Test
+    public void testGetGeneRegions_KnownGene() {
+        List<GeneticInterval> geneRegions = instance.getGeneRegions(Collections.singleton("SHH"));
+        assertThat(geneRegions, equalTo(Collections.singletonList(new GeneticInterval(7, 155595558, 155604967))));
+    }
+
+    @Test
+    public void testGetGeneRegions_UnknownGene() {
+        assertThat(instance.getGeneRegions(Collections.singleton("WIBBLE")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testCanQueryRegions_UncompressedVcf() {
+        assertThat(instance.canQueryRegions(Paths.get("src/test/resources/smallTest.vcf")), is(false));
+    }
+
+    @Test
+    public void testCanQueryRegions_IndexedVcf() {
+        assertThat(instance.canQueryRegions(INDEXED_VCF), is(true));
+    }
+
+    private List<Integer> streamVariantContextPositions(GeneticInterval... regions) {
+        try (Stream<VariantContext> variantContexts = instance.streamVariantContexts(INDEXED_VCF, Arrays.asList(regions))) {
+            return variantContexts.map(VariantContext::getStart).collect(toList());
+        }
+    }
+
+    @Test
+    public void testStreamVariantContexts_RegionIncludesRecordsOverlappingIt() {
+        //the deletion at 145508798 spans 145508798-145508800
+        assertThat(streamVariantContextPositions(new GeneticInterval(1, 145508800, 145508800)), equalTo(Arrays.asList(145508798, 145508800)));
+    }
+
+    @Test
+    public void testStreamVariantContexts_RegionExcludesRecordsEitherSideOfIt() {
+        //the insertion at 145508700 ends before the region and the deletion at 145508798 starts after it
+        assertThat(streamVariantContextPositions(new GeneticInterval(1, 145508701, 145508797)).isEmpty(), is(true));
+        assertThat(streamVariantContextPositions(new GeneticInterval(1, 145508700, 145508700)), equalTo(Collections.singletonList(145508700)));
+    }
+
+    @Test
+    public void testStreamVariantContexts_ContigNamedChr1IsFoundForChromosome1() {
+        try (Stream<VariantContext> variantContexts = instance.streamVariantContexts(INDEXED_VCF, Collections.singletonList(new GeneticInterval(1, 1, 200000000)))) {
+            List<String> contigs = variantContexts.map(VariantContext::getContig).collect(toList());
+            assertThat(contigs, equalTo(Arrays.asList("chr1", "chr1", "chr1", "chr1", "chr1")));
+        }
+    }
+
+    @Test
+    public void testStreamVariantContexts_RegionOnChromosomeNotInFile() {
+        assertThat(streamVariantContextPositions(new GeneticInterval(2, 1, 200000000)).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testStreamVariantContexts_RecordSpanningTwoRegionsIsOnlyReturnedOnce() {
+        //the regions don't abut, so aren't merged, but the deletion at 145508798 overlaps both
+        List<Integer> positions = streamVariantContextPositions(new GeneticInterval(1, 145508798, 145508798), new GeneticInterval(1, 145508800, 145508800));
+        assertThat(positions, equalTo(Arrays.asList(145508798, 145508800)));
+    }
+
+    @Test
+    public void testStreamVariantContexts_RecordsAreInPositionOrderWhateverTheOrderOfTheRegions() {
+        List<Integer> positions = streamVariantContextPositions(new GeneticInterval(1, 145510000, 145510000), new GeneticInterval(1, 145508700, 145508700), new GeneticInterval(1, 123256213, 123256213));
+        assertThat(positions, equalTo(Arrays.asList(123256213, 145508700, 145510000)));
+    }
+
+    @Test
+    public void testStreamVariantContexts_RegionsReturnSameRecordsAsWholeFile() {
+        List<VariantContext> wholeFile = instance.createVariantContexts(Paths.get("src/test/resources/regionTest.vcf"));
+        try (Stream<VariantContext> variantContexts = instance.streamVariantContexts(INDEXED_VCF, Collections.singletonList(new GeneticInterval(1, 1, 200000000)))) {
+            assertThat(variantContexts.map(VariantFactoryTest::describe).collect(toList()), equalTo(wholeFile.stream().map(VariantFactoryTest::describe).collect(toList())));
+        }
+    }
+
+    private static String describe(VariantContext variantContext) {
+        return variantContext.getContig() + " " + variantContext.getStart() + " " + variantContext.getAlleles() + " " + variantContext.getGenotypes();
+    }
+
+    @Test
+    public void testMergeRegions() {
+        GeneticInterval chr1First = new GeneticInterval(1, 10, 20);
+        GeneticInterval chr1Overlapping = new GeneticInterval(1, 15, 30);
+        GeneticInterval chr1Abutting = new GeneticInterval(1, 31, 40);
+        GeneticInterval chr1Separate = new GeneticInterval(1, 100, 200);
+        GeneticInterval chr2 = new GeneticInterval(2, 15, 30);
+
+        List<GeneticInterval> mergedRegions = VariantFactory.mergeRegions(Arrays.asList(chr2, chr1Separate, chr1Abutting, chr1Overlapping, chr1First));
+
+        assertThat(mergedRegions, equalTo(Arrays.asList(new GeneticInterval(1, 10, 40), chr1Separate, chr2)));
+    }
+
     @Test(expected = TribbleException.class)
     public void testCreateVariantContexts_NonExistentFile() {
         Path vcfPath = Paths.get("src/test/resources/wibble.vcf");
@@ -67,6 +67,19 @@ public void testProvidesFrequencyDataForVariantWhenRun() {
         assertThat(variant.getFrequencyData(), equalTo(expectedData));
     }
 
+    @Test
+    public void testProvidesFrequencyDataForBlockOfVariants() {
+        VariantEvaluation otherVariant = new VariantEvaluation.VariantBuilder(2, 2, "G", "C").frequencyData(defaultFrequencyData).build();
+        FrequencyData expectedData = new FrequencyData(new RsId(123456), new Frequency(1.0f, ESP_ALL));
+        variantDataService.put(variant, expectedData);
+
+        instance = new FrequencyDataProvider(variantDataService, EnumSet.allOf(FrequencySource.class), new KnownVariantFilter());
+        instance.provideVariantData(Arrays.asList(variant, otherVariant));
+
+        assertThat(variant.getFrequencyData(), equalTo(expectedData));
+        assertThat(otherVariant.getFrequencyData(), equalTo(FrequencyData.EMPTY_DATA));
+    }
+
     @Test
     public void testFilterResultIsThatOfDecoratedFilter() {
         final KnownVariantFilter decoratedFilter = new KnownVariantFilter();
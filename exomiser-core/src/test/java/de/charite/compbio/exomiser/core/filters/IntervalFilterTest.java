@@ -6,6 +6,7 @@
 
 package de.charite.compbio.exomiser.core.filters;
 
+import de.charite.compbio.exomiser.core.factories.VariantContextBuilder;
 import de.charite.compbio.exomiser.core.model.GeneticInterval;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
@@ -59,6 +60,51 @@ public void setUp() {
         instance = new IntervalFilter(SEARCH_INTERVAL);
     }
 
+    private final VariantContextBuilder variantContextBuilder = new VariantContextBuilder("sample");
+
+    @Test
+    public void testVariantContextOnWrongChromosomeCannotPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("3 " + INSIDE_REGION + " . A T 100 . . GT 0/1"), WRONG_CHR), is(false));
+    }
+
+    @Test
+    public void testVariantContextOnUnknownChromosomeMayPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + INSIDE_REGION + " . A T 100 . . GT 0/1"), 0), is(true));
+    }
+
+    @Test
+    public void testSubstitutionVariantContextInsideRegionMayPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + INSIDE_REGION + " . A T 100 . . GT 0/1"), RIGHT_CHR), is(true));
+    }
+
+    @Test
+    public void testSubstitutionVariantContextOverlappingStartOfRegionMayPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + (START_REGION - 1) + " . AA TT 100 . . GT 0/1"), RIGHT_CHR), is(true));
+    }
+
+    @Test
+    public void testSubstitutionVariantContextOutsideRegionCannotPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + BEFORE_REGION + " . A T,C 100 . . GT 1/2"), RIGHT_CHR), is(false));
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + AFTER_REGION + " . A T 100 . . GT 0/1"), RIGHT_CHR), is(false));
+    }
+
+    @Test
+    public void testIndelVariantContextOutsideRegionOnRightChromosomeMayPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + BEFORE_REGION + " . A AT 100 . . GT 0/1"), RIGHT_CHR), is(true));
+    }
+
+    @Test
+    public void testIndelVariantContextAtEdgeOfMarginMayPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + (START_REGION - IntervalFilter.INDEL_MARGIN - 1) + " . AT A 100 . . GT 0/1"), RIGHT_CHR), is(true));
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + (END_REGION + IntervalFilter.INDEL_MARGIN) + " . A AT 100 . . GT 0/1"), RIGHT_CHR), is(true));
+    }
+
+    @Test
+    public void testIndelVariantContextBeyondMarginCannotPass() {
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + (START_REGION - IntervalFilter.INDEL_MARGIN - 2) + " . AT A 100 . . GT 0/1"), RIGHT_CHR), is(false));
+        assertThat(instance.mayPass(variantContextBuilder.build("7 " + (END_REGION + IntervalFilter.INDEL_MARGIN + 1) + " . A AT 100 . . GT 0/1"), RIGHT_CHR), is(false));
+    }
+
     @Test
     public void testGetInterval() {
         assertThat(instance.getGeneticInterval(), equalTo(SEARCH_INTERVAL));
@@ -16,6 +16,7 @@
 import de.charite.compbio.exomiser.core.model.pathogenicity.SiftScore;
 
 import java.util.Collections;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
@@ -55,6 +56,16 @@ public void testProvideVariantData() {
         assertThat(variant.getPathogenicityData(), equalTo(EXPECTED_PATH_DATA));
     }
     
+    @Test
+    public void testProvideVariantDataForListOfVariants() {
+        instance = new PathogenicityDataProvider(variantDataService, EnumSet.of(POLYPHEN, SIFT, MUTATION_TASTER), new StubPassAllVariantFilter(FilterType.PATHOGENICITY_FILTER));
+        VariantEvaluation otherVariant = new VariantEvaluation.VariantBuilder(2, 1, "A", "T").pathogenicityData(EMPTY_PATH_DATA).build();
+
+        instance.provideVariantData(Arrays.asList(variant, otherVariant));
+        assertThat(variant.getPathogenicityData(), equalTo(EXPECTED_PATH_DATA));
+        assertThat(otherVariant.getPathogenicityData(), equalTo(PathogenicityData.EMPTY_DATA));
+    }
+
     @Test
     public void testRunFilter() {
         FilterType variantFilterType = FilterType.PATHOGENICITY_FILTER;
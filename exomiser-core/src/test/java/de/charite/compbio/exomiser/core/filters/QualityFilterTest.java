@@ -5,6 +5,7 @@
  */
 package de.charite.compbio.exomiser.core.filters;
 
+import de.charite.compbio.exomiser.core.factories.VariantContextBuilder;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation;
 import de.charite.compbio.exomiser.core.model.VariantEvaluation.VariantBuilder;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -88,6 +89,18 @@ public void testHashCode() {
         assertThat(instance.hashCode(), equalTo(qualityFilter.hashCode()));
     }
 
+    @Test
+    public void testVariantContextOverThresholdMayPass() {
+        VariantContextBuilder variantContextBuilder = new VariantContextBuilder("sample");
+        assertThat(instance.mayPass(variantContextBuilder.build("1 123 . A T 4 . . GT 0/1"), 1), is(true));
+    }
+
+    @Test
+    public void testVariantContextUnderThresholdCannotPass() {
+        VariantContextBuilder variantContextBuilder = new VariantContextBuilder("sample");
+        assertThat(instance.mayPass(variantContextBuilder.build("1 123 . A T,C 2 . . GT 1/2"), 1), is(false));
+    }
+
     @Test
     public void testNotEqualNull() {
         Object obj = null;
@@ -0,0 +1,153 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class AnalysisMetricsTest {
+
+    private MetricsRegistry metricsRegistry;
+    private AnalysisMetrics instance;
+
+    @Before
+    public void setUp() {
+        metricsRegistry = new MetricsRegistry();
+        instance = new AnalysisMetrics(metricsRegistry);
+    }
+
+    @Test
+    public void testEmptyReport() {
+        MetricsReport report = instance.getReport();
+        assertThat(report.getStageTimings().isEmpty(), is(true));
+        assertThat(report.getCounters().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testTimeSupplierReturnsValueAndRecordsStage() {
+        String result = instance.time("stage", () -> "wibble");
+        assertThat(result, equalTo("wibble"));
+
+        MetricsReport.StageTiming stageTiming = instance.getReport().getStageTiming("stage").get();
+        assertThat(stageTiming.getCalls(), equalTo(1L));
+    }
+
+    @Test
+    public void testTimeRunnableRecordsEachCall() {
+        instance.time("stage", () -> {});
+        instance.time("stage", () -> {});
+        assertThat(instance.getReport().getStageTiming("stage").get().getCalls(), equalTo(2L));
+    }
+
+    @Test
+    public void testTimeRecordsStageWhenExceptionThrown() {
+        Runnable failingStage = () -> {
+            throw new IllegalStateException();
+        };
+        try {
+            instance.time("stage", failingStage);
+        } catch (IllegalStateException ex) {
+            //expected
+        }
+        assertThat(instance.getReport().getStageTiming("stage").isPresent(), is(true));
+    }
+
+    @Test
+    public void testRecordTime() {
+        instance.recordTime("stage", 1_000_000);
+        instance.recordTime("stage", 2_000_000);
+        MetricsReport.StageTiming stageTiming = instance.getReport().getStageTiming("stage").get();
+        assertThat(stageTiming.getTotalTimeNanos(), equalTo(3_000_000L));
+        assertThat(stageTiming.getTotalTimeMillis(), equalTo(3d));
+        assertThat(stageTiming.getMeanTimeMillis(), equalTo(1.5d));
+    }
+
+    @Test
+    public void testStagesAreReportedInOrderFirstRun() {
+        instance.recordTime("b", 1);
+        instance.recordTime("a", 1);
+        instance.recordTime("c", 1);
+        instance.recordTime("a", 1);
+        List<String> stageNames = instance.getReport().getStageTimings().stream().map(MetricsReport.StageTiming::getName).collect(toList());
+        assertThat(stageNames, equalTo(Arrays.asList("b", "a", "c")));
+    }
+
+    @Test
+    public void testTimeEachReturnsAllElementsAsOneCall() {
+        List<Integer> elements;
+        try (Stream<Integer> timedStream = instance.timeEach("parsing", IntStream.range(0, 100).boxed())) {
+            elements = timedStream.collect(toList());
+        }
+        assertThat(elements, equalTo(IntStream.range(0, 100).boxed().collect(toList())));
+        assertThat(instance.getReport().getStageTiming("parsing").get().getCalls(), equalTo(1L));
+    }
+
+    @Test
+    public void testTimeEachClosesOriginalStream() {
+        boolean[] closed = {false};
+        Stream<Integer> stream = Stream.of(1, 2, 3).onClose(() -> closed[0] = true);
+        instance.timeEach("parsing", stream).close();
+        assertThat(closed[0], is(true));
+    }
+
+    @Test
+    public void testCounters() {
+        instance.increment(AnalysisMetrics.VARIANTS_LOADED);
+        instance.add(AnalysisMetrics.VARIANTS_LOADED, 9);
+        assertThat(instance.getCount(AnalysisMetrics.VARIANTS_LOADED), equalTo(10L));
+        assertThat(instance.getCount("unknown"), equalTo(0L));
+        assertThat(instance.getReport().getCount(AnalysisMetrics.VARIANTS_LOADED), equalTo(10L));
+    }
+
+    @Test
+    public void testReportOnlyContainsChangeInRegistryCountersSinceStart() {
+        metricsRegistry = new MetricsRegistry();
+        metricsRegistry.add("db.frequency.queries", 100);
+        instance = new AnalysisMetrics(metricsRegistry);
+
+        metricsRegistry.add("db.frequency.queries", 5);
+        metricsRegistry.increment("tabix.cadd.queries");
+
+        MetricsReport report = instance.getReport();
+        assertThat(report.getCount("db.frequency.queries"), equalTo(5L));
+        assertThat(report.getCount("tabix.cadd.queries"), equalTo(1L));
+        assertThat(report.getAnalysisCounters().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testVariantsPerSecond() {
+        MetricsReport report = new MetricsReport(2_000_000_000L, Arrays.asList(), Collections.singletonMap(AnalysisMetrics.VARIANTS_LOADED, 1000L), Collections.emptyMap());
+        assertThat(report.getVariantsPerSecond(), equalTo(500d));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class MetricsRegistryTest {
+
+    private MetricsRegistry instance;
+
+    @Before
+    public void setUp() {
+        instance = new MetricsRegistry();
+    }
+
+    @Test
+    public void testDefaultIsShared() {
+        assertThat(MetricsRegistry.getDefault(), sameInstance(MetricsRegistry.getDefault()));
+    }
+
+    @Test
+    public void testCounterIsSharedByName() {
+        assertThat(instance.counter("db.frequency.queries"), sameInstance(instance.counter("db.frequency.queries")));
+    }
+
+    @Test
+    public void testCounts() {
+        instance.counter("tabix.remm.queries").increment();
+        instance.increment("tabix.remm.queries");
+        instance.add("tabix.remm.queries", 3);
+        assertThat(instance.getCount("tabix.remm.queries"), equalTo(5L));
+        assertThat(instance.getCount("unknown"), equalTo(0L));
+    }
+
+    @Test
+    public void testGetCountersIsSortedSnapshot() {
+        instance.increment("b");
+        instance.increment("a");
+        assertThat(instance.getCounters().keySet().toString(), equalTo("[a, b]"));
+    }
+
+    @Test
+    public void testRecordAnalysisAddsStageTimingsAndAnalysisCounters() {
+        MetricsReport report = new MetricsReport(1000, Arrays.asList(new MetricsReport.StageTiming("annotation", 2, 500)), Collections.singletonMap(AnalysisMetrics.VARIANTS_LOADED, 10L), Collections.singletonMap("db.frequency.queries", 4L));
+        instance.recordAnalysis(report);
+        instance.recordAnalysis(report);
+
+        MetricsReport totals = instance.getReport();
+        MetricsReport.StageTiming annotation = totals.getStageTiming("annotation").get();
+        assertThat(annotation.getCalls(), equalTo(4L));
+        assertThat(annotation.getTotalTimeNanos(), equalTo(1000L));
+        assertThat(totals.getCount(AnalysisMetrics.VARIANTS_LOADED), equalTo(20L));
+        assertThat(totals.getCount(MetricsRegistry.ANALYSES_COMPLETED), equalTo(2L));
+        //these were already counted in the registry by whatever made the calls
+        assertThat(totals.getCounters().containsKey("db.frequency.queries"), is(false));
+    }
+}
@@ -341,6 +341,18 @@ public void testPassesFiltersWhenNoFiltersHaveBeenApplied() {
         assertThat(instance.passedFilters(), is(true));
     }
 
+    @Test
+    public void testGetChromosomalVariant() {
+        assertThat(instance.getChromosomalVariant(), equalTo("1:g.1C>T"));
+    }
+
+    @Test
+    public void testFilterResultsAreEmptyWhenOnlyFailedFiltersHaveBeenApplied() {
+        instance.addFilterResult(FAIL_FREQUENCY_RESULT);
+        assertThat(instance.getFilterResults().isEmpty(), is(true));
+        assertThat(instance.getFilterStatus(), equalTo(FilterStatus.FAILED));
+    }
+
     @Test
     public void testFailsFiltersWhenFailedFilterResultAdded() {
         instance.addFilterResult(FAIL_FREQUENCY_RESULT);
@@ -0,0 +1,126 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers;
+
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the PHIVE scores for a known set of genes. The scores are the same as
+ * those calculated when the mouse models were queried per gene symbol.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PhivePriorityTest {
+
+    private static final double DELTA = 0.0001;
+
+    private JdbcConnectionPool dataSource;
+    private PhivePriority instance;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:phivePriority;MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", "sa", "sa");
+        //HP:0000001 best matches MP:0000001 and HP:0000002 best matches MP:0000002,
+        //so the best possible model has a max score of 3.0 and an average of 2.5
+        execute("CREATE TABLE hp_mp_mappings (mapping_id INTEGER, hp_id VARCHAR(10), mp_id VARCHAR(10), score DOUBLE)",
+                "INSERT INTO hp_mp_mappings VALUES (1, 'HP:0000001', 'MP:0000001', 2.0)",
+                "INSERT INTO hp_mp_mappings VALUES (2, 'HP:0000001', 'MP:0000002', 1.0)",
+                "INSERT INTO hp_mp_mappings VALUES (3, 'HP:0000002', 'MP:0000002', 3.0)");
+
+        instance = new PhivePriority(Arrays.asList("HP:0000001", "HP:0000002"));
+        instance.setDataSource(dataSource);
+        instance.setGeneAssociationStore(new GeneAssociationStore(dataSource));
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    private void execute(String... sqlStatements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : sqlStatements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private void createMouseTables() throws SQLException {
+        execute("CREATE TABLE human2mouse_orthologs (mgi_gene_id VARCHAR(20), mgi_gene_symbol VARCHAR(100), human_gene_symbol VARCHAR(40), entrez_id INTEGER)",
+                "INSERT INTO human2mouse_orthologs VALUES ('MGI:95523', 'Fgfr2', 'FGFR2', 2263)",
+                "INSERT INTO human2mouse_orthologs VALUES ('MGI:99999', 'Unknown', 'UNKNOWN', NULL)",
+                "INSERT INTO human2mouse_orthologs VALUES ('MGI:88888', 'Other', 'OTHER', 1234)",
+                "CREATE TABLE mgi_mp (mgi_gene_id VARCHAR(20), mgi_gene_symbol VARCHAR(200), mouse_model_id INTEGER, mp_id VARCHAR(3000))",
+                "INSERT INTO mgi_mp VALUES ('MGI:95523', 'Fgfr2', 1, 'MP:0000002')",
+                "INSERT INTO mgi_mp VALUES ('MGI:99999', 'Unknown', 2, 'MP:0000001,MP:0000002')",
+                "INSERT INTO mgi_mp VALUES ('MGI:88888', 'Other', 3, 'MP:0000003')");
+    }
+
+    private static float getPhiveScore(Gene gene) {
+        return gene.getPriorityResult(PriorityType.PHIVE_PRIORITY).getScore();
+    }
+
+    @Test
+    public void testPrioritizeGenesKnownGeneSet() throws SQLException {
+        createMouseTables();
+        Gene fgfr2 = new Gene("FGFR2", 2263);
+        //the orthologue has no entrez id, so the gene symbol is the only way to match it
+        Gene unknown = new Gene("UNKNOWN", 9999);
+        Gene other = new Gene("OTHER", 1234);
+        Gene fgfr1 = new Gene("FGFR1", 2260);
+        List<Gene> genes = Arrays.asList(fgfr2, unknown, other, fgfr1);
+
+        instance.prioritizeGenes(genes);
+
+        //max 3.0, average (1.0 + 3.0 + 3.0) / 3
+        assertEquals(0.96667, getPhiveScore(fgfr2), DELTA);
+        assertEquals(1.0, getPhiveScore(unknown), DELTA);
+        //the mouse model only has phenotypes which don't map to the HPO terms
+        assertEquals(0.0, getPhiveScore(other), DELTA);
+        assertEquals(PhivePriority.NO_MOUSE_MODEL_SCORE, getPhiveScore(fgfr1), DELTA);
+    }
+
+    @Test
+    public void testPrioritizeGenesWithMissingMouseTablesUsesNoPhenotypeHitScore() {
+        Gene fgfr2 = new Gene("FGFR2", 2263);
+        Gene fgfr1 = new Gene("FGFR1", 2260);
+
+        instance.prioritizeGenes(Arrays.asList(fgfr2, fgfr1));
+
+        assertEquals(PhivePriority.NO_PHENOTYPE_HIT_SCORE, getPhiveScore(fgfr2), DELTA);
+        assertEquals(PhivePriority.NO_PHENOTYPE_HIT_SCORE, getPhiveScore(fgfr1), DELTA);
+    }
+
+}
@@ -5,6 +5,8 @@
  */
 package de.charite.compbio.exomiser.core.prioritisers.util;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.TreeMap;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -12,7 +14,9 @@
 import static org.hamcrest.CoreMatchers.nullValue;
 import org.jblas.FloatMatrix;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
 
 /**
@@ -20,6 +24,9 @@
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 public class DataMatrixTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
     
     private DataMatrix instance;
     
@@ -114,6 +121,32 @@ public void testGetColumnMatrixForGeneInIndex() {
         assertThat(instance.getColumnMatrixForGene(3333), equalTo(geneColumn));
     }
     
+    @Test
+    public void testGetNumRows() {
+        assertThat(instance.getNumRows(), equalTo(4));
+    }
+
+    @Test
+    public void testBinaryMatrixRoundTrip() throws IOException {
+        Path binaryMatrixFile = tempFolder.newFile("matrix.bin").toPath();
+        DataMatrix.writeBinaryMatrix(instance, binaryMatrixFile);
+
+        DataMatrix mappedMatrix = new DataMatrix(binaryMatrixFile);
+        assertThat(mappedMatrix.getEntrezIdToRowIndex(), equalTo(entrezIdToRowIndex));
+        assertThat(mappedMatrix.getNumRows(), equalTo(4));
+        assertThat(mappedMatrix.getName(), equalTo(binaryMatrixFile.toString()));
+        for (Integer entrezId : entrezIdToRowIndex.keySet()) {
+            assertThat(mappedMatrix.getColumnMatrixForGene(entrezId), equalTo(instance.getColumnMatrixForGene(entrezId)));
+        }
+        assertThat(mappedMatrix.getMatrix(), equalTo(floatMatrix));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testBinaryMatrixThrowsExceptionForNonMatrixFile() throws IOException {
+        Path notAMatrixFile = tempFolder.newFile("matrix.gz").toPath();
+        new DataMatrix(notAMatrixFile);
+    }
+
 //
 //    @Test
 //    public void testWriteMatrix() {
@@ -0,0 +1,145 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers.util;
+
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore.DiseaseAssociation;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore.GeneAssociationStoreException;
+import de.charite.compbio.exomiser.core.prioritisers.util.GeneAssociationStore.MouseModel;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class GeneAssociationStoreTest {
+
+    private JdbcConnectionPool dataSource;
+    private GeneAssociationStore instance;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:geneAssociationStore;MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", "sa", "sa");
+        instance = new GeneAssociationStore(dataSource);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        dataSource.dispose();
+    }
+
+    private void execute(String... sqlStatements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : sqlStatements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private void createTables() throws SQLException {
+        execute("CREATE TABLE disease (disease_id VARCHAR(20) NOT NULL, omim_gene_id VARCHAR(20), diseasename VARCHAR(2056), gene_id INTEGER NOT NULL, type CHAR(1), inheritance CHAR)",
+                "INSERT INTO disease VALUES ('OMIM:101600', 'OMIM:176943', 'Craniofacial-skeletal-dermatologic dysplasia', 2263, 'D', 'D')",
+                "INSERT INTO disease VALUES ('ORPHA:710', 'ORPHA:710', 'Pfeiffer syndrome', 2263, 'D', 'U')",
+                "INSERT INTO disease VALUES ('OMIM:101600', 'OMIM:136350', 'Pfeiffer syndrome', 2260, 'D', NULL)",
+                "CREATE TABLE human2mouse_orthologs (mgi_gene_id VARCHAR(20), mgi_gene_symbol VARCHAR(100), human_gene_symbol VARCHAR(40), entrez_id INTEGER)",
+                "INSERT INTO human2mouse_orthologs VALUES ('MGI:95523', 'Fgfr2', 'FGFR2', 2263)",
+                "INSERT INTO human2mouse_orthologs VALUES ('MGI:99999', 'Unknown', 'UNKNOWN', NULL)",
+                "CREATE TABLE mgi_mp (mgi_gene_id VARCHAR(20), mgi_gene_symbol VARCHAR(200), mouse_model_id INTEGER, mp_id VARCHAR(3000))",
+                "INSERT INTO mgi_mp VALUES ('MGI:95523', 'Fgfr2', 1, 'MP:0000001,MP:0000002')",
+                "INSERT INTO mgi_mp VALUES ('MGI:95523', 'Fgfr2', 2, 'MP:0000003')",
+                "INSERT INTO mgi_mp VALUES ('MGI:99999', 'Unknown', 3, 'MP:0000004')");
+    }
+
+    @Test
+    public void testGetDiseaseAssociationsForGeneWithDiseases() throws SQLException {
+        createTables();
+        List<DiseaseAssociation> diseases = instance.getDiseaseAssociations(2263);
+        assertThat(diseases.stream().map(DiseaseAssociation::getDiseaseId).collect(toList()), equalTo(Arrays.asList("OMIM:101600", "ORPHA:710")));
+        assertThat(diseases.get(0).getOmimGeneId(), equalTo("OMIM:176943"));
+        assertThat(diseases.get(0).getType(), equalTo('D'));
+        assertThat(diseases.get(0).getInheritance(), equalTo('D'));
+    }
+
+    @Test
+    public void testGetDiseaseAssociationsMissingInheritanceIsUnknown() throws SQLException {
+        createTables();
+        assertThat(instance.getDiseaseAssociations(2260).get(0).getInheritance(), equalTo('U'));
+    }
+
+    @Test
+    public void testGetDiseaseAssociationsForUnknownGeneIsEmpty() throws SQLException {
+        createTables();
+        assertThat(instance.getDiseaseAssociations(-10).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void testGetMouseModels() throws SQLException {
+        createTables();
+        List<MouseModel> mouseModels = instance.getMouseModels("FGFR2");
+        assertThat(mouseModels.stream().map(MouseModel::getMouseModelId).collect(toList()), equalTo(Arrays.asList(1, 2)));
+        assertThat(mouseModels.get(0).getMgiGeneId(), equalTo("MGI:95523"));
+        assertThat(mouseModels.get(0).getMgiGeneSymbol(), equalTo("Fgfr2"));
+        assertThat(mouseModels.get(0).getPhenotypeIds(), equalTo(Arrays.asList("MP:0000001", "MP:0000002")));
+    }
+
+    @Test
+    public void testGetMouseModelsForOrthologueWithoutEntrezId() throws SQLException {
+        createTables();
+        List<MouseModel> mouseModels = instance.getMouseModels("UNKNOWN");
+        assertThat(mouseModels.stream().map(MouseModel::getMouseModelId).collect(toList()), equalTo(Arrays.asList(3)));
+    }
+
+    @Test
+    public void testGetMouseModelsForGeneWithoutModelsIsEmpty() throws SQLException {
+        createTables();
+        assertThat(instance.getMouseModels("FGFR1").isEmpty(), equalTo(true));
+    }
+
+    @Test(expected = GeneAssociationStoreException.class)
+    public void testGetMouseModelsWithMissingTablesThrowsException() {
+        instance.getMouseModels("FGFR2");
+    }
+
+    @Test
+    public void testMissingTablesAreRetriedOnNextLookup() throws SQLException {
+        try {
+            instance.getDiseaseAssociations(2263);
+            fail("Expected a GeneAssociationStoreException");
+        } catch (GeneAssociationStoreException e) {
+            //the failed load must not be cached
+        }
+        createTables();
+        assertThat(instance.getDiseaseAssociations(2263).size(), equalTo(2));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers.util;
+
+import de.charite.compbio.exomiser.core.model.DiseaseModel;
+import de.charite.compbio.exomiser.core.model.GeneModel;
+import de.charite.compbio.exomiser.core.model.Model;
+import de.charite.compbio.exomiser.core.model.Organism;
+import de.charite.compbio.exomiser.core.model.PhenotypeMatch;
+import de.charite.compbio.exomiser.core.model.PhenotypeTerm;
+import de.charite.compbio.exomiser.core.prioritisers.util.PhenotypeMatchIndex.TermMatches;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PhenotypeMatchIndexTest {
+
+    private PhenotypeMatchIndex instance;
+
+    private final PhenotypeTerm hpoTerm = new PhenotypeTerm("HP:0000001", "query term", 1.0);
+    private final PhenotypeTerm mpTerm1 = new PhenotypeTerm("MP:0000001", "mouse term 1", 1.0);
+    private final PhenotypeTerm mpTerm2 = new PhenotypeTerm("MP:0000002", "mouse term 2", 1.0);
+    private final PhenotypeTerm unannotatedMpTerm = new PhenotypeTerm("MP:0000099", "unannotated term", 1.0);
+
+    private final PhenotypeMatch match1 = new PhenotypeMatch(hpoTerm, mpTerm1, 0.5, 2.0, hpoTerm);
+    private final PhenotypeMatch match2 = new PhenotypeMatch(hpoTerm, mpTerm2, 0.5, 1.5, hpoTerm);
+    private final PhenotypeMatch unannotatedMatch = new PhenotypeMatch(hpoTerm, unannotatedMpTerm, 0.5, 3.0, hpoTerm);
+
+    private final Map<String, Set<PhenotypeMatch>> hpoIdMatches = new HashMap<>();
+    private final AtomicInteger numLoads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        hpoIdMatches.put(hpoTerm.getId(), new HashSet<>(Arrays.asList(match1, match2, unannotatedMatch)));
+
+        Model mouseModel = new GeneModel("MGI:12345_1", Organism.MOUSE, 12345, "GENE1", "MGI:12345", "Gene1", Arrays.asList("MP:0000001", "MP:0000002"));
+        Model otherMouseModel = new GeneModel("MGI:23456_2", Organism.MOUSE, 23456, "GENE2", "MGI:23456", "Gene2", Arrays.asList("MP:0000002", "MP:0000003"));
+        instance = new PhenotypeMatchIndex(Arrays.asList(mouseModel, otherMouseModel), term -> {
+            numLoads.incrementAndGet();
+            return hpoIdMatches.getOrDefault(term.getId(), new HashSet<>());
+        });
+    }
+
+    @Test
+    public void testGetNumModels() {
+        assertThat(instance.getNumModels(), equalTo(2));
+    }
+
+    @Test
+    public void testModelTermIdsAreSharedBetweenModels() {
+        int[] modelTermIds = instance.getModelTermIds(0);
+        int[] otherModelTermIds = instance.getModelTermIds(1);
+        assertThat(modelTermIds.length, equalTo(2));
+        assertThat(otherModelTermIds[0], equalTo(modelTermIds[1]));
+        assertThat(otherModelTermIds[1], not(equalTo(modelTermIds[0])));
+    }
+
+    @Test
+    public void testGetTermMatchesReturnsAllMatches() {
+        assertThat(instance.getTermMatches(hpoTerm).getMatches(), equalTo(hpoIdMatches.get(hpoTerm.getId())));
+    }
+
+    @Test
+    public void testGetTermMatchesOnlyLoadsTermOnce() {
+        TermMatches termMatches = instance.getTermMatches(hpoTerm);
+        assertThat(instance.getTermMatches(hpoTerm), sameInstance(termMatches));
+        assertThat(numLoads.get(), equalTo(1));
+    }
+
+    @Test
+    public void testGetTermMatchesFailedLoadIsNotCached() {
+        AtomicInteger numAttempts = new AtomicInteger();
+        PhenotypeMatchIndex failingOnceIndex = new PhenotypeMatchIndex(Collections.emptyList(), term -> {
+            if (numAttempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return hpoIdMatches.get(term.getId());
+        });
+        try {
+            failingOnceIndex.getTermMatches(hpoTerm);
+            fail("the exception from the loader should be thrown");
+        } catch (IllegalStateException ex) {
+            //expected
+        }
+
+        assertThat(failingOnceIndex.getTermMatches(hpoTerm).getMatches(), equalTo(hpoIdMatches.get(hpoTerm.getId())));
+        assertThat(numAttempts.get(), equalTo(2));
+    }
+
+    @Test
+    public void testGetTermMatchesOnlyCachesUpToMaxCachedTerms() {
+        PhenotypeTerm otherHpoTerm = new PhenotypeTerm("HP:0000002", "other query term", 1.0);
+        PhenotypeMatchIndex oneTermIndex = new PhenotypeMatchIndex(Collections.emptyList(), term -> {
+            numLoads.incrementAndGet();
+            return new HashSet<>();
+        }, 1);
+
+        TermMatches termMatches = oneTermIndex.getTermMatches(hpoTerm);
+        oneTermIndex.getTermMatches(otherHpoTerm);
+        oneTermIndex.getTermMatches(otherHpoTerm);
+
+        assertThat(oneTermIndex.getTermMatches(hpoTerm), sameInstance(termMatches));
+        assertThat(numLoads.get(), equalTo(3));
+    }
+
+    @Test
+    public void testGetMatchForModelTermId() {
+        TermMatches termMatches = instance.getTermMatches(hpoTerm);
+        int[] modelTermIds = instance.getModelTermIds(0);
+        assertThat(termMatches.getMatch(modelTermIds[0]), equalTo(match1));
+        assertThat(termMatches.getMatch(modelTermIds[1]), equalTo(match2));
+    }
+
+    @Test
+    public void testGetMatchForUnmatchedModelTermIdIsNull() {
+        TermMatches termMatches = instance.getTermMatches(hpoTerm);
+        int[] otherModelTermIds = instance.getModelTermIds(1);
+        assertThat(termMatches.getMatch(otherModelTermIds[1]), nullValue());
+    }
+
+    @Test
+    public void testAddMatchedTermIds() {
+        BitSet matchedTermIds = new BitSet();
+        instance.getTermMatches(hpoTerm).addMatchedTermIds(matchedTermIds);
+
+        BitSet expected = new BitSet();
+        expected.set(instance.getModelTermIds(0)[0]);
+        expected.set(instance.getModelTermIds(0)[1]);
+        assertThat(matchedTermIds, equalTo(expected));
+    }
+
+    @Test
+    public void testMakeModelReturnsNewCopy() {
+        Model model = instance.makeModel(0);
+        model.setScore(1.0);
+        model.addMatchIfAbsentOrBetterThanCurrent(match1);
+
+        Model copy = instance.makeModel(0);
+        assertThat(copy, not(sameInstance(model)));
+        assertThat(copy.getModelId(), equalTo("MGI:12345_1"));
+        assertThat(copy.getScore(), equalTo(0d));
+        assertThat(copy.getBestPhenotypeMatchForTerms().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testMakeModelCopiesDiseaseModels() {
+        Model diseaseModel = new DiseaseModel("OMIM:101600_2263", Organism.HUMAN, 2263, "FGFR2", "OMIM:101600", "Apert syndrome", Arrays.asList("HP:0000001"));
+        instance = new PhenotypeMatchIndex(Arrays.asList(diseaseModel), term -> new HashSet<>());
+
+        Model copy = instance.makeModel(0);
+        assertThat(copy, instanceOf(DiseaseModel.class));
+        assertThat(((DiseaseModel) copy).getDiseaseTerm(), equalTo("Apert syndrome"));
+    }
+}
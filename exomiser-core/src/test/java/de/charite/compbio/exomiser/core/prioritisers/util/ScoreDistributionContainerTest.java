@@ -0,0 +1,89 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.prioritisers.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class ScoreDistributionContainerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ScoreDistributionContainer instance;
+    private String distributionsFolder;
+
+    @Before
+    public void setUp() throws IOException {
+        instance = new ScoreDistributionContainer();
+        File folder = tempFolder.newFolder("phenix");
+        distributionsFolder = folder.getAbsolutePath() + File.separatorChar;
+        Files.write(folder.toPath().resolve("1.out"), Arrays.asList(">1111_1000", "0.5-0.1", "1.0-0.01"), StandardCharsets.UTF_8);
+        Files.write(folder.toPath().resolve("2.out"), Arrays.asList(">2222_1000", "0.5-0.2", "1.0-0.02"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testDistributionsAreNotParsedUntilRequested() {
+        assertThat(instance.didParseDistributions(false, 2), is(false));
+    }
+
+    @Test
+    public void testGetDistributionLoadsDistributionsForNumberOfQueryTerms() {
+        ScoreDistribution scoreDistribution = instance.getDistribution("2222", 2, false, distributionsFolder);
+
+        assertThat(instance.didParseDistributions(false, 2), is(true));
+        assertThat(scoreDistribution.getPvalue(0.5, 1000.), equalTo(0.2));
+    }
+
+    @Test
+    public void testGetDistributionReturnsCachedDistribution() {
+        ScoreDistribution scoreDistribution = instance.getDistribution("2222", 2, false, distributionsFolder);
+        assertThat(instance.getDistribution("2222", 2, false, distributionsFolder), is(scoreDistribution));
+    }
+
+    @Test
+    public void testGetDistributionFallsBackToFewerQueryTerms() {
+        ScoreDistribution scoreDistribution = instance.getDistribution("1111", 2, false, distributionsFolder);
+
+        assertThat(instance.didParseDistributions(false, 1), is(true));
+        assertThat(scoreDistribution.getPvalue(1.0, 1000.), equalTo(0.01));
+    }
+
+    @Test
+    public void testGetDistributionReturnsNullForUnknownGene() {
+        assertThat(instance.getDistribution("9999", 2, false, distributionsFolder), nullValue());
+    }
+}
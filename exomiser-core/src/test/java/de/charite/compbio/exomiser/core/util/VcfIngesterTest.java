@@ -0,0 +1,172 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.util;
+
+import de.charite.compbio.exomiser.core.util.VcfIngester.Compression;
+import de.charite.compbio.exomiser.core.util.VcfIngester.IngestedVcf;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class VcfIngesterTest {
+
+    private static final String VCF = "##fileformat=VCFv4.1\n"
+            + "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Depth\">\n"
+            + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tSample1\tSample2\n"
+            + "1\t123256213\t.\tCA\tC\t100\tPASS\tDP=10\tGT\t0/1\t1/1\n"
+            + "1\t123256214\t.\tA\tG\t100\tPASS\tDP=10\tGT\t0/1\t0/0\n"
+            + "X\t123256215\t.\tT\tG\t100\tPASS\tDP=10\tGT\t0/1\t0/0\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path outputDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        outputDirectory = temporaryFolder.newFolder().toPath();
+    }
+
+    private InputStream stream(String vcf) {
+        return new ByteArrayInputStream(vcf.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private byte[] gzip(String vcf) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bytes)) {
+            gzipOutputStream.write(vcf.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] bgzip(String vcf) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BlockCompressedOutputStream bgzipOutputStream = new BlockCompressedOutputStream(bytes, null)) {
+            bgzipOutputStream.write(vcf.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private void assertInvalid(String vcf, String expectedMessage) throws IOException {
+        try {
+            VcfIngester.ingest(stream(vcf), outputDirectory, "invalid.vcf");
+            fail("Expected an InvalidVcfException");
+        } catch (VcfIngester.InvalidVcfException ex) {
+            assertThat(ex.getMessage(), equalTo(expectedMessage));
+        }
+        assertThat(Files.exists(outputDirectory.resolve("invalid.vcf")), is(false));
+    }
+
+    @Test
+    public void testIngestUncompressedVcfIsCopiedUnchanged() throws Exception {
+        IngestedVcf ingestedVcf = VcfIngester.ingest(stream(VCF), outputDirectory, "sample.vcf");
+
+        assertThat(ingestedVcf.getPath(), equalTo(outputDirectory.resolve("sample.vcf")));
+        assertThat(ingestedVcf.getCompression(), equalTo(Compression.NONE));
+        assertThat(ingestedVcf.getNumVariants(), equalTo(3));
+        assertThat(ingestedVcf.getNumSamples(), equalTo(2));
+        assertThat(new String(Files.readAllBytes(ingestedVcf.getPath()), StandardCharsets.UTF_8), equalTo(VCF));
+    }
+
+    @Test
+    public void testIngestGzippedVcfIsWrittenDecompressed() throws Exception {
+        IngestedVcf ingestedVcf = VcfIngester.ingest(new ByteArrayInputStream(gzip(VCF)), outputDirectory, "sample.vcf.gz");
+
+        assertThat(ingestedVcf.getPath(), equalTo(outputDirectory.resolve("sample.vcf")));
+        assertThat(ingestedVcf.getCompression(), equalTo(Compression.GZIP));
+        assertThat(ingestedVcf.getNumVariants(), equalTo(3));
+        assertThat(new String(Files.readAllBytes(ingestedVcf.getPath()), StandardCharsets.UTF_8), equalTo(VCF));
+    }
+
+    @Test
+    public void testIngestBgzippedVcfIsWrittenCompressed() throws Exception {
+        byte[] bgzippedVcf = bgzip(VCF);
+        IngestedVcf ingestedVcf = VcfIngester.ingest(new ByteArrayInputStream(bgzippedVcf), outputDirectory, "sample.vcf");
+
+        assertThat(ingestedVcf.getPath(), equalTo(outputDirectory.resolve("sample.vcf.gz")));
+        assertThat(ingestedVcf.getCompression(), equalTo(Compression.BGZIP));
+        assertThat(ingestedVcf.getNumVariants(), equalTo(3));
+        assertThat(Files.readAllBytes(ingestedVcf.getPath()), equalTo(bgzippedVcf));
+    }
+
+    @Test
+    public void testIngestIgnoresDirectoriesInFileName() throws Exception {
+        IngestedVcf ingestedVcf = VcfIngester.ingest(stream(VCF), outputDirectory, "../../sample.vcf");
+
+        assertThat(ingestedVcf.getPath(), equalTo(outputDirectory.resolve("sample.vcf")));
+    }
+
+    @Test
+    public void testIngestWindowsLineEndingsAndTrailingBlankLine() throws Exception {
+        IngestedVcf ingestedVcf = VcfIngester.ingest(stream(VCF.replace("\n", "\r\n") + "\r\n"), outputDirectory, "sample.vcf");
+
+        assertThat(ingestedVcf.getNumVariants(), equalTo(3));
+    }
+
+    @Test
+    public void testIngestSitesOnlyVcfHasNoSamples() throws Exception {
+        String sitesOnlyVcf = "##fileformat=VCFv4.1\n"
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n"
+                + "1\t123256213\t.\tCA\tC\t100\tPASS\t.\n";
+        IngestedVcf ingestedVcf = VcfIngester.ingest(stream(sitesOnlyVcf), outputDirectory, "sample.vcf");
+
+        assertThat(ingestedVcf.getNumVariants(), equalTo(1));
+        assertThat(ingestedVcf.getNumSamples(), equalTo(0));
+    }
+
+    @Test
+    public void testIngestNotVcf() throws Exception {
+        assertInvalid("Some random text\n", "Line 1 - VCF files must start with ##fileformat=VCF");
+    }
+
+    @Test
+    public void testIngestNoChromHeader() throws Exception {
+        assertInvalid("##fileformat=VCFv4.1\n", "No #CHROM header line found");
+    }
+
+    @Test
+    public void testIngestVariantBeforeChromHeader() throws Exception {
+        assertInvalid("##fileformat=VCFv4.1\n1\t123256213\t.\tCA\tC\t100\tPASS\t.\n", "Line 2 - variant found before the #CHROM header line");
+    }
+
+    @Test
+    public void testIngestVariantWithMissingColumns() throws Exception {
+        assertInvalid(VCF + "1 123256216 . A T 100 PASS . GT 0/1 0/1\n", "Line 7 - expected 11 tab separated columns but found 1");
+    }
+}
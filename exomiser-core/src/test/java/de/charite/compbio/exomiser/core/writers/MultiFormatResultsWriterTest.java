@@ -0,0 +1,112 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.core.writers;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.analysis.TestAnalysisBuilder;
+import de.charite.compbio.exomiser.core.factories.TestVariantFactory;
+import de.charite.compbio.exomiser.core.model.Gene;
+import de.charite.compbio.exomiser.core.model.SampleData;
+import de.charite.compbio.exomiser.core.model.VariantEvaluation;
+import de.charite.compbio.exomiser.core.writers.OutputSettingsImp.OutputSettingsBuilder;
+import de.charite.compbio.jannovar.pedigree.Genotype;
+import htsjdk.variant.vcf.VCFFileReader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class MultiFormatResultsWriterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private final ResultsWriterFactory resultsWriterFactory = new ResultsWriterFactory();
+    private final Set<OutputFormat> outputFormats = EnumSet.of(OutputFormat.TSV_GENE, OutputFormat.TSV_VARIANT, OutputFormat.VCF);
+
+    private Analysis analysis;
+    private OutputSettings settings;
+
+    @Before
+    public void setUp() throws Exception {
+        File vcfFile = new File(MultiFormatResultsWriterTest.class.getResource("/minimal.vcf").toURI());
+        SampleData sampleData = new SampleData();
+        try (VCFFileReader reader = new VCFFileReader(vcfFile, false)) {
+            sampleData.setVcfHeader(reader.getFileHeader());
+        }
+
+        TestVariantFactory varFactory = new TestVariantFactory();
+        VariantEvaluation missense = varFactory.constructVariant(10, 123353297, "G", "C", Genotype.HETEROZYGOUS, 30, 0, 2.2);
+        VariantEvaluation indel = varFactory.constructVariant(7, 155604800, "C", "CTT", Genotype.HETEROZYGOUS, 30, 0, 1.0);
+        Gene gene1 = new Gene(missense.getGeneSymbol(), missense.getEntrezGeneId());
+        gene1.addVariant(missense);
+        Gene gene2 = new Gene(indel.getGeneSymbol(), indel.getEntrezGeneId());
+        gene2.addVariant(indel);
+        sampleData.setVariantEvaluations(Arrays.asList(missense, indel));
+        sampleData.setGenes(Arrays.asList(gene1, gene2));
+
+        analysis = new TestAnalysisBuilder().sampleData(sampleData).build();
+        settings = new OutputSettingsBuilder()
+                .outputFormats(outputFormats)
+                .outputPrefix(tmpFolder.getRoot().toPath().resolve("multi").toString())
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreadsThrowsException() {
+        new MultiFormatResultsWriter(resultsWriterFactory, -1);
+    }
+
+    @Test
+    public void testWriteFilesConcurrentlyMatchesEachWriter() throws IOException {
+        new MultiFormatResultsWriter(resultsWriterFactory, 0).writeFiles(analysis, settings);
+        assertEachFileMatchesWriteString();
+    }
+
+    @Test
+    public void testWriteFilesOnCallingThreadMatchesEachWriter() throws IOException {
+        new MultiFormatResultsWriter(resultsWriterFactory, 1).writeFiles(analysis, settings);
+        assertEachFileMatchesWriteString();
+    }
+
+    private void assertEachFileMatchesWriteString() throws IOException {
+        for (OutputFormat outputFormat : outputFormats) {
+            String outFileName = ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), settings.getOutputPrefix(), outputFormat);
+            String written = new String(Files.readAllBytes(Paths.get(outFileName)), StandardCharsets.UTF_8);
+            String expected = resultsWriterFactory.getResultsWriter(outputFormat).writeString(analysis, settings);
+            assertThat(outputFormat.toString(), written, equalTo(expected));
+        }
+    }
+}
@@ -11,6 +11,9 @@
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -69,6 +72,29 @@ public void testWriteString() {
         assertThat(outString, equalTo(HEADER + GENE_STRING));
     }
 
+    @Test
+    public void testWriteToOutputStream() throws IOException {
+        OutputSettings settings = new OutputSettingsBuilder().outputFormats(
+                EnumSet.of(OutputFormat.TSV_GENE)).build();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        instance.write(analysis, settings, outputStream);
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), equalTo(HEADER + GENE_STRING));
+    }
+
+    @Test
+    public void testRecordWriterWritesHeaderWhenOpenedAndEachGeneAsItIsHandedOver() throws IOException {
+        OutputSettings settings = new OutputSettingsBuilder().outputFormats(
+                EnumSet.of(OutputFormat.TSV_GENE)).build();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ResultsRecordWriter recordWriter = instance.openRecordWriter(analysis, settings, ResultsSummary.of(analysis, settings), outputStream);
+        recordWriter.finish();
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), equalTo(HEADER));
+
+        recordWriter.writeGene(gene);
+        recordWriter.finish();
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), equalTo(HEADER + GENE_STRING));
+    }
+
     @Test
     public void testWriteStringStartsWithAHeaderLine() {
         OutputSettings settings = new OutputSettingsBuilder().outputFormats(
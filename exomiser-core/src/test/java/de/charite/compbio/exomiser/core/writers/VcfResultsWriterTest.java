@@ -44,9 +44,11 @@
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -273,6 +275,24 @@ public void testAlternativeAllelesAreWrittenOnSuccessiveLines() {
         assertThat(output, equalTo(expected));
     }
 
+    @Test
+    public void testWriteToOutputStreamMatchesWriteStringAndLeavesStreamOpen() {
+        sampleData.setGenes(Arrays.asList(gene1, gene2));
+        String expected = instance.writeString(analysis, settings);
+
+        final boolean[] closed = {false};
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        instance.write(analysis, settings, outputStream);
+
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), equalTo(expected));
+        assertThat(closed[0], equalTo(false));
+    }
+
     @Test
     public void testHomozygousAltAlleleOutputVcfContainsConcatenatedVariantScoresOnOneLine() {
         Path vcfPath = Paths.get("src/test/resources/multiAlleleGenotypes.vcf");
@@ -19,17 +19,21 @@
 
 package de.charite.compbio.exomiser.db;
 
-import org.flywaydb.core.Flyway;
 import de.charite.compbio.exomiser.db.config.AppConfig;
 import de.charite.compbio.exomiser.db.config.DataSourceConfig;
 import de.charite.compbio.exomiser.db.config.ResourceConfig;
+import de.charite.compbio.exomiser.db.io.DatabaseBulkLoader;
+import de.charite.compbio.exomiser.db.io.H2DatabaseBulkLoader;
 import de.charite.compbio.exomiser.db.io.PhenodigmDataDumper;
+import de.charite.compbio.exomiser.db.io.PostgreSqlDatabaseBulkLoader;
+import de.charite.compbio.exomiser.db.parsers.MetaDataParser;
 import de.charite.compbio.exomiser.db.resources.Resource;
+import de.charite.compbio.exomiser.db.resources.ResourceChecksumHandler;
 import de.charite.compbio.exomiser.db.resources.ResourceDownloadHandler;
 import de.charite.compbio.exomiser.db.resources.ResourceExtractionHandler;
 import de.charite.compbio.exomiser.db.resources.ResourceParserHandler;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import javax.sql.DataSource;
@@ -73,12 +77,22 @@ public static void main(String[] args) {
         //Path for processing the downloaded files to prepare them for parsing (i.e. unzip, untar)
         Path proccessPath = appConfig.processPath();
 
+        //Work out which resources have changed since the last build. A full build doesn't need the checksums, so it
+        //skips hashing the resources and records none, which means the next incremental build will also be a full one.
+        boolean incrementalBuild = appConfig.incrementalBuild();
+        Set<Resource> changedResources = externalResources;
+        if (incrementalBuild) {
+            logger.info("Checking for resources changed since the last build...");
+            ResourceChecksumHandler.calculateChecksums(externalResources, downloadPath, proccessPath, dataPath.resolve("resource_checksums.txt"));
+            changedResources = ResourceChecksumHandler.findChangedResources(externalResources, dataPath.resolve("metadata.pg"), dataPath);
+        }
+
         //Extract the Resources
         boolean extractResources = appConfig.extractResources();
         if (extractResources) {
             //process the downloaded files to prepare them for parsing (i.e. unzip, untar)
             logger.info("Extracting required flatfiles...");
-            ResourceExtractionHandler.extractResources(externalResources, downloadPath, proccessPath);
+            ResourceExtractionHandler.extractResources(changedResources, downloadPath, proccessPath);
         } else {
             logger.info("Skipping extraction of external resource files.");
         }
@@ -88,7 +102,7 @@ public static void main(String[] args) {
         if (parseResources) {
             //parse the file and output to the project output dir.
             logger.info("Parsing resource files...");
-            ResourceParserHandler.parseResources(externalResources, proccessPath, dataPath);
+            ResourceParserHandler.parseResources(externalResources, changedResources, proccessPath, dataPath, appConfig.parseThreads(), appConfig.parseMemoryBudgetMb());
 
         } else {
             logger.info("Skipping parsing of external resource files.");
@@ -111,47 +125,63 @@ public static void main(String[] args) {
 
         //create variables which would otherwise be injected manually from the context
         DataSourceConfig dataSourceConfig = context.getBean(DataSourceConfig.class);
-        logger.info("Migrating exomiser databases...");
-        //define where the data import path is otherwise everything will fail
-        Map<String, String> propertyPlaceHolders = new HashMap<>();
-        propertyPlaceHolders.put("import.path", dataPath.toString());
+        logger.info("Loading exomiser databases...");
+        int bulkLoadThreads = appConfig.bulkLoadThreads();
+        //only the tables fed by files which differ from those last loaded need reloading, otherwise everything is loaded from scratch
+        Map<String, Resource> parsedResources = null;
+        if (incrementalBuild) {
+            parsedResources = MetaDataParser.readMetaData(dataPath.resolve("metadata.pg"));
+        }
 
         boolean migratePostgres = appConfig.migratePostgres();
         if (migratePostgres) {
+            logger.info("Loading exomiser PostgreSQL database...");
             DataSource postgresDataSource = dataSourceConfig.exomiserPostgresDataSource();
-            migratePostgreSqlDatabase(postgresDataSource, propertyPlaceHolders);
+            loadDatabase(new PostgreSqlDatabaseBulkLoader(postgresDataSource, dataPath, bulkLoadThreads), externalResources, parsedResources, dumpPhenoDigmData);
         } else {
-            logger.info("Skipping migration of PostgreSQL database.");
+            logger.info("Skipping loading of PostgreSQL database.");
         }
 
         boolean migrateH2 = appConfig.migrateH2();
         if (migrateH2) {
+            logger.info("Loading exomiser H2 database...");
             DataSource h2DataSource = dataSourceConfig.exomiserH2DataSource();
-            migrateH2Database(h2DataSource, propertyPlaceHolders);
+            loadDatabase(new H2DatabaseBulkLoader(h2DataSource, dataPath, bulkLoadThreads), externalResources, parsedResources, dumpPhenoDigmData);
         } else {
-            logger.info("Skipping migration of H2 database.");
+            logger.info("Skipping loading of H2 database.");
         }
     }
 
-    private static void migratePostgreSqlDatabase(DataSource dataSource, Map<String, String> propertyPlaceHolders) {
-        logger.info("Migrating exomiser PostgreSQL database...");
-        Flyway postgresqlFlyway = new Flyway();
-        postgresqlFlyway.setDataSource(dataSource);
-        postgresqlFlyway.setSchemas("EXOMISER");
-        postgresqlFlyway.setLocations("db/migration/common", "db/migration/postgres");
-        postgresqlFlyway.setPlaceholders(propertyPlaceHolders);
-        postgresqlFlyway.clean();
-        postgresqlFlyway.migrate();
+    private static void loadDatabase(DatabaseBulkLoader databaseBulkLoader, Set<Resource> externalResources, Map<String, Resource> parsedResources, boolean dumpPhenoDigmData) {
+        if (parsedResources == null) {
+            databaseBulkLoader.load();
+            return;
+        }
+        Map<String, String> loadedChecksums = databaseBulkLoader.readLoadedChecksums();
+        if (loadedChecksums.isEmpty()) {
+            logger.info("No record of a previous successful load - loading the whole database");
+            databaseBulkLoader.load();
+            return;
+        }
+        Set<String> tablesToReload = findTablesToReload(externalResources, parsedResources, loadedChecksums, dumpPhenoDigmData);
+        logger.info("Tables to reload: {}", tablesToReload);
+        databaseBulkLoader.reload(tablesToReload);
     }
 
-    private static void migrateH2Database(DataSource h2DataSource, Map<String, String> propertyPlaceHolders) {
-        logger.info("Migrating exomiser H2 database...");
-        Flyway h2Flyway = new Flyway();
-        h2Flyway.setDataSource(h2DataSource);
-        h2Flyway.setSchemas("EXOMISER");
-        h2Flyway.setLocations("db/migration/common", "db/migration/h2");
-        h2Flyway.setPlaceholders(propertyPlaceHolders);
-        h2Flyway.clean();
-        h2Flyway.migrate();
+    private static Set<String> findTablesToReload(Set<Resource> externalResources, Map<String, Resource> parsedResources, Map<String, String> loadedChecksums, boolean dumpPhenoDigmData) {
+        Set<String> changedFiles = ResourceChecksumHandler.findUnloadedFiles(externalResources, parsedResources, loadedChecksums);
+        //the phenodigm dump writes all the files which aren't parsed from a resource
+        if (dumpPhenoDigmData) {
+            Set<String> resourceFiles = new HashSet<>();
+            for (Resource resource : externalResources) {
+                resourceFiles.add(resource.getParsedFileName());
+            }
+            for (DatabaseBulkLoader.TableImport tableImport : DatabaseBulkLoader.TABLE_IMPORTS) {
+                if (!resourceFiles.contains(tableImport.getFileName())) {
+                    changedFiles.add(tableImport.getFileName());
+                }
+            }
+        }
+        return DatabaseBulkLoader.getTablesForFiles(changedFiles);
     }
 }
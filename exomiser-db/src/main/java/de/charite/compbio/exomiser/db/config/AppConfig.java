@@ -6,6 +6,7 @@
 package de.charite.compbio.exomiser.db.config;
 
 import de.charite.compbio.exomiser.db.io.PhenodigmDataDumper;
+import de.charite.compbio.exomiser.db.resources.ResourceParserHandler;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -110,6 +111,28 @@ public boolean parseResources() {
         return parse;    
     }
 
+    @Bean
+    public boolean incrementalBuild() {
+        boolean incrementalBuild = Boolean.parseBoolean(env.getProperty("incrementalBuild")); 
+        logger.info("Setting application to only rebuild changed resources: {}", incrementalBuild);
+        return incrementalBuild;    
+    }
+
+    @Bean
+    public int parseThreads() {
+        int parseThreads = Integer.parseInt(env.getProperty("parseThreads", "4"));
+        logger.info("Setting application to parse up to {} resources at the same time", parseThreads);
+        return parseThreads;
+    }
+
+    @Bean
+    public long parseMemoryBudgetMb() {
+        String parseMemoryBudgetMb = env.getProperty("parseMemoryBudgetMb");
+        long memoryBudgetMb = parseMemoryBudgetMb == null || parseMemoryBudgetMb.isEmpty() ? ResourceParserHandler.getDefaultMemoryBudgetMb() : Long.parseLong(parseMemoryBudgetMb);
+        logger.info("Setting application to parse resources using up to {} MB", memoryBudgetMb);
+        return memoryBudgetMb;
+    }
+
     @Bean
     public boolean dumpPhenoDigmData() {
         boolean dumpPhenoDigmData = Boolean.parseBoolean(env.getProperty("dumpPhenoDigmData")); 
@@ -130,4 +153,11 @@ public boolean migrateH2() {
         logger.info("Setting application to migrate H2 database: {}", migrateH2);
         return migrateH2;    
     }
+
+    @Bean
+    public int bulkLoadThreads() {
+        int bulkLoadThreads = Integer.parseInt(env.getProperty("bulkLoadThreads", "4"));
+        logger.info("Setting application to load databases using {} threads", bulkLoadThreads);
+        return bulkLoadThreads;
+    }
 }
@@ -42,8 +42,8 @@
  * 
  * If you want to add another data source, this is where you define the resource
  * and the application will pick it up and incorporate the data into the database.
- * Obviously you'll have to write a parser and a flyway migration to get the data 
- * into the database.
+ * Obviously you'll have to write a parser and add the table to the bulk load
+ * schema to get the data into the database.
  * 
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
@@ -0,0 +1,509 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.charite.compbio.exomiser.db.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the exomiser database from the parsed pipe-delimited .pg files. The tables are created without any indexes or primary keys, then each table is loaded on its own connection
+ * using the fastest bulk import the database offers. Once all the data is in, the indexes are built concurrently and the
+ * table statistics are gathered for the query planner.
+ *
+ * When only some of the parsed files have changed, {@link #reload(Set)} does the same for just the tables fed by those
+ * files, leaving the rest of the database in place.
+ *
+ * The metadata table is always loaded last, once every other table has been loaded and indexed, so the resource
+ * checksums it holds are a record of what was last successfully loaded into this database. A load which fails part
+ * way through leaves it empty. See {@link #readLoadedChecksums()}.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public abstract class DatabaseBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseBulkLoader.class);
+
+    protected static final String SCHEMA = "EXOMISER";
+
+    private static final String CREATE_TABLES_SCRIPT = "db/bulkload/create_tables.sql";
+    private static final String CREATE_INDEXES_SCRIPT = "db/bulkload/create_indexes.sql";
+
+    private static final String METADATA_TABLE = "metadata";
+
+    //matches the table a DROP TABLE, CREATE TABLE, ALTER TABLE or CREATE INDEX statement acts on
+    private static final Pattern TABLE_STATEMENT_PATTERN = Pattern.compile("^\\s*(?:DROP TABLE IF EXISTS|CREATE TABLE|ALTER TABLE|CREATE INDEX \\w+ ON)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * The parsed files to be imported and the tables they go into. The largest tables are first so that they start
+     * loading straight away.
+     */
+    public static final List<TableImport> TABLE_IMPORTS = Collections.unmodifiableList(Arrays.asList(
+            new TableImport("frequency", "frequency.pg"),
+            new TableImport("variant", "variant.pg", "null"),
+            new TableImport("hp_hp_mappings", "hpHpMapping.pg", "null"),
+            new TableImport("hp_mp_mappings", "hpMpMapping.pg"),
+            new TableImport("hp_zp_mappings", "hpZpMapping.pg"),
+            new TableImport("string", "string.pg"),
+            new TableImport("regulatory_regions", "fantom.pg"),
+            new TableImport("regulatory_regions", "ensembl_enhancers.pg"),
+            new TableImport("clinvar", "clinvar.pg"),
+            new TableImport("mgi_mp", "mouseMp.pg"),
+            new TableImport("zfin_zp", "zfin_zp.pg"),
+            new TableImport("disease_hp", "diseaseHp.pg"),
+            new TableImport("disease", "omim.pg"),
+            new TableImport("disease", "orphanet.pg"),
+            new TableImport("human2mouse_orthologs", "human2mouseOrthologs.pg"),
+            new TableImport("human2fish_orthologs", "human2fishOrthologs.pg"),
+            new TableImport("hpo", "hpo.pg"),
+            new TableImport("mp", "mp.pg"),
+            new TableImport("zp", "zp.pg"),
+            new TableImport("omim_terms", "omimTerms.pg"),
+            new TableImport("omim2gene", "omim2gene.pg"),
+            new TableImport("phenoseries", "phenoseries.pg"),
+            new TableImport("entrez2sym", "entrez2sym.pg"),
+            new TableImport("tad", "tad.pg"),
+            new TableImport("metadata", "metadata.pg")
+    ));
+
+    private final DataSource dataSource;
+    private final Path importPath;
+    private final int numThreads;
+
+    protected DatabaseBulkLoader(DataSource dataSource, Path importPath, int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be greater than 0, not " + numThreads);
+        }
+        this.dataSource = dataSource;
+        this.importPath = importPath;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Drops and re-creates all the exomiser tables, loads them from the import path and then indexes them. All the
+     * import files are checked to exist before anything is dropped.
+     */
+    public void load() {
+        checkImportFilesExist(TABLE_IMPORTS);
+        long startTime = System.currentTimeMillis();
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, new BulkLoadThreadFactory());
+        try {
+            logger.info("Creating {} tables", SCHEMA);
+            createTables(readScript(CREATE_TABLES_SCRIPT));
+            loadTables(executorService, withoutMetadata(TABLE_IMPORTS));
+            logger.info("Loaded all tables in {} ms", System.currentTimeMillis() - startTime);
+            createIndexes(executorService, readScript(CREATE_INDEXES_SCRIPT));
+            loadMetadata(TABLE_IMPORTS);
+            finishLoad();
+        } catch (SQLException ex) {
+            throw new BulkLoadException("Unable to load database", ex);
+        } finally {
+            executorService.shutdownNow();
+        }
+        logger.info("Finished loading database in {} ms", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Drops, re-creates, loads and indexes only the named tables, leaving all the others as they are. The metadata
+     * table is always reloaded as well. If any of the exomiser tables don't exist yet the whole database is loaded
+     * instead.
+     *
+     * @param tableNames the tables to reload. Use {@link #getTablesForFiles(Collection)} to find the tables fed by a set
+     * of changed import files.
+     */
+    public void reload(Set<String> tableNames) {
+        if (!allTablesExist()) {
+            logger.info("{} tables are missing - loading the whole database", SCHEMA);
+            load();
+            return;
+        }
+        Set<String> tablesToReload = new HashSet<>();
+        for (String tableName : tableNames) {
+            tablesToReload.add(tableName.toLowerCase());
+        }
+        tablesToReload.add(METADATA_TABLE);
+        List<TableImport> tableImports = new ArrayList<>();
+        for (TableImport tableImport : TABLE_IMPORTS) {
+            if (tablesToReload.contains(tableImport.getTableName())) {
+                tableImports.add(tableImport);
+            }
+        }
+        checkImportFilesExist(tableImports);
+        long startTime = System.currentTimeMillis();
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, new BulkLoadThreadFactory());
+        try {
+            logger.info("Re-creating tables {}", groupByTable(tableImports).keySet());
+            createTables(selectTableStatements(readScript(CREATE_TABLES_SCRIPT), tablesToReload));
+            loadTables(executorService, withoutMetadata(tableImports));
+            logger.info("Loaded tables in {} ms", System.currentTimeMillis() - startTime);
+            createIndexes(executorService, selectTableStatements(readScript(CREATE_INDEXES_SCRIPT), tablesToReload));
+            loadMetadata(tableImports);
+            finishLoad();
+        } catch (SQLException ex) {
+            throw new BulkLoadException("Unable to reload database tables " + tablesToReload, ex);
+        } finally {
+            executorService.shutdownNow();
+        }
+        logger.info("Finished reloading database in {} ms", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Returns the names of the tables which are loaded from any of the given import files.
+     *
+     * @param fileNames
+     * @return
+     */
+    public static Set<String> getTablesForFiles(Collection<String> fileNames) {
+        Set<String> tableNames = new LinkedHashSet<>();
+        for (TableImport tableImport : TABLE_IMPORTS) {
+            if (fileNames.contains(tableImport.getFileName())) {
+                tableNames.add(tableImport.getTableName());
+            }
+        }
+        return tableNames;
+    }
+
+    /**
+     * Reads the resource checksums recorded in the metadata table by the last successful load of this database.
+     *
+     * @return the checksums mapped by resource name. This will be empty if the database has never been loaded, the last
+     * load failed or the metadata table was created before checksums were recorded.
+     */
+    public Map<String, String> readLoadedChecksums() {
+        Map<String, String> loadedChecksums = new HashMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            setSchema(connection);
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT resource, checksum FROM " + METADATA_TABLE)) {
+                while (resultSet.next()) {
+                    loadedChecksums.put(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+        } catch (SQLException ex) {
+            logger.debug("Unable to read loaded resource checksums", ex);
+            return Collections.emptyMap();
+        }
+        return loadedChecksums;
+    }
+
+    private boolean allTablesExist() {
+        try (Connection connection = dataSource.getConnection()) {
+            setSchema(connection);
+            for (String tableName : groupByTable(TABLE_IMPORTS).keySet()) {
+                try {
+                    executeStatement(connection, "SELECT 1 FROM " + tableName + " WHERE 1 = 0");
+                } catch (SQLException ex) {
+                    logger.debug("Table {} does not exist", tableName);
+                    return false;
+                }
+            }
+        } catch (SQLException ex) {
+            //most likely the schema doesn't exist
+            logger.debug("Unable to check for {} tables", SCHEMA, ex);
+            return false;
+        }
+        return true;
+    }
+
+    private static List<String> selectTableStatements(List<String> statements, Set<String> tableNames) {
+        List<String> tableStatements = new ArrayList<>();
+        for (String statement : statements) {
+            Matcher matcher = TABLE_STATEMENT_PATTERN.matcher(statement);
+            if (matcher.find() && tableNames.contains(matcher.group(1).toLowerCase())) {
+                tableStatements.add(statement);
+            }
+        }
+        return tableStatements;
+    }
+
+    private void createTables(List<String> statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            executeStatement(connection, "CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+            setSchema(connection);
+            for (String statement : statements) {
+                executeStatement(connection, statement);
+            }
+            beforeLoad(connection);
+        }
+    }
+
+    private void loadTables(ExecutorService executorService, List<TableImport> tableImports) {
+        logger.info("Loading tables from {} using {} threads", importPath.toAbsolutePath(), numThreads);
+        List<Future<?>> pendingTables = new ArrayList<>();
+        for (Map.Entry<String, List<TableImport>> tableImportsForTable : groupByTable(tableImports).entrySet()) {
+            pendingTables.add(executorService.submit(() -> loadTable(tableImportsForTable.getKey(), tableImportsForTable.getValue())));
+        }
+        waitForAll(pendingTables);
+    }
+
+    private static List<TableImport> withoutMetadata(List<TableImport> tableImports) {
+        List<TableImport> dataTableImports = new ArrayList<>();
+        for (TableImport tableImport : tableImports) {
+            if (!METADATA_TABLE.equals(tableImport.getTableName())) {
+                dataTableImports.add(tableImport);
+            }
+        }
+        return dataTableImports;
+    }
+
+    private void loadMetadata(List<TableImport> tableImports) throws SQLException {
+        List<TableImport> metadataImports = new ArrayList<>();
+        for (TableImport tableImport : tableImports) {
+            if (METADATA_TABLE.equals(tableImport.getTableName())) {
+                metadataImports.add(tableImport);
+            }
+        }
+        if (metadataImports.isEmpty()) {
+            return;
+        }
+        try {
+            loadTable(METADATA_TABLE, metadataImports);
+        } catch (IOException ex) {
+            throw new BulkLoadException("Unable to load " + METADATA_TABLE, ex);
+        }
+    }
+
+    private void createIndexes(ExecutorService executorService, List<String> statements) {
+        logger.info("Creating indexes");
+        List<Future<?>> pendingIndexes = new ArrayList<>();
+        for (String statement : statements) {
+            pendingIndexes.add(executorService.submit(() -> executeOnNewConnection(statement)));
+        }
+        waitForAll(pendingIndexes);
+    }
+
+    private void finishLoad() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            setSchema(connection);
+            afterLoad(connection);
+            logger.info("Analysing tables");
+            executeStatement(connection, "ANALYZE");
+        }
+    }
+
+    private void checkImportFilesExist(List<TableImport> tableImports) {
+        List<Path> missingFiles = findMissingImportFiles(tableImports);
+        if (!missingFiles.isEmpty()) {
+            throw new BulkLoadException("Unable to load database as import files are missing: " + missingFiles, null);
+        }
+    }
+
+    private List<Path> findMissingImportFiles(List<TableImport> tableImports) {
+        List<Path> missingFiles = new ArrayList<>();
+        for (TableImport tableImport : tableImports) {
+            Path importFile = importPath.resolve(tableImport.getFileName());
+            if (!Files.isReadable(importFile)) {
+                missingFiles.add(importFile);
+            }
+        }
+        return missingFiles;
+    }
+
+    //tables loaded from more than one file are loaded one file at a time on the same connection
+    private static Map<String, List<TableImport>> groupByTable(List<TableImport> tableImports) {
+        Map<String, List<TableImport>> importsByTable = new LinkedHashMap<>();
+        for (TableImport tableImport : tableImports) {
+            importsByTable.computeIfAbsent(tableImport.getTableName(), key -> new ArrayList<>()).add(tableImport);
+        }
+        return importsByTable;
+    }
+
+    private Void loadTable(String tableName, List<TableImport> tableImports) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            setSchema(connection);
+            for (TableImport tableImport : tableImports) {
+                long startTime = System.currentTimeMillis();
+                Path importFile = importPath.resolve(tableImport.getFileName());
+                long numRows = importFile(connection, tableImport, importFile);
+                logger.info("Loaded {} rows into {} from {} in {} ms", numRows, tableName, importFile, System.currentTimeMillis() - startTime);
+            }
+        }
+        return null;
+    }
+
+    private Void executeOnNewConnection(String statement) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            setSchema(connection);
+            executeStatement(connection, statement);
+        }
+        logger.info("{} took {} ms", statement, System.currentTimeMillis() - startTime);
+        return null;
+    }
+
+    protected static void executeStatement(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> readScript(String scriptPath) {
+        ClassPathResource script = new ClassPathResource(scriptPath);
+        try (LineNumberReader reader = new LineNumberReader(new InputStreamReader(script.getInputStream(), StandardCharsets.UTF_8))) {
+            List<String> statements = new ArrayList<>();
+            ScriptUtils.splitSqlScript(ScriptUtils.readScript(reader, ScriptUtils.DEFAULT_COMMENT_PREFIX, ScriptUtils.DEFAULT_STATEMENT_SEPARATOR), ScriptUtils.DEFAULT_STATEMENT_SEPARATOR, statements);
+            return statements;
+        } catch (IOException ex) {
+            throw new BulkLoadException("Unable to read SQL script " + scriptPath, ex);
+        }
+    }
+
+    private static void waitForAll(List<Future<?>> pendingTasks) {
+        RuntimeException failure = null;
+        for (Future<?> pendingTask : pendingTasks) {
+            try {
+                pendingTask.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new BulkLoadException("Interrupted while loading database", ex);
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    Throwable cause = ex.getCause();
+                    failure = cause instanceof RuntimeException ? (RuntimeException) cause : new BulkLoadException("Unable to load database", cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Makes the exomiser schema the default for the connection so that the table names in the scripts don't need to be
+     * qualified.
+     *
+     * @param connection
+     * @throws SQLException
+     */
+    protected abstract void setSchema(Connection connection) throws SQLException;
+
+    /**
+     * Bulk loads the pipe-delimited file into the table.
+     *
+     * @param connection
+     * @param tableImport
+     * @param importFile
+     * @return the number of rows loaded
+     * @throws SQLException
+     * @throws IOException
+     */
+    protected abstract long importFile(Connection connection, TableImport tableImport, Path importFile) throws SQLException, IOException;
+
+    /**
+     * Called once the tables have been created, before any data is loaded.
+     */
+    protected void beforeLoad(Connection connection) throws SQLException {
+    }
+
+    /**
+     * Called once all the data is loaded and indexed.
+     */
+    protected void afterLoad(Connection connection) throws SQLException {
+    }
+
+    /**
+     * A parsed file to be imported into a table. Null values are written to the file as the nullString.
+     */
+    public static class TableImport {
+
+        private final String tableName;
+        private final String fileName;
+        private final String nullString;
+
+        public TableImport(String tableName, String fileName) {
+            this(tableName, fileName, "NULL");
+        }
+
+        public TableImport(String tableName, String fileName, String nullString) {
+            this.tableName = tableName;
+            this.fileName = fileName;
+            this.nullString = nullString;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getNullString() {
+            return nullString;
+        }
+
+        @Override
+        public String toString() {
+            return "TableImport{" + "tableName=" + tableName + ", fileName=" + fileName + ", nullString=" + nullString + '}';
+        }
+    }
+
+    private static class BulkLoadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bulk-load-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class BulkLoadException extends RuntimeException {
+
+        BulkLoadException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
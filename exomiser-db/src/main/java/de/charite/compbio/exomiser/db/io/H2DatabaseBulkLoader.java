@@ -0,0 +1,98 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.charite.compbio.exomiser.db.io;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.StringJoiner;
+
+/**
+ * Bulk loads the H2 database by reading each file directly into its table with CSVREAD. The transaction log is
+ * switched off for the duration of the load as there is nothing to recover if the build fails part of the way
+ * through - the database simply needs to be built again.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class H2DatabaseBulkLoader extends DatabaseBulkLoader {
+
+    //these are already escaped for use in an SQL string
+    private static final String CSV_OPTIONS = "charset=UTF-8 fieldDelimiter='' fieldSeparator=| nullString=";
+
+    public H2DatabaseBulkLoader(DataSource dataSource, Path importPath, int numThreads) {
+        super(dataSource, importPath, numThreads);
+    }
+
+    @Override
+    protected void setSchema(Connection connection) throws SQLException {
+        executeStatement(connection, "SET SCHEMA " + SCHEMA);
+    }
+
+    @Override
+    protected void beforeLoad(Connection connection) throws SQLException {
+        executeStatement(connection, "SET LOG 0");
+    }
+
+    @Override
+    protected void afterLoad(Connection connection) throws SQLException {
+        executeStatement(connection, "SET LOG 2");
+    }
+
+    /**
+     * DIRECT inserts the rows straight into the table rather than buffering the whole of the CSVREAD result first.
+     */
+    @Override
+    protected long importFile(Connection connection, TableImport tableImport, Path importFile) throws SQLException {
+        String sql = String.format("INSERT INTO %s DIRECT SELECT * FROM CSVREAD('%s', '%s', '%s%s')",
+                tableImport.getTableName(),
+                escape(importFile.toAbsolutePath().toString()),
+                escape(getColumnNames(connection, tableImport.getTableName())),
+                CSV_OPTIONS,
+                escape(tableImport.getNullString()));
+        executeStatement(connection, "SET UNDO_LOG 0");
+        try (Statement statement = connection.createStatement()) {
+            return statement.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * The .pg files have no header line, so CSVREAD needs to be told what the columns are called.
+     */
+    private static String getColumnNames(Connection connection, String tableName) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM " + tableName + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            StringJoiner columnNames = new StringJoiner("|");
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columnNames.add(metaData.getColumnName(i));
+            }
+            return columnNames.toString();
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("'", "''");
+    }
+}
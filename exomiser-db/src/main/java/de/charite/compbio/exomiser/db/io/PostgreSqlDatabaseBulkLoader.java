@@ -0,0 +1,63 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.charite.compbio.exomiser.db.io;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Bulk loads the PostgreSQL database by streaming each file to the server with COPY. The files are read as CSV, but
+ * with a quote character which never appears in the data, so that every field is read as it was written.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class PostgreSqlDatabaseBulkLoader extends DatabaseBulkLoader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public PostgreSqlDatabaseBulkLoader(DataSource dataSource, Path importPath, int numThreads) {
+        super(dataSource, importPath, numThreads);
+    }
+
+    @Override
+    protected void setSchema(Connection connection) throws SQLException {
+        executeStatement(connection, "SET search_path TO " + SCHEMA);
+    }
+
+    @Override
+    protected long importFile(Connection connection, TableImport tableImport, Path importFile) throws SQLException, IOException {
+        String sql = String.format("COPY %s FROM STDIN WITH (FORMAT csv, DELIMITER '|', NULL '%s', QUOTE E'\\b', ENCODING 'UTF8')",
+                tableImport.getTableName(),
+                tableImport.getNullString().replace("'", "''"));
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        try (InputStream inputStream = Files.newInputStream(importFile)) {
+            return copyManager.copyIn(sql, inputStream, BUFFER_SIZE);
+        }
+    }
+}
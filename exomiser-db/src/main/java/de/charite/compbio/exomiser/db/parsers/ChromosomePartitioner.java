@@ -0,0 +1,150 @@
+package de.charite.compbio.exomiser.db.parsers;
+
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits the lines of one or more VCF files into a plain-text file per
+ * chromosome so that a large input only needs to be read once, after which
+ * each chromosome can be worked on independently. Lines are written to their
+ * partition in the order they were read and comment lines are dropped. The
+ * partitions are gzipped at the fastest compression level as the dbSNP
+ * partitions alone would otherwise take up tens of GB.
+ * <p>
+ * The dbSNP and ExAC parsers stop reading their input as soon as they see a
+ * chromosome beyond the one they are working on. For inputs like these, which
+ * are expected to be sorted by chromosome, set {@code sortedByChromosome} so
+ * that any lines for a chromosome seen after a later chromosome are dropped in
+ * the same way.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+class ChromosomePartitioner implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChromosomePartitioner.class);
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final ReferenceDictionary refDict;
+    private final Path partitionDir;
+    private final String name;
+    private final boolean sortedByChromosome;
+
+    private final Map<Byte, BufferedWriter> partitionWriters = new HashMap<>();
+    private int maxChromosomeSeen = 0;
+    private int numLines = 0;
+    private int numUnknownContigLines = 0;
+    private int numOutOfOrderLines = 0;
+
+    ChromosomePartitioner(ReferenceDictionary refDict, Path partitionDir, String name, boolean sortedByChromosome) {
+        this.refDict = refDict;
+        this.partitionDir = partitionDir;
+        this.name = name;
+        this.sortedByChromosome = sortedByChromosome;
+    }
+
+    /**
+     * Routes all the lines from the reader into their chromosome partition.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    void partition(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue; // comment.
+            }
+            numLines++;
+            int tabIndex = line.indexOf('\t');
+            String contig = tabIndex < 0 ? line : line.substring(0, tabIndex);
+            Integer contigId = refDict.getContigNameToID().get(contig);
+            if (contigId == null) {
+                numUnknownContigLines++;
+                continue;
+            }
+            byte chromosome = (byte) contigId.intValue();
+            if (sortedByChromosome) {
+                if (chromosome < maxChromosomeSeen) {
+                    numOutOfOrderLines++;
+                    continue;
+                }
+                maxChromosomeSeen = chromosome;
+            }
+            BufferedWriter writer = getPartitionWriter(chromosome);
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+
+    private BufferedWriter getPartitionWriter(byte chromosome) throws IOException {
+        BufferedWriter writer = partitionWriters.get(chromosome);
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(new FastGZIPOutputStream(Files.newOutputStream(getPartitionPath(chromosome)))));
+            partitionWriters.put(chromosome, writer);
+        }
+        return writer;
+    }
+
+    private Path getPartitionPath(byte chromosome) {
+        return partitionDir.resolve(name + "_" + chromosome + ".vcf.gz");
+    }
+
+    /**
+     * Returns a reader for the lines of the given chromosome. Chromosomes with
+     * no lines return an empty reader. This should only be called once the
+     * partitioner has been closed.
+     *
+     * @param chromosome
+     * @return
+     * @throws IOException
+     */
+    BufferedReader newPartitionReader(byte chromosome) throws IOException {
+        Path partitionPath = getPartitionPath(chromosome);
+        if (Files.notExists(partitionPath)) {
+            return new BufferedReader(new StringReader(""));
+        }
+        return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(partitionPath), BUFFER_SIZE)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException closeException = null;
+        for (BufferedWriter writer : partitionWriters.values()) {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                closeException = ex;
+            }
+        }
+        if (closeException != null) {
+            throw closeException;
+        }
+        logger.info("Partitioned {} {} lines into {} chromosomes. Skipped {} lines with an unknown contig and {} out of order lines", numLines, name, partitionWriters.size(), numUnknownContigLines, numOutOfOrderLines);
+    }
+
+    private static class FastGZIPOutputStream extends GZIPOutputStream {
+
+        FastGZIPOutputStream(OutputStream outputStream) throws IOException {
+            super(outputStream, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
@@ -77,10 +77,7 @@ public class DbSnpFrequencyParser implements ResourceParser {
      */
     //private final Map<Integer, ChromosomalExonLocations> chromosomeMap;
     public DbSnpFrequencyParser(JannovarData jannovarData, Path ucscResourcePath, List<Frequency> frequencyList, byte chromosome) {
-        vcf2FrequencyParser = new VCF2FrequencyParser(jannovarData.getRefDict());
-        this.frequencyList = frequencyList;
-        this.chromosome = chromosome;
-        this.refDict = jannovarData.getRefDict();
+        this(jannovarData.getRefDict(), frequencyList, chromosome);
         //chromosomeMap = new HashMap<>();
         //first we need to prepare the serialized ucsc19 data file from Jannovar
         //this is required for parsing the dbSNP data where it is used as a filter to 
@@ -112,6 +109,13 @@ public DbSnpFrequencyParser(JannovarData jannovarData, Path ucscResourcePath, Li
 //        }
 //        logger.info("{} Added {} exons from JannovarData", ResourceOperationStatus.SUCCESS, n_exons);
 //    }
+    public DbSnpFrequencyParser(ReferenceDictionary refDict, List<Frequency> frequencyList, byte chromosome) {
+        vcf2FrequencyParser = new VCF2FrequencyParser(refDict);
+        this.frequencyList = frequencyList;
+        this.chromosome = chromosome;
+        this.refDict = refDict;
+    }
+
     /**
      * Parse the main dbSNP file
      *
@@ -179,23 +183,7 @@ public void parseResource(Resource resource, Path inDir, Path outDir) {
                     break;
                 }
 
-                List<Frequency> frequencyPerLine = vcf2FrequencyParser.parseVCFline(line, chromosome);
-                //TODO - once gone past chromosome should just break here rather than scanning
-                for (Frequency frequency : frequencyPerLine) {
-                    // now just take all coding and non-coding variants
-                    //checkVariantForExomalLocationAndOutput(frequency);
-                    if (previous != null && previous.isIdenticalSNP(frequency)) {
-                        float x = previous.getMaximumFrequency();
-                        float y = frequency.getMaximumFrequency();
-                        this.n_duplicates++;
-                        if (y > x) {
-                            previous.resetFrequencyValues(frequency);
-                        }
-                    } else {
-                        frequencyList.add(frequency);
-                    }
-                    previous = frequency;
-                }
+                addFrequencies(vcf2FrequencyParser.parseVCFline(line, chromosome));
                 long now = System.currentTimeMillis();
                 if (now - startTime > 2000) {
                     long filePosition = fc.position();
@@ -220,6 +208,43 @@ public void parseResource(Resource resource, Path inDir, Path outDir) {
         resource.setParseStatus(status);
         logger.info("{}", status);
     }
+
+    /**
+     * Parses dbSNP VCF lines which have already been partitioned by chromosome,
+     * so all the lines are expected to belong to the chromosome this parser was
+     * created for. Any lines for other chromosomes are ignored.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    void parseFrequencies(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue; // comment.
+            }
+            addFrequencies(vcf2FrequencyParser.parseVCFline(line, chromosome));
+        }
+        logger.info("Got {} duplicates for chromosome {}", n_duplicates, chromosome);
+    }
+
+    private void addFrequencies(List<Frequency> frequencyPerLine) {
+        for (Frequency frequency : frequencyPerLine) {
+            // now just take all coding and non-coding variants
+            //checkVariantForExomalLocationAndOutput(frequency);
+            if (previous != null && previous.isIdenticalSNP(frequency)) {
+                float x = previous.getMaximumFrequency();
+                float y = frequency.getMaximumFrequency();
+                this.n_duplicates++;
+                if (y > x) {
+                    previous.resetFrequencyValues(frequency);
+                }
+            } else {
+                frequencyList.add(frequency);
+            }
+            previous = frequency;
+        }
+    }
 //    /**
 //     * This function is to be called following the processing of the VCF line
 //     * with the function parseVCFline from the Superclass
@@ -159,22 +159,7 @@ private ResourceOperationStatus parseEspFile(Path espFile) {
                 if (line.startsWith("#")) {
                     continue; // comment.
                 }
-                List<Frequency> frequencyPerLine = vcf2FrequencyParser.parseVCFline(line,chromosome);
-                for (Frequency frequency : frequencyPerLine) {
-                    //parseEspDataFromVCFInfoField(frequency);
-                    int idx = Collections.binarySearch(frequencyList, frequency, comparator);
-                    if (idx < 0) {
-                        /* This means we have not found this variant in the dbSNP data */
-                        espFrequencyList.add(frequency);
-                    } else {
-                        /* replace f with the pre-exisiting Frequency object that contains dbSNP data for this variant */
-                        Frequency existingFrequency = frequencyList.get(idx);
-                        existingFrequency.setESPFrequencyEA(frequency.getESPFrequencyEA());
-                        existingFrequency.setESPFrequencyAA(frequency.getESPFrequencyAA());
-                        existingFrequency.setESPFrequencyAll(frequency.getESPFrequencyAll());
-                    }
-                }
-
+                addFrequencies(vcf2FrequencyParser.parseVCFline(line, chromosome));
             }
         } catch (IOException e) {
             logger.error("{} - Error parsing ESP file: {}", ResourceOperationStatus.FAILURE, espFile, e.getMessage());
@@ -184,6 +169,47 @@ private ResourceOperationStatus parseEspFile(Path espFile) {
         return ResourceOperationStatus.SUCCESS;
     }
 
+    /**
+     * Parses ESP VCF lines which have already been partitioned by chromosome
+     * and merges them into the frequency list supplied in the constructor. As
+     * with {@link #parseResource}, nothing is merged if there is no frequency
+     * list to refer to.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    void parseFrequencies(BufferedReader reader) throws IOException {
+        if (frequencyList.isEmpty()) {
+            logger.error("Require a frequency list with frequencies to refer to - this one is empty.");
+            return;
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue; // comment.
+            }
+            addFrequencies(vcf2FrequencyParser.parseVCFline(line, chromosome));
+        }
+        mergeAndSortFrequencyObjects();
+    }
+
+    private void addFrequencies(List<Frequency> frequencyPerLine) {
+        for (Frequency frequency : frequencyPerLine) {
+            //parseEspDataFromVCFInfoField(frequency);
+            int idx = Collections.binarySearch(frequencyList, frequency, comparator);
+            if (idx < 0) {
+                /* This means we have not found this variant in the dbSNP data */
+                espFrequencyList.add(frequency);
+            } else {
+                /* replace f with the pre-exisiting Frequency object that contains dbSNP data for this variant */
+                Frequency existingFrequency = frequencyList.get(idx);
+                existingFrequency.setESPFrequencyEA(frequency.getESPFrequencyEA());
+                existingFrequency.setESPFrequencyAA(frequency.getESPFrequencyAA());
+                existingFrequency.setESPFrequencyAll(frequency.getESPFrequencyAll());
+            }
+        }
+    }
+
     /**
      * Note that when we find ESP information for a variant for which we did not
      * have dbSNP information (and therefore, the variant wasn't listed in the
@@ -128,25 +128,7 @@ public void parseResource(Resource resource, Path inDir, Path outDir) {
                 if (chrom > chromosome) {
                     break;
                 }    
-                List<Frequency> frequencyPerLine = vcf2FrequencyParser.parseVCFline(line,chromosome);
-                
-                for (Frequency frequency : frequencyPerLine) {
-                    int idx = Collections.binarySearch(frequencyList, frequency, comparator);
-                    if (idx < 0) {
-                    /* This means we have not found this variant in the dbSNP data */
-                        exACFrequencyList.add(frequency);
-                    } else {
-                    /* replace f with the pre-exisiting Frequency object that contains dbSNP data for this variant */
-                        Frequency existingFrequency = frequencyList.get(idx);
-                        existingFrequency.setExACFrequencyAfr(frequency.getExACFrequencyAfr());
-                        existingFrequency.setExACFrequencyAmr(frequency.getExACFrequencyAmr());
-                        existingFrequency.setExACFrequencyEas(frequency.getExACFrequencyEas());
-                        existingFrequency.setExACFrequencyFin(frequency.getExACFrequencyFin());
-                        existingFrequency.setExACFrequencyNfe(frequency.getExACFrequencyNfe());
-                        existingFrequency.setExACFrequencyOth(frequency.getExACFrequencyOth());
-                        existingFrequency.setExACFrequencySas(frequency.getExACFrequencySas());
-                    }
-                }
+                addFrequencies(vcf2FrequencyParser.parseVCFline(line, chromosome));
                 long now = System.currentTimeMillis();
                 if (now - startTime > 2000) {
                     long filePosition = fc.position();
@@ -171,6 +153,45 @@ public void parseResource(Resource resource, Path inDir, Path outDir) {
         logger.info("{}", status);
     }
 
+    /**
+     * Parses ExAC VCF lines which have already been partitioned by chromosome
+     * and merges them into the frequency list supplied in the constructor. Any
+     * lines for other chromosomes are ignored.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    void parseFrequencies(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue; // comment.
+            }
+            addFrequencies(vcf2FrequencyParser.parseVCFline(line, chromosome));
+        }
+        mergeAndSortFrequencyObjects();
+    }
+
+    private void addFrequencies(List<Frequency> frequencyPerLine) {
+        for (Frequency frequency : frequencyPerLine) {
+            int idx = Collections.binarySearch(frequencyList, frequency, comparator);
+            if (idx < 0) {
+            /* This means we have not found this variant in the dbSNP data */
+                exACFrequencyList.add(frequency);
+            } else {
+            /* replace f with the pre-exisiting Frequency object that contains dbSNP data for this variant */
+                Frequency existingFrequency = frequencyList.get(idx);
+                existingFrequency.setExACFrequencyAfr(frequency.getExACFrequencyAfr());
+                existingFrequency.setExACFrequencyAmr(frequency.getExACFrequencyAmr());
+                existingFrequency.setExACFrequencyEas(frequency.getExACFrequencyEas());
+                existingFrequency.setExACFrequencyFin(frequency.getExACFrequencyFin());
+                existingFrequency.setExACFrequencyNfe(frequency.getExACFrequencyNfe());
+                existingFrequency.setExACFrequencyOth(frequency.getExACFrequencyOth());
+                existingFrequency.setExACFrequencySas(frequency.getExACFrequencySas());
+            }
+        }
+    }
+
     /**
      * Note that when we find ESP information for a variant for which we did not
      * have dbSNP information (and therefore, the variant wasn't listed in the
@@ -8,22 +8,30 @@
 
 import de.charite.compbio.exomiser.db.resources.Resource;
 import de.charite.compbio.exomiser.db.resources.ResourceOperationStatus;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Creates a pipe delimited file of resource|version
+ * Creates a pipe delimited file of resource|version|checksum. The checksum is
+ * only written for resources which were successfully parsed, or were unchanged
+ * since the last time they were parsed, so that any others are parsed again on
+ * the next build.
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 public class MetaDataParser implements ResourceParser {
     
     private static final Logger logger = LoggerFactory.getLogger(MetaDataParser.class);
+
+    private static final String NULL_STRING = "NULL";
     
     private final Iterable<Resource> externalResources;
     private final Resource metaDataResource;
@@ -50,8 +58,9 @@ public void parseResource(Resource metaDataResource, Path inDir, Path outDir) {
                     Instant now = Instant.now();
                     version  = now.toString();
                 }
-                logger.info("Resource: {} Version: {}", resource.getName(), version);
-                writer.write(String.format("%s|%s%n", resource.getName(), version));
+                String checksum = isParsed(resource) ? resource.getChecksum() : null;
+                logger.info("Resource: {} Version: {} Checksum: {}", resource.getName(), version, checksum);
+                writer.write(String.format("%s|%s|%s%n", resource.getName(), version, checksum == null ? NULL_STRING : checksum));
             }
            status = ResourceOperationStatus.SUCCESS;
         } catch (IOException ex) {
@@ -61,6 +70,41 @@ public void parseResource(Resource metaDataResource, Path inDir, Path outDir) {
          metaDataResource.setParseStatus(status);
          logger.info("{}", status);
     }
+
+    private static boolean isParsed(Resource resource) {
+        return resource.getParseStatus() == ResourceOperationStatus.SUCCESS || resource.getParseStatus() == ResourceOperationStatus.UNCHANGED;
+    }
+
+    /**
+     * Reads a metadata file written by a previous build.
+     *
+     * @param metaDataFile
+     * @return the recorded name, version and checksum of each resource mapped
+     * by resource name. This will be empty if the file does not exist.
+     */
+    public static Map<String, Resource> readMetaData(Path metaDataFile) {
+        Map<String, Resource> recordedResources = new LinkedHashMap<>();
+        if (!Files.exists(metaDataFile)) {
+            logger.info("No previous metadata found in {}", metaDataFile);
+            return recordedResources;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(metaDataFile, Charset.defaultCharset())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\\|", -1);
+                Resource recordedResource = new Resource(fields[0]);
+                recordedResource.setVersion(fields.length > 1 ? fields[1] : null);
+                //older metadata files only had the resource and version
+                if (fields.length > 2 && !NULL_STRING.equals(fields[2])) {
+                    recordedResource.setChecksum(fields[2]);
+                }
+                recordedResources.put(recordedResource.getName(), recordedResource);
+            }
+        } catch (IOException ex) {
+            logger.error("Unable to read previous metadata from {}", metaDataFile, ex);
+        }
+        return recordedResources;
+    }
     
     
 }
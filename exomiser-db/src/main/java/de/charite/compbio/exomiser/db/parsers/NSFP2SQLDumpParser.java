@@ -14,6 +14,7 @@
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -53,6 +54,16 @@
  * could not find data)
  * <LI>2: gene_id_key. This is the primary key of the gene table
  * (auto_increment, see above).
+ * </UL>
+ * <P>
+ * The SIFT, PolyPhen and MutationTaster scores are also written to the binary
+ * <B>pathogenicity.store</B> file which can be used by the exomiser instead of
+ * querying the variant table. See {@link PathogenicityStoreBuilder}.
+ * <P>
+ * Each line is only tokenised as far as the last column the parser needs and
+ * only those columns are turned into Strings. Lines which can't be parsed are
+ * written to the <B>dbNSFP_rejected.tsv</B> file along with the zip entry, line
+ * number and reason rather than stopping the build.
  *
  * @author Peter N. Robinson
  * @version 0.06 (15 July 2013)
@@ -61,6 +72,9 @@ public class NSFP2SQLDumpParser implements ResourceParser {
 
     private static final Logger logger = LoggerFactory.getLogger(NSFP2SQLDumpParser.class);
 
+    static final String PATHOGENICITY_STORE_FILE_NAME = "pathogenicity.store";
+    static final String REJECTED_LINES_FILE_NAME = "dbNSFP_rejected.tsv";
+
     //This is wat's used inplace of a null in the dbNSFP file
     protected static final String NO_VALUE = ".";
 
@@ -69,25 +83,25 @@ public class NSFP2SQLDumpParser implements ResourceParser {
     /**
      * Chromosome number
      */
-    private static int CHR = 7;
+    private int CHR = 7;
     /**
      * physical position on the chromosome as to hg19 (1-based coordinate)
      */
-    private static int POS = 8;
+    private int POS = 8;
     /**
      * reference nucleotide allele (as on the + strand)
      */
-    private static int REF = 2;
+    private int REF = 2;
     /**
      * alternative nucleotide allele (as on the + strand)
      */
-    private static int ALT = 3;
+    private int ALT = 3;
 
     /**
      * SIFT score, If a score is smaller than 0.05 the corresponding NS is
      * predicted as "D(amaging)"; otherwise it is predicted as "T(olerated)".
      */
-    private static int SIFT_SCORE = 23;
+    private int SIFT_SCORE = 23;
     /**
      * SIFT_score_converted: SIFTnew=1-SIFTori. The larger the more damaging.
      * Currently unused in Exomiser.
@@ -104,12 +118,12 @@ public class NSFP2SQLDumpParser implements ResourceParser {
      * smaller than 0.5 and "deleterious" if the score is larger than 0.5.
      * Multiple entries separated by ";".
      */
-    private static int POLYPHEN2_HVAR_SCORE = 29;//28
+    private int POLYPHEN2_HVAR_SCORE = 29;//28
 
     /**
      * MutationTaster score
      */
-    private static int MUTATION_TASTER_SCORE = 35;//33
+    private int MUTATION_TASTER_SCORE = 35;//33
 
     /**
      * MutationTaster prediction, "A" ("disease_causing_automatic"), "D"
@@ -119,16 +133,19 @@ public class NSFP2SQLDumpParser implements ResourceParser {
      * "N" or "P", we set the mutation score to zero. If the score is "A" or
      * "D", we report the score as given in dbNSFP.
      */
-    private static int MUTATION_TASTER_PRED = 37;//35
+    private int MUTATION_TASTER_PRED = 37;//35
+
+    private int CADD_raw = 51;
+    
+    private int CADD_raw_rankscore = 52;
 
     /**
-     * Total number of fields in the dbNSFP database
+     * The start offset of each field in the current line, up to the last field
+     * the parser needs. This has one extra slot for the offset just past the
+     * end of the last needed field.
      */
-    private static int N_NSFP_FIELDS = 86;//59
-    
-    private static int CADD_raw = 51;
-    
-    private static int CADD_raw_rankscore = 52;
+    private int[] fieldStarts;
+    private int lastNeededField;
     
     /**
      * This variable will contain values such as A3238732G that represent the
@@ -156,6 +173,15 @@ public class NSFP2SQLDumpParser implements ResourceParser {
      * The count of all the genes added to the dump file.
      */
     private int totalGenesCount = 0;
+    /**
+     * The count of lines written to the rejected lines file.
+     */
+    private int rejectedLinesCount = 0;
+    /**
+     * The count of lines with no hg19 coordinates. These are variants only
+     * found in hg38 so are skipped without being rejected.
+     */
+    private int noHg19PositionCount = 0;
 
     /** the reference dictionary to use for chromosome name to numeric id conversion */
     //private final ReferenceDictionary refDict;
@@ -183,6 +209,14 @@ public int getGeneCount() {
         return totalGenesCount;
     }
 
+    /**
+     * Get count of all the lines which couldn't be parsed and were written to
+     * the rejected lines file.
+     */
+    public int getRejectedLineCount() {
+        return rejectedLinesCount;
+    }
+
     /**
      * The constructor initializes the File output streams.
      * 
@@ -191,6 +225,18 @@ public int getGeneCount() {
      */
     public NSFP2SQLDumpParser() {//ReferenceDictionary refDict) {
         //this.refDict = refDict;
+        updateFieldStarts();
+    }
+
+    /**
+     * The scores are sorted one chromosome at a time when building the
+     * pathogenicity store, which needs more than the default.
+     *
+     * @return
+     */
+    @Override
+    public int getMemoryHintMb() {
+        return 1024;
     }
 
     @Override
@@ -198,94 +244,174 @@ public void parseResource(Resource resource, Path inDir, Path outDir) {
 
         Path inFile = inDir.resolve(resource.getExtractedFileName());
         Path outFile = outDir.resolve(resource.getParsedFileName());
+        Path storeFile = outDir.resolve(PATHOGENICITY_STORE_FILE_NAME);
+        Path rejectedLinesFile = outDir.resolve(REJECTED_LINES_FILE_NAME);
 
-        logger.info("Parsing {} file: {}. Writing out to: {}", resource.getName(), inFile, outFile);
+        logger.info("Parsing {} file: {}. Writing out to: {} and {}", resource.getName(), inFile, outFile, storeFile);
         ResourceOperationStatus status;
-        
+        Path partitionDir = null;
+
         try (ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(inFile.toString()));
                 BufferedReader reader = new BufferedReader(new InputStreamReader(zipInputStream));
-                BufferedWriter writer = Files.newBufferedWriter(outFile, Charset.defaultCharset())) {
-            
-            ZipEntry zipEntry;
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                if (zipEntry.getName().contains("_variant.chr")) {
-                    logger.info("Parsing variant chromosome file: {}. Parsed {} variants so far...", zipEntry.getName(), totalLinesCount);
-                    
-                    writer.flush();
-                    
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        totalLinesCount++;
-                        if (line.startsWith("#")) {
-                            //try to autodetect the column positions for the parser 
-                            setParseFields(line);                          
-                        } else {
-                            VariantPathogenicity pathogenicity = parseLine(line);
-                            writer.write(pathogenicity.toDumpLine());
-                        }
+                BufferedWriter writer = Files.newBufferedWriter(outFile, Charset.defaultCharset());
+                BufferedWriter rejectedLinesWriter = Files.newBufferedWriter(rejectedLinesFile, Charset.defaultCharset())) {
+
+            partitionDir = Files.createTempDirectory(outDir, "dbNSFP_partitions");
+            try (PathogenicityStoreBuilder storeBuilder = new PathogenicityStoreBuilder(partitionDir)) {
+                ZipEntry zipEntry;
+                while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                    if (zipEntry.getName().contains("_variant.chr")) {
+                        logger.info("Parsing variant chromosome file: {}. Parsed {} variants so far...", zipEntry.getName(), totalLinesCount);
+                        parseEntry(zipEntry.getName(), reader, writer, rejectedLinesWriter, storeBuilder);
                     }
                 }
+                writer.flush();
+                storeBuilder.build(storeFile);
             }
-        status = ResourceOperationStatus.SUCCESS;
-            
+            status = ResourceOperationStatus.SUCCESS;
+
         } catch (FileNotFoundException ex) {
             logger.error(null, ex);
             status = ResourceOperationStatus.FILE_NOT_FOUND;
         } catch (IOException ex) {
             logger.error(null, ex);
             status = ResourceOperationStatus.FAILURE;
+        } finally {
+            deletePartitionDir(partitionDir);
         }
 
+        if (rejectedLinesCount > 0) {
+            logger.warn("Rejected {} of {} lines which couldn't be parsed. These have been written to {}", rejectedLinesCount, totalLinesCount, rejectedLinesFile);
+        }
+        logger.info("Skipped {} lines with no hg19 position", noHg19PositionCount);
         resource.setParseStatus(status);
         logger.info("{}", status);
     }
 
+    private void parseEntry(String entryName, BufferedReader reader, BufferedWriter writer, BufferedWriter rejectedLinesWriter, PathogenicityStoreBuilder storeBuilder) throws IOException {
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            totalLinesCount++;
+            if (line.startsWith("#")) {
+                //try to autodetect the column positions for the parser
+                setParseFields(line);
+                continue;
+            }
+            VariantPathogenicity pathogenicity;
+            try {
+                pathogenicity = parseLine(line);
+            } catch (MalformedLineException ex) {
+                rejectedLinesCount++;
+                rejectedLinesWriter.write(entryName + "\t" + lineNumber + "\t" + ex.getMessage() + "\t" + line);
+                rejectedLinesWriter.newLine();
+                continue;
+            }
+            if (pathogenicity == null) {
+                noHg19PositionCount++;
+                continue;
+            }
+            writer.write(pathogenicity.toDumpLine());
+            storeBuilder.add(pathogenicity);
+        }
+    }
+
+    private void deletePartitionDir(Path partitionDir) {
+        if (partitionDir == null) {
+            return;
+        }
+        try (Stream<Path> partitionFiles = Files.list(partitionDir)) {
+            for (Path partitionFile : (Iterable<Path>) partitionFiles::iterator) {
+                Files.delete(partitionFile);
+            }
+            Files.delete(partitionDir);
+        } catch (IOException ex) {
+            logger.error("Unable to delete temporary partition directory {}", partitionDir, ex);
+        }
+    }
+
     /**
      * Parses the dbNSFP variant lines for the pathogenicity scores.
      *
      * @param line
-     * @return
+     * @return the pathogenicity or null if the line has no hg19 coordinates.
+     * @throws MalformedLineException if the line is missing any of the fields
+     * or the chromosome or position can't be parsed.
      */
     VariantPathogenicity parseLine(String line) {
 
-        String[] fields = line.split("\t");
-        if (fields.length < N_NSFP_FIELDS) {
-            logger.error("Malformed line '{}' - Only {} fields found (expecting {})", line, fields.length, N_NSFP_FIELDS);
-            System.exit(1);
-        }
+        tokenise(line);
         //variant position
-        /* if work out what Jules was doing with ReferenceDictionary 
+        /* if work out what Jules was doing with ReferenceDictionary
          * put back to int c = refDict.contigID.get(fields[CHR]);
          */
+        String chr = field(line, CHR);
+        String position = field(line, POS);
+        if (chr.equals(NO_VALUE) || position.equals(NO_VALUE)) {
+            return null;
+        }
         int c;
-        switch (fields[CHR]) {
+        switch (chr) {
             case "X":
-                c = 23; 
+                c = 23;
                 break;
             case "Y":
-                c = 24; 
+                c = 24;
                 break;
             case "M":
-                c = 25; 
+                c = 25;
                 break;
             default:
-                c = Integer.parseInt(fields[CHR]);
+                c = parseInt(chr, "chromosome");
                 break;
         }
-        int pos = Integer.parseInt(fields[POS]);
-        String ref = fields[REF];
-        String alt = fields[ALT];
+        int pos = parseInt(position, "position");
+        String ref = field(line, REF);
+        String alt = field(line, ALT);
         //pathogenicity scores
-        Float sift = getMostPathogenicSIFTScore(fields[SIFT_SCORE]);
-        Float polyphen2HVAR = getMostPathogenicPolyphenScore(fields[POLYPHEN2_HVAR_SCORE]);
-        Float mutTaster = getMostPathogenicMutTasterScore(fields[MUTATION_TASTER_SCORE], fields[MUTATION_TASTER_PRED]);
-        Float caddRaw = valueOfField(fields[CADD_raw]);
-        Float caddRawRankscore = valueOfField(fields[CADD_raw_rankscore]);
+        Float sift = getMostPathogenicSIFTScore(field(line, SIFT_SCORE));
+        Float polyphen2HVAR = getMostPathogenicPolyphenScore(field(line, POLYPHEN2_HVAR_SCORE));
+        Float mutTaster = getMostPathogenicMutTasterScore(field(line, MUTATION_TASTER_SCORE), field(line, MUTATION_TASTER_PRED));
+        Float caddRaw = valueOfField(field(line, CADD_raw));
+        Float caddRawRankscore = valueOfField(field(line, CADD_raw_rankscore));
 
         return new VariantPathogenicity(c, pos, ref, alt,
                 sift, polyphen2HVAR, mutTaster, caddRawRankscore, caddRaw);
     }
 
+    /**
+     * Finds the start of each field up to the last one needed, without
+     * splitting the rest of the line.
+     */
+    private void tokenise(String line) {
+        int start = 0;
+        for (int i = 0; i <= lastNeededField; i++) {
+            fieldStarts[i] = start;
+            int tabIndex = line.indexOf('\t', start);
+            if (tabIndex < 0) {
+                if (i < lastNeededField) {
+                    throw new MalformedLineException(String.format("Only %d fields found (expecting at least %d)", i + 1, lastNeededField + 1));
+                }
+                tabIndex = line.length();
+            }
+            start = tabIndex + 1;
+        }
+        fieldStarts[lastNeededField + 1] = start;
+    }
+
+    private String field(String line, int field) {
+        return line.substring(fieldStarts[field], fieldStarts[field + 1] - 1);
+    }
+
+    private static int parseInt(String field, String fieldName) {
+        try {
+            return Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new MalformedLineException(String.format("Could not parse %s from '%s'", fieldName, field));
+        }
+    }
+
     /**
      * Some entries in dbNSFP are either nonnegative floats or "." . If the
      * latter, then this method will return a null.
@@ -293,6 +419,9 @@ VariantPathogenicity parseLine(String line) {
      * @return 
      */
     protected Float valueOfField(String field) {
+        if (field.equals(NO_VALUE)) {
+            return null;
+        }
         try {
             return Float.valueOf(field);
         } catch (NumberFormatException e) {
@@ -448,8 +577,6 @@ private void setParseFields(String line) {
         //then split 
         String[] fields = line.split("\t");
         
-        N_NSFP_FIELDS = fields.length;
-        
         for (int i = 0; i < fields.length; i++) {
             String field = fields[i];
             logger.debug("Field {} = {}", i, field);
@@ -507,6 +634,27 @@ private void setParseFields(String line) {
                     break;
             }                    
         }
+        updateFieldStarts();
+    }
+
+    private void updateFieldStarts() {
+        int[] neededFields = {CHR, POS, REF, ALT, SIFT_SCORE, POLYPHEN2_HVAR_SCORE, MUTATION_TASTER_SCORE, MUTATION_TASTER_PRED, CADD_raw, CADD_raw_rankscore};
+        lastNeededField = 0;
+        for (int neededField : neededFields) {
+            lastNeededField = Math.max(lastNeededField, neededField);
+        }
+        fieldStarts = new int[lastNeededField + 2];
+    }
+
+    /**
+     * Thrown when a line can't be parsed. The line is written to the rejected
+     * lines file instead.
+     */
+    static class MalformedLineException extends RuntimeException {
+
+        MalformedLineException(String message) {
+            super(message);
+        }
     }
 
 }
@@ -0,0 +1,182 @@
+package de.charite.compbio.exomiser.db.parsers;
+
+import de.charite.compbio.exomiser.core.dao.PathogenicityScoreStoreWriter;
+import de.charite.compbio.exomiser.db.reference.VariantPathogenicity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the binary pathogenicity score store from the parsed dbNSFP lines.
+ * The dbNSFP files are sorted by their hg38 coordinates, so the hg19 scores
+ * are first written to a small fixed-width binary file per chromosome, then
+ * each chromosome is sorted by position in memory on its own and handed to
+ * the {@link PathogenicityScoreStoreWriter}. This means only one chromosome of
+ * scores is ever held in memory.
+ * <p>
+ * Lines which aren't a single base substitution or which have no SIFT,
+ * PolyPhen or MutationTaster score are not stored.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+class PathogenicityStoreBuilder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PathogenicityStoreBuilder.class);
+
+    private static final int MAX_CHROMOSOME = 25;
+    //position, ref, alt and three scores
+    private static final int RECORD_BYTES = Integer.BYTES + 2 + 3 * Float.BYTES;
+
+    private final Path partitionDir;
+    private final DataOutputStream[] partitionStreams = new DataOutputStream[MAX_CHROMOSOME + 1];
+    private final int[] partitionSizes = new int[MAX_CHROMOSOME + 1];
+    private boolean closed = false;
+
+    PathogenicityStoreBuilder(Path partitionDir) {
+        this.partitionDir = partitionDir;
+    }
+
+    /**
+     * Adds the scores to the partition for their chromosome.
+     *
+     * @param pathogenicity
+     * @return true if the scores will be stored.
+     * @throws IOException
+     */
+    boolean add(VariantPathogenicity pathogenicity) throws IOException {
+        int chromosome = pathogenicity.getChromosome();
+        if (chromosome < 1 || chromosome > MAX_CHROMOSOME || !isSnv(pathogenicity.getRef(), pathogenicity.getAlt())) {
+            return false;
+        }
+        Float sift = pathogenicity.getSiftScore();
+        Float polyphen = pathogenicity.getPolyphenScore();
+        Float mutTaster = pathogenicity.getMuttasterScore();
+        if (sift == null && polyphen == null && mutTaster == null) {
+            return false;
+        }
+        DataOutputStream partitionStream = getPartitionStream(chromosome);
+        partitionStream.writeInt(pathogenicity.getPosition());
+        partitionStream.writeByte(pathogenicity.getRef().charAt(0));
+        partitionStream.writeByte(pathogenicity.getAlt().charAt(0));
+        //NaN is used in place of a missing score
+        partitionStream.writeFloat(sift == null ? Float.NaN : sift);
+        partitionStream.writeFloat(polyphen == null ? Float.NaN : polyphen);
+        partitionStream.writeFloat(mutTaster == null ? Float.NaN : mutTaster);
+        partitionSizes[chromosome]++;
+        return true;
+    }
+
+    private static boolean isSnv(String ref, String alt) {
+        return ref.length() == 1 && alt.length() == 1 && isBase(ref.charAt(0)) && isBase(alt.charAt(0));
+    }
+
+    private static boolean isBase(char base) {
+        return base == 'A' || base == 'C' || base == 'G' || base == 'T';
+    }
+
+    private DataOutputStream getPartitionStream(int chromosome) throws IOException {
+        DataOutputStream partitionStream = partitionStreams[chromosome];
+        if (partitionStream == null) {
+            partitionStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getPartitionPath(chromosome)), 1 << 16));
+            partitionStreams[chromosome] = partitionStream;
+        }
+        return partitionStream;
+    }
+
+    private Path getPartitionPath(int chromosome) {
+        return partitionDir.resolve("pathogenicity_" + chromosome + ".bin");
+    }
+
+    /**
+     * Sorts the partitions and writes them to the store file. The partition
+     * files are deleted once they have been written.
+     *
+     * @param storeFile
+     * @return the number of alleles written to the store.
+     * @throws IOException
+     */
+    long build(Path storeFile) throws IOException {
+        close();
+        try (PathogenicityScoreStoreWriter storeWriter = new PathogenicityScoreStoreWriter(storeFile)) {
+            for (int chromosome = 1; chromosome <= MAX_CHROMOSOME; chromosome++) {
+                if (partitionSizes[chromosome] > 0) {
+                    writeChromosome(chromosome, storeWriter);
+                }
+            }
+            logger.info("Wrote {} alleles to pathogenicity score store {}", storeWriter.getNumAlleles(), storeFile);
+            return storeWriter.getNumAlleles();
+        } finally {
+            deletePartitions();
+        }
+    }
+
+    private void writeChromosome(int chromosome, PathogenicityScoreStoreWriter storeWriter) throws IOException {
+        int numRecords = partitionSizes[chromosome];
+        Path partitionPath = getPartitionPath(chromosome);
+        byte[] records = new byte[numRecords * RECORD_BYTES];
+        try (DataInputStream partitionStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(partitionPath), 1 << 16))) {
+            partitionStream.readFully(records);
+        }
+        //sort on the position in the top half and the record number in the bottom half
+        long[] sortKeys = new long[numRecords];
+        for (int i = 0; i < numRecords; i++) {
+            sortKeys[i] = (long) readInt(records, i * RECORD_BYTES) << 32 | i;
+        }
+        Arrays.sort(sortKeys);
+        for (long sortKey : sortKeys) {
+            int offset = (int) sortKey * RECORD_BYTES;
+            int position = readInt(records, offset);
+            String ref = String.valueOf((char) records[offset + 4]);
+            String alt = String.valueOf((char) records[offset + 5]);
+            storeWriter.add(chromosome, position, ref, alt, readScore(records, offset + 6), readScore(records, offset + 10), readScore(records, offset + 14));
+        }
+        logger.info("Sorted and stored {} dbNSFP lines for chromosome {}", numRecords, chromosome);
+        Files.delete(partitionPath);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static Float readScore(byte[] bytes, int offset) {
+        float score = Float.intBitsToFloat(readInt(bytes, offset));
+        return Float.isNaN(score) ? null : score;
+    }
+
+    private void deletePartitions() throws IOException {
+        for (int chromosome = 1; chromosome <= MAX_CHROMOSOME; chromosome++) {
+            Files.deleteIfExists(getPartitionPath(chromosome));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException closeException = null;
+        for (DataOutputStream partitionStream : partitionStreams) {
+            if (partitionStream == null) {
+                continue;
+            }
+            try {
+                partitionStream.close();
+            } catch (IOException ex) {
+                closeException = ex;
+            }
+        }
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+}
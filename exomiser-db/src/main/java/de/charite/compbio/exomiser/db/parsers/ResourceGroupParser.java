@@ -36,4 +36,15 @@ public interface ResourceGroupParser {
      * @return false if any resource is missing.
      */
     public boolean requiredResourcesPresent(ResourceGroup resourceGroup);
+
+    /**
+     * A rough guide to the peak heap, in megabytes, needed to parse the whole
+     * group. This is used to stop the largest parsers running at the same time
+     * as each other.
+     *
+     * @return the estimated peak heap in megabytes.
+     */
+    public default int getMemoryHintMb() {
+        return ResourceParser.DEFAULT_MEMORY_HINT_MB;
+    }
 }
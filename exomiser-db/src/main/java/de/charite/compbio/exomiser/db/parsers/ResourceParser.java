@@ -14,7 +14,24 @@
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 public interface ResourceParser {
+
+    /**
+     * The heap, in megabytes, a parser is assumed to need unless it says
+     * otherwise.
+     */
+    public static final int DEFAULT_MEMORY_HINT_MB = 256;
     
     public void parseResource(Resource resource, Path inDir, Path outDir);
 
+    /**
+     * A rough guide to the peak heap, in megabytes, needed to parse the
+     * resource. This is used to stop the largest parsers running at the same
+     * time as each other.
+     *
+     * @return the estimated peak heap in megabytes.
+     */
+    public default int getMemoryHintMb() {
+        return DEFAULT_MEMORY_HINT_MB;
+    }
+
 }
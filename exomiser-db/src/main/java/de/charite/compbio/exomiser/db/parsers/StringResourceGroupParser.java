@@ -66,4 +66,15 @@ public boolean requiredResourcesPresent(ResourceGroup resourceGroup) {
 
         return true;
     }
+
+    /**
+     * The ensembl to entrez gene mappings and all of the STRING interactions
+     * are held in memory before being written out.
+     *
+     * @return
+     */
+    @Override
+    public int getMemoryHintMb() {
+        return 2048;
+    }
 }
@@ -12,14 +12,31 @@
 import de.charite.compbio.exomiser.db.resources.ResourceOperationStatus;
 import de.charite.compbio.jannovar.data.JannovarData;
 import de.charite.compbio.jannovar.data.JannovarDataSerializer;
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
 import de.charite.compbio.jannovar.data.SerializationException;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +45,19 @@
 /**
  * This class wraps up the parsing of the resources required for creating the variant
  * frequency data in the frequency table.
+ * <p>
+ * Each of the dbSNP, ExAC and ESP inputs is read exactly once and split into a
+ * temporary file per chromosome. The chromosomes are then merged in parallel,
+ * each one using the same dbSNP, ExAC then ESP sequence as the single-resource
+ * parsers, and written out in chromosome order so the output is identical to
+ * parsing one chromosome at a time. Only as many chromosomes as there are
+ * threads are held in memory at once.
+ * <p>
+ * The partitions are written gzipped to a temporary directory in the output
+ * directory. Along with the merged chromosomes waiting to be appended, this
+ * needs about as much free space as the compressed dbSNP, ExAC and ESP inputs
+ * plus frequency.pg itself. Everything in it is deleted once frequency.pg has
+ * been written.
  * 
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
@@ -38,12 +68,30 @@ public class VariantFrequencyResourceGroupParser extends AbstractResourceGroupPa
 
     private static final Logger logger = LoggerFactory.getLogger(VariantFrequencyResourceGroupParser.class);
 
+    //each chromosome in flight needs several GB of heap for the larger chromosomes
+    private static final int DEFAULT_NUM_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static final byte[] CHROMOSOMES = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24};
+
+    private final int numThreads;
+
     //TODO: Wouldn't this be easier using a proper DI framework???  
     Resource dbSnpResource;
     Resource espResource;
     Resource jannovarResource;
     Resource exacResource;
-    
+
+    public VariantFrequencyResourceGroupParser() {
+        this(DEFAULT_NUM_THREADS);
+    }
+
+    public VariantFrequencyResourceGroupParser(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be greater than 0, not " + numThreads);
+        }
+        this.numThreads = numThreads;
+    }
+
     @Override
     public void parseResources(ResourceGroup resourceGroup, Path inDir, Path outDir) {
 
@@ -55,47 +103,175 @@ public void parseResources(ResourceGroup resourceGroup, Path inDir, Path outDir)
             return;
         }
         JannovarData jannovarData = extractKnownGenesFromJannovarResource(inDir);
-        
+
         //doesn't matter which resource we choose the parsed file name from as they 
         //should all the the same
         Path outputFile = outDir.resolve(dbSnpResource.getParsedFileName());
-        
-        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, Charset.defaultCharset())) {
-            // now do one chromosome at a time and then write out results as otherwise was taking ~20G
-            byte[] chromosomes = new byte[]{1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22,23,24};    
-            for (byte chromosome : chromosomes) {
-                /*
-                 * First parseResource the dnSNP data.
-                 */
-                logger.info("Parsing dbSNP data");
-                //this is the Frequency List we're going to populate and the write out to file
-                ArrayList<Frequency> frequencyList = new ArrayList<>();
-                //provide it to the DbSnpFrequencyParser along with the UCSC data
-                DbSnpFrequencyParser dbSnpParser = new DbSnpFrequencyParser(jannovarData, inDir, frequencyList, chromosome);
-                dbSnpParser.parseResource(dbSnpResource, inDir, outDir);
-
-                if (frequencyList.isEmpty()) {
-                    logger.error("DbSnpFrequencyParser returned no Frequency data.");
-                }
 
-                // Now parseResource the ExAC data using the frequency information generated
-                // from the dbSNP and UCSC known gene data.
-                ExACFrequencyParser exacParser = new ExACFrequencyParser(jannovarData.getRefDict(), frequencyList, chromosome);
-                logger.info("Parsing the ExAC data");
-                exacParser.parseResource(exacResource, inDir, outDir);
-
-                // Now parseResource the ESP data using the frequency information generated
-                // from the dbSNP and UCSC known gene data.
-                EspFrequencyParser espParser = new EspFrequencyParser(jannovarData.getRefDict(), frequencyList, chromosome);
-                logger.info("Parsing the ESP data");
-                espParser.parseResource(espResource, inDir, outDir);
-                
-                for (Frequency f : frequencyList) {
-                    writer.write(f.getDumpLine());
+        parseFrequencies(jannovarData.getRefDict(), inDir, outputFile);
+    }
+
+    /**
+     * Partitions the dbSNP, ExAC and ESP resources and merges them into the
+     * output file. The resources must already have been set by
+     * {@link #requiredResourcesPresent(ResourceGroup)}.
+     *
+     * @param refDict
+     * @param inDir
+     * @param outputFile
+     */
+    void parseFrequencies(ReferenceDictionary refDict, Path inDir, Path outputFile) {
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, new FrequencyWorkerThreadFactory());
+        Path partitionDir = null;
+        try {
+            partitionDir = Files.createTempDirectory(outputFile.toAbsolutePath().getParent(), "frequency_partitions");
+            ChromosomePartitioner dbSnpPartitions = new ChromosomePartitioner(refDict, partitionDir, "dbsnp", true);
+            ChromosomePartitioner exacPartitions = new ChromosomePartitioner(refDict, partitionDir, "exac", true);
+            ChromosomePartitioner espPartitions = new ChromosomePartitioner(refDict, partitionDir, "esp", false);
+
+            logger.info("Partitioning dbSNP, ExAC and ESP data by chromosome");
+            Future<ResourceOperationStatus> dbSnpStatus = executorService.submit(() -> partitionFile(dbSnpResource, inDir, dbSnpPartitions));
+            Future<ResourceOperationStatus> exacStatus = executorService.submit(() -> partitionFile(exacResource, inDir, exacPartitions));
+            Future<ResourceOperationStatus> espStatus = executorService.submit(() -> partitionDirectory(espResource, inDir, espPartitions));
+            setParseStatus(dbSnpResource, dbSnpStatus);
+            setParseStatus(exacResource, exacStatus);
+            setParseStatus(espResource, espStatus);
+
+            List<Future<Path>> chromosomeFiles = new ArrayList<>();
+            for (byte chromosome : CHROMOSOMES) {
+                final Path chromosomeFile = partitionDir.resolve("frequency_" + chromosome + ".pg");
+                chromosomeFiles.add(executorService.submit(() -> writeChromosomeFrequencies(chromosome, refDict, dbSnpPartitions, exacPartitions, espPartitions, chromosomeFile)));
+            }
+            //the chromosomes are appended in order as they complete, so the earlier ones can be written while the later ones are merged
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(outputFile))) {
+                for (Future<Path> chromosomeFile : chromosomeFiles) {
+                    Path completedFile = getResult(chromosomeFile);
+                    Files.copy(completedFile, outputStream);
+                    Files.delete(completedFile);
                 }
             }
         } catch (IOException e) {
             logger.error("Error writing out frequency files", e);
+        } finally {
+            executorService.shutdownNow();
+            deletePartitions(partitionDir);
+        }
+    }
+
+    private ResourceOperationStatus partitionFile(Resource resource, Path inDir, ChromosomePartitioner partitioner) {
+        Path inFile = inDir.resolve(resource.getExtractedFileName());
+        logger.info("Partitioning {} file: {}", resource.getName(), inFile);
+        try (ChromosomePartitioner partitions = partitioner;
+             BufferedReader reader = newVcfReader(inFile)) {
+            partitions.partition(reader);
+        } catch (NoSuchFileException | FileNotFoundException ex) {
+            logger.error(null, ex);
+            return ResourceOperationStatus.FILE_NOT_FOUND;
+        } catch (IOException ex) {
+            logger.error(null, ex);
+            return ResourceOperationStatus.FAILURE;
+        }
+        return ResourceOperationStatus.SUCCESS;
+    }
+
+    /**
+     * The ESP data is split into one VCF file per chromosome, these are read in
+     * the same directory order as the {@link EspFrequencyParser}.
+     */
+    private ResourceOperationStatus partitionDirectory(Resource resource, Path inDir, ChromosomePartitioner partitioner) {
+        Path inFile = inDir.resolve(resource.getExtractedFileName());
+        logger.info("Partitioning {} files in: {}", resource.getName(), inFile);
+        try (ChromosomePartitioner partitions = partitioner;
+             DirectoryStream<Path> espFilePaths = Files.newDirectoryStream(inFile)) {
+            for (Path espFile : espFilePaths) {
+                try (BufferedReader reader = Files.newBufferedReader(espFile, Charset.defaultCharset())) {
+                    partitions.partition(reader);
+                }
+            }
+        } catch (IOException ex) {
+            logger.error(null, ex);
+            return ResourceOperationStatus.FAILURE;
+        }
+        return ResourceOperationStatus.SUCCESS;
+    }
+
+    /**
+     * Opens the file as a gzipped file, falling back to plain text if it isn't
+     * compressed.
+     */
+    private BufferedReader newVcfReader(Path inFile) throws IOException {
+        InputStream inputStream = Files.newInputStream(inFile);
+        try {
+            return new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream, 65536)));
+        } catch (IOException ex) {
+            inputStream.close();
+            return new BufferedReader(new InputStreamReader(Files.newInputStream(inFile)));
+        }
+    }
+
+    private Path writeChromosomeFrequencies(byte chromosome, ReferenceDictionary refDict, ChromosomePartitioner dbSnpPartitions, ChromosomePartitioner exacPartitions, ChromosomePartitioner espPartitions, Path chromosomeFile) throws IOException {
+        logger.info("Merging frequency data for chromosome {}", chromosome);
+        //this is the Frequency List we're going to populate and the write out to file
+        List<Frequency> frequencyList = new ArrayList<>();
+
+        DbSnpFrequencyParser dbSnpParser = new DbSnpFrequencyParser(refDict, frequencyList, chromosome);
+        try (BufferedReader reader = dbSnpPartitions.newPartitionReader(chromosome)) {
+            dbSnpParser.parseFrequencies(reader);
+        }
+        if (frequencyList.isEmpty()) {
+            logger.error("DbSnpFrequencyParser returned no Frequency data for chromosome {}.", chromosome);
+        }
+
+        ExACFrequencyParser exacParser = new ExACFrequencyParser(refDict, frequencyList, chromosome);
+        try (BufferedReader reader = exacPartitions.newPartitionReader(chromosome)) {
+            exacParser.parseFrequencies(reader);
+        }
+
+        EspFrequencyParser espParser = new EspFrequencyParser(refDict, frequencyList, chromosome);
+        try (BufferedReader reader = espPartitions.newPartitionReader(chromosome)) {
+            espParser.parseFrequencies(reader);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(chromosomeFile, Charset.defaultCharset())) {
+            for (Frequency f : frequencyList) {
+                writer.write(f.getDumpLine());
+            }
+        }
+        logger.info("Wrote {} frequencies for chromosome {}", frequencyList.size(), chromosome);
+        return chromosomeFile;
+    }
+
+    private void setParseStatus(Resource resource, Future<ResourceOperationStatus> status) {
+        resource.setParseStatus(getResult(status));
+        logger.info("{} {}", resource.getName(), resource.getParseStatus());
+    }
+
+    private <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FrequencyParsingException("Interrupted while parsing frequency data", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new FrequencyParsingException("Unable to parse frequency data", cause);
+        }
+    }
+
+    private void deletePartitions(Path partitionDir) {
+        if (partitionDir == null) {
+            return;
+        }
+        try (DirectoryStream<Path> partitionFiles = Files.newDirectoryStream(partitionDir)) {
+            for (Path partitionFile : partitionFiles) {
+                Files.delete(partitionFile);
+            }
+            Files.delete(partitionDir);
+        } catch (IOException ex) {
+            logger.error("Unable to delete temporary frequency partitions in {}", partitionDir, ex);
         }
     }
 
@@ -143,5 +319,35 @@ public boolean requiredResourcesPresent(ResourceGroup resourceGroup) {
         
         return true; 
     }
-    
+
+    /**
+     * The Jannovar data and the merged frequencies of each chromosome being
+     * worked on are all held in memory at once.
+     *
+     * @return
+     */
+    @Override
+    public int getMemoryHintMb() {
+        return 1024 + numThreads * 2048;
+    }
+
+    private static class FrequencyWorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "frequency-worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class FrequencyParsingException extends RuntimeException {
+
+        FrequencyParsingException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
 }
@@ -60,6 +60,34 @@ public VariantPathogenicity(int chromosome, int position, String ref, String alt
         this.caddRawScore = caddRawScore;
     }
 
+    public int getChromosome() {
+        return chromosome;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public String getAlt() {
+        return alt;
+    }
+
+    public Float getSiftScore() {
+        return siftScore;
+    }
+
+    public Float getPolyphenScore() {
+        return polyphenScore;
+    }
+
+    public Float getMuttasterScore() {
+        return muttasterScore;
+    }
+
     /**
      * This returns a line that will form part of the import file for
      * postgreSQL.
@@ -40,6 +40,7 @@ public class Resource {
     private ResourceOperationStatus downloadStatus;
     private ResourceOperationStatus extractStatus;
     private ResourceOperationStatus parseStatus;
+    private String checksum;
 
     
     public Resource(String name) {
@@ -200,6 +201,18 @@ public boolean equals(Object obj) {
         return true;
     }
    
+    /**
+     * @return the SHA-256 checksum of the downloaded resource file, or null if
+     * there is no file.
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
     public String getStatus() {
         return String.format("Status for: %-23s Download: %s, Extract: %s, Parse: %s", name, downloadStatus, extractStatus, parseStatus);
     }
@@ -0,0 +1,264 @@
+package de.charite.compbio.exomiser.db.resources;
+
+import de.charite.compbio.exomiser.db.parsers.MetaDataParser;
+import de.charite.compbio.exomiser.db.parsers.ResourceGroupParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Works out which resources have changed since the last build so that only
+ * these need to be extracted, parsed and loaded again. A resource needs parsing
+ * if the checksum of its file is different to the one recorded in the metadata
+ * file from the last build, or if its parsed file is missing. Resources which
+ * are parsed as part of a group are all re-parsed if any one of them has
+ * changed.
+ * <p>
+ * Hashing every resource takes minutes, so this is only done for incremental
+ * builds. The size, modification time and checksum of each file hashed are
+ * kept in a checksum cache file and a file whose size and modification time
+ * haven't changed since is not hashed again.
+ * <p>
+ * The metadata file only records what has been parsed. Each database records
+ * what was last loaded into it in its own metadata table, so the files to load
+ * are worked out separately for each database by
+ * {@link #findUnloadedFiles(Iterable, Map, Map)}.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class ResourceChecksumHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceChecksumHandler.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Sets the checksum of each resource from its downloaded file, or its
+     * extracted file for resources which aren't downloaded. Resources with no
+     * file have a null checksum. Files with the same size and modification
+     * time as recorded in the checksumCacheFile are given their recorded
+     * checksum rather than being hashed again. The checksumCacheFile is then
+     * re-written with the files of these resources.
+     *
+     * @param externalResources
+     * @param downloadDir
+     * @param processDir
+     * @param checksumCacheFile
+     */
+    public static void calculateChecksums(Iterable<Resource> externalResources, Path downloadDir, Path processDir, Path checksumCacheFile) {
+        Map<String, FileChecksum> cachedChecksums = readChecksumCache(checksumCacheFile);
+        Map<String, FileChecksum> fileChecksums = new LinkedHashMap<>();
+        for (Resource resource : externalResources) {
+            Path resourceFile = getResourceFile(resource, downloadDir, processDir);
+            if (resourceFile == null) {
+                logger.info("Resource: {} has no file to checksum", resource.getName());
+                resource.setChecksum(null);
+                continue;
+            }
+            long startTime = System.currentTimeMillis();
+            try {
+                String fileName = resourceFile.toAbsolutePath().toString();
+                long size = Files.size(resourceFile);
+                long lastModified = Files.getLastModifiedTime(resourceFile).toMillis();
+                FileChecksum fileChecksum = cachedChecksums.get(fileName);
+                if (fileChecksum != null && fileChecksum.size == size && fileChecksum.lastModified == lastModified) {
+                    logger.info("Resource: {} file: {} is unmodified since last checksum: {}", resource.getName(), resourceFile, fileChecksum.checksum);
+                } else {
+                    fileChecksum = new FileChecksum(size, lastModified, sha256(resourceFile));
+                    logger.info("Resource: {} file: {} checksum: {} ({} ms)", resource.getName(), resourceFile, fileChecksum.checksum, System.currentTimeMillis() - startTime);
+                }
+                resource.setChecksum(fileChecksum.checksum);
+                fileChecksums.put(fileName, fileChecksum);
+            } catch (IOException ex) {
+                logger.error("Unable to calculate checksum for resource {} file {}", resource.getName(), resourceFile, ex);
+                resource.setChecksum(null);
+            }
+        }
+        writeChecksumCache(checksumCacheFile, fileChecksums);
+    }
+
+    private static Map<String, FileChecksum> readChecksumCache(Path checksumCacheFile) {
+        Map<String, FileChecksum> cachedChecksums = new HashMap<>();
+        if (!Files.exists(checksumCacheFile)) {
+            return cachedChecksums;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(checksumCacheFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                //the file name comes last as it's the only field which could contain the separator
+                String[] fields = line.split("\\|", 4);
+                if (fields.length == 4) {
+                    cachedChecksums.put(fields[3], new FileChecksum(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            logger.error("Unable to read checksum cache {} - all resources will be checksummed", checksumCacheFile, ex);
+            cachedChecksums.clear();
+        }
+        return cachedChecksums;
+    }
+
+    private static void writeChecksumCache(Path checksumCacheFile, Map<String, FileChecksum> fileChecksums) {
+        try (BufferedWriter writer = Files.newBufferedWriter(checksumCacheFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, FileChecksum> entry : fileChecksums.entrySet()) {
+                FileChecksum fileChecksum = entry.getValue();
+                writer.write(String.format("%d|%d|%s|%s%n", fileChecksum.size, fileChecksum.lastModified, fileChecksum.checksum, entry.getKey()));
+            }
+        } catch (IOException ex) {
+            logger.error("Unable to write checksum cache {}", checksumCacheFile, ex);
+        }
+    }
+
+    private static Path getResourceFile(Resource resource, Path downloadDir, Path processDir) {
+        Path resourceFile = null;
+        if (resource.getRemoteFileName() != null && !resource.getRemoteFileName().isEmpty()) {
+            resourceFile = downloadDir.resolve(resource.getRemoteFileName());
+        } else if (resource.getExtractedFileName() != null && !resource.getExtractedFileName().isEmpty()) {
+            resourceFile = processDir.resolve(resource.getExtractedFileName());
+        }
+        if (resourceFile == null || !Files.isRegularFile(resourceFile)) {
+            return null;
+        }
+        return resourceFile;
+    }
+
+    static String sha256(Path file) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            //every JVM is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, bytesRead);
+            }
+        }
+        byte[] digest = messageDigest.digest();
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Compares the checksums of the resources to those recorded in the
+     * metadata file from the last build. Unchanged resources have their extract
+     * and parse statuses set to UNCHANGED and keep the version they were
+     * recorded with. The checksums must have been calculated first.
+     *
+     * @param externalResources
+     * @param metaDataFile the metadata file written by the last build
+     * @param parsedDir the directory containing the parsed files
+     * @return the resources which need to be extracted and parsed again
+     */
+    public static Set<Resource> findChangedResources(Iterable<Resource> externalResources, Path metaDataFile, Path parsedDir) {
+        Map<String, Resource> recordedResources = MetaDataParser.readMetaData(metaDataFile);
+
+        Set<Resource> changedResources = new LinkedHashSet<>();
+        Set<Class<? extends ResourceGroupParser>> changedGroups = new HashSet<>();
+        for (Resource resource : externalResources) {
+            if (hasChanged(resource, recordedResources.get(resource.getName()), parsedDir)) {
+                changedResources.add(resource);
+                if (resource.getResourceGroupParserClass() != null) {
+                    changedGroups.add(resource.getResourceGroupParserClass());
+                }
+            }
+        }
+        //a group parser needs all of its resources, not just the changed ones
+        for (Resource resource : externalResources) {
+            if (changedGroups.contains(resource.getResourceGroupParserClass())) {
+                changedResources.add(resource);
+            }
+        }
+
+        for (Resource resource : externalResources) {
+            if (changedResources.contains(resource)) {
+                logger.info("Resource: {} has changed", resource.getName());
+            } else {
+                logger.info("Resource: {} is unchanged", resource.getName());
+                resource.setExtractStatus(ResourceOperationStatus.UNCHANGED);
+                resource.setParseStatus(ResourceOperationStatus.UNCHANGED);
+                if (resource.getVersion() == null || resource.getVersion().isEmpty()) {
+                    resource.setVersion(recordedResources.get(resource.getName()).getVersion());
+                }
+            }
+        }
+        return changedResources;
+    }
+
+    /**
+     * Compares the checksums the resources were parsed with to those recorded
+     * in a database by its last successful load.
+     *
+     * @param externalResources
+     * @param parsedResources the resources recorded in the metadata file
+     * written by the last parse
+     * @param loadedChecksums the checksums read from the database metadata
+     * table
+     * @return the names of the parsed files which need loading into the
+     * database. The metadata file is always included.
+     */
+    public static Set<String> findUnloadedFiles(Iterable<Resource> externalResources, Map<String, Resource> parsedResources, Map<String, String> loadedChecksums) {
+        Set<String> unloadedFiles = new LinkedHashSet<>();
+        for (Resource resource : externalResources) {
+            String parsedFileName = resource.getParsedFileName();
+            if (parsedFileName == null || parsedFileName.isEmpty()) {
+                continue;
+            }
+            Resource parsedResource = parsedResources.get(resource.getName());
+            String parsedChecksum = parsedResource == null ? null : parsedResource.getChecksum();
+            if (MetaDataParser.class.equals(resource.getParserClass()) || parsedChecksum == null || !parsedChecksum.equals(loadedChecksums.get(resource.getName()))) {
+                logger.info("Resource: {} parsed file {} needs loading", resource.getName(), parsedFileName);
+                unloadedFiles.add(parsedFileName);
+            }
+        }
+        return unloadedFiles;
+    }
+
+    private static boolean hasChanged(Resource resource, Resource recordedResource, Path parsedDir) {
+        //the metadata needs writing every time
+        if (MetaDataParser.class.equals(resource.getParserClass())) {
+            return true;
+        }
+        if (recordedResource == null || resource.getChecksum() == null || !Objects.equals(resource.getChecksum(), recordedResource.getChecksum())) {
+            return true;
+        }
+        String parsedFileName = resource.getParsedFileName();
+        return parsedFileName != null && !parsedFileName.isEmpty() && !Files.exists(parsedDir.resolve(parsedFileName));
+    }
+
+    private static class FileChecksum {
+
+        private final long size;
+        private final long lastModified;
+        private final String checksum;
+
+        FileChecksum(long size, long lastModified, String checksum) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -7,6 +7,8 @@
 
 import de.charite.compbio.exomiser.db.parsers.ResourceGroupParser;
 import de.charite.compbio.exomiser.db.parsers.ResourceParser;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.slf4j.Logger;
@@ -117,6 +119,16 @@ public Resource getResource(String resourceName) {
         return resourcesNameMap.get(resourceName);
     }
 
+    /**
+     * Returns all the resources in the group, including those with no
+     * ResourceParserClass.
+     *
+     * @return the resources in the order they were added.
+     */
+    public Collection<Resource> getResources() {
+        return Collections.unmodifiableCollection(resourcesNameMap.values());
+    }
+
     @Override
     public String toString() {
         return "ResourceGroup{" + "groupName=" + groupName + ", resourceGroupParserClass=" + resourceGroupParserClass + ", resources=" + resourcesClassMap.values() + '}';
@@ -12,5 +12,5 @@
  * @author Jule Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 public enum ResourceOperationStatus {
-    FAILURE, SUCCESS, UNTRIED, FILE_NOT_FOUND, PARSER_NOT_FOUND;
+    FAILURE, SUCCESS, UNTRIED, FILE_NOT_FOUND, PARSER_NOT_FOUND, UNCHANGED;
 }
@@ -9,8 +9,12 @@
 import de.charite.compbio.exomiser.db.parsers.ResourceGroupParser;
 import de.charite.compbio.exomiser.db.parsers.ResourceParser;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,15 +27,62 @@ public class ResourceParserHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ResourceParserHandler.class.getName());
 
+    private static final int DEFAULT_NUM_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
     public static void parseResources(Iterable<Resource> externalResources, Path inDir, Path outDir) {
+        Set<Resource> resourcesToParse = new HashSet<>();
+        for (Resource resource : externalResources) {
+            resourcesToParse.add(resource);
+        }
+        parseResources(externalResources, resourcesToParse, inDir, outDir);
+    }
+
+    /**
+     * Parses only the resourcesToParse. The metadata is always parsed using all
+     * of the externalResources.
+     *
+     * @param externalResources
+     * @param resourcesToParse
+     * @param inDir
+     * @param outDir
+     */
+    public static void parseResources(Iterable<Resource> externalResources, Set<Resource> resourcesToParse, Path inDir, Path outDir) {
+        parseResources(externalResources, resourcesToParse, inDir, outDir, DEFAULT_NUM_THREADS, getDefaultMemoryBudgetMb());
+    }
+
+    /**
+     * Parses only the resourcesToParse, running the independent resources and
+     * resource groups concurrently. Resources or groups which write the same
+     * files are parsed one after the other. The metadata is always parsed last,
+     * using all of the externalResources.
+     *
+     * @param externalResources
+     * @param resourcesToParse
+     * @param inDir
+     * @param outDir
+     * @param numThreads the maximum number of resources or groups to parse at
+     * the same time
+     * @param memoryBudgetMb the heap available for parsing. Resources or groups
+     * are not started if their combined memory hints would exceed this.
+     */
+    public static void parseResources(Iterable<Resource> externalResources, Set<Resource> resourcesToParse, Path inDir, Path outDir, int numThreads, long memoryBudgetMb) {
+        //parsers can change the version of a resource, which changes its hashCode, so these are compared by identity
+        Set<Resource> resourcesToSkip = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Resource resource : externalResources) {
+            if (!resourcesToParse.contains(resource)) {
+                resourcesToSkip.add(resource);
+            }
+        }
 
         //there are a lot of resources which need parsing together as a group
         //...like the ESP and dnSNP files
         //...and the OMIM files
         //...and the STRING DB files
-        Map<Class, ResourceGroup> resourceGroupMap = new HashMap<>();
+        Map<Class, ResourceGroup> resourceGroupMap = new LinkedHashMap<>();
         //...and the MetaData 'file' this is really a special case
         Resource metaDataResource = null;
+
+        ResourceParserScheduler scheduler = new ResourceParserScheduler(numThreads, memoryBudgetMb);
         
         logger.info("Parsing resources:");
         for (Resource resource : externalResources) {
@@ -44,10 +95,17 @@ public static void parseResources(Iterable<Resource> externalResources, Path inD
                 metaDataResource = resource;
                 continue;
             }
-            //resource is not parsed as part of a group so parse it now
+            if (resourcesToSkip.contains(resource)) {
+                logger.info("Resource {} is unchanged - skipping parsing.", resource.getName());
+                continue;
+            }
+            //resource is not parsed as part of a group so schedule it to be parsed on its own
             if (resourceGroupParserClass == null){
                 logger.info("Resource {} has no declared resourceGroupParserClass. Attempting to parse as a single resource.", resource.getName());
-                parseResource(resource, inDir, outDir);
+                ResourceParser resourceParser = newResourceParser(resource);
+                if (resourceParser != null) {
+                    scheduler.addJob(resource.getName(), Collections.singletonList(resource), resourceParser.getMemoryHintMb(), () -> resourceParser.parseResource(resource, inDir, outDir));
+                }
             } else {
                 logger.info("Resource {} is part of resourceGroup {} - this will be parsed by {}", resource.getName(), resource.getResourceGroupName(), resourceGroupParserClass);
                 //resource is part of a group - add this to a ResourceGroup
@@ -61,11 +119,14 @@ public static void parseResources(Iterable<Resource> externalResources, Path inD
             }
         }
         
-        //parse the ResourceGroups
-        logger.info("Parsing resourceGroups:");
         for (ResourceGroup resourceGroup : resourceGroupMap.values()) {
-            parseResourceGroup(resourceGroup, inDir, outDir);
+            ResourceGroupParser resourceGroupParser = newResourceGroupParser(resourceGroup);
+            if (resourceGroupParser != null) {
+                scheduler.addJob(resourceGroup.getName(), resourceGroup.getResources(), resourceGroupParser.getMemoryHintMb(), () -> resourceGroupParser.parseResources(resourceGroup, inDir, outDir));
+            }
         }
+        //parse the single resources and ResourceGroups
+        scheduler.run();
         //do the metadata
         logger.info("Parsing metadata:");
         if (metaDataResource != null) {
@@ -77,38 +138,69 @@ public static void parseResources(Iterable<Resource> externalResources, Path inD
     }
 
     public static void parseResource(Resource resource, Path inDir, Path outDir) {
+        ResourceParser resourceParser = newResourceParser(resource);
+        if (resourceParser != null) {
+            //now do the actual parsing
+            resourceParser.parseResource(resource, inDir, outDir);
+        }
+    }
+
+    private static ResourceParser newResourceParser(Resource resource) {
         try {
             logger.info("Parsing resource: {} file: {} using parser: {}", resource.getName(), resource.getExtractedFileName(), resource.getParserClass());
             if (resource.getParserClass() == null) {
                 logger.error("No parser defined for resource: {}", resource.getExtractedFileName());
                 resource.setParseStatus(ResourceOperationStatus.PARSER_NOT_FOUND);
-                return;
+                return null;
             }
             //this might be a bit too generic really as there are likely as many special cases as generic ones. We'll see...
             Class<? extends ResourceParser> resourceParserClass = resource.getParserClass();
-            ResourceParser resourceParser = resourceParserClass.newInstance();
-            //now do the actual parsing
-            resourceParser.parseResource(resource, inDir, outDir);
+            return resourceParserClass.newInstance();
         } catch (InstantiationException | IllegalAccessException ex) {
             logger.error("Error parsing resource {}", resource.getName(), ex);
             resource.setParseStatus(ResourceOperationStatus.FAILURE);
         }
+        return null;
     }
 
     public static void parseResourceGroup(ResourceGroup resourceGroup, Path inDir, Path outDir) {
+        ResourceGroupParser resourceGroupParser = newResourceGroupParser(resourceGroup);
+        if (resourceGroupParser != null) {
+            //now do the actual parsing
+            resourceGroupParser.parseResources(resourceGroup, inDir, outDir);
+        }
+    }
+
+    private static ResourceGroupParser newResourceGroupParser(ResourceGroup resourceGroup) {
         try {
             logger.info("Parsing resourceGroup: {} with parser: {}", resourceGroup.getName(), resourceGroup.getParserClass());
             if (resourceGroup.getParserClass() == null) {
                 logger.error("No parser defined for resourceGroup: {}", resourceGroup.getName());
+                setParseStatus(resourceGroup, ResourceOperationStatus.PARSER_NOT_FOUND);
+                return null;
             }
             //We ought to be doing this with a more type-safe configuration. Like in config.ResourceConfig for instance 
             Class<? extends ResourceGroupParser> resourceGroupParserClass = resourceGroup.getParserClass();
-            ResourceGroupParser resourceGroupParser = resourceGroupParserClass.newInstance();
-            //now do the actual parsing
-            resourceGroupParser.parseResources(resourceGroup, inDir, outDir);
+            return resourceGroupParserClass.newInstance();
         } catch (InstantiationException | IllegalAccessException ex) {
             logger.error("Error parsing resource {}", resourceGroup.getName(), ex);
+            setParseStatus(resourceGroup, ResourceOperationStatus.FAILURE);
         }
+        return null;
+    }
+
+    private static void setParseStatus(ResourceGroup resourceGroup, ResourceOperationStatus status) {
+        for (Resource resource : resourceGroup.getResources()) {
+            resource.setParseStatus(status);
+        }
+    }
+
+    /**
+     * @return three quarters of the maximum heap, leaving the rest for
+     * everything else.
+     */
+    public static long getDefaultMemoryBudgetMb() {
+        return Math.max(1, Runtime.getRuntime().maxMemory() / (1024 * 1024) * 3 / 4);
     }
     
     /**
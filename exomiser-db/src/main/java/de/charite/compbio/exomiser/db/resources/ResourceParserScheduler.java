@@ -0,0 +1,196 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package de.charite.compbio.exomiser.db.resources;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs parse jobs for single resources and resource groups concurrently on a
+ * bounded pool of threads.
+ *
+ * <p>
+ * Each job declares the extracted files it reads and the parsed files it
+ * writes. A job waits for any job added before it which writes a file it
+ * reads, or which reads or writes a file it writes, so that jobs sharing files
+ * run in the order they were added. Each job also gives a memory hint and a
+ * job is only started if its hint fits into the memory budget alongside the
+ * jobs already running, so the largest parsers don't run at the same time. A
+ * job with a hint larger than the whole budget runs on its own.
+ *
+ * <p>
+ * A job which throws an exception has the parse status of all its resources
+ * set to FAILURE. The other jobs carry on as normal.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+class ResourceParserScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceParserScheduler.class);
+
+    private final int numThreads;
+    private final long memoryBudgetMb;
+    private final List<ParseJob> jobs = new ArrayList<>();
+
+    ResourceParserScheduler(int numThreads, long memoryBudgetMb) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be greater than 0, not " + numThreads);
+        }
+        if (memoryBudgetMb < 1) {
+            throw new IllegalArgumentException("Memory budget must be greater than 0, not " + memoryBudgetMb);
+        }
+        this.numThreads = numThreads;
+        this.memoryBudgetMb = memoryBudgetMb;
+    }
+
+    /**
+     * Adds a job to parse the resources. The input and output files are taken
+     * from the extracted and parsed file names of the resources.
+     *
+     * @param name
+     * @param resources the resources parsed by the job
+     * @param memoryHintMb the estimated peak heap needed by the job
+     * @param parse does the actual parsing
+     */
+    void addJob(String name, Collection<Resource> resources, int memoryHintMb, Runnable parse) {
+        ParseJob job = new ParseJob(name, resources, memoryHintMb, parse);
+        for (ParseJob earlierJob : jobs) {
+            if (job.dependsOn(earlierJob)) {
+                job.dependencies.add(earlierJob);
+            }
+        }
+        jobs.add(job);
+    }
+
+    /**
+     * Runs all the jobs, returning once they have all finished.
+     */
+    void run() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        logger.info("Running {} parse jobs using {} threads with a memory budget of {} MB", jobs.size(), numThreads, memoryBudgetMb);
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, new ParserThreadFactory());
+        CompletionService<ParseJob> completionService = new ExecutorCompletionService<>(executorService);
+        List<ParseJob> waitingJobs = new ArrayList<>(jobs);
+        Set<ParseJob> finishedJobs = new HashSet<>();
+        int numRunning = 0;
+        long memoryInUseMb = 0;
+        try {
+            while (!waitingJobs.isEmpty() || numRunning > 0) {
+                Iterator<ParseJob> iterator = waitingJobs.iterator();
+                while (numRunning < numThreads && iterator.hasNext()) {
+                    ParseJob job = iterator.next();
+                    if (!finishedJobs.containsAll(job.dependencies)) {
+                        continue;
+                    }
+                    if (numRunning > 0 && memoryInUseMb + job.memoryHintMb > memoryBudgetMb) {
+                        continue;
+                    }
+                    iterator.remove();
+                    numRunning++;
+                    memoryInUseMb += job.memoryHintMb;
+                    logger.info("Starting parse job {} ({} MB). {} jobs running using {} MB", job.name, job.memoryHintMb, numRunning, memoryInUseMb);
+                    completionService.submit(job::run, job);
+                }
+                ParseJob finishedJob = completionService.take().get();
+                numRunning--;
+                memoryInUseMb -= finishedJob.memoryHintMb;
+                finishedJobs.add(finishedJob);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResourceParsingException("Interrupted while parsing resources", ex);
+        } catch (ExecutionException ex) {
+            throw new ResourceParsingException("Unable to parse resources", ex.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        logger.info("Finished {} parse jobs in {} ms", jobs.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private static class ParseJob {
+
+        private final String name;
+        private final Collection<Resource> resources;
+        private final int memoryHintMb;
+        private final Runnable parse;
+        private final Set<String> inputFiles = new LinkedHashSet<>();
+        private final Set<String> outputFiles = new LinkedHashSet<>();
+        private final Set<ParseJob> dependencies = new HashSet<>();
+
+        private ParseJob(String name, Collection<Resource> resources, int memoryHintMb, Runnable parse) {
+            this.name = name;
+            this.resources = new ArrayList<>(resources);
+            this.memoryHintMb = Math.max(0, memoryHintMb);
+            this.parse = parse;
+            for (Resource resource : resources) {
+                addFileName(inputFiles, resource.getExtractedFileName());
+                addFileName(outputFiles, resource.getParsedFileName());
+            }
+        }
+
+        private static void addFileName(Set<String> fileNames, String fileName) {
+            if (fileName != null && !fileName.isEmpty()) {
+                fileNames.add(fileName);
+            }
+        }
+
+        private boolean dependsOn(ParseJob earlierJob) {
+            return !Collections.disjoint(earlierJob.outputFiles, inputFiles)
+                    || !Collections.disjoint(earlierJob.outputFiles, outputFiles)
+                    || !Collections.disjoint(earlierJob.inputFiles, outputFiles);
+        }
+
+        private void run() {
+            long startTime = System.currentTimeMillis();
+            try {
+                parse.run();
+                logger.info("Finished parse job {} in {} ms", name, System.currentTimeMillis() - startTime);
+            } catch (RuntimeException ex) {
+                logger.error("Error running parse job {}", name, ex);
+                for (Resource resource : resources) {
+                    resource.setParseStatus(ResourceOperationStatus.FAILURE);
+                }
+            }
+        }
+    }
+
+    private static class ParserThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "resource-parser-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class ResourceParsingException extends RuntimeException {
+
+        ResourceParsingException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
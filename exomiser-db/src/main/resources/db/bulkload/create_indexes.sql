@@ -0,0 +1,52 @@
+--
+-- Indexes and primary keys for the bulk loaded exomiser tables. Each statement is independent of the others so they can be run in
+-- any order.
+--
+
+CREATE INDEX freqqq ON frequency (chromosome, "position", ref, alt);
+
+CREATE INDEX variant1 ON variant (chromosome, "position", ref, alt);
+
+CREATE INDEX RR1 ON REGULATORY_REGIONS (CHROMOSOME, START, "end");
+
+CREATE INDEX tad1 ON tad (chromosome, start, "end");
+
+CREATE INDEX cvidx ON clinvar (chromosome, position);
+
+ALTER TABLE hpo ADD CONSTRAINT hpo_pkey PRIMARY KEY (lcname);
+
+CREATE INDEX hpoidx ON hpo (id);
+
+ALTER TABLE entrez2sym ADD CONSTRAINT entrez2sym_pkey PRIMARY KEY (entrezID);
+
+ALTER TABLE string ADD CONSTRAINT string_pkey PRIMARY KEY (entrezA, entrezB);
+
+ALTER TABLE omim2gene ADD CONSTRAINT omim2gene_pkey PRIMARY KEY (mimdiseaseid, seriesid);
+
+CREATE INDEX disease1 ON disease (gene_id, disease_id);
+
+ALTER TABLE phenoseries ADD CONSTRAINT phenoseries_pkey PRIMARY KEY (seriesid);
+
+CREATE INDEX hp_id ON hp_mp_mappings (hp_id);
+
+CREATE INDEX hp_id2 ON hp_hp_mappings (hp_id);
+
+CREATE INDEX hp_id3 ON hp_zp_mappings (hp_id);
+
+CREATE INDEX human_gene_symbol ON human2mouse_orthologs (human_gene_symbol);
+
+CREATE INDEX entrez_id ON human2mouse_orthologs (entrez_id);
+
+CREATE INDEX mgi_gene_id ON human2mouse_orthologs (mgi_gene_id);
+
+CREATE INDEX human_gene_symbol_2 ON human2fish_orthologs (human_gene_symbol);
+
+CREATE INDEX entrez_id_2 ON human2fish_orthologs (entrez_id);
+
+CREATE INDEX zfin_gene_id ON human2fish_orthologs (zfin_gene_id);
+
+CREATE INDEX mgi_gene_id_4 ON mgi_mp (mgi_gene_id);
+
+CREATE INDEX zfin_gene_id_4 ON zfin_zp (zfin_gene_id);
+
+CREATE INDEX disease_id_3 ON disease_hp (disease_id);
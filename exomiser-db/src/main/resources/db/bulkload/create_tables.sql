@@ -1,15 +1,9 @@
 --
--- PostgreSQL database dump
+-- Exomiser tables for bulk loading. These are created without any indexes
+-- or primary keys so that the data can be loaded without maintaining them row
+-- by row. These are all added by create_indexes.sql once the data is loaded.
 --
 
--- Dumped from database version 9.1.9
--- Dumped by pg_dump version 9.3.1
--- Started on 2013-12-05 14:38:16
-
---
--- TOC entry 176 (class 1259 OID 16513)
--- Name: frequency; Type: TABLE; Schema: public; Owner: -
---
 DROP TABLE IF EXISTS frequency;
 
 CREATE TABLE frequency (
@@ -49,7 +43,6 @@ CREATE TABLE REGULATORY_REGIONS (
     "end" INTEGER,
     FEATURE_TYPE VARCHAR(200)
 );
-CREATE INDEX RR1 ON REGULATORY_REGIONS (CHROMOSOME, START, "end");
 
 
 DROP TABLE IF EXISTS tad;
@@ -89,8 +82,6 @@ CREATE TABLE clinvar (
     id  character varying(20), --This is the RSV accession number
     signif  character varying(200)
 );
-	
-CREATE INDEX cvidx ON clinvar(chromosome,position);
 
 
 --
@@ -150,19 +141,10 @@ CREATE TABLE zp(
 DROP TABLE IF EXISTS hpo;
 
 CREATE TABLE hpo(
-    lcname   VARCHAR(256) PRIMARY KEY,
+    lcname   VARCHAR(256) NOT NULL,
     id       CHAR(10),
     prefname VARCHAR(256));
 
-CREATE INDEX hpoidx ON hpo(id);
-
---
--- TOC entry 1850 (class 1259 OID 16468)
--- Name: hpo_term; Type: INDEX; Schema: public; Owner: -
---
-
--- CREATE INDEX hpo_term ON hpo (hpo_term);
-
 --
 -- TOC entry 165 (class 1259 OID 16406)
 -- Name: human2fish_orthologs; Type: TABLE; Schema: public; Owner: -
@@ -309,141 +291,21 @@ DROP TABLE IF EXISTS metadata;
 
 CREATE TABLE metadata (
     resource VARCHAR(1024),
-    version  VARCHAR(1024)
+    version  VARCHAR(1024),
+    checksum VARCHAR(64)
 );
 
 DROP TABLE IF EXISTS entrez2sym;
 
 CREATE TABLE entrez2sym (
-    entrezID INTEGER PRIMARY KEY,
+    entrezID INTEGER NOT NULL,
     symbol VARCHAR(24)
 );
 
 DROP TABLE IF EXISTS string;
 
 CREATE TABLE string (
-    entrezA INTEGER,
-    entrezB INTEGER,
-    score INTEGER,
-    PRIMARY KEY(entrezA,entrezB)
+    entrezA INTEGER NOT NULL,
+    entrezB INTEGER NOT NULL,
+    score INTEGER
 );
-
---
--- TOC entry 1860 (class 2606 OID 16454)
--- Name: omim2gene_pkey; Type: CONSTRAINT; Schema: public; Owner: -
---
-
--- ALTER TABLE ONLY omim2gene
-ALTER TABLE omim2gene
-    ADD CONSTRAINT omim2gene_pkey PRIMARY KEY (mimdiseaseid, seriesid);
-
-
---
--- TOC entry 1858 (class 2606 OID 16456)
--- Name: omim_pkey; Type: CONSTRAINT; Schema: public; Owner: -
---
-
---ALTER TABLE disease
---    ADD CONSTRAINT omim_pkey PRIMARY KEY (gene_id, disease_id, omim_gene_id);
-
-CREATE INDEX disease1 ON disease (gene_id, disease_id);
-
---
--- TOC entry 1862 (class 2606 OID 16458)
--- Name: phenoseries_pkey; Type: CONSTRAINT; Schema: public; Owner: -
---
-
-ALTER TABLE phenoseries
-    ADD CONSTRAINT phenoseries_pkey PRIMARY KEY (seriesid);
-
-
---
--- TOC entry 1864 (class 2606 OID 16460)
--- Name: variant_pkey; Type: CONSTRAINT; Schema: public; Owner: -
---
-
-
--- introduced duplicate rows for variants due to alt transcripts so can't have pkey on these cols now
---ALTER TABLE variant
---    ADD CONSTRAINT variant_pkey PRIMARY KEY (chromosome, "position", ref, alt);
-
-
-CREATE INDEX variant1 ON variant (chromosome, "position", ref, alt);
-
-
--- CREATE INDEX disease_hit ON disease_disease_summary (disease_hit);
--- CREATE INDEX disease_query ON disease_disease_summary (disease_query);
-
---
--- TOC entry 1867 (class 1259 OID 16519)
--- Name: freqqq; Type: INDEX; Schema: public; Owner: -
---
-
-CREATE INDEX freqqq ON frequency (chromosome, "position", ref, alt);
-
-
---
--- TOC entry 1865 (class 1259 OID 16485)
--- Name: hp_id; Type: INDEX; Schema: public; Owner: -
---
-
-CREATE INDEX hp_id ON hp_mp_mappings (hp_id);
-
-CREATE INDEX hp_id2 ON hp_hp_mappings (hp_id);
-
-CREATE INDEX hp_id3 ON hp_zp_mappings (hp_id);
-
---
--- TOC entry 1853 (class 1259 OID 16469)
--- Name: human_gene_symbol; Type: INDEX; Schema: public; Owner: -
---
-
-CREATE INDEX human_gene_symbol ON human2mouse_orthologs (human_gene_symbol);
-
-CREATE INDEX entrez_id ON human2mouse_orthologs (entrez_id);
---
--- TOC entry 1851 (class 1259 OID 16470)
--- Name: human_gene_symbol_2; Type: INDEX; Schema: public; Owner: -
---
-
-CREATE INDEX human_gene_symbol_2 ON human2fish_orthologs (human_gene_symbol);
-CREATE INDEX entrez_id_2 ON human2fish_orthologs (entrez_id);
-
---
--- TOC entry 1854 (class 1259 OID 16471)
--- Name: mgi_gene_id; Type: INDEX; Schema: public; Owner: -
---
-
-CREATE INDEX mgi_gene_id ON human2mouse_orthologs (mgi_gene_id);
-
-CREATE INDEX e2 ON regulatory_features (chromosome, start, "end");
-CREATE INDEX e5 ON regulatory_features (chromosome);
-CREATE INDEX e6 ON regulatory_features (start);
-CREATE INDEX e7 ON regulatory_features ("end");
-
-create index tad1 on tad (chromosome,start,"end");
-
-
-
-
-
-
---
--- TOC entry 1852 (class 1259 OID 16475)
--- Name: zfin_gene_id; Type: INDEX; Schema: public; Owner: -
---
-
-CREATE INDEX zfin_gene_id ON human2fish_orthologs (zfin_gene_id);
-
-
-
-
-CREATE INDEX mgi_gene_id_4 ON mgi_mp (mgi_gene_id);
-CREATE INDEX zfin_gene_id_4 ON zfin_zp (zfin_gene_id);
-CREATE INDEX disease_id_3 ON disease_hp (disease_id);
--- Completed on 2013-12-05 14:38:16
-
---
--- PostgreSQL database dump complete
---
-
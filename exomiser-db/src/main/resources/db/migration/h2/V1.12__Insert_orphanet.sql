@@ -1 +0,0 @@
-INSERT INTO disease SELECT * FROM CSVREAD('${import.path}/orphanet.pg', 'disease_id|omim_gene_id|diseasename|gene_id|type|inheritance','charset=UTF-8 fieldDelimiter='' fieldSeparator=| nullString=NULL');
\ No newline at end of file
@@ -0,0 +1,240 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.charite.compbio.exomiser.db.io;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class H2DatabaseBulkLoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JdbcDataSource dataSource;
+    private Path importPath;
+
+    private static final Map<String, String> IMPORT_FILE_LINES = new HashMap<>();
+
+    static {
+        IMPORT_FILE_LINES.put("frequency.pg", "1|123|A|T|1234|0.100000|0.000000|0.000000|0.000000|0.000000|0.000000|0.000000|0.000000|0.000000|0.000000|0.000000");
+        IMPORT_FILE_LINES.put("variant.pg", "1|123|A|T|0.1|0.2|0.3|1.0|null");
+        IMPORT_FILE_LINES.put("hpHpMapping.pg", "1|HP:0000002|Abnormality of body height|HP:0000003|Multicystic kidney dysplasia|0.5|1.0|0.7|HP:0000001|All");
+        IMPORT_FILE_LINES.put("hpMpMapping.pg", "1|HP:0000002|Abnormality of body height|MP:0000003|abnormal adipose tissue|0.5|1.0|0.7|MP:0000001|mammalian phenotype");
+        IMPORT_FILE_LINES.put("hpZpMapping.pg", "1|HP:0000002|Abnormality of body height|ZP:0000003|abnormal|0.5|1.0|0.7|ZP:0000001|zebrafish phenotype");
+        IMPORT_FILE_LINES.put("string.pg", "2263|2264|900");
+        IMPORT_FILE_LINES.put("fantom.pg", "1|100|200|FANTOM permissive");
+        IMPORT_FILE_LINES.put("ensembl_enhancers.pg", "1|300|400|enhancer");
+        IMPORT_FILE_LINES.put("clinvar.pg", "1|123|RCV000000001|Pathogenic");
+        IMPORT_FILE_LINES.put("mouseMp.pg", "MGI:95523|Fgfr2|1|MP:0000001,MP:0000002");
+        IMPORT_FILE_LINES.put("zfin_zp.pg", "ZDB-GENE-1|fgfr2|1|ZP:0000001");
+        IMPORT_FILE_LINES.put("diseaseHp.pg", "OMIM:101600|HP:0000001,HP:0000002");
+        IMPORT_FILE_LINES.put("omim.pg", "OMIM:101600|OMIM:176943|Pfeiffer syndrome|2263|D|D");
+        IMPORT_FILE_LINES.put("orphanet.pg", "ORPHA:710|NULL|Pfeiffer syndrome|2263|D|U");
+        IMPORT_FILE_LINES.put("human2mouseOrthologs.pg", "MGI:95523|Fgfr2|FGFR2|2263");
+        IMPORT_FILE_LINES.put("human2fishOrthologs.pg", "ZDB-GENE-1|fgfr2|FGFR2|2263");
+        IMPORT_FILE_LINES.put("hpo.pg", "all|HP:0000001|All");
+        IMPORT_FILE_LINES.put("mp.pg", "MP:0000001|mammalian phenotype");
+        IMPORT_FILE_LINES.put("zp.pg", "ZP:0000001|zebrafish phenotype");
+        IMPORT_FILE_LINES.put("omimTerms.pg", "OMIM:101600|Pfeiffer syndrome");
+        IMPORT_FILE_LINES.put("omim2gene.pg", "101600|Pfeiffer syndrome|10q26.13|176943|2263|FGFR2|101600");
+        IMPORT_FILE_LINES.put("phenoseries.pg", "101600|Pfeiffer syndrome|1");
+        IMPORT_FILE_LINES.put("entrez2sym.pg", "2263|FGFR2");
+        IMPORT_FILE_LINES.put("tad.pg", "1|100|200|2263|FGFR2");
+        IMPORT_FILE_LINES.put("metadata.pg", "hpo|2016-01-01|ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + temporaryFolder.getRoot().getName() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        importPath = temporaryFolder.newFolder("import").toPath();
+    }
+
+    private void writeImportFiles() throws IOException {
+        for (DatabaseBulkLoader.TableImport tableImport : DatabaseBulkLoader.TABLE_IMPORTS) {
+            String line = IMPORT_FILE_LINES.get(tableImport.getFileName());
+            Files.write(importPath.resolve(tableImport.getFileName()), Arrays.asList(line), StandardCharsets.UTF_8);
+        }
+    }
+
+    private int countRows(String tableName) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM EXOMISER." + tableName)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private boolean indexExists(String indexName) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_SCHEMA = 'EXOMISER' AND INDEX_NAME = '" + indexName + "'")) {
+            return resultSet.next();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroThreadsThrowsException() {
+        new H2DatabaseBulkLoader(dataSource, importPath, 0);
+    }
+
+    @Test(expected = DatabaseBulkLoader.BulkLoadException.class)
+    public void testLoadThrowsExceptionWhenImportFilesAreMissing() {
+        DatabaseBulkLoader instance = new H2DatabaseBulkLoader(dataSource, importPath, 2);
+        instance.load();
+    }
+
+    @Test
+    public void testLoadImportsEveryFile() throws Exception {
+        writeImportFiles();
+        DatabaseBulkLoader instance = new H2DatabaseBulkLoader(dataSource, importPath, 4);
+        instance.load();
+
+        for (DatabaseBulkLoader.TableImport tableImport : DatabaseBulkLoader.TABLE_IMPORTS) {
+            String tableName = tableImport.getTableName();
+            int expectedRows = tableName.equals("disease") || tableName.equals("regulatory_regions") ? 2 : 1;
+            assertThat(tableName, countRows(tableName), equalTo(expectedRows));
+        }
+    }
+
+    @Test
+    public void testLoadReadsNullStrings() throws Exception {
+        writeImportFiles();
+        new H2DatabaseBulkLoader(dataSource, importPath, 1).load();
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT cadd_raw FROM EXOMISER.variant")) {
+            resultSet.next();
+            assertThat(resultSet.getObject(1), nullValue());
+        }
+    }
+
+    @Test
+    public void testLoadCreatesIndexesAfterLoading() throws Exception {
+        writeImportFiles();
+        new H2DatabaseBulkLoader(dataSource, importPath, 2).load();
+
+        assertThat(indexExists("FREQQQ"), equalTo(true));
+        assertThat(indexExists("VARIANT1"), equalTo(true));
+        assertThat(indexExists("CVIDX"), equalTo(true));
+    }
+
+    @Test
+    public void testLoadTwiceReplacesExistingData() throws Exception {
+        writeImportFiles();
+        new H2DatabaseBulkLoader(dataSource, importPath, 2).load();
+        new H2DatabaseBulkLoader(dataSource, importPath, 2).load();
+
+        assertThat(countRows("frequency"), equalTo(1));
+    }
+
+    @Test
+    public void testReloadWithNoExistingTablesLoadsEverything() throws Exception {
+        writeImportFiles();
+        new H2DatabaseBulkLoader(dataSource, importPath, 2).reload(Collections.singleton("clinvar"));
+
+        assertThat(countRows("frequency"), equalTo(1));
+        assertThat(countRows("clinvar"), equalTo(1));
+    }
+
+    @Test
+    public void testReloadOnlyReplacesNamedTables() throws Exception {
+        writeImportFiles();
+        new H2DatabaseBulkLoader(dataSource, importPath, 2).load();
+
+        Files.write(importPath.resolve("clinvar.pg"), Arrays.asList("1|123|RCV000000001|Pathogenic", "2|456|RCV000000002|Benign"), StandardCharsets.UTF_8);
+        Files.write(importPath.resolve("frequency.pg"), Collections.<String>emptyList(), StandardCharsets.UTF_8);
+        new H2DatabaseBulkLoader(dataSource, importPath, 2).reload(Collections.singleton("clinvar"));
+
+        assertThat(countRows("clinvar"), equalTo(2));
+        assertThat(countRows("frequency"), equalTo(1));
+        assertThat(indexExists("CVIDX"), equalTo(true));
+    }
+
+    @Test
+    public void testReadLoadedChecksumsBeforeLoadIsEmpty() {
+        DatabaseBulkLoader instance = new H2DatabaseBulkLoader(dataSource, importPath, 2);
+
+        assertThat(instance.readLoadedChecksums().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void testReadLoadedChecksumsAfterLoad() throws Exception {
+        writeImportFiles();
+        DatabaseBulkLoader instance = new H2DatabaseBulkLoader(dataSource, importPath, 2);
+        instance.load();
+
+        assertThat(instance.readLoadedChecksums(), equalTo(Collections.singletonMap("hpo", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad")));
+    }
+
+    @Test
+    public void testReadLoadedChecksumsAfterReloadFailsIsEmpty() throws Exception {
+        writeImportFiles();
+        DatabaseBulkLoader instance = new H2DatabaseBulkLoader(dataSource, importPath, 2);
+        instance.load();
+
+        Files.write(importPath.resolve("clinvar.pg"), Arrays.asList("1|not a number|RCV000000001|Pathogenic"), StandardCharsets.UTF_8);
+        try {
+            instance.reload(Collections.singleton("clinvar"));
+            fail("Expected the reload to fail");
+        } catch (DatabaseBulkLoader.BulkLoadException ex) {
+            //the metadata table is only loaded once everything else has loaded
+        }
+
+        assertThat(instance.readLoadedChecksums().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void testGetTablesForFiles() {
+        Set<String> result = DatabaseBulkLoader.getTablesForFiles(Arrays.asList("omim.pg", "fantom.pg", "metadata.pg"));
+
+        assertThat(result, equalTo(new HashSet<>(Arrays.asList("disease", "regulatory_regions", "metadata"))));
+    }
+}
@@ -7,18 +7,60 @@
 package de.charite.compbio.exomiser.db.parsers;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
 
+import de.charite.compbio.exomiser.core.dao.PathogenicityScoreStore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.MutationTasterScore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicityData;
+import de.charite.compbio.exomiser.core.model.pathogenicity.PolyPhenScore;
+import de.charite.compbio.exomiser.core.model.pathogenicity.SiftScore;
+import de.charite.compbio.exomiser.db.reference.VariantPathogenicity;
+import de.charite.compbio.exomiser.db.resources.Resource;
+import de.charite.compbio.exomiser.db.resources.ResourceOperationStatus;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
 
 /**
  *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 public class NSFP2SQLDumpParserTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
     
     private NSFP2SQLDumpParser instance;
+
+    /**
+     * Makes a dbNSFP line with the fields in the default positions used by the
+     * parser and everything else set to '.'
+     */
+    private static String nsfpLine(String chr, String pos, String ref, String alt, String sift, String polyphen, String mutTaster, String mutTasterPred) {
+        String[] fields = new String[60];
+        Arrays.fill(fields, ".");
+        fields[7] = chr;
+        fields[8] = pos;
+        fields[2] = ref;
+        fields[3] = alt;
+        fields[23] = sift;
+        fields[29] = polyphen;
+        fields[35] = mutTaster;
+        fields[37] = mutTasterPred;
+        return String.join("\t", fields);
+    }
     
     @Before
     public void setUp() {
@@ -73,6 +115,70 @@ public void parseDbNsfpFloatForSingleNonNumericValueReturnsNull() {
         assertThat(instance.valueOfField("wibble"), equalTo(null));
     }
 
+    @Test
+    public void testParseLine() {
+        VariantPathogenicity result = instance.parseLine(nsfpLine("X", "2655049", "C", "A", "0.30;0.2", "0.01", "0.02", "D"));
+        assertThat(result.getChromosome(), equalTo(23));
+        assertThat(result.getPosition(), equalTo(2655049));
+        assertThat(result.getRef(), equalTo("C"));
+        assertThat(result.getAlt(), equalTo("A"));
+        assertThat(result.getSiftScore(), equalTo(0.2f));
+        assertThat(result.getPolyphenScore(), equalTo(0.01f));
+        assertThat(result.getMuttasterScore(), equalTo(0.02f));
+    }
+
+    @Test
+    public void testParseLineWithNoHg19PositionReturnsNull() {
+        assertThat(instance.parseLine(nsfpLine(".", ".", "C", "A", "0.30", "0.01", "0.02", "D")), nullValue());
+    }
+
+    @Test(expected = NSFP2SQLDumpParser.MalformedLineException.class)
+    public void testParseLineWithMissingFieldsThrowsException() {
+        instance.parseLine("1\t2655049\tC\tA");
+    }
+
+    @Test(expected = NSFP2SQLDumpParser.MalformedLineException.class)
+    public void testParseLineWithNonNumericPositionThrowsException() {
+        instance.parseLine(nsfpLine("1", "wibble", "C", "A", "0.30", "0.01", "0.02", "D"));
+    }
+
+    @Test
+    public void testParseResourceRejectsMalformedLinesAndWritesPathogenicityStore() throws IOException {
+        Path inDir = temporaryFolder.newFolder("extracted").toPath();
+        Path outDir = temporaryFolder.newFolder("data").toPath();
+        List<String> lines = Arrays.asList(
+                nsfpLine("2", "300", "G", "T", "0.5", ".", ".", "."),
+                "truncated\tline",
+                nsfpLine("1", "200", "A", "C", "0.1", "0.9", "0.8", "D"),
+                nsfpLine("1", "100", "A", "C", ".", "0.3", ".", "."),
+                nsfpLine("1", "200", "A", "C", "0.05", "0.7", "0.9", "A"));
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(inDir.resolve("dbNSFP.zip")))) {
+            zipOutputStream.putNextEntry(new ZipEntry("dbNSFP_variant.chr1"));
+            Writer writer = new OutputStreamWriter(zipOutputStream, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+            zipOutputStream.closeEntry();
+        }
+        Resource resource = new Resource("dbNSFP");
+        resource.setExtractedFileName("dbNSFP.zip");
+        resource.setParsedFileName("variant.pg");
+
+        instance.parseResource(resource, inDir, outDir);
+
+        assertThat(resource.getParseStatus(), equalTo(ResourceOperationStatus.SUCCESS));
+        assertThat(instance.getRejectedLineCount(), equalTo(1));
+        assertThat(Files.readAllLines(outDir.resolve("variant.pg")).size(), equalTo(4));
+        assertThat(Files.readAllLines(outDir.resolve(NSFP2SQLDumpParser.REJECTED_LINES_FILE_NAME)).get(0), equalTo("dbNSFP_variant.chr1\t2\tOnly 2 fields found (expecting at least 53)\ttruncated\tline"));
+
+        PathogenicityScoreStore store = new PathogenicityScoreStore(outDir.resolve(NSFP2SQLDumpParser.PATHOGENICITY_STORE_FILE_NAME));
+        assertThat(store.getPathogenicityData(1, 100, "A", "C"), equalTo(new PathogenicityData(new PolyPhenScore(0.3f))));
+        assertThat(store.getPathogenicityData(1, 200, "A", "C"), equalTo(new PathogenicityData(new PolyPhenScore(0.9f), new MutationTasterScore(0.9f), new SiftScore(0.05f))));
+        assertThat(store.getPathogenicityData(2, 300, "G", "T"), equalTo(new PathogenicityData(new SiftScore(0.5f))));
+    }
+
     /**
      * Test of parseResource method, of class NSFP2SQLDumpParser.
      */
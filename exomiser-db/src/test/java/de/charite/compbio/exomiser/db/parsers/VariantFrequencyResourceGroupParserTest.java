@@ -0,0 +1,161 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package de.charite.compbio.exomiser.db.parsers;
+
+import de.charite.compbio.exomiser.db.reference.Frequency;
+import de.charite.compbio.exomiser.db.resources.Resource;
+import de.charite.compbio.exomiser.db.resources.ResourceGroup;
+import de.charite.compbio.exomiser.db.resources.ResourceOperationStatus;
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The fixtures in src/test/resources/data/frequency have chromosomes out of
+ * order in the dbSNP and ExAC files, duplicate dbSNP SNPs and ESP variants
+ * which aren't in dbSNP.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class VariantFrequencyResourceGroupParserTest {
+
+    private static final Path FREQUENCY_DATA_DIR = Paths.get("src/test/resources/data/frequency");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ReferenceDictionary refDict = HG19RefDictBuilder.build();
+
+    private Path outDir;
+    private Resource dbSnpResource;
+    private Resource exacResource;
+    private Resource espResource;
+    private ResourceGroup resourceGroup;
+
+    @Before
+    public void setUp() throws IOException {
+        outDir = temporaryFolder.newFolder("data").toPath();
+
+        dbSnpResource = newResource("dbSNP", "dbsnp.vcf", DbSnpFrequencyParser.class);
+        exacResource = newResource("ExAC", "exac.vcf", ExACFrequencyParser.class);
+        espResource = newResource("ESP", "esp", EspFrequencyParser.class);
+        Resource jannovarResource = new Resource("UCSC_HG19");
+        jannovarResource.setExtractedFileName("ucsc_hg19.ser");
+
+        resourceGroup = new ResourceGroup(VariantFrequencyResourceGroupParser.NAME, VariantFrequencyResourceGroupParser.class);
+        for (Resource resource : Arrays.asList(dbSnpResource, exacResource, espResource, jannovarResource)) {
+            resourceGroup.addResource(resource);
+        }
+    }
+
+    private static Resource newResource(String name, String extractedFileName, Class<? extends ResourceParser> parserClass) {
+        Resource resource = new Resource(name);
+        resource.setExtractedFileName(extractedFileName);
+        resource.setParsedFileName("frequency.pg");
+        resource.setParserClass(parserClass);
+        resource.setResourceGroupName(VariantFrequencyResourceGroupParser.NAME);
+        resource.setResourceGroupParserClass(VariantFrequencyResourceGroupParser.class);
+        return resource;
+    }
+
+    private Path parseFrequencies(int numThreads) {
+        VariantFrequencyResourceGroupParser instance = new VariantFrequencyResourceGroupParser(numThreads);
+        instance.requiredResourcesPresent(resourceGroup);
+        Path outputFile = outDir.resolve("frequency_" + numThreads + ".pg");
+        instance.parseFrequencies(refDict, FREQUENCY_DATA_DIR, outputFile);
+        return outputFile;
+    }
+
+    /**
+     * This is how the frequency data was built before the inputs were
+     * partitioned by chromosome - each of the inputs is re-read in full for
+     * every chromosome.
+     */
+    private Path parseOneChromosomeAtATime() throws IOException {
+        Path outputFile = outDir.resolve("frequency_one_chromosome_at_a_time.pg");
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, Charset.defaultCharset())) {
+            for (byte chromosome = 1; chromosome <= 24; chromosome++) {
+                List<Frequency> frequencyList = new ArrayList<>();
+                new DbSnpFrequencyParser(refDict, frequencyList, chromosome).parseResource(dbSnpResource, FREQUENCY_DATA_DIR, outDir);
+                new ExACFrequencyParser(refDict, frequencyList, chromosome).parseResource(exacResource, FREQUENCY_DATA_DIR, outDir);
+                new EspFrequencyParser(refDict, frequencyList, chromosome).parseResource(espResource, FREQUENCY_DATA_DIR, outDir);
+                for (Frequency frequency : frequencyList) {
+                    writer.write(frequency.getDumpLine());
+                }
+            }
+        }
+        return outputFile;
+    }
+
+    private static List<String> readPositions(Path frequencyFile) throws IOException {
+        List<String> positions = new ArrayList<>();
+        for (String line : Files.readAllLines(frequencyFile, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\\|");
+            positions.add(fields[0] + ":" + fields[1] + fields[2] + ">" + fields[3]);
+        }
+        return positions;
+    }
+
+    @Test
+    public void testParseFrequenciesIsIdenticalToParsingOneChromosomeAtATime() throws IOException {
+        byte[] expected = Files.readAllBytes(parseOneChromosomeAtATime());
+
+        assertThat(Arrays.equals(Files.readAllBytes(parseFrequencies(1)), expected), equalTo(true));
+        assertThat(Arrays.equals(Files.readAllBytes(parseFrequencies(4)), expected), equalTo(true));
+    }
+
+    @Test
+    public void testParseFrequencies() throws IOException {
+        List<String> expected = Arrays.asList(
+                //one of the duplicate SNPs, the ESP-only variant, but not the out of order dbSNP line
+                "1:100A>G", "1:175G>T", "1:200C>G", "1:200C>T", "1:211A>-", "1:250G>A",
+                //the out of order dbSNP line for 2:400 is dropped
+                "2:150G>A",
+                "3:50A>T",
+                //there's no dbSNP or ExAC data for chromosome 4 so the ESP variant is dropped
+                "5:700C>A", "5:710G>C",
+                "23:500G>C",
+                "24:600T>A");
+
+        assertThat(readPositions(parseFrequencies(2)), equalTo(expected));
+    }
+
+    @Test
+    public void testParseFrequenciesSetsResourceStatuses() {
+        parseFrequencies(2);
+
+        assertThat(dbSnpResource.getParseStatus(), equalTo(ResourceOperationStatus.SUCCESS));
+        assertThat(exacResource.getParseStatus(), equalTo(ResourceOperationStatus.SUCCESS));
+        assertThat(espResource.getParseStatus(), equalTo(ResourceOperationStatus.SUCCESS));
+    }
+
+    @Test
+    public void testParseFrequenciesDeletesPartitions() throws IOException {
+        parseFrequencies(2);
+
+        try (Stream<Path> files = Files.list(outDir)) {
+            assertThat(files.anyMatch(file -> file.getFileName().toString().startsWith("frequency_partitions")), equalTo(false));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package de.charite.compbio.exomiser.db.resources;
+
+import de.charite.compbio.exomiser.db.parsers.MetaDataParser;
+import de.charite.compbio.exomiser.db.parsers.StringParser;
+import de.charite.compbio.exomiser.db.parsers.StringResourceGroupParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class ResourceChecksumHandlerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path downloadDir;
+    private Path processDir;
+    private Path parsedDir;
+    private Path metaDataFile;
+    private Path checksumCacheFile;
+
+    private Resource hpoResource;
+    private Resource stringResource;
+    private Resource string2entrezResource;
+    private Resource metaDataResource;
+    private Set<Resource> resources;
+
+    @Before
+    public void setUp() throws IOException {
+        downloadDir = temporaryFolder.newFolder("download").toPath();
+        processDir = temporaryFolder.newFolder("extracted").toPath();
+        parsedDir = temporaryFolder.newFolder("data").toPath();
+        metaDataFile = parsedDir.resolve("metadata.pg");
+        checksumCacheFile = parsedDir.resolve("resource_checksums.txt");
+
+        hpoResource = newResource("HPO", "hp.obo", "hpo.pg");
+        stringResource = newResource("STRING", "string.txt.gz", "string.pg");
+        stringResource.setResourceGroupParserClass(StringResourceGroupParser.class);
+        string2entrezResource = newResource("STRING2ENTREZ", "entrez_gene_id.vs.string.v9.05.28122012.txt", "entrez2sym.pg");
+        string2entrezResource.setResourceGroupParserClass(StringResourceGroupParser.class);
+        metaDataResource = new Resource("MetaData");
+        metaDataResource.setParserClass(MetaDataParser.class);
+        metaDataResource.setParsedFileName("metadata.pg");
+
+        resources = new LinkedHashSet<>(Arrays.asList(hpoResource, stringResource, string2entrezResource, metaDataResource));
+    }
+
+    private Resource newResource(String name, String remoteFileName, String parsedFileName) throws IOException {
+        Resource resource = new Resource(name);
+        resource.setRemoteFileName(remoteFileName);
+        resource.setParsedFileName(parsedFileName);
+        resource.setParserClass(StringParser.class);
+        Files.write(downloadDir.resolve(remoteFileName), Arrays.asList(name + " contents"), StandardCharsets.UTF_8);
+        Files.write(parsedDir.resolve(parsedFileName), Arrays.asList(name + " parsed"), StandardCharsets.UTF_8);
+        return resource;
+    }
+
+    private void writeMetaData() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Resource resource : Arrays.asList(hpoResource, stringResource, string2entrezResource)) {
+            lines.add(resource.getName() + "|2016-01-01|" + resource.getChecksum());
+        }
+        Files.write(metaDataFile, lines, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCalculateChecksums() {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+
+        assertThat(hpoResource.getChecksum(), notNullValue());
+        assertThat(hpoResource.getChecksum().length(), equalTo(64));
+        assertThat(hpoResource.getChecksum().equals(stringResource.getChecksum()), equalTo(false));
+        assertThat(metaDataResource.getChecksum(), nullValue());
+    }
+
+    @Test
+    public void testCalculateChecksumsUsesCachedChecksumForUnmodifiedFile() throws IOException {
+        Path hpoFile = downloadDir.resolve("hp.obo");
+        long size = Files.size(hpoFile);
+        long lastModified = Files.getLastModifiedTime(hpoFile).toMillis();
+        Files.write(checksumCacheFile, Arrays.asList(size + "|" + lastModified + "|cachedChecksum|" + hpoFile.toAbsolutePath()), StandardCharsets.UTF_8);
+
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+
+        assertThat(hpoResource.getChecksum(), equalTo("cachedChecksum"));
+        assertThat(stringResource.getChecksum().length(), equalTo(64));
+    }
+
+    @Test
+    public void testCalculateChecksumsRehashesModifiedFile() throws IOException {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        String originalChecksum = hpoResource.getChecksum();
+
+        Path hpoFile = downloadDir.resolve("hp.obo");
+        Files.write(hpoFile, Arrays.asList("HPO new contents"), StandardCharsets.UTF_8);
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+
+        assertThat(hpoResource.getChecksum(), equalTo(ResourceChecksumHandler.sha256(hpoFile)));
+        assertThat(hpoResource.getChecksum().equals(originalChecksum), equalTo(false));
+    }
+
+    @Test
+    public void testSha256() throws IOException {
+        Path file = temporaryFolder.newFile("abc").toPath();
+        Files.write(file, "abc".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(ResourceChecksumHandler.sha256(file), equalTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"));
+    }
+
+    @Test
+    public void testFindChangedResourcesWithNoMetaDataFileReturnsAll() {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+
+        Set<Resource> result = ResourceChecksumHandler.findChangedResources(resources, metaDataFile, parsedDir);
+
+        assertThat(result, equalTo(resources));
+    }
+
+    @Test
+    public void testFindChangedResourcesWhenNothingHasChangedReturnsOnlyMetaData() throws IOException {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        writeMetaData();
+
+        Set<Resource> result = ResourceChecksumHandler.findChangedResources(resources, metaDataFile, parsedDir);
+
+        assertThat(result, equalTo(new HashSet<>(Arrays.asList(metaDataResource))));
+        assertThat(hpoResource.getParseStatus(), equalTo(ResourceOperationStatus.UNCHANGED));
+        assertThat(hpoResource.getVersion(), equalTo("2016-01-01"));
+    }
+
+    @Test
+    public void testFindChangedResourcesReturnsWholeGroupWhenOneMemberHasChanged() throws IOException {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        writeMetaData();
+        Files.write(downloadDir.resolve("string.txt.gz"), Arrays.asList("new STRING contents"), StandardCharsets.UTF_8);
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+
+        Set<Resource> result = ResourceChecksumHandler.findChangedResources(resources, metaDataFile, parsedDir);
+
+        assertThat(result, equalTo(new HashSet<>(Arrays.asList(stringResource, string2entrezResource, metaDataResource))));
+    }
+
+    @Test
+    public void testFindChangedResourcesIncludesResourceWithMissingParsedFile() throws IOException {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        writeMetaData();
+        Files.delete(parsedDir.resolve("hpo.pg"));
+
+        Set<Resource> result = ResourceChecksumHandler.findChangedResources(resources, metaDataFile, parsedDir);
+
+        assertThat(result, equalTo(new HashSet<>(Arrays.asList(hpoResource, metaDataResource))));
+    }
+
+    private Map<String, String> loadedChecksums() {
+        Map<String, String> loadedChecksums = new HashMap<>();
+        for (Resource resource : Arrays.asList(hpoResource, stringResource, string2entrezResource)) {
+            loadedChecksums.put(resource.getName(), resource.getChecksum());
+        }
+        return loadedChecksums;
+    }
+
+    @Test
+    public void testFindUnloadedFilesWhenDatabaseIsUpToDateReturnsOnlyMetaData() throws IOException {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        writeMetaData();
+
+        Set<String> result = ResourceChecksumHandler.findUnloadedFiles(resources, MetaDataParser.readMetaData(metaDataFile), loadedChecksums());
+
+        assertThat(result, equalTo(new HashSet<>(Arrays.asList("metadata.pg"))));
+    }
+
+    @Test
+    public void testFindUnloadedFilesWhenParsedButNotLoaded() throws IOException {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        Map<String, String> loadedChecksums = loadedChecksums();
+        //the next build re-parses STRING, but doesn't load this database
+        Files.write(downloadDir.resolve("string.txt.gz"), Arrays.asList("new STRING contents"), StandardCharsets.UTF_8);
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        writeMetaData();
+
+        //so the build after still needs to load it even though nothing has changed since the last parse
+        Set<Resource> changedResources = ResourceChecksumHandler.findChangedResources(resources, metaDataFile, parsedDir);
+        Set<String> result = ResourceChecksumHandler.findUnloadedFiles(resources, MetaDataParser.readMetaData(metaDataFile), loadedChecksums);
+
+        assertThat(changedResources, equalTo(new HashSet<>(Arrays.asList(metaDataResource))));
+        assertThat(result, equalTo(new HashSet<>(Arrays.asList("string.pg", "metadata.pg"))));
+    }
+
+    @Test
+    public void testFindUnloadedFilesIncludesResourcesWhichFailedToParse() throws IOException {
+        ResourceChecksumHandler.calculateChecksums(resources, downloadDir, processDir, checksumCacheFile);
+        Map<String, String> loadedChecksums = loadedChecksums();
+        Files.write(metaDataFile, Arrays.asList("HPO|2016-01-01|NULL", "STRING|2016-01-01|" + stringResource.getChecksum(), "STRING2ENTREZ|2016-01-01|" + string2entrezResource.getChecksum()), StandardCharsets.UTF_8);
+
+        Set<String> result = ResourceChecksumHandler.findUnloadedFiles(resources, MetaDataParser.readMetaData(metaDataFile), loadedChecksums);
+
+        assertThat(result, equalTo(new HashSet<>(Arrays.asList("hpo.pg", "metadata.pg"))));
+    }
+}
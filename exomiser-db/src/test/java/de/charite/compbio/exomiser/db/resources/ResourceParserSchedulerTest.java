@@ -0,0 +1,120 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package de.charite.compbio.exomiser.db.resources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class ResourceParserSchedulerTest {
+
+    private static Resource newResource(String name, String extractedFileName, String parsedFileName) {
+        Resource resource = new Resource(name);
+        resource.setExtractedFileName(extractedFileName);
+        resource.setParsedFileName(parsedFileName);
+        return resource;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroThreadsThrowsException() {
+        new ResourceParserScheduler(0, 1024);
+    }
+
+    @Test
+    public void testIndependentJobsRunConcurrently() {
+        ResourceParserScheduler instance = new ResourceParserScheduler(2, 1024);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+        Runnable awaitOther = () -> {
+            bothStarted.countDown();
+            try {
+                results.add(bothStarted.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+                results.add(false);
+            }
+        };
+        instance.addJob("hpo", Collections.singletonList(newResource("HPO", "hp.obo", "hpo.pg")), 256, awaitOther);
+        instance.addJob("clinvar", Collections.singletonList(newResource("ClinVar", "variant_summary.txt", "clinvar.pg")), 256, awaitOther);
+
+        instance.run();
+
+        assertThat(results, equalTo(Arrays.asList(true, true)));
+    }
+
+    @Test
+    public void testJobsWritingTheSameFileRunInOrder() {
+        ResourceParserScheduler instance = new ResourceParserScheduler(4, 1024);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        instance.addJob("first", Collections.singletonList(newResource("First", "first.txt", "omim.pg")), 256, () -> {
+            sleep(100);
+            order.add("first");
+        });
+        instance.addJob("second", Collections.singletonList(newResource("Second", "second.txt", "omim.pg")), 256, () -> order.add("second"));
+
+        instance.run();
+
+        assertThat(order, equalTo(Arrays.asList("first", "second")));
+    }
+
+    @Test
+    public void testJobsExceedingMemoryBudgetDoNotRunTogether() {
+        ResourceParserScheduler instance = new ResourceParserScheduler(4, 1024);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Runnable trackRunning = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(50);
+            running.decrementAndGet();
+        };
+        instance.addJob("frequency", Collections.singletonList(newResource("dbSNP", "00-All.vcf", "frequency.pg")), 800, trackRunning);
+        instance.addJob("string", Collections.singletonList(newResource("STRING", "protein.links.txt", "string.pg")), 800, trackRunning);
+        //larger than the whole budget, so this has to run on its own
+        instance.addJob("nsfp", Collections.singletonList(newResource("dbNSFP", "dbNSFP.zip", "variant.pg")), 2048, trackRunning);
+
+        instance.run();
+
+        assertThat(maxRunning.get(), equalTo(1));
+    }
+
+    @Test
+    public void testFailedJobSetsParseStatusOfAllItsResources() {
+        ResourceParserScheduler instance = new ResourceParserScheduler(2, 1024);
+        Resource entrez = newResource("STRING_entrez2sym", "entrez.txt", "entrez2sym.pg");
+        Resource string = newResource("STRING_protein_links", "protein.links.txt", "string.pg");
+        Resource hpo = newResource("HPO", "hp.obo", "hpo.pg");
+        instance.addJob("string", Arrays.asList(entrez, string), 256, () -> {
+            throw new IllegalStateException("Boom!");
+        });
+        instance.addJob("hpo", Collections.singletonList(hpo), 256, () -> hpo.setParseStatus(ResourceOperationStatus.SUCCESS));
+
+        instance.run();
+
+        assertThat(entrez.getParseStatus(), equalTo(ResourceOperationStatus.FAILURE));
+        assertThat(string.getParseStatus(), equalTo(ResourceOperationStatus.FAILURE));
+        assertThat(hpo.getParseStatus(), equalTo(ResourceOperationStatus.SUCCESS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -19,6 +19,12 @@
 
 package de.charite.compbio.exomiser.rest.analysis;
 
+import de.charite.compbio.exomiser.core.Exomiser;
+import de.charite.compbio.exomiser.core.metrics.MetricsRegistry;
+import de.charite.compbio.exomiser.rest.analysis.service.AnalysisJobExecutor;
+import de.charite.compbio.exomiser.rest.analysis.service.AnalysisJobRunner;
+import de.charite.compbio.exomiser.rest.analysis.service.AnalysisJobStore;
+import de.charite.compbio.exomiser.rest.analysis.service.ExomiserAnalysisJobRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,17 +52,58 @@ public class ExomiserConfig {
     @Autowired
     Environment environment;
 
+    //not all deployments of the server have the data to run an analysis, in which case the jobs will fail with an error
+    @Autowired(required = false)
+    Exomiser exomiser;
+
     @Bean
     Path analysisPath() {
         Path analysisPath = Paths.get(environment.getProperty("exomiser.analysisPath"));
         try {
             if (!Files.exists(analysisPath)) {
                 logger.info("Setting up analysis path at {}", analysisPath);
-                Files.createDirectory(analysisPath);
+                Files.createDirectories(analysisPath);
             }
         } catch (IOException ex) {
             logger.error("Unable to create directory for analyses {}", analysisPath, ex);
         }
         return analysisPath;
     }
+
+    @Bean
+    AnalysisJobStore analysisJobStore() {
+        return new AnalysisJobStore(analysisPath());
+    }
+
+    /**
+     * The number of workers is set by exomiser.jobs.maxWorkers, or if this is 0 it is worked out from the number of
+     * cores and how many times exomiser.jobs.memoryPerJobMb fits into the heap.
+     */
+    @Bean(destroyMethod = "shutdown")
+    AnalysisJobExecutor analysisJobExecutor() {
+        int maxWorkers = environment.getProperty("exomiser.jobs.maxWorkers", Integer.class, 0);
+        long memoryPerJobMb = environment.getProperty("exomiser.jobs.memoryPerJobMb", Long.class, 4096L);
+        int queueCapacity = environment.getProperty("exomiser.jobs.queueCapacity", Integer.class, 100);
+
+        int numWorkers = maxWorkers;
+        if (numWorkers < 1) {
+            Runtime runtime = Runtime.getRuntime();
+            numWorkers = AnalysisJobExecutor.calculateNumWorkers(runtime.availableProcessors(), runtime.maxMemory(), memoryPerJobMb * 1024 * 1024);
+        }
+        return new AnalysisJobExecutor(numWorkers, queueCapacity);
+    }
+
+    @Bean
+    AnalysisJobRunner analysisJobRunner() {
+        if (exomiser == null) {
+            logger.warn("No Exomiser configured - analyses will fail when run");
+        }
+        return new ExomiserAnalysisJobRunner(exomiser);
+    }
+
+    @Bean
+    MetricsRegistry metricsRegistry() {
+        //the DAOs and caches count their calls in the default registry
+        return MetricsRegistry.getDefault();
+    }
 }
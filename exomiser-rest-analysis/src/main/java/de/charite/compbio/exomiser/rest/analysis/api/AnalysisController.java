@@ -20,20 +20,32 @@
 package de.charite.compbio.exomiser.rest.analysis.api;
 
 import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.metrics.MetricsReport;
+import de.charite.compbio.exomiser.core.util.VcfIngester;
+import de.charite.compbio.exomiser.core.util.VcfIngester.IngestedVcf;
+import de.charite.compbio.exomiser.core.writers.OutputFormat;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
 import de.charite.compbio.exomiser.rest.analysis.model.AnalysisResponse;
 import de.charite.compbio.exomiser.rest.analysis.model.AnalysisStatus;
+import de.charite.compbio.exomiser.rest.analysis.service.AnalysisJobExecutor;
 import de.charite.compbio.exomiser.rest.analysis.service.AnalysisService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
@@ -80,6 +92,70 @@ public Analysis getAnalysis(@PathVariable long analysisId) {
         return analysis;
     }
 
+    @RequestMapping(value = "/{analysisId}/metrics", method = RequestMethod.GET)
+    public MetricsReport getAnalysisMetrics(@PathVariable long analysisId) {
+        Analysis analysis = analysisService.getAnalysis(analysisId);
+        if (analysis == null) {
+            logger.info("AnalysisId: {} not found", analysisId);
+            throw new UnknownAnalysisException("Unknown analysis id");
+        }
+        return analysis.getAnalysisMetrics().getReport();
+    }
+
+    @RequestMapping(value = "/{analysisId}/status", method = RequestMethod.GET)
+    public AnalysisResponse getAnalysisStatus(@PathVariable long analysisId) {
+        return checkFound(analysisId, analysisService.getAnalysisStatus(analysisId));
+    }
+
+    /**
+     * Queues the analysis and returns straight away - poll the status to find out when the results are ready.
+     */
+    @RequestMapping(value = "/{analysisId}/start", method = RequestMethod.POST)
+    public AnalysisResponse startAnalysis(@PathVariable long analysisId,
+                                          @RequestParam(value = "priority", defaultValue = "NORMAL") AnalysisPriority priority) {
+        try {
+            return checkFound(analysisId, analysisService.startAnalysis(analysisId, priority));
+        } catch (AnalysisJobExecutor.QueueFullException ex) {
+            throw new AnalysisQueueFullException(ex.getMessage());
+        }
+    }
+
+    @RequestMapping(value = "/{analysisId}/cancel", method = RequestMethod.POST)
+    public AnalysisResponse cancelAnalysis(@PathVariable long analysisId) {
+        return checkFound(analysisId, analysisService.cancelAnalysis(analysisId));
+    }
+
+    @RequestMapping(value = "/{analysisId}", method = RequestMethod.DELETE)
+    public AnalysisResponse deleteAnalysis(@PathVariable long analysisId) {
+        checkFound(analysisId, analysisService.getAnalysisStatus(analysisId));
+        analysisService.delete(analysisId);
+        return new AnalysisResponse(analysisId, AnalysisStatus.INFO, "Analysis deleted.");
+    }
+
+    /**
+     * Streams the results file straight from the analysis directory rather than reading it into memory.
+     */
+    @RequestMapping(value = "/{analysisId}/results/{outputFormat}", method = RequestMethod.GET)
+    public ResponseEntity<Resource> getResults(@PathVariable long analysisId, @PathVariable OutputFormat outputFormat) {
+        AnalysisResponse analysisStatus = checkFound(analysisId, analysisService.getAnalysisStatus(analysisId));
+        Path resultsPath = analysisService.getResults(analysisId, outputFormat);
+        if (resultsPath == null) {
+            throw new UnknownAnalysisException("No " + outputFormat + " results for analysis " + analysisId + " with status " + analysisStatus.getAnalysisStatus());
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resultsPath.getFileName() + "\"")
+                .body(new FileSystemResource(resultsPath.toFile()));
+    }
+
+    private AnalysisResponse checkFound(long analysisId, AnalysisResponse analysisResponse) {
+        if (analysisResponse == null) {
+            logger.info("AnalysisId: {} not found", analysisId);
+            throw new UnknownAnalysisException("Unknown analysis id");
+        }
+        return analysisResponse;
+    }
+
     @RequestMapping(value = "/{analysisId}/upload", method = RequestMethod.POST)
     public AnalysisResponse postVcf(@PathVariable("analysisId") long id,
                                     @RequestParam(value = "vcf", required = true) MultipartFile file,
@@ -87,29 +163,42 @@ public AnalysisResponse postVcf(@PathVariable("analysisId") long id,
 
         if (!file.isEmpty()) {
             Path analysisDir = getAnalysisDirectory(id);
-            Path outputFile = analysisDir.resolve(file.getOriginalFilename());
-            try {
-                Files.createFile(outputFile);
-            } catch (IOException ex) {
-                throw new FileUploadException("Error uploading file " + file.getOriginalFilename());
-            }
-
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream()));
-                 BufferedWriter fileWriter = Files.newBufferedWriter(outputFile)
-            ) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    fileWriter.write(line + "\n");
-                }
-                logger.info("Successfully saved input file for id {} to {}", id, outputFile);
-                return new AnalysisResponse(id, AnalysisStatus.READY, "Successfully uploaded file " + file.getOriginalFilename());
-            } catch (IOException e) {
-                throw new FileUploadException("Error uploading file " + file.getOriginalFilename());
+            if (pedFile != null && !pedFile.isEmpty()) {
+                analysisService.createPed(id, savePedFile(id, analysisDir, pedFile));
             }
+            return analysisService.createVcf(id, saveVcfFile(id, analysisDir, file));
         }
         throw new FileUploadException("Error uploading file " + file.getOriginalFilename() + " - File was empty.");
     }
 
+    /**
+     * Streams the upload to disk, checking and counting the variants on the way, so the file is only read once.
+     */
+    private Path saveVcfFile(long id, Path analysisDir, MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            IngestedVcf ingestedVcf = VcfIngester.ingest(inputStream, analysisDir, file.getOriginalFilename());
+            logger.info("Successfully saved input file for id {} to {}", id, ingestedVcf);
+            return ingestedVcf.getPath();
+        } catch (VcfIngester.InvalidVcfException ex) {
+            throw new InvalidVcfUploadException("Invalid VCF file " + file.getOriginalFilename() + " - " + ex.getMessage());
+        } catch (IOException ex) {
+            logger.error("Error uploading file {} for id {}", file.getOriginalFilename(), id, ex);
+            throw new FileUploadException("Error uploading file " + file.getOriginalFilename());
+        }
+    }
+
+    private Path savePedFile(long id, Path analysisDir, MultipartFile file) {
+        Path outputFile = analysisDir.resolve(Paths.get(file.getOriginalFilename()).getFileName());
+        try (InputStream inputStream = file.getInputStream()) {
+            Files.copy(inputStream, outputFile);
+            logger.info("Successfully saved input file for id {} to {}", id, outputFile);
+            return outputFile;
+        } catch (IOException ex) {
+            logger.error("Error uploading file {} for id {}", file.getOriginalFilename(), id, ex);
+            throw new FileUploadException("Error uploading file " + file.getOriginalFilename());
+        }
+    }
+
 
     @RequestMapping(value = "/{analysisId}/vcf", method = RequestMethod.POST)
     public AnalysisResponse postAnalysis(@PathVariable("analysisId") long id, @RequestBody String file) throws FileUploadException {
@@ -129,8 +218,8 @@ private Path createAnalysisDirectory(long id) {
     }
 
     private Path getAnalysisDirectory(long id) {
-        Path analysisDir = analysisPath.resolve(Long.toUnsignedString(id));
-        if (!Files.exists(analysisDir)) {
+        Path analysisDir = analysisService.getAnalysisDirectory(id);
+        if (analysisDir == null || !Files.exists(analysisDir)) {
             throw new UnknownAnalysisException("AnalysisId not found: " + id);
         }
         return analysisDir;
@@ -152,6 +241,22 @@ public UnknownAnalysisException(String message) {
         }
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    class InvalidVcfUploadException extends RuntimeException {
+
+        public InvalidVcfUploadException(String message) {
+            super(message);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    class AnalysisQueueFullException extends RuntimeException {
+
+        public AnalysisQueueFullException(String message) {
+            super(message);
+        }
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     private class AnalysisServerError extends RuntimeException {
         public AnalysisServerError(String message) {
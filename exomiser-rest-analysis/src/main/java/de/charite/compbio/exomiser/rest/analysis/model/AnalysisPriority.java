@@ -17,26 +17,14 @@
  *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package db.migration.postgres;
-
-import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
-import java.io.FileReader;
-import java.sql.Connection;
-import org.postgresql.copy.CopyManager;
-import org.postgresql.core.BaseConnection;
+package de.charite.compbio.exomiser.rest.analysis.model;
 
 /**
- * Flyway java migration for importing metadata data into the exomiser PostgreSQL instance.
- * 
+ * Order in which queued analyses are picked up by the workers. Analyses of the same priority are run in the order
+ * they were started.
+ *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
-public class V2_12__Insert_tad implements JdbcMigration {
-    
-    @Override
-    public void migrate(Connection connection) throws Exception {
-        CopyManager copyManager = new CopyManager((BaseConnection) connection);
-        try (FileReader fileReader = new FileReader("data/tad.pg")) {
-            copyManager.copyIn("COPY tad from STDIN WITH DELIMITER '|';", fileReader, 1024);
-        }
-    }
+public enum AnalysisPriority {
+    HIGH, NORMAL, LOW;
 }
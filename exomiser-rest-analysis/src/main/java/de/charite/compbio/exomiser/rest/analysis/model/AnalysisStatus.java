@@ -23,6 +23,6 @@
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 public enum AnalysisStatus {
-    AWAITING_VCF, AWAITING_PED, READY, QUEUED, PROCESSING, COMPLETED, INFO, ERROR;
+    AWAITING_VCF, AWAITING_PED, READY, QUEUED, PROCESSING, COMPLETED, CANCELLED, INFO, ERROR;
 }
 
@@ -0,0 +1,127 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.rest.analysis.service;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisResponse;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisStatus;
+
+import java.util.Objects;
+
+/**
+ * The server-side state of an {@link Analysis} - its id, status and priority. The status is changed by the request
+ * threads and the worker threads, so all access is synchronized on the job.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class AnalysisJob {
+
+    private final long id;
+    private final Analysis analysis;
+
+    private AnalysisPriority priority = AnalysisPriority.NORMAL;
+    private AnalysisStatus status;
+    private String message;
+
+    public AnalysisJob(long id, Analysis analysis, AnalysisStatus status, String message) {
+        this.id = id;
+        this.analysis = analysis;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Analysis getAnalysis() {
+        return analysis;
+    }
+
+    public synchronized AnalysisPriority getPriority() {
+        return priority;
+    }
+
+    public synchronized void setPriority(AnalysisPriority priority) {
+        this.priority = priority;
+    }
+
+    public synchronized AnalysisStatus getStatus() {
+        return status;
+    }
+
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    public synchronized void setStatus(AnalysisStatus status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * Only changes the status if it is currently the expected one. This stops a worker from overwriting the status of
+     * a job which was cancelled while it was running.
+     *
+     * @param expected
+     * @param status
+     * @param message
+     * @return true if the status was changed.
+     */
+    public synchronized boolean compareAndSetStatus(AnalysisStatus expected, AnalysisStatus status, String message) {
+        if (this.status != expected) {
+            return false;
+        }
+        setStatus(status, message);
+        return true;
+    }
+
+    public synchronized boolean isActive() {
+        return status == AnalysisStatus.QUEUED || status == AnalysisStatus.PROCESSING;
+    }
+
+    public synchronized AnalysisResponse toResponse() {
+        return new AnalysisResponse(id, status, message);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AnalysisJob that = (AnalysisJob) o;
+        return id == that.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AnalysisJob{" +
+                "id=" + id +
+                ", priority=" + priority +
+                ", status=" + status +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
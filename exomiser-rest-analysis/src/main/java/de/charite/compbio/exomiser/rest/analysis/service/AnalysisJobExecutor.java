@@ -0,0 +1,218 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.rest.analysis.service;
+
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link AnalysisJob}s on a fixed pool of worker threads, taking the highest priority job from the queue first
+ * and jobs of the same priority in the order they were submitted. The queue is bounded so that a burst of submissions
+ * is refused rather than left waiting for hours - the caller should ask the client to try again later.
+ *
+ * Analyses are memory hungry, so the number of workers is limited by the heap as well as the number of cores.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class AnalysisJobExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobExecutor.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final int numWorkers;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    private final AtomicLong submissionCount = new AtomicLong();
+    private final Map<Long, JobTask> tasks = new ConcurrentHashMap<>();
+
+    public AnalysisJobExecutor(int numWorkers, int queueCapacity) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("Number of workers must be greater than 0, not " + numWorkers);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be greater than 0, not " + queueCapacity);
+        }
+        this.numWorkers = numWorkers;
+        this.queueCapacity = queueCapacity;
+        //the queue itself is unbounded as the capacity is checked on submission - a bounded PriorityBlockingQueue doesn't exist
+        this.threadPoolExecutor = new ThreadPoolExecutor(numWorkers, numWorkers, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), new AnalysisWorkerThreadFactory());
+        logger.info("Started {} analysis workers with a queue capacity of {}", numWorkers, queueCapacity);
+    }
+
+    /**
+     * Works out how many analyses can be run at once without running out of cores or heap.
+     *
+     * @param numCores
+     * @param maxMemoryBytes
+     * @param memoryPerJobBytes
+     * @return the number of workers, which is at least 1.
+     */
+    public static int calculateNumWorkers(int numCores, long maxMemoryBytes, long memoryPerJobBytes) {
+        long maxJobsForMemory = memoryPerJobBytes > 0 ? maxMemoryBytes / memoryPerJobBytes : numCores;
+        return (int) Math.max(1, Math.min(numCores, maxJobsForMemory));
+    }
+
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getNumQueued() {
+        return threadPoolExecutor.getQueue().size();
+    }
+
+    public boolean isShutdown() {
+        return threadPoolExecutor.isShutdown();
+    }
+
+    /**
+     * Queues the work for the job. The work is responsible for updating the status of the job.
+     *
+     * @param job
+     * @param work
+     * @throws QueueFullException if the queue is already at capacity.
+     */
+    public synchronized void submit(AnalysisJob job, Runnable work) {
+        if (getNumQueued() >= queueCapacity) {
+            throw new QueueFullException("Analysis queue is full - " + queueCapacity + " analyses are waiting to run");
+        }
+        JobTask task = new JobTask(job, work, submissionCount.incrementAndGet());
+        tasks.put(job.getId(), task);
+        threadPoolExecutor.execute(task);
+    }
+
+    /**
+     * Stops the job from running. Queued jobs are removed from the queue, running jobs have their worker interrupted,
+     * although the analysis may not notice this until it has finished its current step.
+     *
+     * @param job
+     * @return true if the job was queued or running.
+     */
+    public boolean cancel(AnalysisJob job) {
+        JobTask task = tasks.remove(job.getId());
+        if (task == null) {
+            return false;
+        }
+        if (!threadPoolExecutor.remove(task)) {
+            task.interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * Interrupts the running jobs and waits a short while for them to record their status, so that they can be
+     * recovered on restart.
+     */
+    public void shutdown() {
+        logger.info("Shutting down analysis workers - {} queued analyses will be recovered on restart", getNumQueued());
+        threadPoolExecutor.shutdownNow();
+        try {
+            if (!threadPoolExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Analysis workers still running after {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class JobTask implements Runnable, Comparable<JobTask> {
+
+        private final AnalysisJob job;
+        private final Runnable work;
+        //fixed on submission so the order in the queue can't change underneath it
+        private final AnalysisPriority priority;
+        private final long submissionNumber;
+
+        private Thread worker;
+
+        JobTask(AnalysisJob job, Runnable work, long submissionNumber) {
+            this.job = job;
+            this.work = work;
+            this.priority = job.getPriority();
+            this.submissionNumber = submissionNumber;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                worker = Thread.currentThread();
+            }
+            try {
+                work.run();
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                    //clear the flag so that a late cancel doesn't affect the next job on this worker
+                    Thread.interrupted();
+                }
+                tasks.remove(job.getId(), this);
+            }
+        }
+
+        synchronized void interrupt() {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        @Override
+        public int compareTo(JobTask other) {
+            int priorityComparison = priority.compareTo(other.priority);
+            if (priorityComparison != 0) {
+                return priorityComparison;
+            }
+            return Long.compare(submissionNumber, other.submissionNumber);
+        }
+    }
+
+    private static class AnalysisWorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "analysis-worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class QueueFullException extends RuntimeException {
+
+        QueueFullException(String message) {
+            super(message);
+        }
+    }
+}
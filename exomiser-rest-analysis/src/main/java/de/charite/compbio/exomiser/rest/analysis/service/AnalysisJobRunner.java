@@ -1,4 +1,3 @@
-
 /*
  * The Exomiser - A tool to annotate and prioritize variants
  *
@@ -18,26 +17,34 @@
  *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package db.migration.postgres;
+package de.charite.compbio.exomiser.rest.analysis.service;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.writers.OutputFormat;
 
-import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
-import java.io.FileReader;
-import java.sql.Connection;
-import org.postgresql.copy.CopyManager;
-import org.postgresql.core.BaseConnection;
+import java.nio.file.Path;
+import java.util.Set;
 
 /**
- * Flyway java migration for importing omim2gene data into the exomiser PostgreSQL instance.
- * 
+ * Runs an {@link Analysis} on a worker thread and writes the results into its analysis directory.
+ *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
-public class V2_7__Insert_entrez2sym implements JdbcMigration {
-    
-    @Override
-    public void migrate(Connection connection) throws Exception {
-        CopyManager copyManager = new CopyManager((BaseConnection) connection);
-        try (FileReader fileReader = new FileReader("data/entrez2sym.pg")) {
-            copyManager.copyIn("COPY entrez2sym from STDIN WITH DELIMITER '|';", fileReader, 1024);
-        }
-    }
+public interface AnalysisJobRunner {
+
+    /**
+     * @return the formats written by {@link #run(Analysis, Path)}.
+     */
+    Set<OutputFormat> getOutputFormats();
+
+    /**
+     * @param analysis
+     * @param analysisDirectory
+     * @param outputFormat
+     * @return the path of the results file for the given format, which may not exist yet.
+     */
+    Path getResultsPath(Analysis analysis, Path analysisDirectory, OutputFormat outputFormat);
+
+    void run(Analysis analysis, Path analysisDirectory);
+
 }
@@ -0,0 +1,201 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.rest.analysis.service;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk7.Jdk7Module;
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the state of each {@link AnalysisJob} in its analysis directory so that the jobs can be recovered when the
+ * server is restarted. Each directory holds the uploaded files, the results and two small JSON files - one for the
+ * analysis and one for the job status. These are replaced atomically so a crash never leaves a half-written file.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class AnalysisJobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobStore.class);
+
+    static final String ANALYSIS_FILE_NAME = "analysis.json";
+    static final String JOB_FILE_NAME = "job.json";
+
+    private final Path analysisPath;
+    private final ObjectMapper mapper;
+
+    public AnalysisJobStore(Path analysisPath) {
+        this.analysisPath = analysisPath;
+        this.mapper = new ObjectMapper();
+        mapper.registerModule(new Jdk7Module());
+    }
+
+    public Path getAnalysisDirectory(long id) {
+        return analysisPath.resolve(Long.toUnsignedString(id));
+    }
+
+    /**
+     * Writes the analysis and the job status to the analysis directory, creating it if required.
+     *
+     * @param job
+     */
+    public void save(AnalysisJob job) {
+        saveAnalysis(job);
+        saveStatus(job);
+    }
+
+    /**
+     * Writes only the job status - the analysis doesn't change once it has been uploaded.
+     *
+     * @param job
+     */
+    public void saveStatus(AnalysisJob job) {
+        JobRecord jobRecord;
+        synchronized (job) {
+            jobRecord = new JobRecord(job.getId(), job.getStatus(), job.getMessage(), job.getPriority());
+        }
+        try {
+            writeAtomically(getAnalysisDirectory(job.getId()).resolve(JOB_FILE_NAME), mapper.writeValueAsBytes(jobRecord));
+        } catch (IOException ex) {
+            throw new JobStoreException("Unable to save status of analysis " + job.getId(), ex);
+        }
+    }
+
+    private void saveAnalysis(AnalysisJob job) {
+        try {
+            writeAtomically(getAnalysisDirectory(job.getId()).resolve(ANALYSIS_FILE_NAME), mapper.writeValueAsBytes(job.getAnalysis()));
+        } catch (IOException ex) {
+            throw new JobStoreException("Unable to save analysis " + job.getId(), ex);
+        }
+    }
+
+    private void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, bytes);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads back all the jobs in the analysis path. Directories which can't be read are logged and skipped so that a
+     * single bad job doesn't stop the server from starting.
+     *
+     * @return the stored jobs, in no particular order.
+     */
+    public List<AnalysisJob> loadAll() {
+        List<AnalysisJob> jobs = new ArrayList<>();
+        if (!Files.isDirectory(analysisPath)) {
+            return jobs;
+        }
+        try (DirectoryStream<Path> analysisDirectories = Files.newDirectoryStream(analysisPath, Files::isDirectory)) {
+            for (Path analysisDirectory : analysisDirectories) {
+                Path jobFile = analysisDirectory.resolve(JOB_FILE_NAME);
+                if (!Files.exists(jobFile)) {
+                    continue;
+                }
+                try {
+                    jobs.add(load(analysisDirectory, jobFile));
+                } catch (IOException ex) {
+                    logger.error("Unable to recover analysis from {}", analysisDirectory, ex);
+                }
+            }
+        } catch (IOException ex) {
+            throw new JobStoreException("Unable to read analysis directory " + analysisPath, ex);
+        }
+        return jobs;
+    }
+
+    private AnalysisJob load(Path analysisDirectory, Path jobFile) throws IOException {
+        JobRecord jobRecord = mapper.readValue(jobFile.toFile(), JobRecord.class);
+        Analysis analysis = mapper.readValue(analysisDirectory.resolve(ANALYSIS_FILE_NAME).toFile(), Analysis.class);
+        AnalysisJob job = new AnalysisJob(jobRecord.id, analysis, jobRecord.status, jobRecord.message);
+        job.setPriority(jobRecord.priority);
+        return job;
+    }
+
+    public void delete(long id) {
+        Path analysisDirectory = getAnalysisDirectory(id);
+        if (!Files.exists(analysisDirectory)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(analysisDirectory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            throw new JobStoreException("Unable to delete analysis directory " + analysisDirectory, ex);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class JobRecord {
+
+        @JsonProperty
+        private final long id;
+        @JsonProperty
+        private final AnalysisStatus status;
+        @JsonProperty
+        private final String message;
+        @JsonProperty
+        private final AnalysisPriority priority;
+
+        @JsonCreator
+        JobRecord(@JsonProperty("id") long id, @JsonProperty("status") AnalysisStatus status, @JsonProperty("message") String message, @JsonProperty("priority") AnalysisPriority priority) {
+            this.id = id;
+            this.status = status;
+            this.message = message;
+            this.priority = priority == null ? AnalysisPriority.NORMAL : priority;
+        }
+    }
+
+    public static class JobStoreException extends RuntimeException {
+
+        JobStoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
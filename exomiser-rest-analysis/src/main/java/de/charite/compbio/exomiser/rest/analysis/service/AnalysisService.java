@@ -21,6 +21,7 @@
 
 import de.charite.compbio.exomiser.core.analysis.Analysis;
 import de.charite.compbio.exomiser.core.writers.OutputFormat;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
 import de.charite.compbio.exomiser.rest.analysis.model.AnalysisResponse;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -42,6 +43,23 @@ public interface AnalysisService {
 
     AnalysisResponse startAnalysis(long id);
 
+    /**
+     * Queues the analysis to be run on a worker thread and returns immediately.
+     *
+     * @param id
+     * @param priority
+     * @return the status of the analysis, or null if the id is unknown.
+     */
+    AnalysisResponse startAnalysis(long id, AnalysisPriority priority);
+
+    /**
+     * Removes a queued analysis from the queue, or stops a running one.
+     *
+     * @param id
+     * @return the status of the analysis, or null if the id is unknown.
+     */
+    AnalysisResponse cancelAnalysis(long id);
+
     AnalysisResponse getAnalysisStatus(long id);
 
     void delete(long id);
@@ -50,6 +68,12 @@ public interface AnalysisService {
 
     Analysis getAnalysis(long id);
 
+    /**
+     * @param id
+     * @return the directory holding the input and output files of the analysis, or null if the id is unknown.
+     */
+    Path getAnalysisDirectory(long id);
+
     Path getVcf(long id);
 
     Path getPed(long id);
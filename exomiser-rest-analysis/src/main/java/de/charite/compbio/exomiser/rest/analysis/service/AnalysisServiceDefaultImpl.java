@@ -20,26 +20,28 @@
 package de.charite.compbio.exomiser.rest.analysis.service;
 
 import de.charite.compbio.exomiser.core.analysis.Analysis;
-import de.charite.compbio.exomiser.core.filters.FrequencyFilter;
-import de.charite.compbio.exomiser.core.filters.PathogenicityFilter;
-import de.charite.compbio.exomiser.core.filters.PriorityScoreFilter;
-import de.charite.compbio.exomiser.core.model.frequency.FrequencySource;
-import de.charite.compbio.exomiser.core.model.pathogenicity.PathogenicitySource;
-import de.charite.compbio.exomiser.core.prioritisers.PriorityType;
 import de.charite.compbio.exomiser.core.writers.OutputFormat;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
 import de.charite.compbio.exomiser.rest.analysis.model.AnalysisResponse;
 import de.charite.compbio.exomiser.rest.analysis.model.AnalysisStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.EnumSet;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Keeps track of the {@link AnalysisJob}s and runs them asynchronously on the {@link AnalysisJobExecutor}, so that the
+ * request threads are never blocked by a running analysis. All status changes are written to the
+ * {@link AnalysisJobStore} and the jobs are reloaded on start-up. Any jobs which were queued or running when the
+ * server stopped are queued again.
+ *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
  */
 @Service
@@ -50,15 +52,46 @@ public class AnalysisServiceDefaultImpl implements AnalysisService {
     //TODO: make a better id - something like timestamp + random + serverId. Like the Twitter snowflake
     private static final AtomicLong analysisId = new AtomicLong(System.currentTimeMillis() * 100000);
 
-    //TODO: this should become a DAO
-    private final Map<Long, Analysis> analysisMap = new ConcurrentHashMap<>();
+    private final Map<Long, AnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    private final AnalysisJobStore analysisJobStore;
+    private final AnalysisJobExecutor analysisJobExecutor;
+    private final AnalysisJobRunner analysisJobRunner;
+
+    @Autowired
+    public AnalysisServiceDefaultImpl(AnalysisJobStore analysisJobStore, AnalysisJobExecutor analysisJobExecutor, AnalysisJobRunner analysisJobRunner) {
+        this.analysisJobStore = analysisJobStore;
+        this.analysisJobExecutor = analysisJobExecutor;
+        this.analysisJobRunner = analysisJobRunner;
+    }
+
+    @PostConstruct
+    public void recoverJobs() {
+        for (AnalysisJob job : analysisJobStore.loadAll()) {
+            jobs.put(job.getId(), job);
+            analysisId.accumulateAndGet(job.getId(), Math::max);
+            if (job.isActive()) {
+                logger.info("Re-queueing analysis {} interrupted by shutdown", job.getId());
+                job.setStatus(AnalysisStatus.READY, "Analysis interrupted by server restart.");
+                try {
+                    startAnalysis(job.getId(), job.getPriority());
+                } catch (AnalysisJobExecutor.QueueFullException ex) {
+                    logger.warn("Unable to re-queue analysis {} - {}", job.getId(), ex.getMessage());
+                    analysisJobStore.saveStatus(job);
+                }
+            }
+        }
+        logger.info("Recovered {} analyses", jobs.size());
+    }
 
     @Override
     public AnalysisResponse createAnalysisJob(Analysis analysis) {
         long id = analysisId.incrementAndGet();
-        analysisMap.put(id, analysis);
+        AnalysisJob job = new AnalysisJob(id, analysis, AnalysisStatus.AWAITING_VCF, "Analysis received.");
+        analysisJobStore.save(job);
+        jobs.put(id, job);
         logger.info("Created analysis job {}", id);
-        return new AnalysisResponse(id, AnalysisStatus.AWAITING_VCF, "Analysis received.");
+        return job.toResponse();
     }
 
     @Override
@@ -67,53 +100,165 @@ public AnalysisResponse createAnalysisJobFromYaml(String analysisYaml) {
         return createAnalysisJob(new Analysis());
     }
 
+    @Override
+    public Path getAnalysisDirectory(long id) {
+        if (!exists(id)) {
+            return null;
+        }
+        return analysisJobStore.getAnalysisDirectory(id);
+    }
+
     @Override
     public AnalysisResponse createVcf(long id, Path vcfPath) {
-        return null;
+        AnalysisJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.isActive()) {
+                return new AnalysisResponse(id, job.getStatus(), "Unable to change the VCF of a " + job.getStatus() + " analysis.");
+            }
+            job.getAnalysis().setVcfPath(vcfPath);
+            job.setStatus(AnalysisStatus.READY, "Successfully uploaded file " + vcfPath.getFileName());
+        }
+        analysisJobStore.save(job);
+        return job.toResponse();
     }
 
     @Override
     public AnalysisResponse createPed(long id, Path pedPath) {
-        return null;
+        AnalysisJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.isActive()) {
+                return new AnalysisResponse(id, job.getStatus(), "Unable to change the PED of a " + job.getStatus() + " analysis.");
+            }
+            job.getAnalysis().setPedPath(pedPath);
+            job.setStatus(job.getStatus(), "Successfully uploaded file " + pedPath.getFileName());
+        }
+        analysisJobStore.save(job);
+        return job.toResponse();
     }
 
     @Override
     public Analysis getAnalysis(long id) {
-        return analysisMap.get(id);
+        AnalysisJob job = jobs.get(id);
+        return job == null ? null : job.getAnalysis();
     }
 
     @Override
     public Path getVcf(long id) {
-        return null;
+        AnalysisJob job = jobs.get(id);
+        return job == null ? null : job.getAnalysis().getVcfPath();
     }
 
     @Override
     public Path getPed(long id) {
-        return null;
+        AnalysisJob job = jobs.get(id);
+        return job == null ? null : job.getAnalysis().getPedPath();
     }
 
     @Override
     public Path getResults(long id, OutputFormat outputFormat) {
-        return null;
+        AnalysisJob job = jobs.get(id);
+        if (job == null || job.getStatus() != AnalysisStatus.COMPLETED || !analysisJobRunner.getOutputFormats().contains(outputFormat)) {
+            return null;
+        }
+        Path resultsPath = analysisJobRunner.getResultsPath(job.getAnalysis(), analysisJobStore.getAnalysisDirectory(id), outputFormat);
+        return Files.exists(resultsPath) ? resultsPath : null;
     }
 
     @Override
     public AnalysisResponse startAnalysis(long id) {
-        return null;
+        return startAnalysis(id, AnalysisPriority.NORMAL);
+    }
+
+    @Override
+    public AnalysisResponse startAnalysis(long id, AnalysisPriority priority) {
+        AnalysisJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.isActive()) {
+                return job.toResponse();
+            }
+            if (job.getAnalysis().getVcfPath() == null) {
+                return new AnalysisResponse(id, job.getStatus(), "Unable to start analysis - no VCF file has been uploaded.");
+            }
+            job.setPriority(priority);
+            job.setStatus(AnalysisStatus.QUEUED, "Analysis queued with " + priority + " priority.");
+            try {
+                analysisJobExecutor.submit(job, () -> runJob(job));
+            } catch (AnalysisJobExecutor.QueueFullException ex) {
+                job.setStatus(AnalysisStatus.READY, ex.getMessage());
+                throw ex;
+            }
+        }
+        analysisJobStore.saveStatus(job);
+        logger.info("Queued analysis {} with {} priority", id, priority);
+        return job.toResponse();
+    }
+
+    private void runJob(AnalysisJob job) {
+        if (!job.compareAndSetStatus(AnalysisStatus.QUEUED, AnalysisStatus.PROCESSING, "Analysis running.")) {
+            return;
+        }
+        analysisJobStore.saveStatus(job);
+        logger.info("Running analysis {}", job.getId());
+        try {
+            analysisJobRunner.run(job.getAnalysis(), analysisJobStore.getAnalysisDirectory(job.getId()));
+            job.compareAndSetStatus(AnalysisStatus.PROCESSING, AnalysisStatus.COMPLETED, "Analysis complete.");
+        } catch (RuntimeException ex) {
+            if (analysisJobExecutor.isShutdown()) {
+                //leave it to be picked up again on restart
+                logger.info("Analysis {} interrupted by shutdown", job.getId());
+                job.compareAndSetStatus(AnalysisStatus.PROCESSING, AnalysisStatus.QUEUED, "Analysis interrupted by server shutdown.");
+            } else {
+                logger.error("Analysis {} failed", job.getId(), ex);
+                job.compareAndSetStatus(AnalysisStatus.PROCESSING, AnalysisStatus.ERROR, "Analysis failed: " + ex.getMessage());
+            }
+        }
+        analysisJobStore.saveStatus(job);
+        logger.info("Finished analysis {} - {}", job.getId(), job.getStatus());
+    }
+
+    @Override
+    public AnalysisResponse cancelAnalysis(long id) {
+        AnalysisJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (!job.isActive()) {
+                return job.toResponse();
+            }
+            job.setStatus(AnalysisStatus.CANCELLED, "Analysis cancelled.");
+        }
+        analysisJobExecutor.cancel(job);
+        analysisJobStore.saveStatus(job);
+        logger.info("Cancelled analysis {}", id);
+        return job.toResponse();
     }
 
     @Override
     public AnalysisResponse getAnalysisStatus(long id) {
-        return null;
+        AnalysisJob job = jobs.get(id);
+        return job == null ? null : job.toResponse();
     }
 
     @Override
     public void delete(long id) {
         logger.info("Deleting analysis job {}", id);
+        cancelAnalysis(id);
+        jobs.remove(id);
+        analysisJobStore.delete(id);
     }
 
     @Override
     public boolean exists(long id) {
-        return false;
+        return jobs.containsKey(id);
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.rest.analysis.service;
+
+import de.charite.compbio.exomiser.core.Exomiser;
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.writers.OutputFormat;
+import de.charite.compbio.exomiser.core.writers.OutputSettings;
+import de.charite.compbio.exomiser.core.writers.OutputSettingsImp;
+import de.charite.compbio.exomiser.core.writers.MultiFormatResultsWriter;
+import de.charite.compbio.exomiser.core.writers.ResultsWriterFactory;
+import de.charite.compbio.exomiser.core.writers.ResultsWriterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Runs the analysis with the {@link Exomiser} and writes the results as TSV and VCF files. The HTML output is left to
+ * the clients. Once written, the results are dropped from the analysis so that a busy server doesn't hold the variants
+ * of every completed analysis on the heap.
+ *
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class ExomiserAnalysisJobRunner implements AnalysisJobRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExomiserAnalysisJobRunner.class);
+
+    private static final Set<OutputFormat> OUTPUT_FORMATS = Collections.unmodifiableSet(EnumSet.of(OutputFormat.TSV_GENE, OutputFormat.TSV_VARIANT, OutputFormat.VCF));
+    private static final String RESULTS_PREFIX = "results";
+
+    private final Exomiser exomiser;
+    private final MultiFormatResultsWriter multiFormatResultsWriter = new MultiFormatResultsWriter(new ResultsWriterFactory(), 0);
+
+    public ExomiserAnalysisJobRunner(Exomiser exomiser) {
+        this.exomiser = exomiser;
+    }
+
+    @Override
+    public Set<OutputFormat> getOutputFormats() {
+        return OUTPUT_FORMATS;
+    }
+
+    @Override
+    public Path getResultsPath(Analysis analysis, Path analysisDirectory, OutputFormat outputFormat) {
+        return Paths.get(ResultsWriterUtils.makeOutputFilename(analysis.getVcfPath(), getOutputPrefix(analysisDirectory), outputFormat));
+    }
+
+    private String getOutputPrefix(Path analysisDirectory) {
+        return analysisDirectory.resolve(RESULTS_PREFIX).toString();
+    }
+
+    @Override
+    public void run(Analysis analysis, Path analysisDirectory) {
+        if (exomiser == null) {
+            throw new IllegalStateException("No Exomiser has been configured for this server");
+        }
+        exomiser.run(analysis);
+
+        OutputSettings outputSettings = new OutputSettingsImp.OutputSettingsBuilder()
+                .outputPrefix(getOutputPrefix(analysisDirectory))
+                .outputFormats(OUTPUT_FORMATS)
+                .build();
+        multiFormatResultsWriter.writeFiles(analysis, outputSettings);
+        logger.info("Wrote {} results to {}", OUTPUT_FORMATS, analysisDirectory);
+
+        analysis.getSampleData().setGenes(new ArrayList<>());
+        analysis.getSampleData().setVariantEvaluations(new ArrayList<>());
+    }
+}
@@ -170,6 +170,20 @@ public void testGetAnalysis_knownAnalysisId() throws Exception {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void testGetAnalysisMetrics_unKnownAnalysisId() throws Exception {
+        mockMvc.perform(get("/analysis/{analysisId}/metrics", 1).accept("application/json"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetMetrics() throws Exception {
+        mockMvc.perform(get("/metrics").accept("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stageTimings").isArray())
+                .andExpect(jsonPath("$.counters").exists());
+    }
+
     @Test
     public void testPostAnalysis_jsonBody() throws Exception {
         mockMvc.perform(post("/analysis")
@@ -0,0 +1,157 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.rest.analysis.service;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisStatus;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class AnalysisJobExecutorTest {
+
+    private static final long GB = 1024L * 1024 * 1024;
+
+    private AnalysisJobExecutor instance;
+
+    @After
+    public void tearDown() {
+        if (instance != null) {
+            instance.shutdown();
+        }
+    }
+
+    private AnalysisJob job(long id, AnalysisPriority priority) {
+        AnalysisJob job = new AnalysisJob(id, new Analysis(), AnalysisStatus.QUEUED, "");
+        job.setPriority(priority);
+        return job;
+    }
+
+    private CountDownLatch blockWorker(long id) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        instance.submit(job(id, AnalysisPriority.NORMAL), () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        return release;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroWorkersThrowsException() {
+        instance = new AnalysisJobExecutor(0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroQueueCapacityThrowsException() {
+        instance = new AnalysisJobExecutor(1, 0);
+    }
+
+    @Test
+    public void testCalculateNumWorkersLimitedByCores() {
+        assertThat(AnalysisJobExecutor.calculateNumWorkers(4, 64 * GB, 4 * GB), equalTo(4));
+    }
+
+    @Test
+    public void testCalculateNumWorkersLimitedByMemory() {
+        assertThat(AnalysisJobExecutor.calculateNumWorkers(32, 16 * GB, 4 * GB), equalTo(4));
+    }
+
+    @Test
+    public void testCalculateNumWorkersIsAtLeastOne() {
+        assertThat(AnalysisJobExecutor.calculateNumWorkers(8, 2 * GB, 4 * GB), equalTo(1));
+    }
+
+    @Test
+    public void testQueuedJobsRunInPriorityThenSubmissionOrder() throws Exception {
+        instance = new AnalysisJobExecutor(1, 10);
+        CountDownLatch release = blockWorker(0);
+
+        List<Long> runOrder = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(4);
+        for (AnalysisJob job : Arrays.asList(job(1, AnalysisPriority.LOW), job(2, AnalysisPriority.NORMAL), job(3, AnalysisPriority.HIGH), job(4, AnalysisPriority.NORMAL))) {
+            instance.submit(job, () -> {
+                runOrder.add(job.getId());
+                finished.countDown();
+            });
+        }
+        release.countDown();
+        finished.await(5, TimeUnit.SECONDS);
+
+        assertThat(runOrder, equalTo(Arrays.asList(3L, 2L, 4L, 1L)));
+    }
+
+    @Test(expected = AnalysisJobExecutor.QueueFullException.class)
+    public void testSubmitToFullQueueThrowsException() throws Exception {
+        instance = new AnalysisJobExecutor(1, 1);
+        blockWorker(0);
+        instance.submit(job(1, AnalysisPriority.NORMAL), () -> {});
+        instance.submit(job(2, AnalysisPriority.NORMAL), () -> {});
+    }
+
+    @Test
+    public void testCancelQueuedJobRemovesItFromQueue() throws Exception {
+        instance = new AnalysisJobExecutor(1, 10);
+        CountDownLatch release = blockWorker(0);
+
+        List<Long> runOrder = Collections.synchronizedList(new ArrayList<>());
+        AnalysisJob cancelledJob = job(1, AnalysisPriority.NORMAL);
+        instance.submit(cancelledJob, () -> runOrder.add(1L));
+        assertThat(instance.getNumQueued(), equalTo(1));
+
+        assertThat(instance.cancel(cancelledJob), is(true));
+        assertThat(instance.getNumQueued(), equalTo(0));
+
+        CountDownLatch finished = new CountDownLatch(1);
+        instance.submit(job(2, AnalysisPriority.NORMAL), () -> {
+            runOrder.add(2L);
+            finished.countDown();
+        });
+        release.countDown();
+        finished.await(5, TimeUnit.SECONDS);
+
+        assertThat(runOrder, equalTo(Collections.singletonList(2L)));
+    }
+
+    @Test
+    public void testCancelUnknownJobReturnsFalse() {
+        instance = new AnalysisJobExecutor(1, 10);
+        assertThat(instance.cancel(job(1, AnalysisPriority.NORMAL)), is(false));
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * The Exomiser - A tool to annotate and prioritize variants
+ *
+ * Copyright (C) 2012 - 2016  Charite Universitätsmedizin Berlin and Genome Research Ltd.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as
+ *  published by the Free Software Foundation, either version 3 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.charite.compbio.exomiser.rest.analysis.service;
+
+import de.charite.compbio.exomiser.core.analysis.Analysis;
+import de.charite.compbio.exomiser.core.writers.OutputFormat;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisPriority;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisResponse;
+import de.charite.compbio.exomiser.rest.analysis.model.AnalysisStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
+ */
+public class AnalysisServiceDefaultImplTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AnalysisJobStore analysisJobStore;
+    private AnalysisJobExecutor analysisJobExecutor;
+    private StubAnalysisJobRunner analysisJobRunner;
+    private AnalysisServiceDefaultImpl instance;
+
+    @Before
+    public void setUp() throws IOException {
+        analysisJobStore = new AnalysisJobStore(temporaryFolder.newFolder("analyses").toPath());
+        analysisJobRunner = new StubAnalysisJobRunner();
+        instance = newService();
+    }
+
+    private AnalysisServiceDefaultImpl newService() {
+        analysisJobExecutor = new AnalysisJobExecutor(1, 10);
+        AnalysisServiceDefaultImpl service = new AnalysisServiceDefaultImpl(analysisJobStore, analysisJobExecutor, analysisJobRunner);
+        service.recoverJobs();
+        return service;
+    }
+
+    @After
+    public void tearDown() {
+        analysisJobExecutor.shutdown();
+    }
+
+    private long createJobWithVcf() throws IOException {
+        long id = instance.createAnalysisJob(new Analysis()).getId();
+        Path vcfPath = Files.createFile(instance.getAnalysisDirectory(id).resolve("sample.vcf"));
+        instance.createVcf(id, vcfPath);
+        return id;
+    }
+
+    private AnalysisStatus waitForStatusOtherThan(long id, AnalysisStatus... statuses) throws InterruptedException {
+        Set<AnalysisStatus> waitingStatuses = EnumSet.of(statuses[0], statuses);
+        for (int i = 0; i < 500; i++) {
+            AnalysisStatus status = instance.getAnalysisStatus(id).getAnalysisStatus();
+            if (!waitingStatuses.contains(status)) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return instance.getAnalysisStatus(id).getAnalysisStatus();
+    }
+
+    @Test
+    public void testCreateAnalysisJobIsAwaitingVcf() {
+        AnalysisResponse response = instance.createAnalysisJob(new Analysis());
+
+        assertThat(response.getAnalysisStatus(), equalTo(AnalysisStatus.AWAITING_VCF));
+        assertThat(instance.exists(response.getId()), is(true));
+        assertThat(Files.exists(instance.getAnalysisDirectory(response.getId()).resolve(AnalysisJobStore.JOB_FILE_NAME)), is(true));
+    }
+
+    @Test
+    public void testUnknownIdReturnsNull() {
+        assertThat(instance.getAnalysisStatus(1), nullValue());
+        assertThat(instance.startAnalysis(1), nullValue());
+        assertThat(instance.cancelAnalysis(1), nullValue());
+        assertThat(instance.getAnalysisDirectory(1), nullValue());
+        assertThat(instance.exists(1), is(false));
+    }
+
+    @Test
+    public void testCreateVcfMakesAnalysisReady() throws Exception {
+        long id = createJobWithVcf();
+
+        assertThat(instance.getAnalysisStatus(id).getAnalysisStatus(), equalTo(AnalysisStatus.READY));
+        assertThat(instance.getVcf(id), equalTo(instance.getAnalysisDirectory(id).resolve("sample.vcf")));
+    }
+
+    @Test
+    public void testStartAnalysisWithoutVcfIsNotQueued() {
+        long id = instance.createAnalysisJob(new Analysis()).getId();
+
+        assertThat(instance.startAnalysis(id).getAnalysisStatus(), equalTo(AnalysisStatus.AWAITING_VCF));
+    }
+
+    @Test
+    public void testStartAnalysisRunsToCompletionAndResultsAreAvailable() throws Exception {
+        long id = createJobWithVcf();
+        assertThat(instance.getResults(id, OutputFormat.TSV_GENE), nullValue());
+
+        instance.startAnalysis(id, AnalysisPriority.HIGH);
+
+        assertThat(waitForStatusOtherThan(id, AnalysisStatus.QUEUED, AnalysisStatus.PROCESSING), equalTo(AnalysisStatus.COMPLETED));
+        assertThat(instance.getResults(id, OutputFormat.TSV_GENE), notNullValue());
+        assertThat(instance.getResults(id, OutputFormat.HTML), nullValue());
+    }
+
+    @Test
+    public void testFailedAnalysisHasErrorStatus() throws Exception {
+        analysisJobRunner.fail = true;
+        long id = createJobWithVcf();
+
+        instance.startAnalysis(id);
+
+        assertThat(waitForStatusOtherThan(id, AnalysisStatus.QUEUED, AnalysisStatus.PROCESSING), equalTo(AnalysisStatus.ERROR));
+        assertThat(instance.getResults(id, OutputFormat.TSV_GENE), nullValue());
+    }
+
+    @Test
+    public void testCancelRunningAnalysis() throws Exception {
+        analysisJobRunner.block = true;
+        long id = createJobWithVcf();
+        instance.startAnalysis(id);
+        waitForStatusOtherThan(id, AnalysisStatus.QUEUED);
+
+        assertThat(instance.cancelAnalysis(id).getAnalysisStatus(), equalTo(AnalysisStatus.CANCELLED));
+        Thread.sleep(50);
+        assertThat(instance.getAnalysisStatus(id).getAnalysisStatus(), equalTo(AnalysisStatus.CANCELLED));
+    }
+
+    @Test
+    public void testRestartRecoversCompletedAndRequeuesInterruptedJobs() throws Exception {
+        long completedId = createJobWithVcf();
+        instance.startAnalysis(completedId);
+        waitForStatusOtherThan(completedId, AnalysisStatus.QUEUED, AnalysisStatus.PROCESSING);
+
+        long interruptedId = createJobWithVcf();
+        AnalysisJob interruptedJob = new AnalysisJob(interruptedId, instance.getAnalysis(interruptedId), AnalysisStatus.PROCESSING, "Analysis running.");
+        analysisJobStore.save(interruptedJob);
+        analysisJobExecutor.shutdown();
+
+        instance = newService();
+
+        assertThat(instance.getAnalysisStatus(completedId).getAnalysisStatus(), equalTo(AnalysisStatus.COMPLETED));
+        assertThat(instance.getVcf(interruptedId), equalTo(instance.getAnalysisDirectory(interruptedId).resolve("sample.vcf")));
+        assertThat(waitForStatusOtherThan(interruptedId, AnalysisStatus.QUEUED, AnalysisStatus.PROCESSING), equalTo(AnalysisStatus.COMPLETED));
+        assertThat(instance.createAnalysisJob(new Analysis()).getId() > interruptedId, is(true));
+    }
+
+    @Test
+    public void testDeleteRemovesAnalysisDirectory() throws Exception {
+        long id = createJobWithVcf();
+        Path analysisDirectory = instance.getAnalysisDirectory(id);
+
+        instance.delete(id);
+
+        assertThat(instance.exists(id), is(false));
+        assertThat(Files.exists(analysisDirectory), is(false));
+    }
+
+    private static class StubAnalysisJobRunner implements AnalysisJobRunner {
+
+        private volatile boolean fail = false;
+        private volatile boolean block = false;
+
+        @Override
+        public Set<OutputFormat> getOutputFormats() {
+            return Collections.singleton(OutputFormat.TSV_GENE);
+        }
+
+        @Override
+        public Path getResultsPath(Analysis analysis, Path analysisDirectory, OutputFormat outputFormat) {
+            return analysisDirectory.resolve("results." + outputFormat.getFileExtension());
+        }
+
+        @Override
+        public void run(Analysis analysis, Path analysisDirectory) {
+            if (fail) {
+                throw new IllegalStateException("Boom!");
+            }
+            while (block && !Thread.currentThread().isInterrupted()) {
+                Thread.yield();
+            }
+            try {
+                Files.write(getResultsPath(analysis, analysisDirectory, OutputFormat.TSV_GENE), "results".getBytes());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@
 import de.charite.compbio.exomiser.core.prioritisers.util.OntologyServiceImpl;
 import de.charite.compbio.exomiser.core.prioritisers.util.PriorityService;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -158,12 +159,17 @@ public SampleDataFactory sampleDataFactory() {
 
     /**
      * This needs a lot of RAM and is slow to create from the randomWalkFile, so
-     * it's set as lazy use on the command-line.
+     * it's set as lazy use on the command-line. If the binary version of the
+     * matrix is present this is memory-mapped instead.
      *
      */
     @Bean
     @Lazy
     public DataMatrix randomWalkMatrix() {
+        String randomWalkBinaryFileName = env.getProperty("randomWalkBinaryFileName", "");
+        if (!randomWalkBinaryFileName.isEmpty() && Files.exists(dataPath().resolve(randomWalkBinaryFileName))) {
+            return new DataMatrix(dataPath().resolve(randomWalkBinaryFileName));
+        }
         Path randomWalkFilePath = dataPath().resolve(env.getProperty("randomWalkFileName"));
         Path randomWalkIndexFilePath = dataPath().resolve(env.getProperty("randomWalkIndexFileName"));
 
@@ -10,8 +10,10 @@
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
@@ -19,6 +21,8 @@
 import org.thymeleaf.spring4.view.ThymeleafViewResolver;
 import org.thymeleaf.templateresolver.ServletContextTemplateResolver;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  *
  * @author Jules Jacobsen <jules.jacobsen@sanger.ac.uk>
@@ -42,6 +46,28 @@ MultipartResolver multipartResolver() {
         return multipartResolver;
     }
 
+    /**
+     * Analyses are run on these workers rather than the servlet threads. Each analysis can use a lot of memory, so the
+     * pool is kept to the number of cores and further submissions wait in the queue.
+     */
+    @Bean
+    ThreadPoolTaskExecutor analysisTaskExecutor() {
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        int numWorkers = Runtime.getRuntime().availableProcessors();
+        taskExecutor.setCorePoolSize(numWorkers);
+        taskExecutor.setMaxPoolSize(numWorkers);
+        taskExecutor.setQueueCapacity(100);
+        taskExecutor.setThreadNamePrefix("analysis-worker-");
+        return taskExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(analysisTaskExecutor());
+        //analyses of large samples can take several minutes
+        configurer.setDefaultTimeout(TimeUnit.MINUTES.toMillis(30));
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
@@ -50,6 +50,8 @@ private void configureSpringMvc(ServletContext servletContext, WebApplicationCon
         
         ServletRegistration.Dynamic appServlet = servletContext.addServlet("exomiser", new DispatcherServlet(mvcContext));
         appServlet.setLoadOnStartup(1);
+        //the SubmitJobController runs the analyses asynchronously
+        appServlet.setAsyncSupported(true);
         Set<String> mappingConflicts = appServlet.addMapping("/");
 
         if (!mappingConflicts.isEmpty()) {
@@ -38,13 +38,15 @@
 import de.charite.compbio.exomiser.core.writers.ResultsWriterUtils;
 import de.charite.compbio.exomiser.core.writers.VariantEffectCount;
 import de.charite.compbio.exomiser.core.prioritisers.PriorityType;
+import de.charite.compbio.exomiser.core.util.VcfIngester;
+import de.charite.compbio.exomiser.core.util.VcfIngester.IngestedVcf;
 import de.charite.compbio.jannovar.data.ReferenceDictionary;
 import de.charite.compbio.jannovar.data.ReferenceDictionaryBuilder;
 import de.charite.compbio.jannovar.pedigree.ModeOfInheritance;
 import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -53,6 +55,7 @@
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import javax.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,8 +95,13 @@ public String configureExomiserJob(Model model) {
         return "submit";
     }
 
+    /**
+     * The uploaded files are streamed to disk and checked on the request thread, as the multipart stream belongs to
+     * the request. The analysis itself is run on one of the async workers so that a few large samples don't tie up
+     * all the servlet threads.
+     */
     @RequestMapping(value = "submit", method = RequestMethod.POST)
-    public String submit(
+    public Callable<String> submit(
             @RequestParam(value = "vcf") MultipartFile vcfFile,
             @RequestParam(value = "ped", required = false) MultipartFile pedFile,
             @RequestParam(value = "disease", required = false) String diseaseId,
@@ -111,57 +119,70 @@ public String submit(
             Model model) {
 
         logger.info("Session id: {}", session.getId());
-        Path vcfPath = createPathFromMultipartFile(vcfFile);
-        Path pedPath = createPathFromMultipartFile(pedFile);
-
         logger.info("Selected disease: {}", diseaseId);
         logger.info("Selected phenotypes: {}", phenotypes);
         Set<Integer> genesToKeep = makeGenesToKeep(genesToFilter);
         //require a mimimum input of a VCF file and a set of HPO terms - these can come from the diseaseId
-        if (vcfPath == null) {
-            return "submit";
+        if (vcfFile.isEmpty()) {
+            return () -> "submit";
+        }
+
+        Path sampleDirectory = createSampleDirectory();
+        IngestedVcf ingestedVcf = ingestVcf(vcfFile, sampleDirectory);
+        if (ingestedVcf == null) {
+            cleanUpSampleFiles(sampleDirectory);
+            model.addAttribute("uploadError", "Unable to read " + vcfFile.getOriginalFilename() + " - please check this is a valid VCF file.");
+            return () -> "submit";
         }
+        Path vcfPath = ingestedVcf.getPath();
+        Path pedPath = createPathFromMultipartFile(pedFile, sampleDirectory);
 
-        int numVariantsInSample = countVariantLinesInVcf(vcfPath);
+        int numVariantsInSample = ingestedVcf.getNumVariants();
         if (numVariantsInSample > maxVariants) {
             logger.info("{} contains {} variants - this is more than the allowed maximum of {}."
                     + "Returning user to submit page", vcfPath, numVariantsInSample, maxVariants);
-            cleanUpSampleFiles(vcfPath, pedPath);
+            cleanUpSampleFiles(sampleDirectory);
             model.addAttribute("numVariants", numVariantsInSample);
-            return "resubmitWithFewerVariants";
+            return () -> "resubmitWithFewerVariants";
         }
 
-        //TODO: Submit the settings to the ExomiserController to run the job rather than do it here
-        Analysis analysis = buildAnalysis(Paths.get(vcfFile.getOriginalFilename()), Paths.get(pedFile.getOriginalFilename()), diseaseId, phenotypes, geneticInterval, minimumQuality, removeDbSnp, keepOffTarget, keepNonPathogenic, modeOfInheritance, frequency, genesToKeep, prioritiser);
-        AnalysisRunner analysisRunner = analysisFactory.getAnalysisRunnerForMode(AnalysisMode.PASS_ONLY);
-        analysisRunner.runAnalysis(analysis);
-
-        buildResultsModel(model, analysis);
-
-        logger.info("Returning {} results to user", vcfPath.getFileName());
-        cleanUpSampleFiles(vcfPath, pedPath);
-        return "results";
+        Analysis analysis = buildAnalysis(vcfPath, pedPath, diseaseId, phenotypes, geneticInterval, minimumQuality, removeDbSnp, keepOffTarget, keepNonPathogenic, modeOfInheritance, frequency, genesToKeep, prioritiser);
+        return () -> {
+            try {
+                AnalysisRunner analysisRunner = analysisFactory.getAnalysisRunnerForMode(AnalysisMode.PASS_ONLY);
+                analysisRunner.runAnalysis(analysis);
+                buildResultsModel(model, analysis);
+                logger.info("Returning {} results to user", vcfPath.getFileName());
+                return "results";
+            } finally {
+                cleanUpSampleFiles(sampleDirectory);
+            }
+        };
     }
 
-    private int countVariantLinesInVcf(Path vcfPath) {
-        int variantCount = 0;
+    private Path createSampleDirectory() {
         try {
-            BufferedReader fileReader = Files.newBufferedReader(vcfPath, StandardCharsets.UTF_8);
-            boolean readingVariants = false;
-            String line;
-            for (line = fileReader.readLine(); fileReader.readLine() != null;) {
-                if (line.startsWith("#CHROM")) {
-                    readingVariants = true;
-                }
-                while (readingVariants == true) {
-                    variantCount++;
-                }
-            }
+            return Files.createTempDirectory("exomiser-sample");
         } catch (IOException ex) {
-            logger.error("", ex);
+            throw new IllegalStateException("Unable to create directory for uploaded files", ex);
         }
-        logger.info("Vcf {} contains {} variants", vcfPath, variantCount);
-        return variantCount;
+    }
+
+    /**
+     * Streams the VCF to disk, counting and checking the variants in the same pass.
+     */
+    private IngestedVcf ingestVcf(MultipartFile vcfFile, Path sampleDirectory) {
+        logger.info("Uploading VCF file: {}", vcfFile.getOriginalFilename());
+        try (InputStream inputStream = vcfFile.getInputStream()) {
+            IngestedVcf ingestedVcf = VcfIngester.ingest(inputStream, sampleDirectory, vcfFile.getOriginalFilename());
+            logger.info("Vcf {} contains {} variants", ingestedVcf.getPath(), ingestedVcf.getNumVariants());
+            return ingestedVcf;
+        } catch (VcfIngester.InvalidVcfException ex) {
+            logger.info("Invalid VCF file {} - {}", vcfFile.getOriginalFilename(), ex.getMessage());
+        } catch (IOException ex) {
+            logger.error("Failed to upload file {}", vcfFile.getOriginalFilename(), ex);
+        }
+        return null;
     }
 
     private Analysis buildAnalysis(Path vcfPath, Path pedPath, String diseaseId, List<String> phenotypes, String geneticInterval, Float minimumQuality, Boolean removeDbSnp, Boolean keepOffTarget, Boolean keepNonPathogenic, String modeOfInheritance, String frequency, Set<Integer> genesToKeep, String prioritiser) throws NumberFormatException {
@@ -259,13 +280,13 @@ private int numGenesPassedFilters(List<Gene> genes) {
         return numCandidateGenes;
     }
 
-    private void cleanUpSampleFiles(Path vcfPath, Path pedPath) {
-        logger.info("Deleting input files VCF: {} and PED: {}", vcfPath, pedPath);
-        try {
-            Files.deleteIfExists(vcfPath);
-            if (pedPath != null) {
-                Files.deleteIfExists(pedPath);
+    private void cleanUpSampleFiles(Path sampleDirectory) {
+        logger.info("Deleting input files in {}", sampleDirectory);
+        try (DirectoryStream<Path> sampleFiles = Files.newDirectoryStream(sampleDirectory)) {
+            for (Path sampleFile : sampleFiles) {
+                Files.deleteIfExists(sampleFile);
             }
+            Files.deleteIfExists(sampleDirectory);
         } catch (IOException ex) {
             logger.error("Unable to delete sample files", ex);
         }
@@ -289,14 +310,12 @@ private Set<Integer> makeGenesToKeep(List<String> genesToFilter) {
         return genesToKeep;
     }
 
-    private Path createPathFromMultipartFile(MultipartFile multipartFile) {
-        Path tempDirPath = Paths.get(System.getProperty("java.io.tmpdir"));
-        if (!multipartFile.isEmpty()) {
+    private Path createPathFromMultipartFile(MultipartFile multipartFile, Path sampleDirectory) {
+        if (multipartFile != null && !multipartFile.isEmpty()) {
             logger.info("Uploading multipart file: {}", multipartFile.getOriginalFilename());
-            try {
-                Path path = Files.createTempFile(tempDirPath, "temp",  multipartFile.getOriginalFilename());
-//                Path path = Paths.get(tempDirPath.toString(), multipartFile.getOriginalFilename());
-                multipartFile.transferTo(path.toFile());
+            try (InputStream inputStream = multipartFile.getInputStream()) {
+                Path path = sampleDirectory.resolve(Paths.get(multipartFile.getOriginalFilename()).getFileName());
+                Files.copy(inputStream, path);
                 return path;
             } catch (IOException e) {
                 logger.error("Failed to upload file {}", multipartFile.getOriginalFilename(), e);